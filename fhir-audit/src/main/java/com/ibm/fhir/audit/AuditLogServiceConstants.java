@@ -21,6 +21,15 @@ public final class AuditLogServiceConstants {
     public static final String PROPERTY_AUDIT_KAFKA_BOOTSTRAPSERVERS = "kafkaServers";
     public static final String PROPERTY_AUDIT_KAFKA_APIKEY = "kafkaApiKey";
     public static final String PROPERTY_AUDIT_MAPPER = "mapper";
+    public static final String PROPERTY_AUDIT_FILE = "auditFile";
+
+    // The group of properties of the asynchronous audit event queue, and its properties
+    public static final String PROPERTY_AUDIT_ASYNC = "async";
+    public static final String PROPERTY_AUDIT_ASYNC_ENABLED = "enabled";
+    public static final String PROPERTY_AUDIT_ASYNC_QUEUE_SIZE = "queueSize";
+    public static final String PROPERTY_AUDIT_ASYNC_BATCH_SIZE = "batchSize";
+    public static final String PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL = "retryInterval";
+    public static final String PROPERTY_AUDIT_ASYNC_SPOOL_FILE = "spoolFile";
 
     public static final String DEFAULT_MAPPER = "cadf";
 
@@ -28,6 +37,10 @@ public final class AuditLogServiceConstants {
 
     public static final String DEFAULT_AUDIT_KAFKA_TOPIC = "FHIR_AUDIT";
 
+    public static final int DEFAULT_AUDIT_ASYNC_QUEUE_SIZE = 10000;
+    public static final int DEFAULT_AUDIT_ASYNC_BATCH_SIZE = 100;
+    public static final int DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL = 5000;
+
     // These are intentional defaults and accurately describing the state of the
     // Audit as it doesn't know where it is running, and users should set it.
     public static final String DEFAULT_AUDIT_GEO_CITY = "UnknownCity";
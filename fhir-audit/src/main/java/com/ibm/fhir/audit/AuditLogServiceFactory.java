@@ -97,6 +97,24 @@ public class AuditLogServiceFactory {
         log.exiting(CLASSNAME, METHODNAME);
     }
 
+    /**
+     * Stops the audit log service, if it has been created, so that it can write the audit events it still holds.
+     */
+    public static synchronized void stopService() {
+        final String METHODNAME = "stopService";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (serviceInstance != null) {
+            try {
+                serviceInstance.stop(FHIRConfigHelper.getPropertyGroup(FHIRConfiguration.PROPERTY_AUDIT_SERVICE_PROPERTIES));
+            } catch (Throwable e) {
+                log.warning("Failure stopping audit log service: " + e.toString());
+            }
+            serviceInstance = null;
+        }
+        log.exiting(CLASSNAME, METHODNAME);
+    }
+
     /**
      * Resets the singleton instance of the audit logger service object that is cached by this factory class,
      * then creates, caches, and returns a new service object instance.
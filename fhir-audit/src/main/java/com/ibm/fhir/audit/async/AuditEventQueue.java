@@ -0,0 +1,367 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.async;
+
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_BATCH_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_QUEUE_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_BATCH_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_ENABLED;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_QUEUE_SIZE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_ASYNC_SPOOL_FILE;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.config.PropertyGroup;
+
+/**
+ * Decouples the request threads which log audit events from the backend of the audit log service.
+ *
+ * <p>Events are added to a bounded in-memory queue, which is drained by a background thread. The background thread
+ * writes the events to the backend in batches of up to {@code batchSize} events.
+ *
+ * <p>If a spool file is configured, the background thread appends the events which can't be written to the backend
+ * to the {@link AuditEventSpool}, and writes them to the backend once it is available again, retrying every
+ * {@code retryInterval} milliseconds. Without a spool, the background thread retries the failed batch until the
+ * backend accepts it, while new events wait in the queue. Only the background thread does any I/O: events which
+ * don't fit in the queue are dropped and counted, so the request threads never wait for the backend or the disk.
+ *
+ * <p>The queue depth, the number of written, spooled and dropped events and the latency between logging an event
+ * and writing it to the backend are available from this class, and are logged when the backend becomes unavailable
+ * or available again and when the queue is stopped.
+ */
+public class AuditEventQueue {
+    private static final String CLASSNAME = AuditEventQueue.class.getName();
+    private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
+
+    // How long the background thread waits for new events before it checks the spool and the stop flag
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final AuditEventWriter writer;
+    private final BlockingQueue<QueuedEvent> queue;
+    private final int batchSize;
+    private final long retryIntervalMillis;
+    private final AuditEventSpool spool;
+    private final Thread batcher;
+    private volatile boolean running = true;
+
+    // Only used by the background thread
+    private boolean backendAvailable = true;
+    private long nextRetryMillis;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong spooledCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong latencyCount = new AtomicLong();
+
+    /**
+     * Creates the queue and starts its background thread
+     *
+     * @param name
+     *            - a name for the queue, used to name the background thread
+     * @param writer
+     *            - writes the events to the backend
+     * @param queueSize
+     *            - the maximum number of events waiting in memory
+     * @param batchSize
+     *            - the maximum number of events written to the backend at once
+     * @param retryIntervalMillis
+     *            - the time between attempts to write to the backend while it is unavailable
+     * @param spool
+     *            - the spool for the events which can't be written to the backend, or null
+     */
+    public AuditEventQueue(String name, AuditEventWriter writer, int queueSize, int batchSize, long retryIntervalMillis,
+            AuditEventSpool spool) {
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueSize, 1));
+        this.batchSize = Math.max(batchSize, 1);
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.spool = spool;
+
+        this.batcher = new Thread(this::run, "fhir-audit-" + name);
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+
+    /**
+     * Creates and starts the queue configured by the "async" property group of the audit log service properties
+     *
+     * @param name
+     *            - a name for the queue, used to name the background thread
+     * @param writer
+     *            - writes the events to the backend
+     * @param auditLogProperties
+     *            - the audit log service properties
+     * @return the queue, or null if asynchronous logging is not enabled
+     * @throws Exception
+     *             - if the properties are invalid or the spool file can't be opened
+     */
+    public static AuditEventQueue create(String name, AuditEventWriter writer, PropertyGroup auditLogProperties) throws Exception {
+        PropertyGroup asyncProperties = auditLogProperties != null ? auditLogProperties.getPropertyGroup(PROPERTY_AUDIT_ASYNC) : null;
+        if (asyncProperties == null || !asyncProperties.getBooleanProperty(PROPERTY_AUDIT_ASYNC_ENABLED, Boolean.FALSE)) {
+            return null;
+        }
+
+        int queueSize = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_QUEUE_SIZE, DEFAULT_AUDIT_ASYNC_QUEUE_SIZE);
+        int batchSize = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_BATCH_SIZE, DEFAULT_AUDIT_ASYNC_BATCH_SIZE);
+        int retryInterval = asyncProperties.getIntProperty(PROPERTY_AUDIT_ASYNC_RETRY_INTERVAL, DEFAULT_AUDIT_ASYNC_RETRY_INTERVAL);
+        String spoolFile = asyncProperties.getStringProperty(PROPERTY_AUDIT_ASYNC_SPOOL_FILE, null);
+        AuditEventSpool spool = spoolFile != null ? new AuditEventSpool(Paths.get(spoolFile)) : null;
+
+        logger.info("Audit events are written asynchronously; queueSize=" + queueSize + ", batchSize=" + batchSize
+                + ", spoolFile=" + spoolFile);
+        return new AuditEventQueue(name, writer, queueSize, batchSize, retryInterval, spool);
+    }
+
+    /**
+     * Adds the passed event to the queue. Does not block; if the queue is full, the event is dropped.
+     * Does nothing once the queue has been stopped.
+     *
+     * @param event
+     *            - the serialized audit event
+     */
+    public void offer(String event) {
+        if (!running) {
+            return;
+        }
+        if (!queue.offer(new QueuedEvent(event)) && droppedCount.getAndIncrement() == 0) {
+            logger.warning("Audit event queue is full; dropping audit events. " + getMetrics());
+        }
+    }
+
+    /**
+     * Stops the queue after its background thread has written the events in the queue, or spooled them if the
+     * backend is unavailable.
+     *
+     * @param timeoutMillis
+     *            - the maximum time to wait for the background thread
+     * @throws InterruptedException
+     */
+    public void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        batcher.join(timeoutMillis);
+        if (batcher.isAlive()) {
+            logger.warning("Audit event queue did not stop in " + timeoutMillis + "ms; " + queue.size() + " events not written");
+        }
+        if (spool != null) {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close audit event spool", e);
+            }
+        }
+        logger.info("Audit event queue stopped. " + getMetrics());
+    }
+
+    /**
+     * @return the number of events waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of events waiting in the spool, or 0 if there is no spool
+     */
+    public int getSpoolDepth() {
+        return spool != null ? spool.size() : 0;
+    }
+
+    /**
+     * @return the number of events written to the backend
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return the number of events added to the spool
+     */
+    public long getSpooledCount() {
+        return spooledCount.get();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full, or because they could not be written or spooled
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the average time, in milliseconds, between logging an event and writing it from the queue to the backend
+     */
+    public double getAverageLatencyMillis() {
+        long count = latencyCount.get();
+        return count > 0 ? totalLatencyNanos.get() / (count * 1e6) : 0;
+    }
+
+    /**
+     * @return the maximum time, in milliseconds, between logging an event and writing it from the queue to the backend
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    /**
+     * @return a summary of the metrics of this queue, for logging
+     */
+    public String getMetrics() {
+        return String.format("queueDepth=%d, spoolDepth=%d, written=%d, spooled=%d, dropped=%d, avgLatency=%.1fms, maxLatency=%.1fms",
+                getQueueDepth(), getSpoolDepth(), getWrittenCount(), getSpooledCount(), getDroppedCount(),
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    /**
+     * The loop of the background thread; runs until the queue is stopped and empty
+     */
+    private void run() {
+        List<QueuedEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedEvent first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                logger.warning("Audit event queue interrupted");
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                // Keep the thread alive; the batch is lost
+                logger.log(Level.SEVERE, "Unexpected error writing audit events", t);
+                droppedCount.addAndGet(batch.size());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<QueuedEvent> batch) throws InterruptedException {
+        if (spool != null) {
+            // Spooled events go first, so new events are spooled until the spool is empty
+            if (spool.size() > 0 && System.currentTimeMillis() >= nextRetryMillis) {
+                replaySpool();
+            }
+            if (!batch.isEmpty() && (spool.size() > 0 || !tryWrite(batch))) {
+                spoolBatch(batch);
+            }
+        } else {
+            while (!batch.isEmpty() && !tryWrite(batch)) {
+                if (!running) {
+                    droppedCount.addAndGet(batch.size());
+                    logger.severe("Dropping " + batch.size() + " audit events; the backend is unavailable");
+                    break;
+                }
+                Thread.sleep(retryIntervalMillis);
+            }
+        }
+    }
+
+    /**
+     * Writes the passed batch to the backend
+     * @return true if the batch was written
+     */
+    private boolean tryWrite(List<QueuedEvent> batch) {
+        List<String> events = new ArrayList<>(batch.size());
+        for (QueuedEvent queuedEvent : batch) {
+            events.add(queuedEvent.event);
+        }
+
+        try {
+            writer.write(events);
+        } catch (Exception e) {
+            backendFailed(e);
+            return false;
+        }
+
+        long now = System.nanoTime();
+        for (QueuedEvent queuedEvent : batch) {
+            long latency = now - queuedEvent.offeredNanos;
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+        latencyCount.addAndGet(batch.size());
+        writtenCount.addAndGet(batch.size());
+        backendRecovered();
+        return true;
+    }
+
+    private void spoolBatch(List<QueuedEvent> batch) {
+        List<String> events = new ArrayList<>(batch.size());
+        for (QueuedEvent queuedEvent : batch) {
+            events.add(queuedEvent.event);
+        }
+
+        try {
+            spool.append(events);
+            spooledCount.addAndGet(events.size());
+        } catch (IOException e) {
+            droppedCount.addAndGet(events.size());
+            logger.log(Level.SEVERE, "Failed to spool " + events.size() + " audit events", e);
+        }
+    }
+
+    /**
+     * Writes the spooled events to the backend, oldest first, until the spool is empty or the backend fails
+     */
+    private void replaySpool() {
+        try {
+            List<String> events;
+            while (!(events = spool.peek(batchSize)).isEmpty()) {
+                writer.write(events);
+                spool.remove(events.size());
+                writtenCount.addAndGet(events.size());
+            }
+            backendRecovered();
+        } catch (Exception e) {
+            backendFailed(e);
+        }
+    }
+
+    private void backendFailed(Exception e) {
+        nextRetryMillis = System.currentTimeMillis() + retryIntervalMillis;
+        if (backendAvailable) {
+            backendAvailable = false;
+            logger.log(Level.WARNING, "Failed to write audit events; retrying every " + retryIntervalMillis + "ms. " + getMetrics(), e);
+        }
+    }
+
+    private void backendRecovered() {
+        if (!backendAvailable) {
+            backendAvailable = true;
+            logger.info("Audit events written again. " + getMetrics());
+        }
+    }
+
+    /**
+     * An event in the queue, with the time it was logged
+     */
+    private static final class QueuedEvent {
+        private final String event;
+        private final long offeredNanos = System.nanoTime();
+
+        private QueuedEvent(String event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.async;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * An append-only file of serialized audit events which could not be written to the backend of the audit log
+ * service. The events are read back in the order they were appended, and are removed once the backend has
+ * accepted them.
+ *
+ * <p>The file starts with the offset of the first unread event, followed by the events, each stored as its
+ * length and its UTF-8 bytes. Appends and removals are forced to disk before they return, so a restarted
+ * server continues with the events left by the previous one. The file is emptied when all the events have been
+ * read.
+ */
+public class AuditEventSpool implements Closeable {
+    private static final String CLASSNAME = AuditEventSpool.class.getName();
+    private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
+
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    // The offset of the first unread event, and the number of unread events
+    private long readOffset;
+    private int size;
+
+    /**
+     * Opens the spool file, creating it if it does not exist
+     *
+     * @param file
+     *            - the spool file
+     * @throws IOException
+     */
+    public AuditEventSpool(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            clear();
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+            readOffset = header.getLong(0);
+            if (readOffset < HEADER_SIZE || readOffset > fileSize) {
+                logger.warning("Invalid read offset in audit event spool '" + file + "'; reading all events");
+                readOffset = HEADER_SIZE;
+            }
+            recover(fileSize);
+        }
+    }
+
+    /**
+     * Counts the unread events, and truncates the file after the last complete event (a server may have stopped
+     * in the middle of an append)
+     */
+    private void recover(long fileSize) throws IOException {
+        long offset = readOffset;
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        while (offset + Integer.BYTES <= fileSize) {
+            length.clear();
+            readFully(length, offset);
+            int eventLength = length.getInt(0);
+            if (eventLength < 0 || offset + Integer.BYTES + eventLength > fileSize) {
+                break;
+            }
+            offset += Integer.BYTES + eventLength;
+            size++;
+        }
+
+        if (offset < fileSize) {
+            logger.warning("Discarding an incomplete audit event at the end of the audit event spool '" + file + "'");
+            channel.truncate(offset);
+            channel.force(false);
+        }
+        if (size > 0) {
+            logger.info("Audit event spool '" + file + "' contains " + size + " events");
+        }
+    }
+
+    /**
+     * Appends the passed events to the end of the spool
+     *
+     * @param events
+     *            - the serialized audit events
+     * @throws IOException
+     */
+    public synchronized void append(List<String> events) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(events.size());
+        int bufferSize = 0;
+        for (String event : events) {
+            byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            bufferSize += Integer.BYTES + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.flip();
+
+        long offset = channel.size();
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+        channel.force(false);
+        size += events.size();
+    }
+
+    /**
+     * Reads the oldest events of the spool, without removing them
+     *
+     * @param maxEvents
+     *            - the maximum number of events to read
+     * @return the events, oldest first
+     * @throws IOException
+     */
+    public synchronized List<String> peek(int maxEvents) throws IOException {
+        int count = Math.min(maxEvents, size);
+        List<String> events = new ArrayList<>(count);
+        long offset = readOffset;
+        for (int i = 0; i < count; i++) {
+            int eventLength = readLength(offset);
+            ByteBuffer bytes = ByteBuffer.allocate(eventLength);
+            readFully(bytes, offset + Integer.BYTES);
+            events.add(new String(bytes.array(), StandardCharsets.UTF_8));
+            offset += Integer.BYTES + eventLength;
+        }
+        return events;
+    }
+
+    /**
+     * Removes the oldest events of the spool, after they have been written to the backend
+     *
+     * @param count
+     *            - the number of events to remove
+     * @throws IOException
+     */
+    public synchronized void remove(int count) throws IOException {
+        count = Math.min(count, size);
+        if (count == size) {
+            clear();
+            return;
+        }
+
+        long offset = readOffset;
+        for (int i = 0; i < count; i++) {
+            offset += Integer.BYTES + readLength(offset);
+        }
+        writeReadOffset(offset);
+        size -= count;
+    }
+
+    /**
+     * @return the number of events in the spool
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the spool file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Removes all the events; the file is truncated to its header
+     */
+    private void clear() throws IOException {
+        channel.truncate(HEADER_SIZE);
+        writeReadOffset(HEADER_SIZE);
+        size = 0;
+    }
+
+    private void writeReadOffset(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(0, offset);
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.force(false);
+        readOffset = offset;
+    }
+
+    private int readLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset);
+        return length.getInt(0);
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of audit event spool '" + file + "'");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.async;
+
+import java.util.List;
+
+/**
+ * Writes serialized audit events to the backend of an audit log service.
+ */
+@FunctionalInterface
+public interface AuditEventWriter {
+
+    /**
+     * Writes the passed audit events, in order. If an exception is thrown, none of the events are considered
+     * written; they may be written again later, so the backend may receive some events more than once.
+     *
+     * @param events
+     *            - the serialized audit events
+     * @throws Exception
+     */
+    void write(List<String> events) throws Exception;
+}
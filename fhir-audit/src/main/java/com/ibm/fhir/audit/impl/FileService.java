@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.impl;
+
+import static com.ibm.fhir.audit.AuditLogServiceConstants.IGNORED_AUDIT_EVENT_TYPE;
+import static com.ibm.fhir.audit.AuditLogServiceConstants.PROPERTY_AUDIT_FILE;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.audit.AuditLogService;
+import com.ibm.fhir.audit.async.AuditEventQueue;
+import com.ibm.fhir.audit.async.AuditEventWriter;
+import com.ibm.fhir.audit.beans.AuditLogEntry;
+import com.ibm.fhir.audit.configuration.ConfigurationTranslator;
+import com.ibm.fhir.audit.mapper.MapperFactory;
+import com.ibm.fhir.audit.mapper.MapperType;
+import com.ibm.fhir.config.PropertyGroup;
+import com.ibm.fhir.exception.FHIRException;
+
+/**
+ * FileService appends the audit events to a local file, one serialized event per line.
+ * It needs no external system, so it can be used for development and testing, or where
+ * the audit events are collected from the file by other means.
+ */
+public class FileService implements AuditLogService, AuditEventWriter {
+    private static final String CLASSNAME = FileService.class.getName();
+    private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
+
+    private boolean enabled = false;
+
+    private final ConfigurationTranslator translator = new ConfigurationTranslator();
+    private Path file = null;
+    private AuditEventQueue queue = null;
+
+    private MapperType mapperType = null;
+    private PropertyGroup auditLogProperties = null;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void initialize(PropertyGroup auditLogProperties) throws Exception {
+        final String METHODNAME = "initialize";
+        logger.entering(CLASSNAME, METHODNAME);
+
+        String fileName = auditLogProperties.getStringProperty(PROPERTY_AUDIT_FILE, null);
+        if (fileName == null) {
+            throw new FHIRException("Failed to initialize the fhir-audit - '" + PROPERTY_AUDIT_FILE + "' is not set!");
+        }
+        this.file = Paths.get(fileName);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        this.mapperType = translator.getMapperType(auditLogProperties);
+        this.auditLogProperties = auditLogProperties;
+        this.queue = AuditEventQueue.create("file", this, auditLogProperties);
+        this.enabled = true;
+        logger.info("Initialized Audit Logger, writing to '" + file + "'");
+
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
+    @Override
+    public void logEntry(AuditLogEntry logEntry) throws Exception {
+        final String METHODNAME = "logEntry";
+        logger.entering(CLASSNAME, METHODNAME);
+
+        if (this.isLoggableOperation(logEntry) && !IGNORED_AUDIT_EVENT_TYPE.contains(logEntry.getEventType())) {
+            String eventString = MapperFactory.getMapper(mapperType)
+                    .init(auditLogProperties)
+                    .map(logEntry)
+                    .serialize();
+
+            if (queue != null) {
+                queue.offer(eventString);
+            } else {
+                write(Collections.singletonList(eventString));
+            }
+        }
+
+        logger.exiting(CLASSNAME, METHODNAME);
+    }
+
+    @Override
+    public synchronized void write(List<String> events) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String event : events) {
+                // The events are written one per line
+                writer.write(event.replace('\n', ' ').replace('\r', ' '));
+                writer.newLine();
+            }
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Wrote " + events.size() + " audit events to '" + file + "'");
+        }
+    }
+
+    @Override
+    public void stop(PropertyGroup auditLogProperties) throws Exception {
+        if (queue != null) {
+            queue.stop(30000);
+        }
+    }
+
+    /**
+     * @return the queue of the events waiting to be written, or null if events are written synchronously
+     */
+    public AuditEventQueue getQueue() {
+        return queue;
+    }
+}
@@ -8,6 +8,10 @@ package com.ibm.fhir.audit.impl;
 
 import static com.ibm.fhir.audit.AuditLogServiceConstants.IGNORED_AUDIT_EVENT_TYPE;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,6 +22,8 @@ import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.errors.InterruptException;
 
 import com.ibm.fhir.audit.AuditLogService;
+import com.ibm.fhir.audit.async.AuditEventQueue;
+import com.ibm.fhir.audit.async.AuditEventWriter;
 import com.ibm.fhir.audit.beans.AuditLogEntry;
 import com.ibm.fhir.audit.configuration.ConfigurationTranslator;
 import com.ibm.fhir.audit.mapper.MapperFactory;
@@ -28,8 +34,10 @@ import com.ibm.fhir.exception.FHIRException;
 /**
  * KafkaService orchestrates the call to Kafka so
  * mappers and translators can be swapped out.
+ * If the "async" service properties are enabled, the events are sent to Kafka
+ * by an {@link AuditEventQueue} instead of on the thread which logs them.
  */
-public class KafkaService implements AuditLogService {
+public class KafkaService implements AuditLogService, AuditEventWriter {
     private static final String CLASSNAME = KafkaService.class.getName();
     private static final Logger logger = java.util.logging.Logger.getLogger(CLASSNAME);
 
@@ -38,6 +46,7 @@ public class KafkaService implements AuditLogService {
     private final ConfigurationTranslator translator = new ConfigurationTranslator();
     private KafkaProducer<String, String> producer = null;
     private String topic = "FHIR_AUDIT";
+    private AuditEventQueue queue = null;
 
     private MapperType mapperType = null;
     private PropertyGroup auditLogProperties = null;
@@ -64,6 +73,7 @@ public class KafkaService implements AuditLogService {
         }
 
         this.auditLogProperties = auditLogProperties;
+        this.queue = AuditEventQueue.create("kafka", this, auditLogProperties);
 
         logger.exiting(CLASSNAME, METHODNAME);
     }
@@ -83,14 +93,10 @@ public class KafkaService implements AuditLogService {
                         .map(logEntry)
                         .serialize();
 
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine("Sending to Topic '" + topic + "'" + size(eventString));
-                }
-                ProducerRecord<String, String> record = new ProducerRecord<>(topic, eventString);
-                // Block till the message is sent to kafka server.
-                RecordMetadata metadata = this.producer.send(record).get();
-                if (logger.isLoggable(Level.FINE)) {
-                    logger.fine(" Record Produced to Topic '" + metadata.topic() + "' at time " + metadata.timestamp());
+                if (queue != null) {
+                    queue.offer(eventString);
+                } else {
+                    write(Collections.singletonList(eventString));
                 }
             }
         }
@@ -98,8 +104,31 @@ public class KafkaService implements AuditLogService {
         logger.exiting(CLASSNAME, METHODNAME);
     }
 
+    /**
+     * Sends the passed events to the topic, and blocks until Kafka has acknowledged all of them
+     */
+    @Override
+    public void write(List<String> events) throws Exception {
+        List<Future<RecordMetadata>> futures = new ArrayList<>(events.size());
+        for (String eventString : events) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Sending to Topic '" + topic + "'" + size(eventString));
+            }
+            futures.add(this.producer.send(new ProducerRecord<>(topic, eventString)));
+        }
+        for (Future<RecordMetadata> future : futures) {
+            RecordMetadata metadata = future.get();
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine(" Record Produced to Topic '" + metadata.topic() + "' at time " + metadata.timestamp());
+            }
+        }
+    }
+
     @Override
     public void stop(PropertyGroup auditLogProperties) throws Exception {
+        if (queue != null) {
+            queue.stop(30000);
+        }
         try{
             this.producer.close(30, TimeUnit.SECONDS);
         } catch(InterruptException ie) {
@@ -7,14 +7,25 @@
 package com.ibm.fhir.audit;
 
 import static org.junit.Assert.assertFalse;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.json.Json;
+
 import org.testng.annotations.Test;
 
+import com.ibm.fhir.audit.beans.ApiParameters;
 import com.ibm.fhir.audit.beans.AuditLogEntry;
 import com.ibm.fhir.audit.beans.Context;
+import com.ibm.fhir.audit.beans.Data;
+import com.ibm.fhir.audit.impl.FileService;
 import com.ibm.fhir.audit.impl.NopService;
+import com.ibm.fhir.config.PropertyGroup;
 
 public class AuditLogServiceTest {
     @Test
@@ -51,4 +62,60 @@ public class AuditLogServiceTest {
         entry.getContext().setOperationName("healthcheck");
         assertFalse(svc.isLoggableOperation(entry));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFileService() throws Exception {
+        assertEquals(writeFileServiceEntries(false), 3);
+    }
+
+    @Test
+    public void testFileServiceAsync() throws Exception {
+        assertEquals(writeFileServiceEntries(true), 3);
+    }
+
+    /*
+     * logs three entries with a FileService and returns the number of lines in the audit file
+     */
+    private int writeFileServiceEntries(boolean async) throws Exception {
+        Path dir = Files.createTempDirectory("fhir-audit");
+        Path file = dir.resolve("audit.log");
+        try {
+            PropertyGroup properties = new PropertyGroup(Json.createObjectBuilder()
+                    .add("auditFile", file.toString())
+                    .add("mapper", "auditevent")
+                    .add("async", Json.createObjectBuilder()
+                        .add("enabled", async)
+                        .add("spoolFile", dir.resolve("audit.spool").toString()))
+                    .build());
+
+            FileService svc = new FileService();
+            svc.initialize(properties);
+            assertTrue(svc.isEnabled());
+            assertEquals(svc.getQueue() != null, async);
+
+            for (int i = 0; i < 3; i++) {
+                AuditLogEntry entry = new AuditLogEntry("fhir-server", "fhir-create", "2020-12-10 14:35:57.752", "192.168.12.28", "default");
+                entry.setDescription("FHIR Create request");
+                entry.setLocation("Location");
+                entry.setContext(new Context());
+                entry.getContext().setAction("C");
+                entry.getContext().setStartTime("2020-12-10 14:35:57.752");
+                entry.getContext().setEndTime("2020-12-10 14:35:57.779");
+                entry.getContext().setApiParameters(ApiParameters.builder().request("hostname").status(201).build());
+                entry.getContext().setData(Data.builder().resourceType("Patient").id("patient-" + i).versionId("1").build());
+                svc.logEntry(entry);
+            }
+            svc.stop(properties);
+
+            List<String> lines = Files.readAllLines(file);
+            for (String line : lines) {
+                assertTrue(line.startsWith("{\"resourceType\":\"AuditEvent\""));
+            }
+            return lines.size();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir.resolve("audit.spool"));
+            Files.deleteIfExists(dir);
+        }
+    }
+}
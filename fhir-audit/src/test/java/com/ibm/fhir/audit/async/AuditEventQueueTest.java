@@ -0,0 +1,216 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.audit.async;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the asynchronous audit event queue and its spool
+ */
+public class AuditEventQueueTest {
+
+    /**
+     * A backend which collects the written events, and fails while it is unavailable
+     */
+    private static class TestWriter implements AuditEventWriter {
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean available = true;
+        private volatile int maxBatch = 0;
+
+        @Override
+        public void write(List<String> batch) throws Exception {
+            if (!available) {
+                throw new Exception("backend unavailable");
+            }
+            maxBatch = Math.max(maxBatch, batch.size());
+            events.addAll(batch);
+        }
+    }
+
+    @Test
+    public void testWriteAsync() throws Exception {
+        TestWriter writer = new TestWriter();
+        AuditEventQueue queue = new AuditEventQueue("test", writer, 100, 10, 100, null);
+        for (int i = 0; i < 50; i++) {
+            queue.offer("event-" + i);
+        }
+        queue.stop(10000);
+
+        assertEquals(writer.events.size(), 50);
+        assertEquals(writer.events.get(0), "event-0");
+        assertEquals(writer.events.get(49), "event-49");
+        assertTrue(writer.maxBatch <= 10);
+        assertEquals(queue.getWrittenCount(), 50);
+        assertEquals(queue.getDroppedCount(), 0);
+        assertEquals(queue.getQueueDepth(), 0);
+        assertTrue(queue.getMaxLatencyMillis() >= queue.getAverageLatencyMillis());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        TestWriter writer = new TestWriter();
+        writer.available = false;
+        AuditEventQueue queue = new AuditEventQueue("test", writer, 5, 1, 100, null);
+        for (int i = 0; i < 20; i++) {
+            queue.offer("event-" + i);
+        }
+        // The background thread holds one batch while it retries, the queue holds 5 events
+        assertTrue(queue.getDroppedCount() >= 14);
+
+        writer.available = true;
+        queue.stop(10000);
+        assertEquals(queue.getWrittenCount() + queue.getDroppedCount(), 20);
+        assertEquals(writer.events.size(), queue.getWrittenCount());
+    }
+
+    @Test
+    public void testSpoolWhileUnavailable() throws Exception {
+        Path file = Files.createTempFile("audit-spool", ".dat");
+        try {
+            TestWriter writer = new TestWriter();
+            writer.available = false;
+            AuditEventQueue queue = new AuditEventQueue("test", writer, 100, 10, 100, new AuditEventSpool(file));
+            for (int i = 0; i < 30; i++) {
+                queue.offer("event-" + i);
+            }
+            waitFor(() -> queue.getSpoolDepth() == 30);
+            assertEquals(queue.getSpooledCount(), 30);
+            assertTrue(writer.events.isEmpty());
+
+            // The spooled events are written, in order, once the backend is available again
+            writer.available = true;
+            waitFor(() -> queue.getSpoolDepth() == 0);
+            queue.offer("event-30");
+            queue.stop(10000);
+
+            assertEquals(writer.events.size(), 31);
+            for (int i = 0; i <= 30; i++) {
+                assertEquals(writer.events.get(i), "event-" + i);
+            }
+            assertEquals(queue.getWrittenCount(), 31);
+            assertEquals(queue.getDroppedCount(), 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDropWhenFullWithSpool() throws Exception {
+        Path file = Files.createTempFile("audit-spool", ".dat");
+        try {
+            // A backend which blocks keeps the background thread busy, so the queue fills up
+            CountDownLatch release = new CountDownLatch(1);
+            TestWriter writer = new TestWriter() {
+                @Override
+                public void write(List<String> batch) throws Exception {
+                    release.await();
+                    super.write(batch);
+                }
+            };
+            AuditEventQueue queue = new AuditEventQueue("test", writer, 5, 1, 100, new AuditEventSpool(file));
+            for (int i = 0; i < 20; i++) {
+                queue.offer("event-" + i);
+            }
+            // The events which don't fit are dropped, not spooled by the request thread
+            assertTrue(queue.getDroppedCount() >= 14);
+            assertEquals(queue.getSpooledCount(), 0);
+
+            release.countDown();
+            queue.stop(10000);
+            assertEquals(queue.getWrittenCount() + queue.getDroppedCount(), 20);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testOfferAfterStop() throws Exception {
+        Path file = Files.createTempFile("audit-spool", ".dat");
+        try {
+            TestWriter writer = new TestWriter();
+            AuditEventQueue queue = new AuditEventQueue("test", writer, 100, 10, 100, new AuditEventSpool(file));
+            queue.stop(10000);
+
+            queue.offer("event-0");
+            assertEquals(queue.getQueueDepth(), 0);
+            assertEquals(queue.getSpooledCount(), 0);
+            assertEquals(queue.getDroppedCount(), 0);
+            assertTrue(writer.events.isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSpoolReopen() throws Exception {
+        Path file = Files.createTempFile("audit-spool", ".dat");
+        try {
+            try (AuditEventSpool spool = new AuditEventSpool(file)) {
+                spool.append(Arrays.asList("a", "b", "c"));
+                spool.append(Collections.singletonList("dé"));
+                assertEquals(spool.peek(2), Arrays.asList("a", "b"));
+                spool.remove(2);
+                assertEquals(spool.size(), 2);
+            }
+
+            // A restarted server continues with the unread events
+            try (AuditEventSpool spool = new AuditEventSpool(file)) {
+                assertEquals(spool.size(), 2);
+                assertEquals(spool.peek(10), Arrays.asList("c", "dé"));
+                spool.remove(2);
+                assertEquals(spool.size(), 0);
+                assertEquals(Files.size(file), Long.BYTES);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSpoolIncompleteEvent() throws Exception {
+        Path file = Files.createTempFile("audit-spool", ".dat");
+        try {
+            try (AuditEventSpool spool = new AuditEventSpool(file)) {
+                spool.append(Arrays.asList("a", "b"));
+            }
+            // Simulate a server stopped in the middle of an append
+            long size = Files.size(file);
+            Files.write(file, new byte[] { 0, 0, 0, 10, 'x' }, java.nio.file.StandardOpenOption.APPEND);
+
+            try (AuditEventSpool spool = new AuditEventSpool(file)) {
+                assertEquals(spool.size(), 2);
+                assertEquals(Files.size(file), size);
+                assertEquals(spool.peek(10), Arrays.asList("a", "b"));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private interface Condition {
+        boolean isTrue();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.isTrue()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,23 +1,28 @@
 /*
- * (C) Copyright IBM Corp. 2019
+ * (C) Copyright IBM Corp. 2019, 2020
  *
  * SPDX-License-Identifier: Apache-2.0
  */
 
 package com.ibm.fhir.benchmark;
 
-import java.io.IOException;
 import java.io.StringReader;
 
+import javax.json.Json;
+import javax.json.JsonReader;
+
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
 
 import com.ibm.fhir.benchmark.runner.FHIRBenchmarkRunner;
 import com.ibm.fhir.benchmark.util.BenchmarkUtil;
+import com.ibm.fhir.model.config.FHIRModelConfig;
 import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRJsonParser;
 import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.resource.Resource;
 
@@ -37,13 +42,18 @@ public class FHIRParserBenchmark {
         FhirContext context;
         String JSON_SPEC_EXAMPLE;
         String XML_SPEC_EXAMPLE;
+        Resource resource;
         
         // JMH will inject the value into the annotated field before any Setup method is called.
-        @Param({"valuesets"})
+        // The condition and allergyintolerance examples have elements with value set bindings checked during build
+        @Param({"valuesets", "condition-example", "allergyintolerance-example"})
         public String exampleName;
         
+        @Param({"true", "false"})
+        public boolean extendedCodeableConceptValidation;
+        
         @Setup
-        public void setUp() throws IOException {
+        public void setUp() throws Exception {
             if (exampleName == null) {
                 System.err.println("exampleName is null; if you're in Eclipse then make sure annotation processing is on and you've ran 'mvn clean package'.");
                 System.exit(1);
@@ -53,6 +63,8 @@ public class FHIRParserBenchmark {
             context.setParserErrorHandler(new StrictErrorHandler());
             JSON_SPEC_EXAMPLE = BenchmarkUtil.getSpecExample(Format.JSON, exampleName);
             XML_SPEC_EXAMPLE = BenchmarkUtil.getSpecExample(Format.XML, exampleName);
+            FHIRModelConfig.setExtendedCodeableConceptValidation(extendedCodeableConceptValidation);
+            resource = FHIRParser.parser(Format.JSON).parse(new StringReader(JSON_SPEC_EXAMPLE));
         }
     }
     
@@ -61,6 +73,26 @@ public class FHIRParserBenchmark {
         return parsers.jsonParser.parse(new StringReader(state.JSON_SPEC_EXAMPLE));
     }
     
+    /**
+     * Parse via a JsonObject read with javax.json.JsonReader, for comparison with the allocation profile of the
+     * stream-based path used by benchmarkJsonParser
+     */
+    @Benchmark
+    public Resource benchmarkJsonReaderParser(FHIRParsers parsers, FHIRParserState state) throws Exception {
+        try (JsonReader jsonReader = Json.createReader(new StringReader(state.JSON_SPEC_EXAMPLE))) {
+            return ((FHIRJsonParser) parsers.jsonParser).parse(jsonReader.readObject());
+        }
+    }
+    
+    /**
+     * Build a copy of the parsed resource, to measure the construction and validation of the resource
+     * (including its value set binding checks) without the parsing
+     */
+    @Benchmark
+    public Resource benchmarkBuild(FHIRParserState state) throws Exception {
+        return state.resource.toBuilder().build();
+    }
+    
     @Benchmark
     public Resource benchmarkXMLParser(FHIRParsers parsers, FHIRParserState state) throws Exception {
         return parsers.xmlParser.parse(new StringReader(state.XML_SPEC_EXAMPLE));
@@ -77,6 +109,8 @@ public class FHIRParserBenchmark {
     }
     
     public static void main(String[] args) throws Exception {
-        new FHIRBenchmarkRunner(FHIRParserBenchmark.class).run();
+        new FHIRBenchmarkRunner(FHIRParserBenchmark.class)
+                .profiler(GCProfiler.class)
+                .run();
     }
 }
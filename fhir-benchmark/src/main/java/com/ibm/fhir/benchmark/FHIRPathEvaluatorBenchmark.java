@@ -45,6 +45,7 @@ public class FHIRPathEvaluatorBenchmark {
         public FhirContext context;
         public IFluentPath fluentPath;
         public FHIRPathEvaluator evaluator;
+        public FHIRPathEvaluator interpretingEvaluator;
         public EvaluationContext evaluationContext;
         public Collection<FHIRPathNode> initialContext;
         public Resource resource;
@@ -56,6 +57,7 @@ public class FHIRPathEvaluatorBenchmark {
             fluentPath = context.newFluentPath();
             resource = FHIRParser.parser(Format.JSON).parse(new StringReader(JSON_SPEC_EXAMPLE));
             evaluator = FHIRPathEvaluator.evaluator();
+            interpretingEvaluator = FHIRPathEvaluator.evaluator(false);
             evaluationContext = new EvaluationContext(resource);
             initialContext = singleton(evaluationContext.getTree().getRoot());
             baseResource = context.newJsonParser().parseResource(new StringReader(JSON_SPEC_EXAMPLE));
@@ -67,6 +69,11 @@ public class FHIRPathEvaluatorBenchmark {
         state.evaluator.evaluate(state.evaluationContext, FHIRPathEvaluatorState.EXPRESSION, state.initialContext);
     }
 
+    @Benchmark
+    public void benchmarkInterpretingEvaluator(FHIRPathEvaluatorState state) throws Exception {
+        state.interpretingEvaluator.evaluate(state.evaluationContext, FHIRPathEvaluatorState.EXPRESSION, state.initialContext);
+    }
+
     @Benchmark
     public void benchmarkHAPIEvaluator(FHIRPathEvaluatorState state) throws Exception {
         state.fluentPath.evaluate(state.baseResource, FHIRPathEvaluatorState.EXPRESSION, IBase.class);
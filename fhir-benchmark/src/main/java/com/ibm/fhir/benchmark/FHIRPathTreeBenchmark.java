@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import static com.ibm.fhir.benchmark.runner.FHIRBenchmarkRunner.PROPERTY_EXAMPLE_NAME;
+
+import java.io.StringReader;
+import java.util.Collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.ibm.fhir.benchmark.util.BenchmarkUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+
+/**
+ * Compares eagerly built FHIRPath trees with lazy trees. Run with the GC profiler (see {@link #main(String[])})
+ * to compare the bytes allocated per operation.
+ */
+public class FHIRPathTreeBenchmark {
+    private static final String EXAMPLE_NAME = "explanationofbenefit-example";
+    private static final String EXPRESSION = "meta.lastUpdated | id";
+
+    @State(Scope.Benchmark)
+    public static class FHIRPathTreeState {
+        public static final String SPEC_EXAMPLE_NAME = System.getProperty(PROPERTY_EXAMPLE_NAME, EXAMPLE_NAME);
+        public static final String JSON_SPEC_EXAMPLE = BenchmarkUtil.getSpecExample(Format.JSON, SPEC_EXAMPLE_NAME);
+
+        public FHIRPathEvaluator evaluator;
+        public Resource resource;
+
+        @Setup
+        public void setUp() throws Exception {
+            evaluator = FHIRPathEvaluator.evaluator();
+            resource = FHIRParser.parser(Format.JSON).parse(new StringReader(JSON_SPEC_EXAMPLE));
+        }
+    }
+
+    @Benchmark
+    public FHIRPathTree benchmarkEagerTree(FHIRPathTreeState state) {
+        return FHIRPathTree.tree(state.resource);
+    }
+
+    @Benchmark
+    public FHIRPathTree benchmarkLazyTree(FHIRPathTreeState state) {
+        return FHIRPathTree.lazyTree(state.resource);
+    }
+
+    @Benchmark
+    public long benchmarkLazyTreeFullyExpanded(FHIRPathTreeState state) {
+        return FHIRPathTree.lazyTree(state.resource).getRoot().stream().count();
+    }
+
+    @Benchmark
+    public Collection<FHIRPathNode> benchmarkEvaluateEagerTree(FHIRPathTreeState state) throws Exception {
+        // evaluation contexts use lazy trees, so evaluate against the root of an eagerly built tree instead
+        FHIRPathTree tree = FHIRPathTree.tree(state.resource);
+        return state.evaluator.evaluate(new EvaluationContext(state.resource), EXPRESSION, tree.getRoot());
+    }
+
+    @Benchmark
+    public Collection<FHIRPathNode> benchmarkEvaluateLazyTree(FHIRPathTreeState state) throws Exception {
+        return state.evaluator.evaluate(new EvaluationContext(state.resource), EXPRESSION);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + FHIRPathTreeBenchmark.class.getSimpleName() + ".*")
+                .jvmArgsPrepend("-Xms2g", "-Xmx2g")
+                .jvmArgsAppend("-D" + PROPERTY_EXAMPLE_NAME + "=" + EXAMPLE_NAME)
+                .warmupIterations(1)
+                .warmupTime(TimeValue.seconds(10))
+                .measurementIterations(2)
+                .measurementTime(TimeValue.seconds(10))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opt).run();
+    }
+}
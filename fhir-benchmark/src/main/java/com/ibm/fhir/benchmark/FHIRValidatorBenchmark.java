@@ -12,6 +12,7 @@ import java.io.StringReader;
 
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -51,11 +52,39 @@ public class FHIRValidatorBenchmark {
         }
     }
 
+    /**
+     * Validates a Patient against US Core and CARIN Blue Button profiles
+     */
+    @State(Scope.Benchmark)
+    public static class ProfileValidationState {
+        public static final String JSON_SPEC_EXAMPLE = BenchmarkUtil.getSpecExample(Format.JSON, "patient-example");
+
+        @Param({
+            "http://hl7.org/fhir/us/core/StructureDefinition/us-core-patient",
+            "http://hl7.org/fhir/us/carin-bb/StructureDefinition/C4BB-Patient"
+        })
+        public String profile;
+
+        public FHIRValidator validator;
+        public Resource resource;
+
+        @Setup
+        public void setUp() throws Exception {
+            validator = FHIRValidator.validator();
+            resource = FHIRParser.parser(Format.JSON).parse(new StringReader(JSON_SPEC_EXAMPLE));
+        }
+    }
+
     @Benchmark
     public void benchmarkValidator(FHIRValidatorState state) throws Exception {
         state.validator.validate(state.evaluationContext);
     }
 
+    @Benchmark
+    public void benchmarkProfileValidator(ProfileValidationState state) throws Exception {
+        state.validator.validate(state.resource, state.profile);
+    }
+
     @Benchmark
     public void benchmarkHAPIValidator(FHIRValidatorState state) throws Exception {
         state.fhirValidator.validateWithResult(state.baseResource);
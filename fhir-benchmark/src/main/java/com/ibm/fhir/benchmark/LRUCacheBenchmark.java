@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+import com.ibm.fhir.core.util.LRUCache;
+
+/**
+ * Compares the synchronized {@link LRUCache} with {@link ConcurrentLRUCache} under an increasing number of threads.
+ *
+ * <p>The key space is slightly larger than the cache so that the workload is dominated by hits (like the FHIRPath
+ * expression, identifier and literal caches) while still exercising eviction.
+ */
+public class LRUCacheBenchmark {
+    private static final int MAX_ENTRIES = 512;
+    private static final int KEY_SPACE = 640;
+    private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    @State(Scope.Benchmark)
+    public static class LRUCacheState {
+        @Param({ "synchronized", "concurrent" })
+        public String implementation;
+
+        public Map<String, String> cache;
+        public String[] keys;
+
+        @Setup
+        public void setUp() {
+            cache = "synchronized".equals(implementation) ?
+                    LRUCache.createLRUCache(MAX_ENTRIES) :
+                    ConcurrentLRUCache.createConcurrentLRUCache(MAX_ENTRIES);
+            keys = new String[KEY_SPACE];
+            for (int i = 0; i < KEY_SPACE; i++) {
+                keys[i] = "Patient.name.where(use = 'official').given[" + i + "]";
+                cache.put(keys[i], keys[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public String benchmarkComputeIfAbsent(LRUCacheState state) {
+        String key = state.keys[ThreadLocalRandom.current().nextInt(KEY_SPACE)];
+        return state.cache.computeIfAbsent(key, k -> new String(k));
+    }
+
+    @Benchmark
+    public String benchmarkGet(LRUCacheState state) {
+        return state.cache.get(state.keys[ThreadLocalRandom.current().nextInt(KEY_SPACE)]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            Options opt = new OptionsBuilder()
+                    .include(".*" + LRUCacheBenchmark.class.getSimpleName() + ".*")
+                    .mode(Mode.Throughput)
+                    .warmupIterations(1)
+                    .warmupTime(TimeValue.seconds(5))
+                    .measurementIterations(2)
+                    .measurementTime(TimeValue.seconds(5))
+                    .forks(1)
+                    .threads(threads)
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.benchmark;
+
+import static com.ibm.fhir.benchmark.runner.FHIRBenchmarkRunner.PROPERTY_EXAMPLE_NAME;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ibm.fhir.benchmark.runner.FHIRBenchmarkRunner;
+import com.ibm.fhir.benchmark.util.BenchmarkUtil;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.search.SearchConstants;
+import com.ibm.fhir.search.parameters.ParametersMap;
+import com.ibm.fhir.search.parameters.ParametersUtil;
+import com.ibm.fhir.search.util.SearchParameterExtractionPlan;
+
+/**
+ * Measures the search parameter extraction step of the ingest path (create/update) for a single resource:
+ * evaluating each search parameter expression on its own versus executing a {@link SearchParameterExtractionPlan}.
+ */
+public class SearchParameterExtractionBenchmark {
+    private static final String EXAMPLE_NAME = "observation-example-genetics-1";
+
+    @State(Scope.Benchmark)
+    public static class SearchParameterExtractionState {
+        public static final String SPEC_EXAMPLE_NAME = System.getProperty(PROPERTY_EXAMPLE_NAME);
+        public static final String JSON_SPEC_EXAMPLE = BenchmarkUtil.getSpecExample(Format.JSON, SPEC_EXAMPLE_NAME);
+
+        public FHIRPathEvaluator evaluator;
+        public Resource resource;
+        public List<SearchParameter> parameters;
+        public SearchParameterExtractionPlan plan;
+
+        @Setup
+        public void setUp() throws Exception {
+            evaluator = FHIRPathEvaluator.evaluator();
+            resource = FHIRParser.parser(Format.JSON).parse(new StringReader(JSON_SPEC_EXAMPLE));
+            parameters = getSearchParameters(resource.getClass().getSimpleName());
+            plan = SearchParameterExtractionPlan.compile(parameters);
+        }
+    }
+
+    @Benchmark
+    public Map<SearchParameter, List<FHIRPathNode>> benchmarkPerParameterExtraction(SearchParameterExtractionState state) throws Exception {
+        Map<SearchParameter, List<FHIRPathNode>> result = new LinkedHashMap<>();
+        EvaluationContext evaluationContext = new EvaluationContext(state.resource);
+        for (SearchParameter parameter : state.parameters) {
+            Collection<FHIRPathNode> nodes = state.evaluator.evaluate(evaluationContext, parameter.getExpression().getValue());
+            if (!nodes.isEmpty()) {
+                result.put(parameter, new ArrayList<>(nodes));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<SearchParameter, List<FHIRPathNode>> benchmarkPlanExtraction(SearchParameterExtractionState state) throws Exception {
+        Map<SearchParameter, List<FHIRPathNode>> result = new LinkedHashMap<>();
+        SearchParameterExtractionPlan.Execution execution = state.plan.execute(state.evaluator, new EvaluationContext(state.resource));
+        for (SearchParameter parameter : state.parameters) {
+            Collection<FHIRPathNode> nodes = execution.evaluate(parameter);
+            if (!nodes.isEmpty()) {
+                result.put(parameter, new ArrayList<>(nodes));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The built-in search parameters with an expression for the resource type and for "Resource"
+     */
+    private static List<SearchParameter> getSearchParameters(String resourceType) {
+        Map<String, ParametersMap> builtInSearchParameters = ParametersUtil.getBuiltInSearchParametersMap();
+        List<SearchParameter> parameters = new ArrayList<>();
+        for (String type : new String[] { resourceType, SearchConstants.RESOURCE_RESOURCE }) {
+            ParametersMap parametersMap = builtInSearchParameters.get(type);
+            if (parametersMap != null) {
+                for (SearchParameter parameter : parametersMap.values()) {
+                    if (parameter.getExpression() != null) {
+                        parameters.add(parameter);
+                    }
+                }
+            }
+        }
+        return parameters;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new FHIRBenchmarkRunner(SearchParameterExtractionBenchmark.class)
+                .property(PROPERTY_EXAMPLE_NAME, EXAMPLE_NAME)
+                .run();
+    }
+}
@@ -11,11 +11,12 @@ import java.util.Collection;
 import java.util.List;
 
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.Profiler;
 import org.openjdk.jmh.profile.StackProfiler;
 import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
-import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.openjdk.jmh.runner.options.TimeValue;
 import org.openjdk.jmh.runner.options.VerboseMode;
@@ -28,6 +29,7 @@ public class FHIRBenchmarkRunner {
 
     private final Class<?> benchmarkClass;
     private final List<String> properties = new ArrayList<>();
+    private final List<Class<? extends Profiler>> profilers = new ArrayList<>();
 
     public FHIRBenchmarkRunner(Class<?> benchmarkClass) {
         this.benchmarkClass = benchmarkClass;
@@ -38,11 +40,19 @@ public class FHIRBenchmarkRunner {
         return this;
     }
 
+    /**
+     * Add a profiler (e.g. GCProfiler for allocation rates) to each run
+     */
+    public FHIRBenchmarkRunner profiler(Class<? extends Profiler> profiler) {
+        profilers.add(profiler);
+        return this;
+    }
+
     /**
      * Run without overriding any parameters
      */
     public Collection<RunResult> run() throws RunnerException {
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(".*" + benchmarkClass.getSimpleName() + ".*")
                 .jvmArgsPrepend("-Xms2g", "-Xmx2g")
                 .jvmArgsAppend(properties.toArray(new String[properties.size()]))
@@ -55,16 +65,15 @@ public class FHIRBenchmarkRunner {
                 .forks(2)
                 .threads(1)
 //              .mode(Mode.AverageTime)
-                .addProfiler(StackProfiler.class)
-                .build();
-        return new Runner(opt).run();
+                .addProfiler(StackProfiler.class);
+        return run(builder);
     }
 
     /**
      * Run and override the 'exampleName' param with the passed fileName
      */
     public Collection<RunResult> run(String fileName) throws RunnerException {
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(".*" + benchmarkClass.getSimpleName() + ".*")
                 .jvmArgsPrepend("-Xms4g", "-Xmx4g")
                 .jvmArgsAppend(properties.toArray(new String[properties.size()]))
@@ -77,16 +86,15 @@ public class FHIRBenchmarkRunner {
                 .forks(1)
 //              .mode(Mode.AverageTime)
                 .addProfiler(StackProfiler.class)
-                .param("exampleName", fileName)
-                .build();
-        return new Runner(opt).run();
+                .param("exampleName", fileName);
+        return run(builder);
     }
 
     /**
      * Run the benchmark with all the examples in BenchmarkUtil.SPEC_EXAMPLE_NAMES
      */
     public Collection<RunResult> runAll() throws RunnerException {
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(".*" + benchmarkClass.getSimpleName() + ".*")
                 .jvmArgsPrepend("-Xms4g", "-Xmx4g")
                 .jvmArgsAppend(properties.toArray(new String[properties.size()]))
@@ -99,8 +107,14 @@ public class FHIRBenchmarkRunner {
                 .forks(1)
                 .output("results.txt")
                 .mode(Mode.SingleShotTime)
-                .param("exampleName", BenchmarkUtil.SPEC_EXAMPLE_NAMES.toArray(new String[0])) // https://stackoverflow.com/a/4042464/161022
-                .build();
-        return new Runner(opt).run();
+                .param("exampleName", BenchmarkUtil.SPEC_EXAMPLE_NAMES.toArray(new String[0])); // https://stackoverflow.com/a/4042464/161022
+        return run(builder);
+    }
+
+    private Collection<RunResult> run(ChainedOptionsBuilder builder) throws RunnerException {
+        for (Class<? extends Profiler> profiler : profilers) {
+            builder.addProfiler(profiler);
+        }
+        return new Runner(builder.build()).run();
     }
 }
@@ -24,6 +24,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -60,6 +63,7 @@ import com.ibm.cloud.objectstorage.services.s3.model.S3ObjectInputStream;
 import com.ibm.cloud.objectstorage.services.s3.model.UploadPartRequest;
 import com.ibm.cloud.objectstorage.services.s3.model.UploadPartResult;
 import com.ibm.fhir.exception.FHIROperationException;
+import com.ibm.fhir.jbatch.bulkdata.load.ImportStageExecutor;
 import com.ibm.fhir.jbatch.bulkdata.load.ImportTransientUserData;
 import com.ibm.fhir.model.format.Format;
 import com.ibm.fhir.model.parser.FHIRParser;
@@ -69,6 +73,8 @@ import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.provider.util.FHIRUrlParser;
+import com.ibm.fhir.search.date.DateTimeHandler;
+import com.ibm.fhir.search.exception.FHIRSearchException;
 import com.ibm.fhir.validation.FHIRValidator;
 import com.ibm.fhir.validation.exception.FHIRValidationException;
 
@@ -180,45 +186,79 @@ public class BulkDataUtils {
     }
 
     /**
+     * Read the next lines from the buffer reader and parse them into FHIR resources.
+     * The lines are handed off to the {@link ImportStageExecutor} as soon as they are read, so the following lines
+     * are fetched while the previous ones are being parsed; the resources are returned in the order of the lines.
+     *
      * @param resReader - the buffer reader to read FHIR resource from.
      * @param numOfProcessedLines - number of the already processed lines.
      * @param fhirResources - List holds the FHIR resources.
      * @param isSkipProcessed - if need to skip the processed lines before read.
+     * @param dataSource - the data source of the lines, used in log messages.
+     * @param transientUserData - transient user data for the chunk.
      * @return - the number of parsing failures.
      * @throws Exception
      */
     private static int getFhirResourceFromBufferReader(BufferedReader resReader, int numOfProcessedLines, List<Resource> fhirResources,
-            boolean isSkipProcessed, String dataSource) throws Exception {
-        int exported = 0;
+            boolean isSkipProcessed, String dataSource, ImportTransientUserData transientUserData) throws Exception {
+        ImportStageExecutor executor = ImportStageExecutor.getInstance();
+        AtomicLong parseNanoSeconds = new AtomicLong();
         int lineRed = 0;
+        int submitted = 0;
         int parseFailures = 0;
 
         String resLine = null;
-        do {
-            resLine = resReader.readLine();
-            if (resLine != null) {
-                lineRed++;
-                if (isSkipProcessed && lineRed <= numOfProcessedLines) {
-                    continue;
+        try {
+            do {
+                List<Future<Resource>> parsedLines = new ArrayList<>(Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD);
+                while (parsedLines.size() < Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD && (resLine = resReader.readLine()) != null) {
+                    lineRed++;
+                    if (isSkipProcessed && lineRed <= numOfProcessedLines) {
+                        continue;
+                    }
+                    final String line = resLine;
+                    final int lineNumber = numOfProcessedLines + (++submitted);
+                    parsedLines.add(executor.submit(() -> parseFhirResource(line, lineNumber, dataSource, parseNanoSeconds)));
                 }
-                try {
-                    fhirResources.add(FHIRParser.parser(Format.JSON).parse(new StringReader(resLine)));
-                    exported++;
-                    if (exported == Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD) {
-                        break;
+
+                for (Future<Resource> parsedLine : parsedLines) {
+                    Resource fhirResource = ImportStageExecutor.getResult(parsedLine);
+                    if (fhirResource == null) {
+                        parseFailures++;
+                    } else {
+                        fhirResources.add(fhirResource);
                     }
-                } catch (FHIRParserException e) {
-                    // Log and skip the invalid FHIR resource.
-                    parseFailures++;
-                    logger.log(Level.INFO, "getFhirResourceFromBufferReader: " + "Failed to parse line "
-                            + (numOfProcessedLines + exported + parseFailures) + " of [" + dataSource + "].", e);
-                    continue;
                 }
-            }
-        } while (resLine != null);
+                // Keep reading if all the lines of this batch were invalid.
+            } while (fhirResources.isEmpty() && resLine != null);
+        } finally {
+            transientUserData.setTotalParseMilliSeconds(transientUserData.getTotalParseMilliSeconds()
+                    + TimeUnit.NANOSECONDS.toMillis(parseNanoSeconds.get()));
+        }
         return parseFailures;
     }
 
+    /**
+     * @param resLine - the NDJSON line to parse.
+     * @param lineNumber - the line number, used in log messages.
+     * @param dataSource - the data source of the line, used in log messages.
+     * @param parseNanoSeconds - accumulates the parsing time.
+     * @return - the FHIR resource, or null if the line can't be parsed.
+     */
+    private static Resource parseFhirResource(String resLine, int lineNumber, String dataSource, AtomicLong parseNanoSeconds) {
+        long parseStartTimeInNanoSeconds = System.nanoTime();
+        try {
+            return FHIRParser.parser(Format.JSON).parse(new StringReader(resLine));
+        } catch (FHIRParserException e) {
+            // Log and skip the invalid FHIR resource.
+            logger.log(Level.INFO, "getFhirResourceFromBufferReader: " + "Failed to parse line "
+                    + lineNumber + " of [" + dataSource + "].", e);
+            return null;
+        } finally {
+            parseNanoSeconds.addAndGet(System.nanoTime() - parseStartTimeInNanoSeconds);
+        }
+    }
+
     public static void cleanupTransientUserData(ImportTransientUserData transientUserData, boolean isAbort) throws Exception {
         if (transientUserData.getInputStream() != null) {
             if (isAbort && transientUserData.getInputStream() instanceof S3ObjectInputStream) {
@@ -258,9 +298,9 @@ public class BulkDataUtils {
                     BufferedReader resReader = new BufferedReader(new InputStreamReader(s3InStream));
                     transientUserData.setBufferReader(resReader);
                     // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, itemName);
+                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, itemName, transientUserData);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, itemName);
+                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, itemName, transientUserData);
                 }
                 break;
             } catch (Exception ex) {
@@ -303,9 +343,9 @@ public class BulkDataUtils {
                 BufferedReader resReader = Files.newBufferedReader(Paths.get(filePath));
                 transientUserData.setBufferReader(resReader);
                 // Skip the already processed lines after opening the input stream for first read.
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, filePath);
+                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, filePath, transientUserData);
             } else {
-                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, filePath);
+                parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, filePath, transientUserData);
             }
         } catch (Exception ex) {
             // Clean up.
@@ -345,9 +385,9 @@ public class BulkDataUtils {
                     BufferedReader resReader = new BufferedReader(new InputStreamReader(inputStream));
                     transientUserData.setBufferReader(resReader);
                     // Skip the already processed lines after opening the input stream for first read.
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, dataUrl);
+                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, true, dataUrl, transientUserData);
                 } else {
-                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, dataUrl);
+                    parseFailures = getFhirResourceFromBufferReader(transientUserData.getBufferReader(), numOfLinesToSkip, fhirResources, false, dataUrl, transientUserData);
                 }
                 break;
             } catch (Exception ex) {
@@ -419,6 +459,21 @@ public class BulkDataUtils {
     }
 
 
+    /**
+     * Get the instant that bounds a _lastUpdated search for the passed date, e.g. the fhir.search.fromdate or
+     * fhir.search.todate job parameter; a partial date is bounded by its start.
+     *
+     * @param date the date, or null
+     * @return the instant, or null if the date is null
+     * @throws FHIRSearchException if the date cannot be parsed
+     */
+    public static Instant getLastUpdatedBound(String date) throws FHIRSearchException {
+        if (date == null) {
+            return null;
+        }
+        return DateTimeHandler.generateValue(DateTimeHandler.parse(date));
+    }
+
     public static Map<Class<? extends Resource>, List<Map<String, List<String>>>> getSearchParemetersFromTypeFilters (String typeFilters) throws Exception {
         HashMap<Class<? extends Resource>, List<Map<String, List<String>>>> searchParametersForResoureTypes = new HashMap<>();
         if (typeFilters != null) {
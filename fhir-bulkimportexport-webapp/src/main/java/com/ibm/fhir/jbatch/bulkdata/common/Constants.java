@@ -49,6 +49,8 @@ public class Constants {
     // this value should be set.
     public static final int IMPORT_NUMOFFHIRRESOURCES_PERREAD = 20;
     public static final int IMPORT_INFLY_RATE_NUMOFFHIRRESOURCES = 2000;
+    // The number of worker threads shared by all import partitions for parsing and validating FHIR resources.
+    public static final int DEFAULT_IMPORT_PARALLELISM = 4;
     public static final String IMPORT_INPUT_RESOURCE_TYPE = "type";
     public static final String IMPORT_INPUT_RESOURCE_URL = "url";
 
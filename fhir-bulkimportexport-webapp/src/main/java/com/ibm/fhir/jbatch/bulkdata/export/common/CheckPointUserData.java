@@ -9,6 +9,7 @@ package com.ibm.fhir.jbatch.bulkdata.export.common;
 import java.util.List;
 
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
+import com.ibm.fhir.persistence.ResourceCursor;
 
 /**
  * Bulk export Chunk implementation - job check point data.
@@ -33,6 +34,9 @@ public class CheckPointUserData implements java.io.Serializable {
     // Used to mark the complete of the partition.
     private boolean isMoreToExport = true;
     protected int lastWritePageNum;
+    // Position of the last resource read and the last resource exported when reading by cursor instead of by page number.
+    protected ResourceCursor cursor;
+    protected ResourceCursor lastWriteCursor;
 
     protected CheckPointUserData() {
         super();
@@ -52,6 +56,8 @@ public class CheckPointUserData implements java.io.Serializable {
             .uploadCount(userData.uploadCount)
             .lastPageNum(userData.lastPageNum)
             .lastWritePageNum(userData.lastWritePageNum)
+            .cursor(userData.cursor)
+            .lastWriteCursor(userData.lastWriteCursor)
             .build();
     }
 
@@ -68,6 +74,8 @@ public class CheckPointUserData implements java.io.Serializable {
         protected int indexOfCurrentTypeFilter;
         protected String resourceTypeSummary = null;
         protected int lastWritePageNum;
+        protected ResourceCursor cursor;
+        protected ResourceCursor lastWriteCursor;
 
         public Builder() {
             super();
@@ -137,6 +145,16 @@ public class CheckPointUserData implements java.io.Serializable {
             return this;
         }
 
+        public Builder cursor(ResourceCursor cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        public Builder lastWriteCursor(ResourceCursor lastWriteCursor) {
+            this.lastWriteCursor = lastWriteCursor;
+            return this;
+        }
+
         public CheckPointUserData build(){
             CheckPointUserData checkPointUserData = new CheckPointUserData();
             checkPointUserData.pageNum  = this.pageNum;
@@ -151,6 +169,8 @@ public class CheckPointUserData implements java.io.Serializable {
             checkPointUserData.indexOfCurrentTypeFilter = this.indexOfCurrentTypeFilter;
             checkPointUserData.resourceTypeSummary = this.resourceTypeSummary;
             checkPointUserData.lastWritePageNum = this.lastWritePageNum;
+            checkPointUserData.cursor = this.cursor;
+            checkPointUserData.lastWriteCursor = this.lastWriteCursor;
 
             return checkPointUserData;
         }
@@ -268,4 +288,26 @@ public class CheckPointUserData implements java.io.Serializable {
         this.lastWritePageNum = lastWritePageNum;
     }
 
+    public ResourceCursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @param cursor the position of the last resource read, when reading by cursor
+     */
+    public void setCursor(ResourceCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    public ResourceCursor getLastWriteCursor() {
+        return lastWriteCursor;
+    }
+
+    /**
+     * @param lastWriteCursor the position of the last resource that was exported, when reading by cursor
+     */
+    public void setLastWriteCursor(ResourceCursor lastWriteCursor) {
+        this.lastWriteCursor = lastWriteCursor;
+    }
+
 }
@@ -6,6 +6,7 @@
 
 package com.ibm.fhir.jbatch.bulkdata.export.patient;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import com.ibm.fhir.config.FHIRConfigHelper;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.core.FHIRMediaType;
+import com.ibm.fhir.exception.FHIRException;
 import com.ibm.fhir.jbatch.bulkdata.common.BulkDataUtils;
 import com.ibm.fhir.jbatch.bulkdata.common.Constants;
 import com.ibm.fhir.jbatch.bulkdata.export.common.CheckPointUserData;
@@ -41,6 +43,9 @@ import com.ibm.fhir.model.resource.Patient;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.ResourceCursor;
+import com.ibm.fhir.persistence.ResourcePage;
+import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
@@ -71,6 +76,13 @@ public class ChunkReader extends AbstractItemReader {
     Set<String> loadedResourceIds = new HashSet<>();
     boolean isDoDuplicationCheck = false;
 
+    // Patients are read page by page from the position of the last patient read (keyset pagination) if the
+    // persistence layer supports it, so that the cost of a page doesn't grow with the page number.
+    boolean isReadByCursor = false;
+    ResourceCursor cursor = null;
+    // The last page number as of the most recent read.
+    int lastReadPageNum;
+
     /**
      * FHIR tenant id.
      */
@@ -287,6 +299,35 @@ public class ChunkReader extends AbstractItemReader {
         }
     }
 
+    /**
+     * Write the stored JSON of the patients to the NDJSON buffer, without parsing the patients.
+     */
+    private void fillChunkPatientDataBufferFromPayloads(List<ResourcePayload> patients) throws Exception {
+        int resSubTotal = 0;
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
+        ByteArrayOutputStream resourceBuffer = new ByteArrayOutputStream();
+        for (ResourcePayload payload : patients) {
+            // transfer each resource on its own, so a stored payload which cannot be read leaves no partial line
+            resourceBuffer.reset();
+            try {
+                payload.transferTo(resourceBuffer);
+            } catch (FHIRException | IOException e) {
+                logger.log(Level.WARNING, "fillChunkPatientDataBufferFromPayloads: Error while writing resources with id '"
+                        + payload.getLogicalId() + "'", e);
+                continue;
+            }
+            resourceBuffer.writeTo(chunkData.getBufferStream());
+            chunkData.getBufferStream().write(Constants.NDJSON_LINESEPERATOR);
+            resSubTotal++;
+        }
+        chunkData.setCurrentUploadResourceNum(chunkData.getCurrentUploadResourceNum() + resSubTotal);
+        chunkData.setTotalResourcesNum(chunkData.getTotalResourcesNum() + resSubTotal);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("fillChunkPatientDataBufferFromPayloads: Processed resources - " + resSubTotal + "; Bufferred data size - "
+                    + chunkData.getBufferStream().size());
+        }
+    }
+
     protected void fillChunkData(List<Resource> resources, List<String> patientIds) throws Exception {
         if (fhirResourceType.equalsIgnoreCase("patient") &&  resources != null) {
             fillChunkPatientDataBuffer(resources);
@@ -304,36 +345,13 @@ public class ChunkReader extends AbstractItemReader {
                 return null;
         }
 
-        FHIRSearchContext searchContext;
-        FHIRPersistenceContext persistenceContext;
-        Map<String, List<String>> queryParameters = new HashMap<>();
-
-        List<String> searchCreterial = new ArrayList<>();
-
-        if (fhirSearchFromDate != null) {
-            searchCreterial.add("ge" + fhirSearchFromDate);
-        }
-        if (fhirSearchToDate != null) {
-            searchCreterial.add("lt" + fhirSearchToDate);
-        }
-
-        if (!searchCreterial.isEmpty()) {
-            queryParameters.put(Constants.FHIR_SEARCH_LASTUPDATED, searchCreterial);
-        }
-
-        queryParameters.put("_sort", Arrays.asList(Constants.FHIR_SEARCH_LASTUPDATED));
-        searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
-        searchContext.setPageSize(pageSize);
-        searchContext.setPageNumber(pageNum);
+        // NDJSON is written from the stored patient payloads; parquet needs the parsed resources
+        List<ResourcePayload> payloads = null;
         List<Resource> resources = null;
-        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
-        txn.begin();
-
-        try {
-            persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null, searchContext);
-            resources = fhirPersistence.search(persistenceContext, Patient.class).getResource();
-        } finally {
-            txn.end();
+        if (isReadByCursor && !FHIRMediaType.APPLICATION_PARQUET.equals(fhirExportFormat)) {
+            payloads = readPatientPayloadsAfterCursor();
+        } else {
+            resources = isReadByCursor ? readPatientsAfterCursor() : searchPatients();
         }
         pageNum++;
 
@@ -349,14 +367,32 @@ public class ChunkReader extends AbstractItemReader {
                     .currentUploadResourceNum(0)
                     .currentUploadSize(0)
                     .uploadCount(1)
-                    .lastPageNum(searchContext.getLastPageNumber())
+                    .lastPageNum(lastReadPageNum)
                     .lastWritePageNum(1)
+                    .cursor(cursor)
                     .build();
 
             stepCtx.setTransientUserData(chunkData);
         } else {
             chunkData.setPageNum(pageNum);
-            chunkData.setLastPageNum(searchContext.getLastPageNumber());
+            chunkData.setLastPageNum(lastReadPageNum);
+            chunkData.setCursor(cursor);
+        }
+
+        if (payloads != null) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("readItem(" + fhirResourceType + "): loaded " + payloads.size() + " patient payloads");
+            }
+
+            if (fhirResourceType.equalsIgnoreCase("patient")) {
+                fillChunkPatientDataBufferFromPayloads(payloads);
+            } else {
+                List<String> patientIds = payloads.stream().filter(item -> item.getLogicalId() != null).map(item -> item.getLogicalId()).collect(Collectors.toList());
+                if (patientIds.size() > 0) {
+                    fillChunkDataBuffer(patientIds);
+                }
+            }
+            return payloads;
         }
 
         if (resources != null) {
@@ -375,11 +411,95 @@ public class ChunkReader extends AbstractItemReader {
         return resources;
     }
 
+    /**
+     * Read the page of patients after the current cursor.
+     */
+    private List<Resource> readPatientsAfterCursor() throws Exception {
+        ResourcePage<Patient> page;
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
+        txn.begin();
+        try {
+            FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
+            page = fhirPersistence.readAfter(persistenceContext, Patient.class, BulkDataUtils.getLastUpdatedBound(fhirSearchFromDate),
+                    BulkDataUtils.getLastUpdatedBound(fhirSearchToDate), cursor, pageSize);
+        } finally {
+            txn.end();
+        }
+        return new ArrayList<>(nextPage(page));
+    }
+
+    /**
+     * Read the page of patient payloads after the current cursor.
+     */
+    private List<ResourcePayload> readPatientPayloadsAfterCursor() throws Exception {
+        ResourcePage<ResourcePayload> page;
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
+        txn.begin();
+        try {
+            FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
+            page = fhirPersistence.readPayloadsAfter(persistenceContext, Patient.class, BulkDataUtils.getLastUpdatedBound(fhirSearchFromDate),
+                    BulkDataUtils.getLastUpdatedBound(fhirSearchToDate), cursor, pageSize);
+        } finally {
+            txn.end();
+        }
+        return nextPage(page);
+    }
+
+    /**
+     * Move the cursor past the page which was read.
+     */
+    private <T> List<T> nextPage(ResourcePage<T> page) {
+        cursor = page.getCursor();
+        // Keep the page numbers consistent with the search case, where reading ends once pageNum > lastPageNum
+        lastReadPageNum = page.isLast() ? pageNum : pageNum + 1;
+        return page.getResources();
+    }
+
+    /**
+     * Search for the current page of patients.
+     */
+    private List<Resource> searchPatients() throws Exception {
+        FHIRSearchContext searchContext;
+        FHIRPersistenceContext persistenceContext;
+        Map<String, List<String>> queryParameters = new HashMap<>();
+
+        List<String> searchCreterial = new ArrayList<>();
+
+        if (fhirSearchFromDate != null) {
+            searchCreterial.add("ge" + fhirSearchFromDate);
+        }
+        if (fhirSearchToDate != null) {
+            searchCreterial.add("lt" + fhirSearchToDate);
+        }
+
+        if (!searchCreterial.isEmpty()) {
+            queryParameters.put(Constants.FHIR_SEARCH_LASTUPDATED, searchCreterial);
+        }
+
+        queryParameters.put("_sort", Arrays.asList(Constants.FHIR_SEARCH_LASTUPDATED));
+        searchContext = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        searchContext.setPageSize(pageSize);
+        searchContext.setPageNumber(pageNum);
+        List<Resource> resources = null;
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
+        txn.begin();
+
+        try {
+            persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null, searchContext);
+            resources = fhirPersistence.search(persistenceContext, Patient.class).getResource();
+        } finally {
+            txn.end();
+        }
+        lastReadPageNum = searchContext.getLastPageNumber();
+        return resources;
+    }
+
     @Override
     public void open(Serializable checkpoint) throws Exception {
         if (checkpoint != null) {
             CheckPointUserData checkPointData = (CheckPointUserData) checkpoint;
             pageNum = checkPointData.getLastWritePageNum();
+            cursor = checkPointData.getLastWriteCursor();
             stepCtx.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
         }
 
@@ -396,6 +516,8 @@ public class ChunkReader extends AbstractItemReader {
         FHIRPersistenceHelper fhirPersistenceHelper = new FHIRPersistenceHelper();
         fhirPersistence = fhirPersistenceHelper.getFHIRPersistenceImplementation();
         searchParametersForResoureTypes = BulkDataUtils.getSearchParemetersFromTypeFilters(fhirTypeFilters);
+        // A job restarted from a checkpoint written while searching by page number must continue to do so.
+        isReadByCursor = fhirPersistence.isCursorSupported() && !(cursor == null && pageNum > 1);
 
         resourceType = ModelSupport.getResourceType(fhirResourceType);
         pageSize = FHIRConfigHelper.getIntProperty(FHIRConfiguration.PROPERTY_BULKDATA_PATIENTEXPORT_PAGESIZE, Constants.DEFAULT_PATIENT_EXPORT_SEARCH_PAGE_SIZE);
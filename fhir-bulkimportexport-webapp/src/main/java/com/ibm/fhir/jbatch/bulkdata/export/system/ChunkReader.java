@@ -6,6 +6,7 @@
 
 package com.ibm.fhir.jbatch.bulkdata.export.system;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ import javax.inject.Inject;
 import com.ibm.cloud.objectstorage.services.s3.model.PartETag;
 import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.core.FHIRMediaType;
+import com.ibm.fhir.exception.FHIRException;
 import com.ibm.fhir.jbatch.bulkdata.common.BulkDataUtils;
 import com.ibm.fhir.jbatch.bulkdata.common.Constants;
 import com.ibm.fhir.jbatch.bulkdata.export.common.CheckPointUserData;
@@ -37,6 +39,9 @@ import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.ResourceCursor;
+import com.ibm.fhir.persistence.ResourcePage;
+import com.ibm.fhir.persistence.ResourcePayload;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
@@ -67,6 +72,14 @@ public class ChunkReader extends AbstractItemReader {
     FHIRPersistence fhirPersistence;
     Class<? extends Resource> resourceType;
 
+    // Resource types without typeFilters are read page by page from the position of the last resource read
+    // (keyset pagination) if the persistence layer supports it, so that the cost of a page doesn't grow with
+    // the page number like it does for a search with an offset.
+    boolean isReadByCursor = false;
+    ResourceCursor cursor = null;
+    // The last page number as of the most recent read.
+    int lastReadPageNum;
+
     /**
      * Fhir tenant id.
      */
@@ -179,6 +192,39 @@ public class ChunkReader extends AbstractItemReader {
                 + chunkData.getBufferStream().size());
     }
 
+    /**
+     * Write the stored JSON of the resources to the NDJSON buffer, without parsing the resources.
+     */
+    private void fillChunkDataBufferFromPayloads(List<ResourcePayload> payloads) throws Exception {
+        TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
+        int resSubTotal = 0;
+        if (chunkData == null) {
+            logger.warning("fillChunkDataBufferFromPayloads: chunkData is null, this should never happen!");
+            throw new Exception("fillChunkDataBufferFromPayloads: chunkData is null, this should never happen!");
+        }
+
+        ByteArrayOutputStream resourceBuffer = new ByteArrayOutputStream();
+        for (ResourcePayload payload : payloads) {
+            // transfer each resource on its own, so a stored payload which cannot be read leaves no partial line
+            resourceBuffer.reset();
+            try {
+                payload.transferTo(resourceBuffer);
+            } catch (FHIRException | IOException e) {
+                logger.log(Level.WARNING, "fillChunkDataBufferFromPayloads: Error while writing resources with id '"
+                        + payload.getLogicalId() + "'", e);
+                continue;
+            }
+            resourceBuffer.writeTo(chunkData.getBufferStream());
+            chunkData.getBufferStream().write(Constants.NDJSON_LINESEPERATOR);
+            resSubTotal++;
+        }
+        chunkData.setCurrentUploadResourceNum(chunkData.getCurrentUploadResourceNum() + resSubTotal);
+        chunkData.setCurrentUploadSize(chunkData.getCurrentUploadSize() + chunkData.getBufferStream().size());
+        chunkData.setTotalResourcesNum(chunkData.getTotalResourcesNum() + resSubTotal);
+        logger.fine("fillChunkDataBufferFromPayloads: Processed resources - " + resSubTotal + "; Bufferred data size - "
+                + chunkData.getBufferStream().size());
+    }
+
     @Override
     public Object readItem() throws Exception {
         TransientUserData chunkData = (TransientUserData) stepCtx.getTransientUserData();
@@ -194,6 +240,109 @@ public class ChunkReader extends AbstractItemReader {
             }
         }
 
+        // NDJSON is written from the stored resource payloads; parquet needs the parsed resources
+        List<ResourcePayload> payloads = null;
+        List<Resource> resources = null;
+        if (isReadByCursor && !FHIRMediaType.APPLICATION_PARQUET.equals(fhirExportFormat)) {
+            payloads = readPayloadsAfterCursor();
+        } else {
+            resources = isReadByCursor ? readAfterCursor() : search();
+        }
+        pageNum++;
+
+        if (chunkData == null) {
+            chunkData = (TransientUserData)TransientUserData.Builder.builder()
+                    .pageNum(pageNum)
+                    .uploadId(null)
+                    .cosDataPacks(new ArrayList<PartETag>())
+                    .partNum(1)
+                    .indexOfCurrentTypeFilter(0)
+                    .resourceTypeSummary(null)
+                    .totalResourcesNum(0)
+                    .currentUploadResourceNum(0)
+                    .currentUploadSize(0)
+                    .uploadCount(1)
+                    .lastPageNum(lastReadPageNum)
+                    .lastWritePageNum(1)
+                    .cursor(cursor)
+                    .build();
+
+            stepCtx.setTransientUserData(chunkData);
+        } else {
+            chunkData.setPageNum(pageNum);
+            chunkData.setIndexOfCurrentTypeFilter(indexOfCurrentTypeFilter);
+            chunkData.setLastPageNum(lastReadPageNum);
+            chunkData.setCursor(cursor);
+        }
+
+        if (payloads != null) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("readItem: loaded " + payloads.size() + " resource payloads");
+            }
+            fillChunkDataBufferFromPayloads(payloads);
+            return payloads;
+        }
+
+        if (resources != null) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("readItem: loaded " + resources.size() + " resources");
+            }
+            fillChunkDataBuffer(resources);
+        } else {
+            logger.fine("readItem: End of reading!");
+        }
+
+        return resources;
+    }
+
+    /**
+     * Read the page of resources after the current cursor.
+     */
+    private List<Resource> readAfterCursor() throws Exception {
+        ResourcePage<? extends Resource> page;
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
+        txn.begin();
+        try {
+            FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
+            page = fhirPersistence.readAfter(persistenceContext, resourceType, BulkDataUtils.getLastUpdatedBound(fhirSearchFromDate),
+                    BulkDataUtils.getLastUpdatedBound(fhirSearchToDate), cursor, pageSize);
+        } finally {
+            txn.end();
+        }
+        return new ArrayList<>(nextPage(page));
+    }
+
+    /**
+     * Read the page of resource payloads after the current cursor.
+     */
+    private List<ResourcePayload> readPayloadsAfterCursor() throws Exception {
+        ResourcePage<ResourcePayload> page;
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
+        txn.begin();
+        try {
+            FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
+            page = fhirPersistence.readPayloadsAfter(persistenceContext, resourceType, BulkDataUtils.getLastUpdatedBound(fhirSearchFromDate),
+                    BulkDataUtils.getLastUpdatedBound(fhirSearchToDate), cursor, pageSize);
+        } finally {
+            txn.end();
+        }
+        return nextPage(page);
+    }
+
+    /**
+     * Move the cursor past the page which was read.
+     */
+    private <T> List<T> nextPage(ResourcePage<T> page) {
+        cursor = page.getCursor();
+        // Keep the page numbers consistent with the search case, where reading ends once pageNum > lastPageNum
+        lastReadPageNum = page.isLast() ? pageNum : pageNum + 1;
+        return page.getResources();
+    }
+
+    /**
+     * Search for the current page of resources of the current typeFilter.
+     */
+    private List<Resource> search() throws Exception {
         FHIRSearchContext searchContext;
         FHIRPersistenceContext persistenceContext;
         Map<String, List<String>> queryParameters = new HashMap<>();
@@ -232,40 +381,7 @@ public class ChunkReader extends AbstractItemReader {
         } finally {
             txn.end();
         }
-        pageNum++;
-
-        if (chunkData == null) {
-            chunkData = (TransientUserData)TransientUserData.Builder.builder()
-                    .pageNum(pageNum)
-                    .uploadId(null)
-                    .cosDataPacks(new ArrayList<PartETag>())
-                    .partNum(1)
-                    .indexOfCurrentTypeFilter(0)
-                    .resourceTypeSummary(null)
-                    .totalResourcesNum(0)
-                    .currentUploadResourceNum(0)
-                    .currentUploadSize(0)
-                    .uploadCount(1)
-                    .lastPageNum(searchContext.getLastPageNumber())
-                    .lastWritePageNum(1)
-                    .build();
-
-            stepCtx.setTransientUserData(chunkData);
-        } else {
-            chunkData.setPageNum(pageNum);
-            chunkData.setIndexOfCurrentTypeFilter(indexOfCurrentTypeFilter);
-            chunkData.setLastPageNum(searchContext.getLastPageNumber());
-        }
-
-        if (resources != null) {
-            if (logger.isLoggable(Level.FINE)) {
-                logger.fine("readItem: loaded " + resources.size() + " resources");
-            }
-            fillChunkDataBuffer(resources);
-        } else {
-            logger.fine("readItem: End of reading!");
-        }
-
+        lastReadPageNum = searchContext.getLastPageNumber();
         return resources;
     }
 
@@ -274,6 +390,7 @@ public class ChunkReader extends AbstractItemReader {
         if (checkpoint != null) {
             CheckPointUserData checkPointData = (CheckPointUserData) checkpoint;
             pageNum = checkPointData.getLastWritePageNum();
+            cursor = checkPointData.getLastWriteCursor();
             indexOfCurrentTypeFilter = checkPointData.getIndexOfCurrentTypeFilter();
             stepCtx.setTransientUserData(TransientUserData.fromCheckPointUserData(checkPointData));
         }
@@ -308,6 +425,11 @@ public class ChunkReader extends AbstractItemReader {
 
         searchParametersForResoureTypes = BulkDataUtils.getSearchParemetersFromTypeFilters(fhirTypeFilters);
         resourceType = ModelSupport.getResourceType(fhirResourceType);
+
+        // A job restarted from a checkpoint written while searching by page number must continue to do so.
+        boolean isRestartedFromPage = cursor == null && pageNum > 1;
+        isReadByCursor = fhirPersistence.isCursorSupported() && searchParametersForResoureTypes.get(resourceType) == null
+                && !isRestartedFromPage;
     }
 
     @Override
@@ -8,9 +8,9 @@ package com.ibm.fhir.jbatch.bulkdata.load;
 
 import java.io.ByteArrayInputStream;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,6 +33,7 @@ import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
@@ -134,36 +135,43 @@ public class ChunkWriter extends AbstractItemWriter {
     // This is for the warning triggered by IMPORT_IS_COLLECT_OPERATIONOUTCOMES which controls if upload OperationOutcomes to COS/S3.
     @Override
     public void writeItems(List<java.lang.Object> arg0) throws Exception {
-        Set<String> failValidationIds = new HashSet<>();
-
         FHIRPersistenceHelper fhirPersistenceHelper = new FHIRPersistenceHelper();
         FHIRPersistence fhirPersistence = fhirPersistenceHelper.getFHIRPersistenceImplementation();
         FHIRPersistenceContext persistenceContext = FHIRPersistenceContextFactory.createPersistenceContext(null);
         FHIRTransactionHelper txn = new FHIRTransactionHelper(fhirPersistence.getTransaction());
 
-        int processedNum = 0, succeededNum =0, failedNum = 0;
+        int succeededNum =0, failedNum = 0, failedValidationNum = 0;
         ImportTransientUserData chunkData = (ImportTransientUserData) stepCtx.getTransientUserData();
 
-        // Validate the resources first if required.
+        List<Resource> fhirResources = new ArrayList<>();
+        for (Object objResJsonList : arg0) {
+            @SuppressWarnings("unchecked")
+            List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
+            fhirResources.addAll(fhirResourceList);
+        }
+        int processedNum = fhirResources.size();
+
+        // The outcome of each resource, in the order of the input: the validation error of the resource, or its result
+        // from the persistence layer.
+        Exception[] errors = new Exception[processedNum];
+        List<SingleResourceResult<Resource>> results = new ArrayList<>(Collections.nCopies(processedNum, null));
+
+        // Validate the resources first if required; the resources are validated in parallel by the import stage executor.
         if (isValidationOn) {
             long validationStartTimeInMilliSeconds = System.currentTimeMillis();
-            for (Object objResJsonList : arg0) {
-                @SuppressWarnings("unchecked")
-                List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
-
-                for (Resource fhirResource : fhirResourceList) {
-                    try {
-                        BulkDataUtils.validateInput(fhirResource);
-                    } catch (FHIRValidationException|FHIROperationException e) {
-                        logger.warning("Failed to validate '" + fhirResource.getId() + "' due to error: " + e.getMessage());
-                        failedNum++;
-                        failValidationIds.add(fhirResource.getId());
-                        if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES) {
-                            OperationOutcome operationOutCome = FHIRUtil.buildOperationOutcome(e, false);
-                            FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
-                            chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
-                        }
-                    }
+            List<Exception> validationErrors = ImportStageExecutor.getInstance().map(fhirResources, fhirResource -> {
+                try {
+                    BulkDataUtils.validateInput(fhirResource);
+                    return null;
+                } catch (FHIRValidationException|FHIROperationException e) {
+                    return e;
+                }
+            });
+            for (int i = 0; i < processedNum; i++) {
+                errors[i] = validationErrors.get(i);
+                if (errors[i] != null) {
+                    logger.warning("Failed to validate '" + fhirResources.get(i).getId() + "' due to error: " + errors[i].getMessage());
+                    failedValidationNum++;
                 }
             }
             chunkData.setTotalValidationMilliSeconds(chunkData.getTotalValidationMilliSeconds()
@@ -177,43 +185,50 @@ public class ChunkWriter extends AbstractItemWriter {
         // framework at this time point.
         txn.begin();
         try {
-            for (Object objResJsonList : arg0) {
-                @SuppressWarnings("unchecked")
-                List<Resource> fhirResourceList = (List<Resource>) objResJsonList;
-
-                for (Resource fhirResource : fhirResourceList) {
-                    try {
-                        String id = fhirResource.getId();
-                        processedNum++;
-                        // Skip the resources which failed the validation
-                        if (failValidationIds.contains(id)) {
-                            continue;
-                        }
-                        OperationOutcome operationOutcome;
-                        if (id == null) {
-                            operationOutcome =
-                                    fhirPersistence.create(persistenceContext, fhirResource).getOutcome();
-                        } else {
-                            operationOutcome =
-                                    fhirPersistence.update(persistenceContext, id, fhirResource).getOutcome();
-                        }
-
-                        succeededNum++;
-                        if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES && operationOutcome != null) {
-                            FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImport());
-                            chunkData.getBufferStreamForImport().write(Constants.NDJSON_LINESEPERATOR);
-                        }
-                    } catch (FHIROperationException e) {
-                        logger.warning("Failed to import '" + fhirResource.getId() + "' due to error: " + e.getMessage());
-                        failedNum++;
-                        if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES) {
-                            OperationOutcome operationOutCome = FHIRUtil.buildOperationOutcome(e, false);
-                            FHIRGenerator.generator(Format.JSON).generate(operationOutCome, chunkData.getBufferStreamForImportError());
-                            chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
-                        }
+            List<Integer> createIndexes = new ArrayList<>();
+            List<Integer> updateIndexes = new ArrayList<>();
+            for (int i = 0; i < processedNum; i++) {
+                if (errors[i] == null) {
+                    if (fhirResources.get(i).getId() == null) {
+                        createIndexes.add(i);
+                    } else {
+                        updateIndexes.add(i);
                     }
                 }
             }
+
+            // Store the resources of the chunk with one batch call each for the creates and the updates.
+            // A resource which can't be stored is reported in its result. Any other failure may happen after some of
+            // the resources have been written, so it fails the chunk and the batch framework rolls back its transaction.
+            setResults(results, createIndexes, fhirPersistence.createAll(persistenceContext, resources(fhirResources, createIndexes)));
+            setResults(results, updateIndexes, fhirPersistence.updateAll(persistenceContext, resources(fhirResources, updateIndexes)));
+
+            for (int i = 0; i < processedNum; i++) {
+                SingleResourceResult<Resource> result = results.get(i);
+                if (result != null && result.isSuccess()) {
+                    succeededNum++;
+                    OperationOutcome operationOutcome = result.getOutcome();
+                    if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES && operationOutcome != null) {
+                        FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImport());
+                        chunkData.getBufferStreamForImport().write(Constants.NDJSON_LINESEPERATOR);
+                    }
+                    continue;
+                }
+
+                failedNum++;
+                OperationOutcome operationOutcome;
+                if (errors[i] != null) {
+                    // already logged when the resource failed validation
+                    operationOutcome = FHIRUtil.buildOperationOutcome(errors[i], false);
+                } else {
+                    operationOutcome = result.getOutcome();
+                    logger.warning("Failed to import '" + fhirResources.get(i).getId() + "' due to error: " + getIssueText(operationOutcome));
+                }
+                if (Constants.IMPORT_IS_COLLECT_OPERATIONOUTCOMES && operationOutcome != null) {
+                    FHIRGenerator.generator(Format.JSON).generate(operationOutcome, chunkData.getBufferStreamForImportError());
+                    chunkData.getBufferStreamForImportError().write(Constants.NDJSON_LINESEPERATOR);
+                }
+            }
         } finally {
             // Release the DB connection.
             // This doesn't really commit the transaction, because the transaction was started and will be committed
@@ -225,6 +240,7 @@ public class ChunkWriter extends AbstractItemWriter {
         chunkData.setNumOfProcessedResources(chunkData.getNumOfProcessedResources() + processedNum + chunkData.getNumOfParseFailures());
         chunkData.setNumOfImportedResources(chunkData.getNumOfImportedResources() + succeededNum);
         chunkData.setNumOfImportFailures(chunkData.getNumOfImportFailures() + failedNum + chunkData.getNumOfParseFailures());
+        chunkData.setNumOfValidationFailures(chunkData.getNumOfValidationFailures() + failedValidationNum);
         // Reset NumOfParseFailures for next batch.
         chunkData.setNumOfParseFailures(0);
         if (logger.isLoggable(Level.FINE)) {
@@ -237,6 +253,48 @@ public class ChunkWriter extends AbstractItemWriter {
     }
 
 
+    /**
+     * Set the results of a batch call at the input indexes of the resources of the batch.
+     */
+    private void setResults(List<SingleResourceResult<Resource>> results, List<Integer> indexes, List<SingleResourceResult<Resource>> batchResults) {
+        for (int i = 0; i < indexes.size(); i++) {
+            results.set(indexes.get(i), batchResults.get(i));
+        }
+    }
+
+    private List<Resource> resources(List<Resource> fhirResources, List<Integer> indexes) {
+        List<Resource> resources = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            resources.add(fhirResources.get(i));
+        }
+        return resources;
+    }
+
+    /**
+     * @return the details text or diagnostics of the issues of the passed OperationOutcome, for logging
+     */
+    private String getIssueText(OperationOutcome operationOutcome) {
+        if (operationOutcome == null) {
+            return "no OperationOutcome";
+        }
+        StringBuilder text = new StringBuilder();
+        for (OperationOutcome.Issue issue : operationOutcome.getIssue()) {
+            String issueText = null;
+            if (issue.getDetails() != null && issue.getDetails().getText() != null) {
+                issueText = issue.getDetails().getText().getValue();
+            } else if (issue.getDiagnostics() != null) {
+                issueText = issue.getDiagnostics().getValue();
+            }
+            if (issueText != null) {
+                if (text.length() > 0) {
+                    text.append("; ");
+                }
+                text.append(issueText);
+            }
+        }
+        return text.toString();
+    }
+
     private void pushImportOperationOutcomes2COS(ImportTransientUserData chunkData) throws Exception{
         // Upload OperationOutcomes in buffer if it reaches the minimal size for multiple-parts upload.
         if (chunkData.getBufferStreamForImport().size() > Constants.COS_PART_MINIMALSIZE) {
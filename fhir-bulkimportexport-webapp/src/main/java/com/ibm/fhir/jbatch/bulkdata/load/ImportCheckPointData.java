@@ -26,6 +26,9 @@ public class ImportCheckPointData implements Serializable {
     protected long totalReadMilliSeconds = 0;
     protected long totalWriteMilliSeconds = 0;
     protected long totalValidationMilliSeconds = 0;
+    // Parsing time summed over the parser threads, so it can be larger than totalReadMilliSeconds.
+    protected long totalParseMilliSeconds = 0;
+    protected int numOfValidationFailures = 0;
     protected long importFileSize = 0;
 
     protected long inFlyRateBeginMilliSeconds = 0;
@@ -77,6 +80,8 @@ public class ImportCheckPointData implements Serializable {
         protected long totalReadMilliSeconds;
         protected long totalValidationMilliSeconds;
         protected long totalWriteMilliSeconds;
+        protected long totalParseMilliSeconds;
+        protected int numOfValidationFailures;
         protected long importFileSize;
         protected long inFlyRateBeginMilliSeconds;
 
@@ -178,6 +183,16 @@ public class ImportCheckPointData implements Serializable {
             return this;
         }
 
+        public Builder totalParseMilliSeconds(long totalParseMilliSeconds) {
+            this.totalParseMilliSeconds = totalParseMilliSeconds;
+            return this;
+        }
+
+        public Builder numOfValidationFailures(int numOfValidationFailures) {
+            this.numOfValidationFailures = numOfValidationFailures;
+            return this;
+        }
+
         public ImportCheckPointData build(){
             ImportCheckPointData importCheckPointData = new ImportCheckPointData();
             importCheckPointData.importPartitionWorkitem = this.importPartitionWorkitem;
@@ -198,6 +213,8 @@ public class ImportCheckPointData implements Serializable {
             importCheckPointData.totalWriteMilliSeconds = this.totalWriteMilliSeconds;
             importCheckPointData.importFileSize = this.importFileSize;
             importCheckPointData.inFlyRateBeginMilliSeconds = this.inFlyRateBeginMilliSeconds;
+            importCheckPointData.totalParseMilliSeconds = this.totalParseMilliSeconds;
+            importCheckPointData.numOfValidationFailures = this.numOfValidationFailures;
 
             return importCheckPointData;
         }
@@ -264,6 +281,8 @@ public class ImportCheckPointData implements Serializable {
                 .totalWriteMilliSeconds(userData.getTotalWriteMilliSeconds())
                 .importFileSize(userData.getImportFileSize())
                 .inFlyRateBeginMilliSeconds(userData.getInFlyRateBeginMilliSeconds())
+                .totalParseMilliSeconds(userData.getTotalParseMilliSeconds())
+                .numOfValidationFailures(userData.getNumOfValidationFailures())
                 .build();
     }
 
@@ -347,6 +366,22 @@ public class ImportCheckPointData implements Serializable {
         this.totalValidationMilliSeconds = totalValidationMilliSeconds;
     }
 
+    public long getTotalParseMilliSeconds() {
+        return totalParseMilliSeconds;
+    }
+
+    public void setTotalParseMilliSeconds(long totalParseMilliSeconds) {
+        this.totalParseMilliSeconds = totalParseMilliSeconds;
+    }
+
+    public int getNumOfValidationFailures() {
+        return numOfValidationFailures;
+    }
+
+    public void setNumOfValidationFailures(int numOfValidationFailures) {
+        this.numOfValidationFailures = numOfValidationFailures;
+    }
+
     public long getImportFileSize() {
         return importFileSize;
     }
@@ -368,6 +403,7 @@ public class ImportCheckPointData implements Serializable {
         return "ImportCheckPointData [importPartitionWorkitem=" + importPartitionWorkitem + ", numOfProcessedResources=" + numOfProcessedResources
                 + ", numOfImportedResources=" + numOfImportedResources + ", numOfImportFailures=" + numOfImportFailures + ", totalReadMilliSeconds="
                 + totalReadMilliSeconds + ", totalWriteMilliSeconds=" + totalWriteMilliSeconds + ", totalValidationMilliSeconds=" + totalValidationMilliSeconds
+                + ", totalParseMilliSeconds=" + totalParseMilliSeconds + ", numOfValidationFailures=" + numOfValidationFailures
                 + ", importFileSize=" + importFileSize + ", inFlyRateBeginMilliSeconds=" + inFlyRateBeginMilliSeconds + ", numOfToBeImported="
                 + numOfToBeImported + ", numOfParseFailures=" + numOfParseFailures + ", importPartitionResourceType=" + importPartitionResourceType
                 + ", uniqueIDForImportOperationOutcomes=" + uniqueIDForImportOperationOutcomes + ", partNumForOperationOutcomes=" + partNumForOperationOutcomes
@@ -111,6 +111,8 @@ public class ImportJobListener implements JobListener {
                 partitionSummaryInMap.setTotalReadMilliSeconds(partitionSummaryInMap.getTotalReadMilliSeconds() + partitionSummary.getTotalReadMilliSeconds());
                 partitionSummaryInMap.setTotalValidationMilliSeconds(partitionSummaryInMap.getTotalValidationMilliSeconds() + partitionSummary.getTotalValidationMilliSeconds());
                 partitionSummaryInMap.setTotalWriteMilliSeconds(partitionSummaryInMap.getTotalWriteMilliSeconds() + partitionSummary.getTotalWriteMilliSeconds());
+                partitionSummaryInMap.setTotalParseMilliSeconds(partitionSummaryInMap.getTotalParseMilliSeconds() + partitionSummary.getTotalParseMilliSeconds());
+                partitionSummaryInMap.setNumOfValidationFailures(partitionSummaryInMap.getNumOfValidationFailures() + partitionSummary.getNumOfValidationFailures());
                 partitionSummaryInMap.setImportFileSize(partitionSummaryInMap.getImportFileSize() + partitionSummary.getImportFileSize());
             }
         }
@@ -121,7 +123,7 @@ public class ImportJobListener implements JobListener {
         // log the simple metrics.
         logger.info(" ---- Fhir resources imported in " + jobProcessingSeconds + "seconds ----");
         logger.info("ResourceType \t| Imported \t| Failed \t| TotalReadMilliSeconds \t| TotalWriteMilliSeconds \t| TotalValidationMilliSeconds"
-                    + " \t| TotalSize \t| AverageSize");
+                    + " \t| TotalParseMilliSeconds \t| ValidationFailures \t| TotalSize \t| AverageSize");
         int totalImportedFhirResources = 0;
         for (ImportCheckPointData importedResourceTypeSummary : importedResourceTypeSummaries.values()) {
             logger.info(importedResourceTypeSummary.getImportPartitionResourceType() + "\t|"
@@ -130,6 +132,8 @@ public class ImportJobListener implements JobListener {
                         + importedResourceTypeSummary.getTotalReadMilliSeconds() + "\t|"
                         + importedResourceTypeSummary.getTotalWriteMilliSeconds() + "\t|"
                         + importedResourceTypeSummary.getTotalValidationMilliSeconds() + "\t|"
+                        + importedResourceTypeSummary.getTotalParseMilliSeconds() + "\t|"
+                        + importedResourceTypeSummary.getNumOfValidationFailures() + "\t|"
                         + importedResourceTypeSummary.getImportFileSize() + "\t|"
                         + importedResourceTypeSummary.getImportFileSize()/(importedResourceTypeSummary.getNumOfImportedResources() + importedResourceTypeSummary.getNumOfImportFailures()));
             totalImportedFhirResources += importedResourceTypeSummary.getNumOfImportedResources();
@@ -0,0 +1,239 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.jbatch.bulkdata.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+
+import com.ibm.fhir.config.FHIRConfigHelper;
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.jbatch.bulkdata.common.Constants;
+
+/**
+ * Runs the CPU-bound stages of the bulk import (parsing and validation of the NDJSON lines) on a bounded number of
+ * worker threads which is shared by all the partitions of all the import jobs.
+ *
+ * <p>The workers run on the container's managed executor service (java:comp/DefaultManagedExecutorService); outside
+ * of a container, a private daemon thread pool is used instead. At most the configured number of tasks are handed to
+ * the executor at a time; a task which can't be handed off is run on the submitting thread. This applies backpressure
+ * to the stage which feeds the workers: e.g. the reader stops fetching lines from the data source while it parses a
+ * line itself, so the number of lines held in memory stays bounded.
+ * The {@link FHIRRequestContext} (tenant and datastore) of the submitting thread is set on the worker thread for the
+ * duration of each task.
+ */
+public final class ImportStageExecutor {
+    private static final Logger logger = Logger.getLogger(ImportStageExecutor.class.getName());
+
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+    private static final ConcurrentHashMap<Integer, ImportStageExecutor> INSTANCES = new ConcurrentHashMap<>();
+
+    private static volatile ExecutorService executorService;
+
+    private final int threadCount;
+
+    // The tasks handed to the executor which haven't completed yet
+    private final Semaphore permits;
+
+    private ImportStageExecutor(int threadCount) {
+        this.threadCount = threadCount;
+        this.permits = new Semaphore(threadCount);
+    }
+
+    /**
+     * Get the shared executor with the number of worker threads configured by fhirServer/bulkdata/importParallelism
+     *
+     * @return the shared executor
+     */
+    public static ImportStageExecutor getInstance() {
+        return getInstance(FHIRConfigHelper.getIntProperty(FHIRConfiguration.PROPERTY_BULKDATA_IMPORT_PARALLELISM,
+                Constants.DEFAULT_IMPORT_PARALLELISM));
+    }
+
+    /**
+     * Get the shared executor with the passed number of worker threads
+     *
+     * @param threadCount
+     *     the number of worker threads; values less than 2 run all the tasks on the submitting thread
+     * @return the shared executor
+     */
+    public static ImportStageExecutor getInstance(int threadCount) {
+        return INSTANCES.computeIfAbsent(Math.max(threadCount, 1), ImportStageExecutor::new);
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Submit a task; the task is run on the submitting thread if the workers are disabled or all busy.
+     *
+     * @param task
+     *     the task to run; must be safe to run on another thread
+     * @return the future result of the task
+     */
+    public <R> Future<R> submit(Callable<R> task) {
+        if (threadCount < 2 || !permits.tryAcquire()) {
+            FutureTask<R> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+
+        FHIRRequestContext context = FHIRRequestContext.get();
+        FutureTask<R> future = new FutureTask<R>(() -> {
+            FHIRRequestContext previous = FHIRRequestContext.get();
+            FHIRRequestContext.set(context);
+            try {
+                return task.call();
+            } finally {
+                FHIRRequestContext.set(previous);
+            }
+        }) {
+            @Override
+            protected void done() {
+                // called once, when the task completes or is cancelled
+                permits.release();
+            }
+        };
+        try {
+            getExecutorService().execute(future);
+        } catch (RejectedExecutionException e) {
+            future.run();
+        }
+        return future;
+    }
+
+    /**
+     * Get the result of a task submitted to this executor
+     *
+     * @param future
+     *     the future returned by {@link #submit(Callable)}
+     * @return the result of the task
+     * @throws Exception
+     *     the exception thrown by the task
+     */
+    public static <R> R getResult(Future<R> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Apply the passed function to each of the passed items
+     *
+     * @param items
+     *     the items
+     * @param function
+     *     the function applied to each item; must be safe to call from multiple threads
+     * @return the results, in the same order as the passed items
+     * @throws Exception
+     *     the first exception thrown by the function; the remaining results are discarded
+     */
+    public <T, R> List<R> map(List<T> items, Function<T, R> function) throws Exception {
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        try {
+            for (T item : items) {
+                futures.add(submit(() -> function.apply(item)));
+            }
+            List<R> results = new ArrayList<>(items.size());
+            for (Future<R> future : futures) {
+                results.add(getResult(future));
+            }
+            return results;
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A function which may throw a checked exception
+     */
+    @FunctionalInterface
+    public interface Function<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    private static ExecutorService getExecutorService() {
+        ExecutorService result = executorService;
+        if (result == null) {
+            synchronized (ImportStageExecutor.class) {
+                result = executorService;
+                if (result == null) {
+                    result = lookupManagedExecutorService();
+                    if (result == null) {
+                        result = createExecutorService();
+                    }
+                    executorService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves (via a JNDI lookup) the default managed executor service. If the JNDI lookup fails, we'll assume that
+     * we're not running inside the container.
+     */
+    private static ExecutorService lookupManagedExecutorService() {
+        try {
+            InitialContext ctx = new InitialContext();
+            ExecutorService result = (ExecutorService) ctx.lookup(MANAGED_EXECUTOR_JNDI_NAME);
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Using managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' for the import stages");
+            }
+            return result;
+        } catch (Throwable t) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' is not available: " + t.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static ExecutorService createExecutorService() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "fhir-bulkdata-import-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
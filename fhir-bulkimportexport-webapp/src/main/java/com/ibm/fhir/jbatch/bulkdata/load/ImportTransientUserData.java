@@ -52,6 +52,8 @@ public class ImportTransientUserData extends ImportCheckPointData {
                 .totalWriteMilliSeconds(importCheckPointData.totalWriteMilliSeconds)
                 .importFileSize(importCheckPointData.importFileSize)
                 .inFlyRateBeginMilliSeconds(importCheckPointData.inFlyRateBeginMilliSeconds)
+                .totalParseMilliSeconds(importCheckPointData.totalParseMilliSeconds)
+                .numOfValidationFailures(importCheckPointData.numOfValidationFailures)
                 .build();
     }
 
@@ -82,6 +84,8 @@ public class ImportTransientUserData extends ImportCheckPointData {
             importTransientUserData.totalWriteMilliSeconds = this.totalWriteMilliSeconds;
             importTransientUserData.importFileSize = this.importFileSize;
             importTransientUserData.inFlyRateBeginMilliSeconds = this.inFlyRateBeginMilliSeconds;
+            importTransientUserData.totalParseMilliSeconds = this.totalParseMilliSeconds;
+            importTransientUserData.numOfValidationFailures = this.numOfValidationFailures;
             return importTransientUserData;
         }
 
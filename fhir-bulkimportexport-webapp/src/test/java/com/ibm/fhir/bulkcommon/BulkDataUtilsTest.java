@@ -9,12 +9,17 @@ package com.ibm.fhir.bulkcommon;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.testng.annotations.Test;
 
 import com.ibm.fhir.jbatch.bulkdata.common.BulkDataUtils;
+import com.ibm.fhir.jbatch.bulkdata.common.Constants;
+import com.ibm.fhir.jbatch.bulkdata.load.ImportTransientUserData;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.util.ModelSupport;
 
@@ -33,4 +38,42 @@ public class BulkDataUtilsTest {
         assertEquals("gt2018-07-01T00:00:00Z" ,searchParametersForMedicationRequest.get(1).get("date").get(0));
         assertEquals("lt2019-07-01T00:00:00Z" ,searchParametersForMedicationRequest.get(1).get("date").get(1));
     }
+
+    @Test
+    public void testReadFhirResourceFromLocalFile() throws Exception {
+        // 30 lines with an invalid line in the first batch
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            lines.add(i == 2 ? "{\"resourceType\":\"Patient\",\"invalid\":true}" : "{\"resourceType\":\"Patient\",\"id\":\"" + i + "\"}");
+        }
+        Path file = Files.createTempFile("BulkDataUtilsTest", ".ndjson");
+        Files.write(file, lines);
+
+        ImportTransientUserData transientUserData = (ImportTransientUserData) ImportTransientUserData.Builder.builder().build();
+        try {
+            List<Resource> fhirResources = new ArrayList<>();
+            int parseFailures = BulkDataUtils.readFhirResourceFromLocalFile(file.toString(), 0, fhirResources, transientUserData);
+            assertEquals(1, parseFailures);
+            assertEquals(Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD - 1, fhirResources.size());
+            assertEquals("0", fhirResources.get(0).getId());
+            assertEquals("3", fhirResources.get(2).getId());
+
+            // the following lines are read from the same reader, in order
+            fhirResources.clear();
+            parseFailures = BulkDataUtils.readFhirResourceFromLocalFile(file.toString(), Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD,
+                    fhirResources, transientUserData);
+            assertEquals(0, parseFailures);
+            assertEquals(30 - Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD, fhirResources.size());
+            for (int i = 0; i < fhirResources.size(); i++) {
+                assertEquals(String.valueOf(Constants.IMPORT_NUMOFFHIRRESOURCES_PERREAD + i), fhirResources.get(i).getId());
+            }
+
+            fhirResources.clear();
+            BulkDataUtils.readFhirResourceFromLocalFile(file.toString(), 30, fhirResources, transientUserData);
+            assertEquals(0, fhirResources.size());
+        } finally {
+            BulkDataUtils.cleanupTransientUserData(transientUserData, false);
+            Files.delete(file);
+        }
+    }
 }
@@ -36,6 +36,7 @@ public class FHIRConfiguration {
     public static final String PROPERTY_CAPABILITY_STATEMENT_CACHE = "fhirServer/core/capabilityStatementCacheTimeout";
     public static final String PROPERTY_EXTENDED_CODEABLE_CONCEPT_VALIDATION = "fhirServer/core/extendedCodeableConceptValidation";
     public static final String PROPERTY_DISABLED_OPERATIONS = "fhirServer/core/disabledOperations";
+    public static final String PROPERTY_BATCH_PARALLELISM = "fhirServer/core/batchParallelism";
 
     // Resources properties
     public static final String PROPERTY_RESOURCES = "fhirServer/resources";
@@ -75,6 +76,9 @@ public class FHIRConfiguration {
 
     // Notification config properties
     public static final String PROPERTY_NOTIFICATION_RESOURCE_TYPES = "fhirServer/notifications/common/includeResourceTypes";
+    public static final String PROPERTY_NOTIFICATION_ASYNC_ENABLED = "fhirServer/notifications/common/async/enabled";
+    public static final String PROPERTY_NOTIFICATION_ASYNC_QUEUE_SIZE = "fhirServer/notifications/common/async/queueSize";
+    public static final String PROPERTY_NOTIFICATION_ASYNC_OVERFLOW_POLICY = "fhirServer/notifications/common/async/overflowPolicy";
     public static final String PROPERTY_WEBSOCKET_ENABLED = "fhirServer/notifications/websocket/enabled";
     public static final String PROPERTY_KAFKA_ENABLED = "fhirServer/notifications/kafka/enabled";
     public static final String PROPERTY_KAFKA_TOPICNAME = "fhirServer/notifications/kafka/topicName";
@@ -104,6 +108,9 @@ public class FHIRConfiguration {
     public static final String PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE = "fhirServer/persistence/jdbc/enableResourceTypesCache";
     public static final String PROPERTY_JDBC_EXTERNAL_REF_SYSTEM_CACHE_SIZE = "fhirServer/persistence/jdbc/externalRefSystemCacheSize";
     public static final String PROPERTY_JDBC_EXTERNAL_REF_VALUE_CACHE_SIZE = "fhirServer/persistence/jdbc/externalRefValueCacheSize";
+    public static final String PROPERTY_JDBC_PAYLOAD_CODEC = "fhirServer/persistence/jdbc/payloadCodec";
+    public static final String PROPERTY_JDBC_DECODE_THREADS = "fhirServer/persistence/jdbc/decodeThreads";
+    public static final String PROPERTY_JDBC_STAGED_CHAIN_THRESHOLD = "fhirServer/persistence/jdbc/stagedChainThreshold";
 
     // fhir-search - Bounding area
     public static final String PROPERTY_SEARCH_BOUNDING_AREA_RADIUS_TYPE = "fhirServer/search/useBoundingRadius";
@@ -133,6 +140,7 @@ public class FHIRConfiguration {
     public static final String PROPERTY_BULKDATA_BATCHJOB_COSFILEMAXSIZE = "fhirServer/bulkdata/cosFileMaxSize";
     public static final String PROPERTY_BULKDATA_BATCHJOB_COSFILEMAXRESOURCES = "fhirServer/bulkdata/cosFileMaxResources";
     public static final String PROPERTY_BULKDATA_PATIENTEXPORT_PAGESIZE = "fhirServer/bulkdata/patientExportPageSize";
+    public static final String PROPERTY_BULKDATA_IMPORT_PARALLELISM = "fhirServer/bulkdata/importParallelism";
 
     // Custom header names
     public static final String DEFAULT_TENANT_ID_HEADER_NAME = "X-FHIR-TENANT-ID";
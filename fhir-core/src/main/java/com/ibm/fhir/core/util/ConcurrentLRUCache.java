@@ -0,0 +1,340 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache with approximate Least Recently Used (LRU) eviction.
+ *
+ * <p>Unlike {@link LRUCache#createLRUCache(int)}, reads never take a lock: entries are held in a
+ * {@link ConcurrentHashMap} and each entry records a logical access time. When the cache grows beyond
+ * its maximum size, a writer samples a small window of entries (using a cursor that sweeps the whole
+ * table over time) and evicts the least recently used entry from that sample.
+ *
+ * <p>Null keys and null values are not supported.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class ConcurrentLRUCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    private static final int DEFAULT_SAMPLE_SIZE = 8;
+
+    private final ConcurrentHashMap<K, Node<V>> map;
+    private final int maxEntries;
+    private final int sampleSize;
+
+    // logical clock; writes advance it by two and stamp entries with the new value, reads stamp entries with
+    // the current value plus one so that a read is more recent than the last write without contending on the clock
+    private final AtomicLong clock = new AtomicLong();
+
+    // guards the eviction cursor; only writers that push the cache over its limit contend for it
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private Iterator<Map.Entry<K, Node<V>>> evictionCursor;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private transient Set<Map.Entry<K, V>> entrySet;
+
+    public ConcurrentLRUCache(int maxEntries) {
+        this(maxEntries, DEFAULT_SAMPLE_SIZE);
+    }
+
+    public ConcurrentLRUCache(int maxEntries, int sampleSize) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be greater than 0");
+        }
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("sampleSize must be greater than 0");
+        }
+        this.map = new ConcurrentHashMap<>(Math.min(maxEntries, 1 << 16));
+        this.maxEntries = maxEntries;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * Create a bounded, thread-safe cache that can be used in place of {@link LRUCache#createLRUCache(int)}
+     *
+     * @param maxEntries
+     *     the maximum number of entries held by the cache
+     * @return
+     *     a new cache instance
+     */
+    public static <K, V> ConcurrentLRUCache<K, V> createConcurrentLRUCache(int maxEntries) {
+        return new ConcurrentLRUCache<>(maxEntries);
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        node.touch(clock.get() + 1);
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<V> previous = map.put(key, new Node<>(value, tick()));
+        if (previous == null) {
+            evictIfNecessary();
+            return null;
+        }
+        return previous.value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<V> previous = map.putIfAbsent(key, new Node<>(value, tick()));
+        if (previous == null) {
+            evictIfNecessary();
+            return null;
+        }
+        return previous.value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The mapping function is invoked outside of any lock, so it may safely use this cache recursively. Concurrent
+     * callers that miss on the same key may each invoke the mapping function; only the first value is retained.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<V> node = map.get(key);
+        if (node != null) {
+            hitCount.increment();
+            node.touch(clock.get() + 1);
+            return node.value;
+        }
+        missCount.increment();
+        V value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        V previous = putIfAbsent(key, value);
+        return (previous != null) ? previous : value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<V> node = map.remove(key);
+        return (node != null) ? node.value : null;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        Node<V> node = map.get(key);
+        return node != null && Objects.equals(node.value, value) && map.remove(key, node);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue);
+        Node<V> node = map.get(key);
+        return node != null && Objects.equals(node.value, oldValue) && map.replace(key, node, new Node<>(newValue, tick()));
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        Node<V> previous = map.replace(key, new Node<>(value, tick()));
+        return (previous != null) ? previous.value : null;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    /**
+     * @return the maximum number of entries held by this cache
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the number of lookups that found a cached value
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached value
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of entries removed to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Reset the hit, miss and eviction counters
+     */
+    public void resetStats() {
+        hitCount.reset();
+        missCount.reset();
+        evictionCount.reset();
+    }
+
+    private long tick() {
+        return clock.addAndGet(2);
+    }
+
+    private void evictIfNecessary() {
+        if (map.size() <= maxEntries) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            while (map.size() > maxEntries) {
+                if (!evictOne()) {
+                    break;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Evict the least recently used entry from the next sample window. Must be called while holding the eviction lock.
+     *
+     * @return true if an entry was evicted
+     */
+    private boolean evictOne() {
+        K victimKey = null;
+        Node<V> victim = null;
+        int sampled = 0;
+        boolean restarted = false;
+        while (sampled < sampleSize) {
+            if (evictionCursor == null || !evictionCursor.hasNext()) {
+                if (restarted) {
+                    // fewer entries than the sample size
+                    break;
+                }
+                evictionCursor = map.entrySet().iterator();
+                restarted = true;
+                if (!evictionCursor.hasNext()) {
+                    break;
+                }
+            }
+            Map.Entry<K, Node<V>> entry = evictionCursor.next();
+            Node<V> node = entry.getValue();
+            if (victim == null || node.accessTime < victim.accessTime) {
+                victimKey = entry.getKey();
+                victim = node;
+            }
+            sampled++;
+        }
+        if (victim != null && map.remove(victimKey, victim)) {
+            evictionCount.increment();
+            return true;
+        }
+        return victim != null;
+    }
+
+    private static final class Node<V> {
+        private final V value;
+        private volatile long accessTime;
+
+        private Node(V value, long accessTime) {
+            this.value = value;
+            this.accessTime = accessTime;
+        }
+
+        private void touch(long time) {
+            // avoid writing to the shared cache line when the access time has not changed
+            if (accessTime != time) {
+                accessTime = time;
+            }
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Map.Entry<K, Node<V>>> iterator = map.entrySet().iterator();
+            return new Iterator<Map.Entry<K, V>>() {
+                private K lastKey;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    Map.Entry<K, Node<V>> entry = iterator.next();
+                    lastKey = entry.getKey();
+                    return new SimpleImmutableEntry<>(lastKey, entry.getValue().value);
+                }
+
+                @Override
+                public void remove() {
+                    if (lastKey == null) {
+                        throw new IllegalStateException();
+                    }
+                    map.remove(lastKey);
+                    lastKey = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+}
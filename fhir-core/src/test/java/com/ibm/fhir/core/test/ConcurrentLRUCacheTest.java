@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.core.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+
+public class ConcurrentLRUCacheTest {
+
+    @Test
+    public void testBasicOperations() {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(4);
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        assertEquals(cache.get("a"), Integer.valueOf(1));
+        assertEquals(cache.computeIfAbsent("b", k -> 2), Integer.valueOf(2));
+        assertEquals(cache.computeIfAbsent("b", k -> 3), Integer.valueOf(2));
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.remove("a"), Integer.valueOf(1));
+        assertFalse(cache.containsKey("a"));
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 2);
+    }
+
+    @Test
+    public void testEviction() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(2, 2);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        // touch the first entry so that the second one is the least recently used
+        cache.get(1);
+        cache.put(3, 3);
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getEvictionCount(), 1);
+        assertTrue(cache.containsKey(1));
+        assertFalse(cache.containsKey(2));
+        assertTrue(cache.containsKey(3));
+    }
+
+    @Test
+    public void testRecursiveComputeIfAbsent() {
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(16);
+        int result = cache.computeIfAbsent(1, k -> cache.computeIfAbsent(2, j -> 2) + 1);
+        assertEquals(result, 3);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int maxEntries = 64;
+        ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(maxEntries);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        int key = (i * 31 + offset) % 256;
+                        assertEquals(cache.computeIfAbsent(key, k -> k), Integer.valueOf(key));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= maxEntries);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.model.parser;
+
+import java.io.StringWriter;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+
+/**
+ * Reads a JSON object directly from a {@link JsonParser} event stream into compact, array-backed {@link JsonObject}
+ * and {@link JsonArray} instances.
+ *
+ * <p>The objects and arrays read by this class hold their members in plain arrays instead of the hash maps and
+ * builders used by {@link javax.json.JsonReader}, which reduces the memory allocated for the intermediate JSON
+ * document of a parse. Scalar values are the values created by the underlying parser. Like {@link javax.json.JsonReader},
+ * the last value wins for duplicate keys and content after the outermost object is ignored.
+ *
+ * <p>The objects and arrays are immutable.
+ */
+final class CompactJsonReader {
+    private CompactJsonReader() { }
+
+    /**
+     * Read the next JSON object from the passed parser
+     *
+     * @param parser
+     *     the parser
+     * @return
+     *     the JSON object
+     * @throws javax.json.stream.JsonParsingException
+     *     if the parser does not produce a valid JSON object
+     */
+    static JsonObject readObject(JsonParser parser) {
+        Event event = parser.next();
+        if (event != Event.START_OBJECT) {
+            // let the parser report the unexpected state
+            return parser.getObject();
+        }
+        return readCompactObject(parser);
+    }
+
+    private static CompactJsonObject readCompactObject(JsonParser parser) {
+        CompactJsonObject jsonObject = new CompactJsonObject();
+        Event event;
+        while ((event = parser.next()) != Event.END_OBJECT) {
+            if (event != Event.KEY_NAME) {
+                throw new IllegalStateException("Unexpected event: " + event);
+            }
+            String key = parser.getString();
+            jsonObject.addMember(key, readValue(parser, parser.next()));
+        }
+        return jsonObject.trim();
+    }
+
+    private static CompactJsonArray readCompactArray(JsonParser parser) {
+        CompactJsonArray jsonArray = new CompactJsonArray();
+        Event event;
+        while ((event = parser.next()) != Event.END_ARRAY) {
+            jsonArray.addElement(readValue(parser, event));
+        }
+        return jsonArray.trim();
+    }
+
+    private static JsonValue readValue(JsonParser parser, Event event) {
+        switch (event) {
+        case START_OBJECT:
+            return readCompactObject(parser);
+        case START_ARRAY:
+            return readCompactArray(parser);
+        default:
+            return parser.getValue();
+        }
+    }
+
+    private static String toString(JsonValue jsonValue) {
+        StringWriter writer = new StringWriter();
+        try (JsonWriter jsonWriter = Json.createWriter(writer)) {
+            jsonWriter.write(jsonValue);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * A JSON object whose members are held in parallel key and value arrays; objects with many members are indexed
+     * by key on first lookup, which happens while they are read
+     */
+    private static final class CompactJsonObject extends AbstractMap<String, JsonValue> implements JsonObject {
+        private static final int INDEX_THRESHOLD = 16;
+        private static final String[] EMPTY_KEYS = new String[0];
+        private static final JsonValue[] EMPTY_VALUES = new JsonValue[0];
+
+        private String[] keys = EMPTY_KEYS;
+        private JsonValue[] values = EMPTY_VALUES;
+        private int size = 0;
+        private volatile Map<String, Integer> index;
+
+        private void addMember(String key, JsonValue value) {
+            // once the object is indexed, the index is kept up to date so duplicate keys are found without a scan
+            int i = indexOf(key);
+            if (i != -1) {
+                values[i] = value;
+                return;
+            }
+            if (size == keys.length) {
+                int capacity = Math.max(8, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            keys[size] = key;
+            values[size] = value;
+            Map<String, Integer> index = this.index;
+            if (index != null) {
+                index.put(key, size);
+            }
+            size++;
+        }
+
+        private CompactJsonObject trim() {
+            if (size < keys.length) {
+                keys = (size == 0) ? EMPTY_KEYS : Arrays.copyOf(keys, size);
+                values = (size == 0) ? EMPTY_VALUES : Arrays.copyOf(values, size);
+            }
+            return this;
+        }
+
+        private int indexOf(Object key) {
+            if (size > INDEX_THRESHOLD) {
+                Map<String, Integer> index = this.index;
+                if (index == null) {
+                    index = new HashMap<>(size * 2);
+                    for (int i = 0; i < size; i++) {
+                        index.put(keys[i], i);
+                    }
+                    this.index = index;
+                }
+                Integer i = index.get(key);
+                return (i == null) ? -1 : i;
+            }
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public JsonValue get(Object key) {
+            int i = indexOf(key);
+            return (i == -1) ? null : values[i];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) != -1;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            // iterate the keys directly; the keys of every object are checked for unrecognized elements
+            return new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new Iterator<String>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < size;
+                        }
+
+                        @Override
+                        public String next() {
+                            if (i >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            return keys[i++];
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(Object key) {
+                    return indexOf(key) != -1;
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public Set<Entry<String, JsonValue>> entrySet() {
+            return new AbstractSet<Entry<String, JsonValue>>() {
+                @Override
+                public Iterator<Entry<String, JsonValue>> iterator() {
+                    return new Iterator<Entry<String, JsonValue>>() {
+                        private int i = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return i < size;
+                        }
+
+                        @Override
+                        public Entry<String, JsonValue> next() {
+                            if (i >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, JsonValue> entry = new SimpleImmutableEntry<>(keys[i], values[i]);
+                            i++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public JsonArray getJsonArray(String name) {
+            return (JsonArray) get(name);
+        }
+
+        @Override
+        public JsonObject getJsonObject(String name) {
+            return (JsonObject) get(name);
+        }
+
+        @Override
+        public JsonNumber getJsonNumber(String name) {
+            return (JsonNumber) get(name);
+        }
+
+        @Override
+        public JsonString getJsonString(String name) {
+            return (JsonString) get(name);
+        }
+
+        @Override
+        public String getString(String name) {
+            return getJsonString(name).getString();
+        }
+
+        @Override
+        public String getString(String name, String defaultValue) {
+            JsonValue value = get(name);
+            return (value instanceof JsonString) ? ((JsonString) value).getString() : defaultValue;
+        }
+
+        @Override
+        public int getInt(String name) {
+            return getJsonNumber(name).intValue();
+        }
+
+        @Override
+        public int getInt(String name, int defaultValue) {
+            JsonValue value = get(name);
+            return (value instanceof JsonNumber) ? ((JsonNumber) value).intValue() : defaultValue;
+        }
+
+        @Override
+        public boolean getBoolean(String name) {
+            JsonValue value = get(name);
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            if (value == JsonValue.TRUE) {
+                return true;
+            }
+            if (value == JsonValue.FALSE) {
+                return false;
+            }
+            throw new ClassCastException();
+        }
+
+        @Override
+        public boolean getBoolean(String name, boolean defaultValue) {
+            JsonValue value = get(name);
+            if (value == JsonValue.TRUE) {
+                return true;
+            }
+            if (value == JsonValue.FALSE) {
+                return false;
+            }
+            return defaultValue;
+        }
+
+        @Override
+        public boolean isNull(String name) {
+            return get(name).equals(JsonValue.NULL);
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.OBJECT;
+        }
+
+        @Override
+        public String toString() {
+            return CompactJsonReader.toString(this);
+        }
+    }
+
+    /**
+     * A JSON array whose elements are held in a plain array
+     */
+    private static final class CompactJsonArray extends AbstractList<JsonValue> implements JsonArray {
+        private static final JsonValue[] EMPTY_VALUES = new JsonValue[0];
+
+        private JsonValue[] values = EMPTY_VALUES;
+        private int size = 0;
+
+        private void addElement(JsonValue value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        private CompactJsonArray trim() {
+            if (size < values.length) {
+                values = (size == 0) ? EMPTY_VALUES : Arrays.copyOf(values, size);
+            }
+            return this;
+        }
+
+        @Override
+        public JsonValue get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public JsonObject getJsonObject(int index) {
+            return (JsonObject) get(index);
+        }
+
+        @Override
+        public JsonArray getJsonArray(int index) {
+            return (JsonArray) get(index);
+        }
+
+        @Override
+        public JsonNumber getJsonNumber(int index) {
+            return (JsonNumber) get(index);
+        }
+
+        @Override
+        public JsonString getJsonString(int index) {
+            return (JsonString) get(index);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends JsonValue> List<T> getValuesAs(Class<T> clazz) {
+            return (List<T>) Collections.unmodifiableList(this);
+        }
+
+        @Override
+        public String getString(int index) {
+            return getJsonString(index).getString();
+        }
+
+        @Override
+        public String getString(int index, String defaultValue) {
+            if (index < 0 || index >= size) {
+                return defaultValue;
+            }
+            JsonValue value = values[index];
+            return (value instanceof JsonString) ? ((JsonString) value).getString() : defaultValue;
+        }
+
+        @Override
+        public int getInt(int index) {
+            return getJsonNumber(index).intValue();
+        }
+
+        @Override
+        public int getInt(int index, int defaultValue) {
+            if (index < 0 || index >= size) {
+                return defaultValue;
+            }
+            JsonValue value = values[index];
+            return (value instanceof JsonNumber) ? ((JsonNumber) value).intValue() : defaultValue;
+        }
+
+        @Override
+        public boolean getBoolean(int index) {
+            JsonValue value = get(index);
+            if (value == JsonValue.TRUE) {
+                return true;
+            }
+            if (value == JsonValue.FALSE) {
+                return false;
+            }
+            throw new ClassCastException();
+        }
+
+        @Override
+        public boolean getBoolean(int index, boolean defaultValue) {
+            if (index < 0 || index >= size) {
+                return defaultValue;
+            }
+            JsonValue value = values[index];
+            if (value == JsonValue.TRUE) {
+                return true;
+            }
+            if (value == JsonValue.FALSE) {
+                return false;
+            }
+            return defaultValue;
+        }
+
+        @Override
+        public boolean isNull(int index) {
+            return get(index).equals(JsonValue.NULL);
+        }
+
+        @Override
+        public ValueType getValueType() {
+            return ValueType.ARRAY;
+        }
+
+        @Override
+        public String toString() {
+            return CompactJsonReader.toString(this);
+        }
+    }
+}
@@ -26,10 +26,10 @@ import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonReaderFactory;
 import javax.json.JsonString;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
 
 import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.parser.FHIRAbstractParser;
@@ -48,7 +48,7 @@ import net.jcip.annotations.NotThreadSafe;
 @Generated("com.ibm.fhir.tools.CodeGenerator")
 public class FHIRJsonParser extends FHIRAbstractParser {
     public static boolean DEBUG = false;
-    private static final JsonReaderFactory JSON_READER_FACTORY = Json.createReaderFactory(null);
+    private static final JsonParserFactory JSON_PARSER_FACTORY = Json.createParserFactory(null);
 
     private final Stack<java.lang.String> stack = new Stack<>();
 
@@ -62,8 +62,8 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(InputStream in, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
-        try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)) {
-            JsonObject jsonObject = jsonReader.readObject();
+        try (JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingInputStream(in), StandardCharsets.UTF_8)) {
+            JsonObject jsonObject = CompactJsonReader.readObject(jsonParser);
             return parseAndFilter(jsonObject, elementsToInclude);
         } catch (FHIRParserException e) {
             throw e;
@@ -78,8 +78,8 @@ public class FHIRJsonParser extends FHIRAbstractParser {
     }
 
     public <T extends Resource> T parseAndFilter(Reader reader, Collection<java.lang.String> elementsToInclude) throws FHIRParserException {
-        try (JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))) {
-            JsonObject jsonObject = jsonReader.readObject();
+        try (JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingReader(reader))) {
+            JsonObject jsonObject = CompactJsonReader.readObject(jsonParser);
             return parseAndFilter(jsonObject, elementsToInclude);
         } catch (FHIRParserException e) {
             throw e;
@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.annotation.Generated;
 
@@ -3787,6 +3788,8 @@ public class InsurancePlan extends DomainResource {
                  * List of the costs associated with a specific benefit.
                  */
                 public static class Cost extends BackboneElement {
+                    private static final Set<java.lang.String> APPLICABILITY_CODES = ValidationSupport.codeSet("in-network", "out-of-network", "other");
+
                     @Required
                     private final CodeableConcept type;
                     @Binding(
@@ -3807,7 +3810,7 @@ public class InsurancePlan extends DomainResource {
                         applicability = builder.applicability;
                         qualifiers = Collections.unmodifiableList(ValidationSupport.requireNonNull(builder.qualifiers, "qualifiers"));
                         value = builder.value;
-                        ValidationSupport.checkValueSetBinding(applicability, "applicability", "http://hl7.org/fhir/ValueSet/insuranceplan-applicability", "http://terminology.hl7.org/CodeSystem/applicability", "in-network", "out-of-network", "other");
+                        ValidationSupport.checkValueSetBinding(applicability, "applicability", "http://hl7.org/fhir/ValueSet/insuranceplan-applicability", "http://terminology.hl7.org/CodeSystem/applicability", APPLICABILITY_CODES);
                         ValidationSupport.requireValueOrChildren(this);
                     }
 
@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.annotation.Generated;
 
@@ -121,6 +122,8 @@ import com.ibm.fhir.model.visitor.Visitor;
 )
 @Generated("com.ibm.fhir.tools.CodeGenerator")
 public class Measure extends DomainResource {
+    private static final Set<java.lang.String> IMPROVEMENT_NOTATION_CODES = ValidationSupport.codeSet("increase", "decrease");
+
     @Summary
     private final Uri url;
     @Summary
@@ -284,7 +287,7 @@ public class Measure extends DomainResource {
         guidance = builder.guidance;
         group = Collections.unmodifiableList(ValidationSupport.requireNonNull(builder.group, "group"));
         supplementalData = Collections.unmodifiableList(ValidationSupport.requireNonNull(builder.supplementalData, "supplementalData"));
-        ValidationSupport.checkValueSetBinding(improvementNotation, "improvementNotation", "http://hl7.org/fhir/ValueSet/measure-improvement-notation", "http://terminology.hl7.org/CodeSystem/measure-improvement-notation", "increase", "decrease");
+        ValidationSupport.checkValueSetBinding(improvementNotation, "improvementNotation", "http://hl7.org/fhir/ValueSet/measure-improvement-notation", "http://terminology.hl7.org/CodeSystem/measure-improvement-notation", IMPROVEMENT_NOTATION_CODES);
         ValidationSupport.checkReferenceType(subject, "subject", "Group");
         ValidationSupport.requireChildren(this);
     }
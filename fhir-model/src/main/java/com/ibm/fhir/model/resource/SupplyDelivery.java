@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import javax.annotation.Generated;
 
@@ -42,6 +43,8 @@ import com.ibm.fhir.model.visitor.Visitor;
  */
 @Generated("com.ibm.fhir.tools.CodeGenerator")
 public class SupplyDelivery extends DomainResource {
+    private static final Set<java.lang.String> TYPE_CODES = ValidationSupport.codeSet("medication", "device");
+
     private final List<Identifier> identifier;
     @Summary
     @ReferenceTarget({ "SupplyRequest" })
@@ -92,7 +95,7 @@ public class SupplyDelivery extends DomainResource {
         supplier = builder.supplier;
         destination = builder.destination;
         receiver = Collections.unmodifiableList(ValidationSupport.requireNonNull(builder.receiver, "receiver"));
-        ValidationSupport.checkValueSetBinding(type, "type", "http://hl7.org/fhir/ValueSet/supplydelivery-type", "http://terminology.hl7.org/CodeSystem/supply-item-type", "medication", "device");
+        ValidationSupport.checkValueSetBinding(type, "type", "http://hl7.org/fhir/ValueSet/supplydelivery-type", "http://terminology.hl7.org/CodeSystem/supply-item-type", TYPE_CODES);
         ValidationSupport.checkReferenceType(basedOn, "basedOn", "SupplyRequest");
         ValidationSupport.checkReferenceType(partOf, "partOf", "SupplyDelivery", "Contract");
         ValidationSupport.checkReferenceType(patient, "patient", "Patient");
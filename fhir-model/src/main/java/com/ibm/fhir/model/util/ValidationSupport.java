@@ -11,6 +11,7 @@ import static com.ibm.fhir.model.util.ModelSupport.FHIR_STRING;
 
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -425,6 +426,18 @@ public final class ValidationSupport {
         }
     }
 
+    /**
+     * Create the set of codes of a value set, for the value set binding checks of the model classes.
+     *
+     * @param codes
+     *     the value set codes
+     * @return
+     *     an unmodifiable set of the codes
+     */
+    public static Set<String> codeSet(String... codes) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(codes)));
+    }
+
     /**
      * Check that the specified list of elements contain a code that is a member of the specified value set.
      *
@@ -441,9 +454,30 @@ public final class ValidationSupport {
      * @throws IllegalStateExeption if each element in the list does not include a code from the required value set
      */
     public static void checkValueSetBinding(List<? extends Element> elements, String elementName, String valueSet, String system, String... valueSetCodes) {
+        if (elements != null && !elements.isEmpty()) {
+            checkValueSetBinding(elements, elementName, valueSet, system, toCodeSet(valueSetCodes));
+        }
+    }
+
+    /**
+     * Check that the specified list of elements contain a code that is a member of the specified value set.
+     *
+     * @param elements
+     *     the list of elements for which to check codes
+     * @param elementName
+     *     the name of the element
+     * @param valueSet
+     *     the URL of the value set to check membership against
+     * @param system
+     *     the value set system
+     * @param codes
+     *     the value set codes
+     * @throws IllegalStateExeption if each element in the list does not include a code from the required value set
+     */
+    public static void checkValueSetBinding(List<? extends Element> elements, String elementName, String valueSet, String system, Set<String> codes) {
         if (elements != null) {
             for (Element element : elements) {
-                checkValueSetBinding(element, elementName, valueSet, system, valueSetCodes);
+                checkValueSetBinding(element, elementName, valueSet, system, codes);
             }
         }
     }
@@ -464,34 +498,87 @@ public final class ValidationSupport {
      * @throws IllegalStateExeption if the element does not include a code from the required value set
      */
     public static void checkValueSetBinding(Element element, String elementName, String valueSet, String system, String... codes) {
+        if (element != null) {
+            checkValueSetBinding(element, elementName, valueSet, system, toCodeSet(codes));
+        }
+    }
+
+    /**
+     * Check that the specified element contains a code that is a member of the specified value set.
+     *
+     * @param element
+     *     the element for which to check codes
+     * @param elementName
+     *     the name of the element
+     * @param valueSet
+     *     the URL of the value set to check membership against
+     * @param system
+     *     the value set system
+     * @param codes
+     *     the value set codes
+     * @throws IllegalStateExeption if the element does not include a code from the required value set
+     */
+    public static void checkValueSetBinding(Element element, String elementName, String valueSet, String system, Set<String> codes) {
         if (element != null) {
             boolean advancedCodeableConceptValidation = FHIRModelConfig.getExtendedCodeableConceptValidation();
-            List<String> codeList = Arrays.asList(codes);
 
             if (element instanceof CodeableConcept) {
-                checkCodeableConcept((CodeableConcept)element, elementName, valueSet, system, codeList, advancedCodeableConceptValidation);
-            } else if (element instanceof Coding || element instanceof Quantity) {
-                checkCoding(element, elementName, valueSet, system, codeList, advancedCodeableConceptValidation);
-            } else if (element instanceof Code || element instanceof Uri || element instanceof com.ibm.fhir.model.type.String) {
-                checkCode(element, elementName, valueSet, codeList, advancedCodeableConceptValidation);
+                checkCodeableConcept((CodeableConcept)element, elementName, valueSet, system, codes, advancedCodeableConceptValidation);
+            } else if (advancedCodeableConceptValidation) {
+                if (element instanceof Coding || element instanceof Quantity) {
+                    if (!isValidCoding(element, valueSet, system, codes)) {
+                        throw new IllegalStateException(getInvalidCodingMessage(element, elementName, valueSet, system));
+                    }
+                } else if (element instanceof Code || element instanceof Uri || element instanceof com.ibm.fhir.model.type.String) {
+                    if (!isValidCode(element, valueSet, codes)) {
+                        throw new IllegalStateException(getInvalidCodeMessage(element, elementName, valueSet));
+                    }
+                }
             }
         }
     }
 
+    /**
+     * Check whether the specified element contains a code that is a member of the specified value set, as
+     * {@link #checkValueSetBinding(Element, String, String, String, Set)} does with extended codeable concept validation.
+     *
+     * @param element
+     *     the element for which to check codes
+     * @param valueSet
+     *     the URL of the value set to check membership against
+     * @param system
+     *     the value set system
+     * @param codes
+     *     the value set codes
+     * @return
+     *     true if the element is null or includes a code from the value set, false otherwise
+     */
+    public static boolean isValidValueSetBinding(Element element, String valueSet, String system, Set<String> codes) {
+        if (element instanceof CodeableConcept) {
+            return isValidCodeableConcept((CodeableConcept) element, valueSet, system, codes);
+        } else if (element instanceof Coding || element instanceof Quantity) {
+            return isValidCoding(element, valueSet, system, codes);
+        } else if (element instanceof Code || element instanceof Uri || element instanceof com.ibm.fhir.model.type.String) {
+            return isValidCode(element, valueSet, codes);
+        }
+        return true;
+    }
+
+    private static Set<String> toCodeSet(String... codes) {
+        if (codes.length == 0) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(Arrays.asList(codes));
+    }
+
     /**
      * @throws IllegalStateExeption if the CodeableConcept element does not include a code from the required binding
      */
-    private static void checkCodeableConcept(CodeableConcept codeableConcept, String elementName, String valueSet, String system, List<String> codes, boolean advancedCodeableConceptValidation) {
+    private static void checkCodeableConcept(CodeableConcept codeableConcept, String elementName, String valueSet, String system, Set<String> codes, boolean advancedCodeableConceptValidation) {
         if (advancedCodeableConceptValidation) {
-            if (codeableConcept.getCoding() != null) {
-                for (Coding coding : codeableConcept.getCoding()) {
-                    try {
-                        checkCoding(coding, elementName, valueSet, system, codes, advancedCodeableConceptValidation);
-                        return;
-                    } catch (IllegalStateException e) {}
-                }
+            if (!isValidCodeableConcept(codeableConcept, valueSet, system, codes)) {
+                throw new IllegalStateException(String.format("Element '%s': does not contain a Coding element with a valid system and code combination for value set: '%s'", elementName, valueSet));
             }
-            throw new IllegalStateException(String.format("Element '%s': does not contain a Coding element with a valid system and code combination for value set: '%s'", elementName, valueSet));
         } else if (!codes.isEmpty() && !codeableConcept.getCoding().isEmpty() && hasCodingWithSystemAndCodeValues(codeableConcept)) {
             for (Coding coding : codeableConcept.getCoding()) {
                 if (hasSystemAndCodeValues(coding) &&
@@ -504,84 +591,104 @@ public final class ValidationSupport {
         }
     }
 
-    /**
-     * @throws IllegalStateExeption if the Coding element does not include a code from the required binding
-     */
-    private static void checkCoding(Element element, String elementName, String valueSet, String system, List<String> codes, boolean advancedCodeableConceptValidation) {
-        if (advancedCodeableConceptValidation) {
-            if (!hasOnlyDataAbsentReasonExtension(element)) {
-                if (hasSystemAndCodeValues(element)) {
-                    String codingSystem = null;
-                    Code codingCode = null;
-                    if (element instanceof Coding) {
-                        codingSystem = element.as(Coding.class).getSystem().getValue();
-                        codingCode = element.as(Coding.class).getCode();
-                    } else if (element instanceof Quantity) {
-                        codingSystem = element.as(Quantity.class).getSystem().getValue();
-                        codingCode = element.as(Quantity.class).getCode();
-                    }
-                    if (isSyntaxValidatedValueSet(valueSet)) {
-                        checkSyntaxValidatedCode(codingCode.getValue(), codingSystem, elementName, valueSet, advancedCodeableConceptValidation);
-                    } else {
-                        if (!codingSystem.equals(system)) {
-                            throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid system for value set '%s'", elementName, codingSystem, valueSet));
-                        } else {
-                            checkCode(codingCode, elementName, valueSet, codes, advancedCodeableConceptValidation);
-                        }
-                    }
-                } else {
-                    throw new IllegalStateException(String.format("Element '%s': does not contain a valid system and code combination for value set: '%s'", elementName, valueSet));
-                }
+    private static boolean isValidCodeableConcept(CodeableConcept codeableConcept, String valueSet, String system, Set<String> codes) {
+        for (Coding coding : codeableConcept.getCoding()) {
+            if (isValidCoding(coding, valueSet, system, codes)) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private static boolean isValidCoding(Element element, String valueSet, String system, Set<String> codes) {
+        if (hasOnlyDataAbsentReasonExtension(element)) {
+            return true;
+        }
+        if (!hasSystemAndCodeValues(element)) {
+            return false;
+        }
+        String codingSystem = getCodingSystem(element);
+        String codingCode = getCodingCode(element);
+        if (isSyntaxValidatedValueSet(valueSet)) {
+            return isValidSyntaxValidatedSystem(codingSystem, valueSet) && isValidSyntaxValidatedCode(codingCode, valueSet);
+        }
+        return codingSystem.equals(system) && codes.contains(codingCode);
     }
 
     /**
-     * @throws IllegalStateExeption if the code element is not from the required binding
+     * Get the reason why the Coding or Quantity element is not valid; only called once the element is known to be not valid
      */
-    private static void checkCode(Element element, String elementName, String valueSet, List<String> codes, boolean advancedCodeableConceptValidation) {
-        if (advancedCodeableConceptValidation) {
-            if (!hasOnlyDataAbsentReasonExtension(element)) {
-                String codeValue = null;
-                if (element instanceof Code) {
-                    codeValue = ((Code)element).getValue();
-                } else if (element instanceof Uri) {
-                    codeValue = ((Uri)element).getValue();
-                } else if (element instanceof com.ibm.fhir.model.type.String) {
-                    codeValue = ((com.ibm.fhir.model.type.String)element).getValue();
-                }
-                if (codeValue != null) {
-                    if (isSyntaxValidatedValueSet(valueSet)) {
-                        checkSyntaxValidatedCode(codeValue, null, elementName, valueSet, advancedCodeableConceptValidation);
-                    } else if (!codes.contains(codeValue)) {
-                        throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid code for value set '%s'", elementName, codeValue, valueSet));
-                    }
-                } else {
-                    throw new IllegalStateException(String.format("Element '%s': does not contan a valid code for value set '%s'", elementName, valueSet));
-                }
-            }
+    private static String getInvalidCodingMessage(Element element, String elementName, String valueSet, String system) {
+        if (!hasSystemAndCodeValues(element)) {
+            return String.format("Element '%s': does not contain a valid system and code combination for value set: '%s'", elementName, valueSet);
+        }
+        String codingSystem = getCodingSystem(element);
+        if (isSyntaxValidatedValueSet(valueSet) ? !isValidSyntaxValidatedSystem(codingSystem, valueSet) : !codingSystem.equals(system)) {
+            return String.format("Element '%s': '%s' is not a valid system for value set '%s'", elementName, codingSystem, valueSet);
+        }
+        return String.format("Element '%s': '%s' is not a valid code for value set '%s'", elementName, getCodingCode(element), valueSet);
+    }
+
+    private static String getCodingSystem(Element element) {
+        return (element instanceof Coding) ? ((Coding) element).getSystem().getValue() : ((Quantity) element).getSystem().getValue();
+    }
+
+    private static String getCodingCode(Element element) {
+        return (element instanceof Coding) ? ((Coding) element).getCode().getValue() : ((Quantity) element).getCode().getValue();
+    }
+
+    private static boolean isValidCode(Element element, String valueSet, Set<String> codes) {
+        if (hasOnlyDataAbsentReasonExtension(element)) {
+            return true;
+        }
+        String codeValue = getCodeValue(element);
+        if (codeValue == null) {
+            return false;
+        }
+        if (isSyntaxValidatedValueSet(valueSet)) {
+            return isValidSyntaxValidatedCode(codeValue, valueSet);
         }
+        return codes.contains(codeValue);
     }
 
     /**
-     * @throws IllegalStateExeption if the code element is not from the required binding
+     * Get the reason why the code element is not valid; only called once the element is known to be not valid
      */
-    private static void checkSyntaxValidatedCode(String code, String system, String elementName, String valueSet, boolean advancedCodeableConceptValidation) {
-        if (advancedCodeableConceptValidation) {
-            if (ALL_LANG_VALUE_SET_URL.contentEquals(valueSet)) {
-                if (system != null && !BCP_47_URN.equals(system)) {
-                    throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid system for value set '%s'", elementName, system, valueSet));
-                } else if (!LanguageRegistryUtil.isValidLanguageTag(code)) {
-                    throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid code for value set '%s'", elementName, code, valueSet));
-                }
-            } else if (UCUM_UNITS_VALUE_SET_URL.equals(valueSet)) {
-                if (system != null && !UCUM_CODE_SYSTEM_URL.equals(system)) {
-                    throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid system for value set '%s'", elementName, system, valueSet));
-                } else if (!UCUMUtil.isValidUcum(code)) {
-                    throw new IllegalStateException(String.format("Element '%s': '%s' is not a valid code for value set '%s'", elementName, code, valueSet));
-                }
-            }
+    private static String getInvalidCodeMessage(Element element, String elementName, String valueSet) {
+        String codeValue = getCodeValue(element);
+        if (codeValue == null) {
+            return String.format("Element '%s': does not contan a valid code for value set '%s'", elementName, valueSet);
+        }
+        return String.format("Element '%s': '%s' is not a valid code for value set '%s'", elementName, codeValue, valueSet);
+    }
+
+    private static String getCodeValue(Element element) {
+        if (element instanceof Code) {
+            return ((Code)element).getValue();
+        } else if (element instanceof Uri) {
+            return ((Uri)element).getValue();
+        } else if (element instanceof com.ibm.fhir.model.type.String) {
+            return ((com.ibm.fhir.model.type.String)element).getValue();
+        }
+        return null;
+    }
+
+    private static boolean isValidSyntaxValidatedSystem(String system, String valueSet) {
+        if (ALL_LANG_VALUE_SET_URL.equals(valueSet)) {
+            return system == null || BCP_47_URN.equals(system);
+        } else if (UCUM_UNITS_VALUE_SET_URL.equals(valueSet)) {
+            return system == null || UCUM_CODE_SYSTEM_URL.equals(system);
+        }
+        return true;
+    }
+
+    private static boolean isValidSyntaxValidatedCode(String code, String valueSet) {
+        if (ALL_LANG_VALUE_SET_URL.equals(valueSet)) {
+            return LanguageRegistryUtil.isValidLanguageTag(code);
+        } else if (UCUM_UNITS_VALUE_SET_URL.equals(valueSet)) {
+            return UCUMUtil.isValidUcum(code);
         }
+        return true;
     }
 
     private static boolean hasCodingWithSystemAndCodeValues(CodeableConcept codeableConcept) {
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.model.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.ExamplesUtil;
+import com.ibm.fhir.examples.Index;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRJsonParser;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.spec.test.R4ExamplesDriver;
+
+/**
+ * Verifies that parsing from a stream produces the same resources as parsing from a {@link JsonObject} read by
+ * {@link JsonReader}
+ */
+public class CompactJsonReaderTest {
+    @Test
+    public void testExamples() throws Exception {
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor((jsonFile, resource) -> {
+            try (Reader reader = ExamplesUtil.resourceReader(jsonFile);
+                    JsonReader jsonReader = Json.createReader(reader)) {
+                JsonObject jsonObject = jsonReader.readObject();
+                Resource expected = ((FHIRJsonParser) FHIRParser.parser(Format.JSON)).parse(jsonObject);
+                assertEquals(resource, expected);
+            }
+        });
+        driver.processIndex(Index.MINIMAL_JSON);
+    }
+
+    @Test
+    public void testDuplicateKeys() throws Exception {
+        Patient patient = parse("{\"resourceType\":\"Patient\",\"id\":\"a\",\"active\":true,\"id\":\"b\"}");
+        assertEquals(patient.getId(), "b");
+        assertEquals(patient.getActive().getValue(), Boolean.TRUE);
+    }
+
+    @Test
+    public void testDuplicateKeysIndexed() throws Exception {
+        // enough members for the object to be indexed before the duplicates are read
+        String extension = "{\"extension\":[{\"url\":\"http://example.com\",\"valueString\":\"x\"}]}";
+        StringBuilder json = new StringBuilder("{\"resourceType\":\"Patient\",\"id\":\"a\",\"meta\":{\"versionId\":\"1\"}");
+        json.append(",\"implicitRules\":\"http://example.com\",\"language\":\"en\",\"active\":true,\"gender\":\"male\"");
+        json.append(",\"birthDate\":\"1970-01-01\",\"deceasedBoolean\":false,\"multipleBirthBoolean\":false");
+        for (String key : new String[] { "implicitRules", "language", "active", "gender", "birthDate", "deceasedBoolean", "multipleBirthBoolean" }) {
+            json.append(",\"_").append(key).append("\":").append(extension);
+        }
+        json.append(",\"id\":\"b\",\"gender\":\"female\"}");
+
+        Patient patient = parse(json.toString());
+        assertEquals(patient.getId(), "b");
+        assertEquals(patient.getGender().getValue(), "female");
+        assertEquals(patient.getActive().getExtension().size(), 1);
+    }
+
+    @Test
+    public void testTrailingContent() throws Exception {
+        Patient patient = parse("{\"resourceType\":\"Patient\",\"id\":\"a\"} {\"resourceType\":\"Patient\"}");
+        assertEquals(patient.getId(), "a");
+    }
+
+    @Test
+    public void testInputStream() throws Exception {
+        byte[] bytes = "{\"resourceType\":\"Patient\",\"name\":[{\"family\":\"é\"}]}".getBytes(StandardCharsets.UTF_8);
+        Patient patient = FHIRParser.parser(Format.JSON).parse(new ByteArrayInputStream(bytes));
+        assertEquals(patient.getName().get(0).getFamily().getValue(), "é");
+    }
+
+    @Test
+    public void testInvalidInput() throws Exception {
+        assertParserException("");
+        assertParserException("{\"resourceType\":\"Patient\"");
+        assertParserException("[{\"resourceType\":\"Patient\"}]");
+        assertParserException("{\"resourceType\":\"Patient\",}");
+    }
+
+    @Test
+    public void testUnrecognizedElement() throws Exception {
+        assertParserException("{\"resourceType\":\"Patient\",\"id\":\"a\",\"unknown\":true}");
+        assertParserException("{\"resourceType\":\"Patient\",\"name\":[{\"family\":\"a\",\"unknown\":true}]}");
+    }
+
+    private Patient parse(String json) throws Exception {
+        return FHIRParser.parser(Format.JSON).parse(new StringReader(json));
+    }
+
+    private void assertParserException(String json) {
+        try {
+            parse(json);
+            fail("expected FHIRParserException for: " + json);
+        } catch (FHIRParserException e) {
+            // expected
+        } catch (Exception e) {
+            fail("unexpected exception for: " + json, e);
+        }
+    }
+}
@@ -6,10 +6,14 @@
 
 package com.ibm.fhir.model.util.test;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Set;
 
 import org.testng.annotations.Test;
 
@@ -967,5 +971,42 @@ public class ValidationSupportTest {
         } catch (IllegalStateException e) {
         }
     }
-    
+
+    @Test
+    public void testCheckValueSetBindingCodeSet() {
+        Set<String> codes = ValidationSupport.codeSet("code1", "code2");
+        ValidationSupport.checkValueSetBinding(Coding.builder().system(Uri.of("system")).code(Code.of("code2")).build(), "elementName", "valueSet", "system", codes);
+        ValidationSupport.checkValueSetBinding(CodeableConcept.builder()
+            .coding(Coding.builder().system(Uri.of("otherSystem")).code(Code.of("code1")).build(),
+                Coding.builder().system(Uri.of("system")).code(Code.of("code1")).build()).build(), "elementName", "valueSet", "system", codes);
+        try {
+            ValidationSupport.checkValueSetBinding(Coding.builder().system(Uri.of("system")).code(Code.of("code3")).build(), "elementName", "valueSet", "system", codes);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Element 'elementName': 'code3' is not a valid code for value set 'valueSet'");
+        }
+        try {
+            ValidationSupport.checkValueSetBinding(Coding.builder().system(Uri.of("otherSystem")).code(Code.of("code1")).build(), "elementName", "valueSet", "system", codes);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Element 'elementName': 'otherSystem' is not a valid system for value set 'valueSet'");
+        }
+    }
+
+    @Test
+    public void testIsValidValueSetBinding() {
+        Set<String> codes = ValidationSupport.codeSet("code1", "code2");
+        assertTrue(ValidationSupport.isValidValueSetBinding(null, "valueSet", "system", codes));
+        assertTrue(ValidationSupport.isValidValueSetBinding(Code.of("code1"), "valueSet", null, codes));
+        assertFalse(ValidationSupport.isValidValueSetBinding(Code.of("code3"), "valueSet", null, codes));
+        assertTrue(ValidationSupport.isValidValueSetBinding(CodeableConcept.builder()
+            .coding(Coding.builder().system(Uri.of("otherSystem")).code(Code.of("code3")).build(),
+                Coding.builder().system(Uri.of("system")).code(Code.of("code2")).build()).build(), "valueSet", "system", codes));
+        assertFalse(ValidationSupport.isValidValueSetBinding(CodeableConcept.builder()
+            .coding(Coding.builder().system(Uri.of("otherSystem")).code(Code.of("code1")).build()).build(), "valueSet", "system", codes));
+        assertTrue(ValidationSupport.isValidValueSetBinding(Quantity.builder().system(Uri.of(ValidationSupport.UCUM_CODE_SYSTEM_URL)).code(Code.of("mg/dL")).build(),
+            ValidationSupport.UCUM_UNITS_VALUE_SET_URL, null, Collections.emptySet()));
+        assertFalse(ValidationSupport.isValidValueSetBinding(Quantity.builder().system(Uri.of(ValidationSupport.UCUM_CODE_SYSTEM_URL)).code(Code.of("invalid code")).build(),
+            ValidationSupport.UCUM_UNITS_VALUE_SET_URL, null, Collections.emptySet()));
+    }
 }
@@ -0,0 +1,419 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.notification;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+
+import com.ibm.fhir.notification.exception.FHIRNotificationException;
+
+/**
+ * Delivers the notification events to a single subscriber asynchronously, so that a slow subscriber
+ * neither delays the persistence thread which publishes the events nor the other subscribers.
+ *
+ * <p>The events wait in a bounded queue. When the queue is full, the {@link OverflowPolicy} decides whether
+ * the oldest event is dropped or the publishing thread waits for room.
+ *
+ * <p>The queue is drained by a task which is submitted when the first event arrives and which runs until
+ * the queue is empty, so the events of a subscriber are delivered in order, one at a time. The tasks run on
+ * the container's managed executor service (java:comp/DefaultManagedExecutorService); outside of a container,
+ * a private pool with a bounded number of daemon threads is used instead. If the executor rejects the task,
+ * the events are delivered on the publishing thread.
+ */
+public class FHIRNotificationDispatcher {
+    private static final Logger log = java.util.logging.Logger.getLogger(FHIRNotificationDispatcher.class.getName());
+
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+    private static volatile ExecutorService sharedExecutorService;
+
+    /**
+     * What to do with a new event when the queue of a subscriber is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the oldest event in the queue
+         */
+        DROP_OLDEST("dropOldest"),
+        /**
+         * Wait until the subscriber has taken an event from the queue
+         */
+        BLOCK("block"),
+        /**
+         * Replace an event for the same resource which is still queued with the new event, so the subscriber only
+         * gets the latest change of the resource; drop the oldest event when the queue is full
+         */
+        COALESCE("coalesce");
+
+        private final String value;
+
+        OverflowPolicy(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+
+        public static OverflowPolicy from(String value) {
+            for (OverflowPolicy policy : OverflowPolicy.values()) {
+                if (policy.value.equals(value)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Invalid notification overflow policy: " + value);
+        }
+    }
+
+    private final FHIRNotificationSubscriber subscriber;
+    private final Consumer<FHIRNotificationSubscriber> failureHandler;
+    private final int queueSize;
+    private final OverflowPolicy overflowPolicy;
+    private final ExecutorService executorService;
+
+    // The queued events, and the queued event for each resource when coalescing; guarded by lock
+    private final Deque<QueuedEvent> queue = new ArrayDeque<>();
+    private final Map<String, QueuedEvent> queuedByResource = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private boolean running = true;
+
+    // True while a drain task is submitted or running; guarded by lock
+    private boolean draining;
+
+    // The thread which runs the drain task, if any
+    private volatile Thread drainThread;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Creates a dispatcher which delivers the events on the shared executor service
+     *
+     * @param subscriber
+     *            the subscriber to deliver the events to
+     * @param failureHandler
+     *            called, on the delivering thread, with the subscriber when it fails to take an event; the
+     *            remaining queued events are discarded
+     * @param queueSize
+     *            the maximum number of events waiting for the subscriber
+     * @param overflowPolicy
+     *            what to do with a new event when the queue is full
+     */
+    public FHIRNotificationDispatcher(FHIRNotificationSubscriber subscriber, Consumer<FHIRNotificationSubscriber> failureHandler,
+            int queueSize, OverflowPolicy overflowPolicy) {
+        this(subscriber, failureHandler, queueSize, overflowPolicy, getSharedExecutorService());
+    }
+
+    /**
+     * Creates a dispatcher which delivers the events on the passed executor service
+     *
+     * @param subscriber
+     *            the subscriber to deliver the events to
+     * @param failureHandler
+     *            called, on the delivering thread, with the subscriber when it fails to take an event; the
+     *            remaining queued events are discarded
+     * @param queueSize
+     *            the maximum number of events waiting for the subscriber
+     * @param overflowPolicy
+     *            what to do with a new event when the queue is full
+     * @param executorService
+     *            runs the tasks which deliver the events
+     */
+    public FHIRNotificationDispatcher(FHIRNotificationSubscriber subscriber, Consumer<FHIRNotificationSubscriber> failureHandler,
+            int queueSize, OverflowPolicy overflowPolicy, ExecutorService executorService) {
+        this.subscriber = subscriber;
+        this.failureHandler = failureHandler;
+        this.queueSize = Math.max(queueSize, 1);
+        this.overflowPolicy = overflowPolicy;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Adds the event to the queue of the subscriber
+     *
+     * @param event
+     */
+    public void offer(FHIRNotificationEvent event) {
+        boolean submit = false;
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+
+            String resourceKey = null;
+            if (overflowPolicy == OverflowPolicy.COALESCE) {
+                resourceKey = getResourceKey(event);
+                QueuedEvent queued = queuedByResource.get(resourceKey);
+                if (queued != null) {
+                    // The subscriber has not seen the previous event for this resource yet, so it only gets the latest
+                    queued.event = event;
+                    coalescedCount.incrementAndGet();
+                    return;
+                }
+            }
+
+            while (queue.size() >= queueSize) {
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    notFull.await();
+                    if (!running) {
+                        return;
+                    }
+                } else {
+                    QueuedEvent dropped = queue.removeFirst();
+                    if (dropped.resourceKey != null) {
+                        queuedByResource.remove(dropped.resourceKey);
+                    }
+                    if (droppedCount.getAndIncrement() == 0) {
+                        log.warning("Notification queue for subscriber '" + subscriber.getClass().getName()
+                                + "' is full; dropping the oldest notification events");
+                    }
+                }
+            }
+
+            QueuedEvent queued = new QueuedEvent(event, resourceKey);
+            queue.addLast(queued);
+            if (resourceKey != null) {
+                queuedByResource.put(resourceKey, queued);
+            }
+            if (!draining) {
+                draining = true;
+                submit = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warning("Interrupted while waiting to queue notification event: " + event);
+        } finally {
+            lock.unlock();
+        }
+
+        if (submit) {
+            try {
+                executorService.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting events and waits until the queued events have been delivered. Publishers waiting for room
+     * in the queue return without queuing their events.
+     *
+     * @param timeoutMillis
+     *            the maximum time to wait for the queued events to be delivered
+     */
+    public void stop(long timeoutMillis) {
+        lock.lock();
+        try {
+            running = false;
+            notFull.signalAll();
+
+            // The subscriber may be unsubscribed by the failure handler, on the thread which delivers the events
+            if (Thread.currentThread() == drainThread) {
+                return;
+            }
+
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (draining && remainingNanos > 0) {
+                remainingNanos = drained.awaitNanos(remainingNanos);
+            }
+            if (draining) {
+                log.warning("Notification events for subscriber '" + subscriber.getClass().getName() + "' were not delivered in "
+                        + timeoutMillis + "ms; " + queue.size() + " events are still queued");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of events waiting for the subscriber
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return the number of events which replaced a queued event for the same resource
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Delivers the queued events until the queue is empty
+     */
+    private void drain() {
+        drainThread = Thread.currentThread();
+        try {
+            while (true) {
+                FHIRNotificationEvent event;
+                lock.lock();
+                try {
+                    if (queue.isEmpty()) {
+                        finishDraining();
+                        return;
+                    }
+                    QueuedEvent queued = queue.removeFirst();
+                    if (queued.resourceKey != null) {
+                        queuedByResource.remove(queued.resourceKey);
+                    }
+                    event = queued.event;
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    subscriber.notify(event);
+                } catch (FHIRNotificationException e) {
+                    log.log(Level.WARNING, FHIRNotificationService.class.getName() + ": unable to publish event", e);
+                    failureHandler.accept(subscriber);
+                    lock.lock();
+                    try {
+                        running = false;
+                        queue.clear();
+                        queuedByResource.clear();
+                        notFull.signalAll();
+                        finishDraining();
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                } catch (Throwable t) {
+                    log.log(Level.SEVERE, "Unexpected error publishing notification event: " + event, t);
+                }
+            }
+        } finally {
+            drainThread = null;
+        }
+    }
+
+    /**
+     * Called with the lock held when the drain task ends
+     */
+    private void finishDraining() {
+        draining = false;
+        drained.signalAll();
+    }
+
+    /**
+     * Get the executor service shared by the dispatchers, looking it up on first use
+     */
+    private static ExecutorService getSharedExecutorService() {
+        ExecutorService result = sharedExecutorService;
+        if (result == null) {
+            synchronized (FHIRNotificationDispatcher.class) {
+                result = sharedExecutorService;
+                if (result == null) {
+                    result = lookupManagedExecutorService();
+                    if (result == null) {
+                        result = createExecutorService();
+                    }
+                    sharedExecutorService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves (via a JNDI lookup) the default managed executor service. If the JNDI lookup fails, we'll assume that
+     * we're not running inside the container.
+     */
+    private static ExecutorService lookupManagedExecutorService() {
+        try {
+            InitialContext ctx = new InitialContext();
+            ExecutorService result = (ExecutorService) ctx.lookup(MANAGED_EXECUTOR_JNDI_NAME);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Using managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' for notification delivery");
+            }
+            return result;
+        } catch (Throwable t) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' is not available: " + t.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A pool with a bounded number of threads; each subscriber has at most one task waiting in its queue
+     */
+    private static ExecutorService createExecutorService() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "fhir-notification-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Identifies the resource of the event, for coalescing; the location is "type/id/_history/version"
+     */
+    private static String getResourceKey(FHIRNotificationEvent event) {
+        String location = event.getLocation();
+        if (location != null) {
+            int index = location.indexOf("/_history");
+            return index >= 0 ? location.substring(0, index) : location;
+        }
+        return event.getResourceId();
+    }
+
+    /**
+     * A queued event; the event is replaced when a newer event for the same resource is coalesced
+     */
+    private static final class QueuedEvent {
+        private FHIRNotificationEvent event;
+        private final String resourceKey;
+
+        private QueuedEvent(FHIRNotificationEvent event, String resourceKey) {
+            this.event = event;
+            this.resourceKey = resourceKey;
+        }
+    }
+}
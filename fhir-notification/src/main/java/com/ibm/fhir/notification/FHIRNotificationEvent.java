@@ -15,6 +15,10 @@ public class FHIRNotificationEvent {
     private String resourceId = null;
     private Resource resource = null;
 
+    // The serialized event, with and without the resource; shared by all the subscribers of the event
+    private String jsonString = null;
+    private String jsonStringWithResource = null;
+
     public FHIRNotificationEvent() {
     }
 
@@ -24,6 +28,7 @@ public class FHIRNotificationEvent {
 
     public void setResourceId(String resourceId) {
         this.resourceId = resourceId;
+        clearJsonString();
     }
 
     public String getLastUpdated() {
@@ -32,6 +37,7 @@ public class FHIRNotificationEvent {
 
     public void setLastUpdated(String lastUpdated) {
         this.lastUpdated = lastUpdated;
+        clearJsonString();
     }
 
     public String getLocation() {
@@ -40,6 +46,7 @@ public class FHIRNotificationEvent {
 
     public void setLocation(String location) {
         this.location = location;
+        clearJsonString();
     }
 
     public String getOperationType() {
@@ -48,6 +55,7 @@ public class FHIRNotificationEvent {
 
     public void setOperationType(String operationType) {
         this.operationType = operationType;
+        clearJsonString();
     }
 
     @Override
@@ -68,5 +76,36 @@ public class FHIRNotificationEvent {
 
     public void setResource(Resource resource) {
         this.resource = resource;
+        clearJsonString();
+    }
+
+    /**
+     * @param includeResource
+     *            whether the serialized event includes the resource
+     * @return the serialized event, or null if it has not been serialized yet
+     */
+    public synchronized String getJsonString(boolean includeResource) {
+        return includeResource ? jsonStringWithResource : jsonString;
+    }
+
+    /**
+     * Keeps the serialized event, so that it is serialized only once for all the subscribers of the event
+     *
+     * @param includeResource
+     *            whether the serialized event includes the resource
+     * @param jsonString
+     *            the serialized event
+     */
+    public synchronized void setJsonString(boolean includeResource, String jsonString) {
+        if (includeResource) {
+            this.jsonStringWithResource = jsonString;
+        } else {
+            this.jsonString = jsonString;
+        }
+    }
+
+    private synchronized void clearJsonString() {
+        this.jsonString = null;
+        this.jsonStringWithResource = null;
     }
 }
@@ -8,14 +8,18 @@ package com.ibm.fhir.notification;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.notification.FHIRNotificationDispatcher.OverflowPolicy;
 import com.ibm.fhir.notification.exception.FHIRNotificationException;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceInterceptor;
@@ -31,6 +35,16 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
     private static final FHIRNotificationService INSTANCE = new FHIRNotificationService();
     private Set<String> includedResourceTypes = Collections.synchronizedSortedSet(new TreeSet<String>());
 
+    // How long unsubscribe waits for the events queued for the subscriber to be delivered
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    // The dispatcher of each subscriber, if the events are delivered asynchronously
+    private Map<FHIRNotificationSubscriber, FHIRNotificationDispatcher> dispatchers = new ConcurrentHashMap<>();
+    private boolean asyncEnabled = false;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
     private FHIRNotificationService() {
         log.entering(this.getClass().getName(), "FHIRNotificationService");
         try {
@@ -38,6 +52,7 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
         // interceptor methods to trigger the 'publish' of the notification events.
         FHIRPersistenceInterceptorMgr.getInstance().addPrioritizedInterceptor(this);
         initNotificationResourceTypes();
+        initAsyncDelivery();
         } catch (Throwable t) {
             throw new RuntimeException("Unexpected error during initialization.", t);
         }
@@ -57,18 +72,38 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
                 + (includedResourceTypes.isEmpty() ? "ALL" : "\n" + includedResourceTypes.toString()));
     }
 
+    private void initAsyncDelivery() throws Exception {
+        PropertyGroup fhirConfig = FHIRConfiguration.getInstance().loadConfiguration();
+        asyncEnabled = fhirConfig.getBooleanProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_ASYNC_ENABLED, Boolean.FALSE);
+        queueSize = fhirConfig.getIntProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_ASYNC_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        overflowPolicy = OverflowPolicy.from(fhirConfig.getStringProperty(FHIRConfiguration.PROPERTY_NOTIFICATION_ASYNC_OVERFLOW_POLICY,
+                OverflowPolicy.DROP_OLDEST.value()));
+
+        log.finer("Notification service will deliver events " + (asyncEnabled ? "asynchronously; queueSize=" + queueSize
+                + ", overflowPolicy=" + overflowPolicy.value() : "synchronously"));
+    }
+
     public static FHIRNotificationService getInstance() {
         return INSTANCE;
     }
 
     /**
      * Method for broadcasting message to each subscriber.
+     * If asynchronous delivery is enabled, the event is only added to the queue of each subscriber.
      *
      * @param event
      */
     public void publish(FHIRNotificationEvent event) {
         log.entering(this.getClass().getName(), "publish");
         for (FHIRNotificationSubscriber subscriber : subscribers) {
+            if (asyncEnabled) {
+                // The subscriber has no dispatcher if it is being unsubscribed
+                FHIRNotificationDispatcher dispatcher = dispatchers.get(subscriber);
+                if (dispatcher != null) {
+                    dispatcher.offer(event);
+                }
+                continue;
+            }
             try {
                 subscriber.notify(event);
             } catch (FHIRNotificationException e) {
@@ -87,8 +122,13 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
     public void subscribe(FHIRNotificationSubscriber subscriber) {
         log.entering(this.getClass().getName(), "subscribe");
         try {
-            if (!subscribers.contains(subscriber)) {
-                subscribers.add(subscriber);
+            synchronized (subscribers) {
+                if (!subscribers.contains(subscriber)) {
+                    if (asyncEnabled) {
+                        dispatchers.put(subscriber, new FHIRNotificationDispatcher(subscriber, this::unsubscribe, queueSize, overflowPolicy));
+                    }
+                    subscribers.add(subscriber);
+                }
             }
         } finally {
             log.exiting(this.getClass().getName(), "subscribe");
@@ -96,15 +136,21 @@ public class FHIRNotificationService implements FHIRPersistenceInterceptor {
     }
 
     /**
-     * Method to unsubscribe the target notification implementation
+     * Method to unsubscribe the target notification implementation.
+     * The events already queued for the subscriber are delivered before this method returns.
      *
      * @param subscriber
      */
     public void unsubscribe(FHIRNotificationSubscriber subscriber) {
         log.entering(this.getClass().getName(), "unsubscribe");
         try {
-            if (subscribers.contains(subscriber)) {
+            FHIRNotificationDispatcher dispatcher;
+            synchronized (subscribers) {
                 subscribers.remove(subscriber);
+                dispatcher = dispatchers.remove(subscriber);
+            }
+            if (dispatcher != null) {
+                dispatcher.stop(STOP_TIMEOUT_MILLIS);
             }
         } finally {
             log.exiting(this.getClass().getName(), "unsubscribe");
@@ -0,0 +1,246 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.notification.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.notification.FHIRNotificationDispatcher;
+import com.ibm.fhir.notification.FHIRNotificationDispatcher.OverflowPolicy;
+import com.ibm.fhir.notification.FHIRNotificationEvent;
+import com.ibm.fhir.notification.FHIRNotificationSubscriber;
+import com.ibm.fhir.notification.exception.FHIRNotificationException;
+
+/**
+ * Tests the delivery of notification events by {@link FHIRNotificationDispatcher}
+ */
+public class FHIRNotificationDispatcherTest {
+    private ExecutorService executorService;
+
+    /**
+     * A subscriber which collects the locations of the events, and waits for its latch before it takes each event
+     */
+    private static class TestSubscriber implements FHIRNotificationSubscriber {
+        private final List<String> locations = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch release;
+
+        private TestSubscriber(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void notify(FHIRNotificationEvent event) throws FHIRNotificationException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new FHIRNotificationException("interrupted", e);
+            }
+            locations.add(event.getLocation());
+        }
+    }
+
+    @BeforeMethod
+    public void createExecutorService() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterMethod
+    public void shutdownExecutorService() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestSubscriber subscriber = new TestSubscriber(release);
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {}, 3, OverflowPolicy.DROP_OLDEST);
+
+        // the subscriber holds the first event while the others are queued
+        dispatcher.offer(event("Patient/0/_history/1"));
+        waitFor(() -> dispatcher.getQueueDepth() == 0);
+        for (int i = 1; i <= 5; i++) {
+            dispatcher.offer(event("Patient/" + i + "/_history/1"));
+        }
+        assertEquals(dispatcher.getQueueDepth(), 3);
+        assertEquals(dispatcher.getDroppedCount(), 2);
+
+        release.countDown();
+        dispatcher.stop(10000);
+        assertEquals(subscriber.locations,
+                Arrays.asList("Patient/0/_history/1", "Patient/3/_history/1", "Patient/4/_history/1", "Patient/5/_history/1"));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestSubscriber subscriber = new TestSubscriber(release);
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {}, 1, OverflowPolicy.BLOCK);
+
+        dispatcher.offer(event("Patient/0/_history/1"));
+        waitFor(() -> dispatcher.getQueueDepth() == 0);
+        dispatcher.offer(event("Patient/1/_history/1"));
+
+        // the queue is full, so the publisher waits for the subscriber
+        Thread publisher = new Thread(() -> dispatcher.offer(event("Patient/2/_history/1")));
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive());
+
+        release.countDown();
+        publisher.join(10000);
+        assertFalse(publisher.isAlive());
+        dispatcher.stop(10000);
+        assertEquals(subscriber.locations,
+                Arrays.asList("Patient/0/_history/1", "Patient/1/_history/1", "Patient/2/_history/1"));
+        assertEquals(dispatcher.getDroppedCount(), 0);
+    }
+
+    @Test
+    public void testBlockReleasedOnStop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestSubscriber subscriber = new TestSubscriber(release);
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {}, 1, OverflowPolicy.BLOCK);
+
+        dispatcher.offer(event("Patient/0/_history/1"));
+        waitFor(() -> dispatcher.getQueueDepth() == 0);
+        dispatcher.offer(event("Patient/1/_history/1"));
+        Thread publisher = new Thread(() -> dispatcher.offer(event("Patient/2/_history/1")));
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive());
+
+        // the subscriber is still stuck, so stop gives up waiting, but the publisher returns without queuing its event
+        dispatcher.stop(100);
+        publisher.join(10000);
+        assertFalse(publisher.isAlive());
+        assertEquals(dispatcher.getQueueDepth(), 1);
+
+        release.countDown();
+        waitFor(() -> subscriber.locations.size() == 2);
+        assertEquals(subscriber.locations, Arrays.asList("Patient/0/_history/1", "Patient/1/_history/1"));
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestSubscriber subscriber = new TestSubscriber(release);
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {}, 10, OverflowPolicy.COALESCE);
+
+        dispatcher.offer(event("Patient/1/_history/1"));
+        waitFor(() -> dispatcher.getQueueDepth() == 0);
+        dispatcher.offer(event("Patient/2/_history/1"));
+        dispatcher.offer(event("Patient/1/_history/2"));
+        dispatcher.offer(event("Patient/1/_history/3"));
+        assertEquals(dispatcher.getQueueDepth(), 2);
+        assertEquals(dispatcher.getCoalescedCount(), 1);
+
+        release.countDown();
+        dispatcher.stop(10000);
+        assertEquals(subscriber.locations,
+                Arrays.asList("Patient/1/_history/1", "Patient/2/_history/1", "Patient/1/_history/3"));
+    }
+
+    @Test
+    public void testUnsubscribeOnFailure() throws Exception {
+        List<String> locations = Collections.synchronizedList(new ArrayList<>());
+        FHIRNotificationSubscriber subscriber = event -> {
+            locations.add(event.getLocation());
+            throw new FHIRNotificationException("subscriber failed");
+        };
+
+        // like FHIRNotificationService.unsubscribe, the failure handler stops the dispatcher on the delivering thread
+        AtomicReference<FHIRNotificationDispatcher> dispatcherRef = new AtomicReference<>();
+        AtomicReference<Thread> handlerThread = new AtomicReference<>();
+        CountDownLatch handled = new CountDownLatch(1);
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {
+            handlerThread.set(Thread.currentThread());
+            dispatcherRef.get().stop(10000);
+            handled.countDown();
+        }, 10, OverflowPolicy.DROP_OLDEST);
+        dispatcherRef.set(dispatcher);
+
+        dispatcher.offer(event("Patient/1/_history/1"));
+        dispatcher.offer(event("Patient/2/_history/1"));
+        handled.await();
+        assertNotEquals(handlerThread.get(), Thread.currentThread());
+
+        // the remaining events are discarded and new events are ignored
+        dispatcher.offer(event("Patient/3/_history/1"));
+        dispatcher.stop(10000);
+        assertEquals(locations, Collections.singletonList("Patient/1/_history/1"));
+        assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testDrainOnStop() throws Exception {
+        TestSubscriber subscriber = new TestSubscriber(new CountDownLatch(0)) {
+            @Override
+            public void notify(FHIRNotificationEvent event) throws FHIRNotificationException {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new FHIRNotificationException("interrupted", e);
+                }
+                super.notify(event);
+            }
+        };
+        FHIRNotificationDispatcher dispatcher = dispatcher(subscriber, s -> {}, 100, OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 20; i++) {
+            dispatcher.offer(event("Patient/" + i + "/_history/1"));
+        }
+
+        // the queued events are delivered before stop returns
+        dispatcher.stop(10000);
+        assertEquals(subscriber.locations.size(), 20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(subscriber.locations.get(i), "Patient/" + i + "/_history/1");
+        }
+        dispatcher.offer(event("Patient/20/_history/1"));
+        assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+
+    private FHIRNotificationDispatcher dispatcher(FHIRNotificationSubscriber subscriber,
+            Consumer<FHIRNotificationSubscriber> failureHandler, int queueSize, OverflowPolicy overflowPolicy) {
+        return new FHIRNotificationDispatcher(subscriber, failureHandler, queueSize, overflowPolicy, executorService);
+    }
+
+    private static FHIRNotificationEvent event(String location) {
+        FHIRNotificationEvent event = new FHIRNotificationEvent();
+        event.setOperationType("update");
+        event.setLocation(location);
+        event.setResourceId(location.split("/")[1]);
+        return event;
+    }
+
+    private interface Condition {
+        boolean isTrue();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.isTrue()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
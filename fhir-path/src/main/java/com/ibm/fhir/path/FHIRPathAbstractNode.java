@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,14 +19,19 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
     protected final String path;
     protected final FHIRPathType type;
     protected final FHIRPathSystemValue value;
-    protected final Collection<FHIRPathNode> children;
+    private volatile Collection<FHIRPathNode> children;
+    private Function<FHIRPathNode, Collection<FHIRPathNode>> childrenFunction;
     
     protected FHIRPathAbstractNode(Builder builder) {
         name = builder.name;
         path = builder.path;
         type = Objects.requireNonNull(builder.type);
         value = builder.value;
-        children = Collections.unmodifiableCollection(builder.children);
+        if (builder.childrenFunction != null) {
+            childrenFunction = builder.childrenFunction;
+        } else {
+            children = Collections.unmodifiableCollection(builder.children);
+        }
     }
     
     @Override
@@ -53,9 +59,23 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
         return value;
     }
     
+    /**
+     * The children of this node; for nodes of a lazy {@link FHIRPathTree} they are created on first access
+     */
     @Override
     public Collection<FHIRPathNode> children() {
-        return children;
+        Collection<FHIRPathNode> result = children;
+        if (result == null) {
+            synchronized (this) {
+                result = children;
+                if (result == null) {
+                    result = Collections.unmodifiableCollection(childrenFunction.apply(this));
+                    children = result;
+                    childrenFunction = null;
+                }
+            }
+        }
+        return result;
     }
     
     @Override
@@ -96,6 +116,9 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
         protected FHIRPathSystemValue value;
         protected Collection<FHIRPathNode> children = new ArrayList<>();
         
+        // computes the children of the built node on first access instead of using the children collection
+        Function<FHIRPathNode, Collection<FHIRPathNode>> childrenFunction;
+        
         protected Builder(FHIRPathType type) {
             super();
             this.type = type;
@@ -135,6 +158,15 @@ public abstract class FHIRPathAbstractNode implements FHIRPathNode {
             return this;
         }
         
+        /**
+         * Compute the children of the built node on first access, using the passed function, instead of using the
+         * children collection of this builder
+         */
+        Builder childrenFunction(Function<FHIRPathNode, Collection<FHIRPathNode>> childrenFunction) {
+            this.childrenFunction = childrenFunction;
+            return this;
+        }
+        
         @Override
         public abstract FHIRPathNode build();
     }
@@ -12,30 +12,60 @@ import java.time.LocalTime;
 import java.time.Year;
 import java.time.YearMonth;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.type.Element;
 import com.ibm.fhir.model.type.Quantity;
+import com.ibm.fhir.model.util.ModelSupport;
+import com.ibm.fhir.model.visitor.DefaultVisitor;
 import com.ibm.fhir.model.visitor.PathAwareVisitor;
+import com.ibm.fhir.model.visitor.Visitable;
 
 /**
  * A tree of {@link FHIRPathNode} nodes created from a {@link Resource} or an {@link Element}
+ *
+ * <p>The nodes of a lazy tree (see {@link #lazyTree(Resource)}) are created on demand: the children of a resource
+ * or element node are created when they are first accessed and nodes that are looked up by path are created along
+ * with their ancestors.
  */
 public class FHIRPathTree {
     private final FHIRPathNode root;
     private final Map<String, FHIRPathNode> pathNodeMap;
+    private final boolean lazy;
 
     private FHIRPathTree(FHIRPathNode root, Map<String, FHIRPathNode> pathNodeMap) {
         this.root = root;
         this.pathNodeMap = Collections.unmodifiableMap(pathNodeMap);
+        this.lazy = false;
+    }
+
+    private FHIRPathTree(Visitable visitable) {
+        this.pathNodeMap = new ConcurrentHashMap<>();
+        this.lazy = true;
+        LazyBuildingVisitor visitor = new LazyBuildingVisitor(this, null);
+        visitable.accept(visitor);
+        this.root = visitor.getRoot();
+    }
+
+    /**
+     * Whether the nodes of this FHIRPathTree are created on demand
+     *
+     * @return
+     *     true if the nodes of this FHIRPathTree are created on demand, otherwise false
+     */
+    public boolean isLazy() {
+        return lazy;
     }
 
     /**
@@ -57,7 +87,19 @@ public class FHIRPathTree {
      *     the node at the location given by the path parameter if exists, otherwise null
      */
     public FHIRPathNode getNode(String path) {
-        return pathNodeMap.get(path);
+        FHIRPathNode node = pathNodeMap.get(path);
+        if (node == null && lazy) {
+            int index = path.lastIndexOf(".");
+            if (index != -1) {
+                // create the children of the parent node (and its ancestors) if they don't exist yet
+                FHIRPathNode parent = getNode(path.substring(0, index));
+                if (parent != null) {
+                    parent.children();
+                    node = pathNodeMap.get(path);
+                }
+            }
+        }
+        return node;
     }
 
     /**
@@ -75,7 +117,7 @@ public class FHIRPathTree {
 
         int index = node.path().lastIndexOf(".");
         if (index != -1) {
-            return pathNodeMap.get(node.path().substring(0, index));
+            return getNode(node.path().substring(0, index));
         }
 
         return null;
@@ -166,6 +208,222 @@ public class FHIRPathTree {
         return new FHIRPathTree(visitor.getRoot(), visitor.getPathNodeMap());
     }
 
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from a {@link Resource}
+     *
+     * @param resource
+     *     the resource
+     * @return
+     *     a new FHIRPathTree instance whose nodes are created on demand
+     */
+    public static FHIRPathTree lazyTree(Resource resource) {
+        Objects.requireNonNull(resource);
+        return new FHIRPathTree(resource);
+    }
+
+    /**
+     * Static factory method for creating lazy FHIRPathTree instances from an {@link Element}
+     *
+     * @param element
+     *     the element
+     * @return
+     *     a new FHIRPathTree instance whose nodes are created on demand
+     */
+    public static FHIRPathTree lazyTree(Element element) {
+        Objects.requireNonNull(element);
+        return new FHIRPathTree(element);
+    }
+
+    /**
+     * Create the children of a resource or element node of this lazy tree
+     */
+    private Collection<FHIRPathNode> createChildren(FHIRPathNode node) {
+        LazyBuildingVisitor visitor = new LazyBuildingVisitor(this, node.path());
+        if (node.isResourceNode()) {
+            node.asResourceNode().resource().accept(visitor);
+        } else {
+            node.asElementNode().element().accept(visitor);
+        }
+        return visitor.getChildren();
+    }
+
+    /**
+     * Builds the nodes one level below a resource or element: either the root node of a lazy tree (when the parent
+     * path is null) or the children of the node at the parent path. The nodes it builds get their system value
+     * but create their own children on demand.
+     *
+     * <p>The sequence of operations on each node builder is the same as {@link BuildingVisitor} so that
+     * lazy and eager trees have the same nodes, paths, values and child order.
+     */
+    private static class LazyBuildingVisitor extends DefaultVisitor {
+        private final FHIRPathTree tree;
+        private final String parentPath;
+        private final int nodeDepth;
+        private final List<FHIRPathNode> children = new ArrayList<>();
+
+        private int depth = 0;
+        private FHIRPathAbstractNode.Builder builder;
+        private String path;
+        private FHIRPathSystemValue value;
+        private FHIRPathNode root;
+
+        private LazyBuildingVisitor(FHIRPathTree tree, String parentPath) {
+            super(true);
+            this.tree = tree;
+            this.parentPath = parentPath;
+            this.nodeDepth = (parentPath == null) ? 1 : 2;
+        }
+
+        private FHIRPathNode getRoot() {
+            return root;
+        }
+
+        private List<FHIRPathNode> getChildren() {
+            return children;
+        }
+
+        private void start(String elementName, int elementIndex, FHIRPathAbstractNode.Builder builder) {
+            if (ModelSupport.isKeyword(elementName)) {
+                elementName = ModelSupport.delimit(elementName);
+            }
+            if (elementIndex != -1) {
+                elementName = elementName + "[" + elementIndex + "]";
+            }
+            this.path = (parentPath == null) ? elementName : parentPath + "." + elementName;
+            this.builder = builder;
+        }
+
+        private void end() {
+            FHIRPathNode node = builder.path(path).childrenFunction(tree::createChildren).build();
+            tree.pathNodeMap.put(path, node);
+            if (parentPath == null) {
+                root = node;
+            } else {
+                children.add(node);
+            }
+            builder = null;
+            path = null;
+        }
+
+        private void value(FHIRPathSystemValue value) {
+            if (depth == nodeDepth) {
+                builder.value(value);
+            } else if (depth == nodeDepth - 1) {
+                // a value of the node whose children are being built
+                children.remove(this.value);
+                this.value = value;
+                children.add(value);
+            }
+        }
+
+        @Override
+        public boolean preVisit(Element element) {
+            return depth < nodeDepth;
+        }
+
+        @Override
+        public boolean preVisit(Resource resource) {
+            return depth < nodeDepth;
+        }
+
+        @Override
+        public void visitStart(java.lang.String elementName, int elementIndex, Element element) {
+            depth++;
+            if (depth == nodeDepth - 1 && element instanceof Quantity) {
+                // the quantity value precedes the other children of a quantity node
+                FHIRPathQuantityValue value = FHIRPathQuantityValue.quantityValue((Quantity) element);
+                if (value != null) {
+                    value(value);
+                }
+            } else if (depth == nodeDepth) {
+                if (element instanceof Quantity) {
+                    Quantity quantity = (Quantity) element;
+                    start(elementName, elementIndex, FHIRPathQuantityNode.builder(quantity).name(elementName));
+                    FHIRPathQuantityValue value = FHIRPathQuantityValue.quantityValue(quantity);
+                    if (value != null) {
+                        builder.value(value);
+                    }
+                } else {
+                    start(elementName, elementIndex, FHIRPathElementNode.builder(element).name(elementName));
+                }
+            }
+        }
+
+        @Override
+        public void visitStart(java.lang.String elementName, int elementIndex, Resource resource) {
+            depth++;
+            if (depth == nodeDepth) {
+                start(elementName, elementIndex, FHIRPathResourceNode.builder(resource).name(elementName));
+            }
+        }
+
+        @Override
+        public void visitEnd(java.lang.String elementName, int elementIndex, Element element) {
+            if (depth == nodeDepth) {
+                end();
+            }
+            depth--;
+        }
+
+        @Override
+        public void visitEnd(java.lang.String elementName, int elementIndex, Resource resource) {
+            if (depth == nodeDepth) {
+                end();
+            }
+            depth--;
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, BigDecimal value) {
+            value(FHIRPathDecimalValue.decimalValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, byte[] value) {
+            value(FHIRPathStringValue.stringValue(elementName, Base64.getEncoder().encodeToString(value)));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Boolean value) {
+            value(FHIRPathBooleanValue.booleanValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.Integer value) {
+            value(FHIRPathIntegerValue.integerValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, java.lang.String value) {
+            value(FHIRPathStringValue.stringValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalDate value) {
+            value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, LocalTime value) {
+            value(FHIRPathTimeValue.timeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, Year value) {
+            value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, YearMonth value) {
+            value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+
+        @Override
+        public void visit(java.lang.String elementName, ZonedDateTime value) {
+            value(FHIRPathDateTimeValue.dateTimeValue(elementName, value));
+        }
+    }
+
     private static class BuildingVisitor extends PathAwareVisitor {
         private Stack<FHIRPathNode.Builder> builderStack = new Stack<>();
         private FHIRPathNode root;
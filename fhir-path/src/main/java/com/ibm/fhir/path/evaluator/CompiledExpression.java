@@ -0,0 +1,680 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.evaluator;
+
+import static com.ibm.fhir.path.evaluator.FHIRPathEvaluator.SINGLETON_FALSE;
+import static com.ibm.fhir.path.evaluator.FHIRPathEvaluator.SINGLETON_TRUE;
+import static com.ibm.fhir.path.util.FHIRPathUtil.empty;
+import static com.ibm.fhir.path.util.FHIRPathUtil.evaluatesToBoolean;
+import static com.ibm.fhir.path.util.FHIRPathUtil.evaluatesToTrue;
+import static com.ibm.fhir.path.util.FHIRPathUtil.getSingleton;
+import static com.ibm.fhir.path.util.FHIRPathUtil.isFalse;
+import static com.ibm.fhir.path.util.FHIRPathUtil.isSingleton;
+import static com.ibm.fhir.path.util.FHIRPathUtil.singleton;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathParser;
+import com.ibm.fhir.path.FHIRPathParser.ExpressionContext;
+import com.ibm.fhir.path.FHIRPathType;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluatingVisitor;
+import com.ibm.fhir.path.function.FHIRPathFunction;
+
+/**
+ * A FHIRPath expression that has been compiled from its ANTLR parse tree into an immutable, thread-safe execution plan.
+ *
+ * <p>The plan resolves member names, type specifiers and function names once, folds literals (and operators applied
+ * only to literals) into constants, and uses specialized operator steps that delegate to the same operator semantics
+ * as {@link EvaluatingVisitor}. Parse tree nodes without a specialized step are executed by the interpreter, so the
+ * compiled plan and the interpreter always produce the same results.
+ *
+ * <p>All mutable evaluation state (the context stack and the evaluation context) is owned by the
+ * {@link EvaluatingVisitor} passed to {@link Plan#execute(EvaluatingVisitor)}.
+ */
+final class CompiledExpression {
+    private static final Map<FHIRPathType, Set<String>> CLOSURE_CACHE = new ConcurrentHashMap<>();
+
+    private final ExpressionContext expressionContext;
+    private final Plan plan;
+
+    private CompiledExpression(ExpressionContext expressionContext, Plan plan) {
+        this.expressionContext = expressionContext;
+        this.plan = plan;
+    }
+
+    ExpressionContext getExpressionContext() {
+        return expressionContext;
+    }
+
+    Plan getPlan() {
+        return plan;
+    }
+
+    static CompiledExpression compile(ExpressionContext expressionContext) {
+        return new CompiledExpression(expressionContext, new Compiler().compile(expressionContext));
+    }
+
+    private static Set<String> closure(FHIRPathType type) {
+        return CLOSURE_CACHE.computeIfAbsent(type, EvaluatingVisitor::closure);
+    }
+
+    /**
+     * A single step in the execution plan
+     */
+    abstract static class Plan {
+        abstract Collection<FHIRPathNode> execute(EvaluatingVisitor visitor);
+
+        /**
+         * @return true if the result of this step does not depend on the evaluation context
+         */
+        boolean isConstant() {
+            return false;
+        }
+    }
+
+    /**
+     * Translates an ANTLR parse tree into a plan
+     */
+    private static class Compiler {
+        private Plan compile(ParseTree tree) {
+            Plan plan = compileTree(tree);
+            if (!plan.isConstant() && isFoldable(tree)) {
+                plan = fold(tree, plan);
+            }
+            return plan;
+        }
+
+        private Plan compileTree(ParseTree tree) {
+            if (tree instanceof FHIRPathParser.TermExpressionContext) {
+                return compile(((FHIRPathParser.TermExpressionContext) tree).term());
+            }
+            if (tree instanceof FHIRPathParser.InvocationTermContext) {
+                return compileInvocation(((FHIRPathParser.InvocationTermContext) tree).invocation());
+            }
+            if (tree instanceof FHIRPathParser.LiteralTermContext) {
+                return fold(tree, new Interpreted(tree));
+            }
+            if (tree instanceof FHIRPathParser.ParenthesizedTermContext) {
+                return compile(((FHIRPathParser.ParenthesizedTermContext) tree).expression());
+            }
+            if (tree instanceof FHIRPathParser.ExternalConstantTermContext) {
+                FHIRPathParser.ExternalConstantContext ctx = ((FHIRPathParser.ExternalConstantTermContext) tree).externalConstant();
+                if (ctx.identifier() != null) {
+                    return new ExternalConstant(identifier(ctx.identifier()));
+                }
+            }
+            if (tree instanceof FHIRPathParser.InvocationExpressionContext) {
+                FHIRPathParser.InvocationExpressionContext ctx = (FHIRPathParser.InvocationExpressionContext) tree;
+                Plan expression = compile(ctx.expression());
+                Plan invocation = compileInvocation(ctx.invocation());
+                if (invocation instanceof Member) {
+                    return new MemberInvocation(expression, (Member) invocation);
+                }
+                return new Invocation(expression, invocation);
+            }
+            if (tree instanceof FHIRPathParser.IndexerExpressionContext) {
+                FHIRPathParser.IndexerExpressionContext ctx = (FHIRPathParser.IndexerExpressionContext) tree;
+                return new Indexer(compile(ctx.expression(0)), compile(ctx.expression(1)));
+            }
+            if (tree instanceof FHIRPathParser.PolarityExpressionContext) {
+                FHIRPathParser.PolarityExpressionContext ctx = (FHIRPathParser.PolarityExpressionContext) tree;
+                return new Polarity(ctx.getChild(0).getText(), compile(ctx.expression()));
+            }
+            if (tree instanceof FHIRPathParser.TypeExpressionContext) {
+                FHIRPathParser.TypeExpressionContext ctx = (FHIRPathParser.TypeExpressionContext) tree;
+                FHIRPathType type = FHIRPathType.from(ctx.typeSpecifier().getText().replace("`", ""));
+                if (type != null) {
+                    return new TypeOperator(ctx.getChild(1).getText(), compile(ctx.expression()), type);
+                }
+            }
+            if (tree instanceof FHIRPathParser.AndExpressionContext) {
+                FHIRPathParser.AndExpressionContext ctx = (FHIRPathParser.AndExpressionContext) tree;
+                return new And(compile(ctx.expression(0)), compile(ctx.expression(1)));
+            }
+            if (tree instanceof FHIRPathParser.OrExpressionContext) {
+                FHIRPathParser.OrExpressionContext ctx = (FHIRPathParser.OrExpressionContext) tree;
+                return new Or(ctx.getChild(1).getText(), compile(ctx.expression(0)), compile(ctx.expression(1)));
+            }
+            if (tree instanceof ExpressionContext && tree.getChildCount() == 3 && tree.getChild(0) instanceof ExpressionContext &&
+                    tree.getChild(2) instanceof ExpressionContext) {
+                BinaryOperatorType operatorType = BinaryOperatorType.from((ExpressionContext) tree);
+                if (operatorType != null) {
+                    return new BinaryOperator(operatorType, tree.getChild(1).getText(),
+                            compile(tree.getChild(0)), compile(tree.getChild(2)));
+                }
+            }
+            return new Interpreted(tree);
+        }
+
+        private Plan compileInvocation(FHIRPathParser.InvocationContext invocation) {
+            if (invocation instanceof FHIRPathParser.MemberInvocationContext) {
+                return new Member(identifier(((FHIRPathParser.MemberInvocationContext) invocation).identifier()));
+            }
+            if (invocation instanceof FHIRPathParser.ThisInvocationContext) {
+                return This.INSTANCE;
+            }
+            if (invocation instanceof FHIRPathParser.FunctionInvocationContext) {
+                return compileFunction(invocation, ((FHIRPathParser.FunctionInvocationContext) invocation).function());
+            }
+            return new Interpreted(invocation);
+        }
+
+        private Plan compileFunction(FHIRPathParser.InvocationContext invocation, FHIRPathParser.FunctionContext ctx) {
+            String functionName = identifier(ctx.identifier());
+            List<ExpressionContext> arguments = (ctx.paramList() != null) ? ctx.paramList().expression() : Collections.emptyList();
+            switch (functionName) {
+            case "exists":
+                if (arguments.isEmpty()) {
+                    return Exists.INSTANCE;
+                }
+                break;
+            case "where":
+                if (arguments.size() == 1) {
+                    return new Where(compile(arguments.get(0)));
+                }
+                break;
+            case "select":
+                if (arguments.size() == 1) {
+                    return new Select(compile(arguments.get(0)));
+                }
+                break;
+            case "all":
+                if (arguments.size() == 1) {
+                    return new All(compile(arguments.get(0)));
+                }
+                break;
+            case "as":
+            case "ofType":
+                if (arguments.size() == 1) {
+                    FHIRPathType type = FHIRPathType.from(arguments.get(0).getText().replace("`", ""));
+                    if (type != null) {
+                        return new FilterByType(type);
+                    }
+                }
+                break;
+            case "is":
+            case "iif":
+            case "trace":
+                break;
+            default:
+                List<Plan> argumentPlans = new ArrayList<>(arguments.size());
+                for (ExpressionContext argument : arguments) {
+                    argumentPlans.add(compile(argument));
+                }
+                return new Function(functionName, argumentPlans, invocation);
+            }
+            // argument mismatch or a function that needs unevaluated arguments: defer to the interpreter
+            return new Interpreted(invocation);
+        }
+
+        /**
+         * Evaluate a context-independent subtree once and replace it with a constant (unless it fails, in which case
+         * the failure is deferred to evaluation time)
+         */
+        private Plan fold(ParseTree tree, Plan plan) {
+            try {
+                EvaluatingVisitor visitor = new EvaluatingVisitor();
+                Collection<FHIRPathNode> value = visitor.visit(tree);
+                if (value != null) {
+                    return new Constant(value);
+                }
+            } catch (RuntimeException e) {
+                // fall through
+            }
+            return plan;
+        }
+
+        /**
+         * @return true if the subtree consists only of literals and operators that do not depend on the evaluation context
+         */
+        private boolean isFoldable(ParseTree tree) {
+            if (tree instanceof FHIRPathParser.LiteralTermContext) {
+                return true;
+            }
+            if (tree instanceof FHIRPathParser.TermExpressionContext) {
+                return isFoldable(((FHIRPathParser.TermExpressionContext) tree).term());
+            }
+            if (tree instanceof FHIRPathParser.ParenthesizedTermContext) {
+                return isFoldable(((FHIRPathParser.ParenthesizedTermContext) tree).expression());
+            }
+            if (tree instanceof FHIRPathParser.PolarityExpressionContext) {
+                return isFoldable(((FHIRPathParser.PolarityExpressionContext) tree).expression());
+            }
+            if (tree instanceof FHIRPathParser.AdditiveExpressionContext ||
+                    tree instanceof FHIRPathParser.MultiplicativeExpressionContext ||
+                    tree instanceof FHIRPathParser.UnionExpressionContext ||
+                    tree instanceof FHIRPathParser.InequalityExpressionContext ||
+                    tree instanceof FHIRPathParser.EqualityExpressionContext ||
+                    tree instanceof FHIRPathParser.AndExpressionContext ||
+                    tree instanceof FHIRPathParser.OrExpressionContext ||
+                    tree instanceof FHIRPathParser.ImpliesExpressionContext) {
+                return isFoldable(tree.getChild(0)) && isFoldable(tree.getChild(2));
+            }
+            return false;
+        }
+
+        private String identifier(FHIRPathParser.IdentifierContext ctx) {
+            String text = ctx.getText();
+            return text.startsWith("`") ? text.substring(1, text.length() - 1) : text;
+        }
+    }
+
+    /**
+     * A parse tree node that is executed by the interpreter
+     */
+    private static class Interpreted extends Plan {
+        private final ParseTree tree;
+
+        private Interpreted(ParseTree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return visitor.visit(tree);
+        }
+    }
+
+    private static class Constant extends Plan {
+        private final Collection<FHIRPathNode> value;
+
+        private Constant(Collection<FHIRPathNode> value) {
+            this.value = value;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return value;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    private static class ExternalConstant extends Plan {
+        private final String name;
+
+        private ExternalConstant(String name) {
+            this.name = name;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return visitor.getEvaluationContext().getExternalConstant(name);
+        }
+    }
+
+    private static class This extends Plan {
+        private static final This INSTANCE = new This();
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return visitor.getCurrentContext();
+        }
+    }
+
+    /**
+     * A member access with a pre-resolved identifier
+     */
+    private static class Member extends Plan {
+        private final String identifier;
+
+        private Member(String identifier) {
+            this.identifier = identifier;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return apply(visitor.getCurrentContext());
+        }
+
+        private Collection<FHIRPathNode> apply(Collection<FHIRPathNode> input) {
+            if (input.isEmpty()) {
+                return empty();
+            }
+            if (isSingleton(input)) {
+                FHIRPathNode node = getSingleton(input);
+                if (closure(node.type()).contains(identifier)) {
+                    return input;
+                }
+            }
+            List<FHIRPathNode> result = new ArrayList<>();
+            for (FHIRPathNode node : input) {
+                for (FHIRPathNode child : node.children()) {
+                    if (identifier.equals(child.name())) {
+                        result.add(child);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A member access applied directly to the result of an expression (no context stack manipulation)
+     */
+    private static class MemberInvocation extends Plan {
+        private final Plan expression;
+        private final Member member;
+
+        private MemberInvocation(Plan expression, Member member) {
+            this.expression = expression;
+            this.member = member;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            Collection<FHIRPathNode> input = expression.execute(visitor);
+            if (input == null) {
+                // e.g. an external constant set to null; like the interpreter, which does not push a null context,
+                // apply the member to the current context
+                visitor.pushContext(input);
+                Collection<FHIRPathNode> result = member.execute(visitor);
+                visitor.popContext();
+                return result;
+            }
+            return member.apply(input);
+        }
+    }
+
+    private static class Invocation extends Plan {
+        private final Plan expression;
+        private final Plan invocation;
+
+        private Invocation(Plan expression, Plan invocation) {
+            this.expression = expression;
+            this.invocation = invocation;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            visitor.pushContext(expression.execute(visitor));
+            Collection<FHIRPathNode> result = invocation.execute(visitor);
+            visitor.popContext();
+            return result;
+        }
+    }
+
+    private static class Indexer extends Plan {
+        private final Plan expression;
+        private final Plan index;
+
+        private Indexer(Plan expression, Plan index) {
+            this.expression = expression;
+            this.index = index;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            Collection<FHIRPathNode> nodes = expression.execute(visitor);
+            return EvaluatingVisitor.indexer(nodes, index.execute(visitor));
+        }
+    }
+
+    private static class Polarity extends Plan {
+        private final String polarity;
+        private final Plan operand;
+
+        private Polarity(String polarity, Plan operand) {
+            this.polarity = polarity;
+            this.operand = operand;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return visitor.polarity(polarity, operand.execute(visitor));
+        }
+    }
+
+    private static class TypeOperator extends Plan {
+        private final String operator;
+        private final Plan operand;
+        private final FHIRPathType type;
+
+        private TypeOperator(String operator, Plan operand, FHIRPathType type) {
+            this.operator = operator;
+            this.operand = operand;
+            this.type = type;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return EvaluatingVisitor.typeExpression(operator, operand.execute(visitor), type);
+        }
+    }
+
+    private static class And extends Plan {
+        private final Plan left;
+        private final Plan right;
+
+        private And(Plan left, Plan right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return EvaluatingVisitor.and(left.execute(visitor), () -> right.execute(visitor));
+        }
+    }
+
+    private static class Or extends Plan {
+        private final String operator;
+        private final Plan left;
+        private final Plan right;
+
+        private Or(String operator, Plan left, Plan right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return EvaluatingVisitor.or(operator, left.execute(visitor), () -> right.execute(visitor));
+        }
+    }
+
+    private enum BinaryOperatorType {
+        ADDITIVE,
+        MULTIPLICATIVE,
+        UNION,
+        MEMBERSHIP,
+        INEQUALITY,
+        EQUALITY,
+        IMPLIES;
+
+        private static BinaryOperatorType from(ExpressionContext ctx) {
+            if (ctx instanceof FHIRPathParser.AdditiveExpressionContext) {
+                return ADDITIVE;
+            }
+            if (ctx instanceof FHIRPathParser.MultiplicativeExpressionContext) {
+                return MULTIPLICATIVE;
+            }
+            if (ctx instanceof FHIRPathParser.UnionExpressionContext) {
+                return UNION;
+            }
+            if (ctx instanceof FHIRPathParser.MembershipExpressionContext) {
+                return MEMBERSHIP;
+            }
+            if (ctx instanceof FHIRPathParser.InequalityExpressionContext) {
+                return INEQUALITY;
+            }
+            if (ctx instanceof FHIRPathParser.EqualityExpressionContext) {
+                return EQUALITY;
+            }
+            if (ctx instanceof FHIRPathParser.ImpliesExpressionContext) {
+                return IMPLIES;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A binary operator where both operands are always evaluated (left to right)
+     */
+    private static class BinaryOperator extends Plan {
+        private final BinaryOperatorType operatorType;
+        private final String operator;
+        private final Plan left;
+        private final Plan right;
+
+        private BinaryOperator(BinaryOperatorType operatorType, String operator, Plan left, Plan right) {
+            this.operatorType = operatorType;
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            Collection<FHIRPathNode> leftResult = left.execute(visitor);
+            Collection<FHIRPathNode> rightResult = right.execute(visitor);
+            switch (operatorType) {
+            case ADDITIVE:
+                return visitor.additive(operator, leftResult, rightResult);
+            case MULTIPLICATIVE:
+                return visitor.multiplicative(operator, leftResult, rightResult);
+            case UNION:
+                return EvaluatingVisitor.union(leftResult, rightResult);
+            case MEMBERSHIP:
+                return visitor.membership(operator, leftResult, rightResult);
+            case INEQUALITY:
+                return visitor.inequality(operator, leftResult, rightResult);
+            case EQUALITY:
+                return visitor.equality(operator, leftResult, rightResult);
+            case IMPLIES:
+                return visitor.implies(leftResult, rightResult);
+            default:
+                throw new IllegalStateException("Unknown operator type: " + operatorType);
+            }
+        }
+    }
+
+    private static class Exists extends Plan {
+        private static final Exists INSTANCE = new Exists();
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return !visitor.getCurrentContext().isEmpty() ? SINGLETON_TRUE : SINGLETON_FALSE;
+        }
+    }
+
+    private static class Where extends Plan {
+        private final Plan criteria;
+
+        private Where(Plan criteria) {
+            this.criteria = criteria;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            Collection<FHIRPathNode> result = new ArrayList<>();
+            for (FHIRPathNode node : visitor.getCurrentContext()) {
+                visitor.pushContext(singleton(node));
+                if (evaluatesToTrue(criteria.execute(visitor))) {
+                    result.add(node);
+                }
+                visitor.popContext();
+            }
+            return result;
+        }
+    }
+
+    private static class Select extends Plan {
+        private final Plan projection;
+
+        private Select(Plan projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            Collection<FHIRPathNode> result = new ArrayList<>();
+            for (FHIRPathNode node : visitor.getCurrentContext()) {
+                visitor.pushContext(singleton(node));
+                result.addAll(projection.execute(visitor));
+                visitor.popContext();
+            }
+            return result;
+        }
+    }
+
+    private static class All extends Plan {
+        private final Plan criteria;
+
+        private All(Plan criteria) {
+            this.criteria = criteria;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            for (FHIRPathNode node : visitor.getCurrentContext()) {
+                visitor.pushContext(singleton(node));
+                Collection<FHIRPathNode> result = criteria.execute(visitor);
+                visitor.popContext();
+                if (evaluatesToBoolean(result) && isFalse(result)) {
+                    return SINGLETON_FALSE;
+                }
+            }
+            return SINGLETON_TRUE;
+        }
+    }
+
+    private static class FilterByType extends Plan {
+        private final FHIRPathType type;
+
+        private FilterByType(FHIRPathType type) {
+            this.type = type;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            return visitor.filterByType(type);
+        }
+    }
+
+    /**
+     * A call to a function from the {@link FHIRPathFunction#registry()}
+     */
+    private static class Function extends Plan {
+        private final String functionName;
+        private final List<Plan> arguments;
+        private final ParseTree tree;
+
+        private Function(String functionName, List<Plan> arguments, ParseTree tree) {
+            this.functionName = functionName;
+            this.arguments = Collections.unmodifiableList(arguments);
+            this.tree = tree;
+        }
+
+        @Override
+        Collection<FHIRPathNode> execute(EvaluatingVisitor visitor) {
+            FHIRPathFunction function = FHIRPathFunction.registry().getFunction(functionName);
+            if (function == null || arguments.size() < function.getMinArity() || arguments.size() > function.getMaxArity()) {
+                // let the interpreter report the error
+                return visitor.visit(tree);
+            }
+            List<Collection<FHIRPathNode>> evaluatedArguments = new ArrayList<>(arguments.size());
+            for (Plan argument : arguments) {
+                evaluatedArguments.add(argument.execute(visitor));
+            }
+            return function.apply(visitor.getEvaluationContext(), visitor.getCurrentContext(), evaluatedArguments);
+        }
+    }
+}
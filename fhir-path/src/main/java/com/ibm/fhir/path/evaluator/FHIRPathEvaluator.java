@@ -6,7 +6,7 @@
 
 package com.ibm.fhir.path.evaluator;
 
-import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
 import static com.ibm.fhir.path.FHIRPathDateTimeValue.dateTimeValue;
 import static com.ibm.fhir.path.FHIRPathDateValue.dateValue;
 import static com.ibm.fhir.path.FHIRPathDecimalValue.decimalValue;
@@ -58,6 +58,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -89,6 +90,9 @@ import com.ibm.fhir.path.util.FHIRPathUtil;
 
 /**
  * A FHIRPath evaluation engine that implements the FHIRPath 2.0.0 <a href="http://hl7.org/fhirpath/N1/">specification</a>
+ *
+ * <p>FHIRPathEvaluator instances are not thread-safe. FHIRPath trees, both eager and lazy, may be shared by threads
+ * that each use their own evaluator and {@link EvaluationContext} (see {@link EvaluationContext#copy()}).
  */
 public class FHIRPathEvaluator {
     private static final Logger log = Logger.getLogger(FHIRPathEvaluator.class.getName());
@@ -96,12 +100,15 @@ public class FHIRPathEvaluator {
     public static final Collection<FHIRPathNode> SINGLETON_TRUE = singleton(FHIRPathBooleanValue.TRUE);
     public static final Collection<FHIRPathNode> SINGLETON_FALSE = singleton(FHIRPathBooleanValue.FALSE);
 
-    private static final int EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES = 512;
-    private static final Map<String, ExpressionContext> EXPRESSION_CONTEXT_CACHE = createLRUCache(EXPRESSION_CONTEXT_CACHE_MAX_ENTRIES);
+    private static final int COMPILED_EXPRESSION_CACHE_MAX_ENTRIES = 512;
+    private static final Map<String, CompiledExpression> COMPILED_EXPRESSION_CACHE = createConcurrentLRUCache(COMPILED_EXPRESSION_CACHE_MAX_ENTRIES);
 
     private final EvaluatingVisitor visitor = new EvaluatingVisitor();
+    private final boolean compiled;
 
-    private FHIRPathEvaluator() { }
+    private FHIRPathEvaluator(boolean compiled) {
+        this.compiled = compiled;
+    }
 
     /**
      * Get the EvaluationContext associated with this FHIRPathEvaluator
@@ -252,7 +259,11 @@ public class FHIRPathEvaluator {
         try {
             evaluationContext.setExternalConstant("context", initialContext);
             setDateTimeConstants(evaluationContext);
-            return visitor.evaluate(evaluationContext, getExpressionContext(expr), initialContext);
+            CompiledExpression compiledExpression = getCompiledExpression(expr);
+            if (compiled) {
+                return visitor.evaluate(evaluationContext, compiledExpression.getPlan(), initialContext);
+            }
+            return visitor.evaluate(evaluationContext, compiledExpression.getExpressionContext(), initialContext);
         } catch (Exception e) {
             throw new FHIRPathException("An error occurred while evaluating expression: " + expr, e);
         }
@@ -265,35 +276,49 @@ public class FHIRPathEvaluator {
         evaluationContext.setExternalConstant("timeOfDay", singleton(timeValue(LocalTime.from(now))));
     }
 
-    private static ExpressionContext getExpressionContext(String expr) {
-        return EXPRESSION_CONTEXT_CACHE.computeIfAbsent(Objects.requireNonNull(expr), FHIRPathUtil::compile);
+    private static CompiledExpression getCompiledExpression(String expr) {
+        return COMPILED_EXPRESSION_CACHE.computeIfAbsent(Objects.requireNonNull(expr), k -> CompiledExpression.compile(FHIRPathUtil.compile(k)));
     }
 
     /**
      * Static factory method for creating FHIRPathEvaluator instances
      *
+     * <p>Expressions are compiled once into an immutable execution plan that is shared across evaluator instances.
+     *
      * @return
      *     a new FHIRPathEvaluator instance
      */
     public static FHIRPathEvaluator evaluator() {
-        return new FHIRPathEvaluator();
+        return new FHIRPathEvaluator(true);
+    }
+
+    /**
+     * Static factory method for creating FHIRPathEvaluator instances
+     *
+     * @param compiled
+     *     true to execute the compiled plan for each expression, false to interpret the parse tree directly
+     * @return
+     *     a new FHIRPathEvaluator instance
+     */
+    public static FHIRPathEvaluator evaluator(boolean compiled) {
+        return new FHIRPathEvaluator(compiled);
     }
 
     public static class EvaluatingVisitor extends FHIRPathBaseVisitor<Collection<FHIRPathNode>> {
         private static final String SYSTEM_NAMESPACE = "System";
 
         private static final int IDENTIFIER_CACHE_MAX_ENTRIES = 2048;
-        private static final Map<String, Collection<FHIRPathNode>> IDENTIFIER_CACHE = createLRUCache(IDENTIFIER_CACHE_MAX_ENTRIES);
+        private static final Map<String, Collection<FHIRPathNode>> IDENTIFIER_CACHE = createConcurrentLRUCache(IDENTIFIER_CACHE_MAX_ENTRIES);
 
         private static final int LITERAL_CACHE_MAX_ENTRIES = 128;
-        private static final Map<String, Collection<FHIRPathNode>> LITERAL_CACHE = createLRUCache(LITERAL_CACHE_MAX_ENTRIES);
+        private static final Map<String, Collection<FHIRPathNode>> LITERAL_CACHE = createConcurrentLRUCache(LITERAL_CACHE_MAX_ENTRIES);
 
         private EvaluationContext evaluationContext;
         private final Stack<Collection<FHIRPathNode>> contextStack = new Stack<>();
 
         private int indentLevel = 0;
 
-        private EvaluatingVisitor() { }
+        EvaluatingVisitor() { }
 
         private Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, ExpressionContext expressionContext, Collection<FHIRPathNode> initialContext) {
             reset();
@@ -304,7 +329,16 @@ public class FHIRPathEvaluator {
             return Collections.unmodifiableCollection(result);
         }
 
-        private EvaluationContext getEvaluationContext() {
+        private Collection<FHIRPathNode> evaluate(EvaluationContext evaluationContext, CompiledExpression.Plan plan, Collection<FHIRPathNode> initialContext) {
+            reset();
+            this.evaluationContext = evaluationContext;
+            contextStack.push(initialContext);
+            Collection<FHIRPathNode> result = plan.execute(this);
+            contextStack.pop();
+            return Collections.unmodifiableCollection(result);
+        }
+
+        EvaluationContext getEvaluationContext() {
             return evaluationContext;
         }
 
@@ -334,13 +368,20 @@ public class FHIRPathEvaluator {
             if (arguments.size() != 1) {
                 throw unexpectedNumberOfArguments(arguments.size(), "as");
             }
-            Collection<FHIRPathNode> result = new ArrayList<>();
             ExpressionContext typeName = arguments.iterator().next();
             String identifier = typeName.getText().replace("`", "");
             FHIRPathType type = FHIRPathType.from(identifier);
             if (type == null) {
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", identifier));
             }
+            return filterByType(type);
+        }
+
+        /**
+         * Filter the current context by type; used by the 'as' and 'ofType' functions
+         */
+        Collection<FHIRPathNode> filterByType(FHIRPathType type) {
+            Collection<FHIRPathNode> result = new ArrayList<>();
             for (FHIRPathNode node : getCurrentContext()) {
                 FHIRPathType nodeType = node.type();
                 if (SYSTEM_NAMESPACE.equals(type.namespace()) && node.hasValue()) {
@@ -353,7 +394,7 @@ public class FHIRPathEvaluator {
             return result;
         }
 
-        private Set<String> closure(FHIRPathType type) {
+        static Set<String> closure(FHIRPathType type) {
             if (SYSTEM_NAMESPACE.equals(type.namespace())) {
                 return Collections.emptySet();
             }
@@ -376,7 +417,7 @@ public class FHIRPathEvaluator {
             return evaluatesToTrue(visit(arguments.get(0))) ? SINGLETON_TRUE : SINGLETON_FALSE;
         }
 
-        private Collection<FHIRPathNode> getCurrentContext() {
+        Collection<FHIRPathNode> getCurrentContext() {
             if (!contextStack.isEmpty()) {
                 return contextStack.peek();
             }
@@ -428,33 +469,23 @@ public class FHIRPathEvaluator {
             if (arguments.size() != 1) {
                 throw unexpectedNumberOfArguments(arguments.size(), "ofType");
             }
-            Collection<FHIRPathNode> result = new ArrayList<>();
             ExpressionContext typeName = arguments.get(0);
             String identifier = typeName.getText().replace("`", "");
             FHIRPathType type = FHIRPathType.from(identifier);
             if (type == null) {
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", identifier));
             }
-            for (FHIRPathNode node : getCurrentContext()) {
-                FHIRPathType nodeType = node.type();
-                if (SYSTEM_NAMESPACE.equals(type.namespace()) && node.hasValue()) {
-                    nodeType = node.getValue().type();
-                }
-                if (type.isAssignableFrom(nodeType)) {
-                    result.add(node);
-                }
-            }
-            return result;
+            return filterByType(type);
         }
 
-        private Collection<FHIRPathNode> popContext() {
+        Collection<FHIRPathNode> popContext() {
             if (!contextStack.isEmpty()) {
                 return contextStack.pop();
             }
             return null;
         }
 
-        private void pushContext(Collection<FHIRPathNode> context) {
+        void pushContext(Collection<FHIRPathNode> context) {
             if (context != null) {
                 contextStack.push(context);
             }
@@ -489,7 +520,7 @@ public class FHIRPathEvaluator {
             return currentContext;
         }
 
-        private IllegalArgumentException unexpectedNumberOfArguments(int arity, String functionName) {
+        static IllegalArgumentException unexpectedNumberOfArguments(int arity, String functionName) {
             return new IllegalArgumentException(String.format("Unexpected number of arguments: %d for function: '%s'", arity, functionName));
         }
 
@@ -514,18 +545,23 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = empty();
-
             Collection<FHIRPathNode> nodes = visit(ctx.expression(0));
+            Collection<FHIRPathNode> result = indexer(nodes, visit(ctx.expression(1)));
+
+            indentLevel--;
+            return result;
+        }
+
+        static Collection<FHIRPathNode> indexer(Collection<FHIRPathNode> nodes, Collection<FHIRPathNode> indexNodes) {
+            Collection<FHIRPathNode> result = empty();
 
             List<?> list = (nodes instanceof List) ? (List<?>) nodes : new ArrayList<>(nodes);
-            int index = getInteger(visit(ctx.expression(1)));
+            int index = getInteger(indexNodes);
 
             if (index >= 0 && index < list.size()) {
                 result = singleton((FHIRPathNode) list.get(index));
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -536,15 +572,20 @@ public class FHIRPathEvaluator {
 
             Collection<FHIRPathNode> nodes = visit(ctx.expression());
 
+            Collection<FHIRPathNode> result = polarity(ctx.getChild(0).getText(), nodes);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> polarity(String polarity, Collection<FHIRPathNode> nodes) {
             if (!isSingleton(nodes)) {
-                indentLevel--;
                 return empty();
             }
 
             Collection<FHIRPathNode> result = empty();
 
             FHIRPathSystemValue value = getSystemValue(nodes);
-            String polarity = ctx.getChild(0).getText();
 
             if (value.isNumberValue()) {
                 switch (polarity) {
@@ -557,7 +598,6 @@ public class FHIRPathEvaluator {
                 }
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -569,9 +609,14 @@ public class FHIRPathEvaluator {
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
-            Collection<FHIRPathNode> result = empty();
+            Collection<FHIRPathNode> result = additive(ctx.getChild(1).getText(), left, right);
 
-            String operator = ctx.getChild(1).getText();
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> additive(String operator, Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
+            Collection<FHIRPathNode> result = empty();
 
             if ((hasNumberValue(left) && hasNumberValue(right)) || (hasStringValue(left) && hasStringValue(right))) {
                 if (hasNumberValue(left) && hasNumberValue(right)) {
@@ -642,7 +687,6 @@ public class FHIRPathEvaluator {
                 throw new IllegalArgumentException("Invalid argument(s) for '" + operator + "' operator");
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -654,8 +698,14 @@ public class FHIRPathEvaluator {
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
+            Collection<FHIRPathNode> result = multiplicative(ctx.getChild(1).getText(), left, right);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> multiplicative(String operator, Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
             if (!hasSystemValue(left) || !hasSystemValue(right)) {
-                indentLevel--;
                 return empty();
             }
 
@@ -664,8 +714,6 @@ public class FHIRPathEvaluator {
             FHIRPathSystemValue leftValue = getSystemValue(left);
             FHIRPathSystemValue rightValue = getSystemValue(right);
 
-            String operator = ctx.getChild(1).getText();
-
             if (leftValue.isNumberValue() && rightValue.isNumberValue()) {
                 try {
                     switch (operator) {
@@ -687,7 +735,6 @@ public class FHIRPathEvaluator {
                 }
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -699,10 +746,15 @@ public class FHIRPathEvaluator {
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
-            Set<FHIRPathNode> union = new LinkedHashSet<>(left);
-            union.addAll(right);
+            Collection<FHIRPathNode> result = union(left, right);
 
             indentLevel--;
+            return result;
+        }
+
+        static Collection<FHIRPathNode> union(Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
+            Set<FHIRPathNode> union = new LinkedHashSet<>(left);
+            union.addAll(right);
             return new ArrayList<>(union);
         }
 
@@ -711,12 +763,20 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = empty();
-
             // evaluate left operand
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
 
-            String operator = ctx.getChild(1).getText();
+            Collection<FHIRPathNode> result = or(ctx.getChild(1).getText(), left, () -> visit(ctx.expression(1)));
+
+            indentLevel--;
+            return result;
+        }
+
+        /**
+         * Evaluate the 'or' and 'xor' operators; the right operand is only evaluated when needed
+         */
+        static Collection<FHIRPathNode> or(String operator, Collection<FHIRPathNode> left, Supplier<Collection<FHIRPathNode>> rightOperand) {
+            Collection<FHIRPathNode> result = empty();
 
             switch (operator) {
             case "or":
@@ -726,7 +786,7 @@ public class FHIRPathEvaluator {
                     result = SINGLETON_TRUE;
                 } else {
                     // evaluate right operand
-                    Collection<FHIRPathNode> right = visit(ctx.expression(1));
+                    Collection<FHIRPathNode> right = rightOperand.get();
                     if (evaluatesToBoolean(right) && evaluatesToTrue(right)) {
                         result = SINGLETON_TRUE;
                     } else if (evaluatesToBoolean(left) && evaluatesToBoolean(right) &&
@@ -737,7 +797,7 @@ public class FHIRPathEvaluator {
                 break;
             case "xor":
                 // evaluate right operand
-                Collection<FHIRPathNode> right = visit(ctx.expression(1));
+                Collection<FHIRPathNode> right = rightOperand.get();
 
                 // Returns true if exactly one of the operands evaluates to true, false if either both operands evaluate to true or both operands evaluate to false, and the empty collection ({ }) otherwise:
                 if (evaluatesToBoolean(left) && evaluatesToBoolean(right)) {
@@ -746,7 +806,6 @@ public class FHIRPathEvaluator {
                 break;
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -755,18 +814,28 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = empty();
-
             // evaluate left operand
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
 
+            Collection<FHIRPathNode> result = and(left, () -> visit(ctx.expression(1)));
+
+            indentLevel--;
+            return result;
+        }
+
+        /**
+         * Evaluate the 'and' operator; the right operand is only evaluated when needed
+         */
+        static Collection<FHIRPathNode> and(Collection<FHIRPathNode> left, Supplier<Collection<FHIRPathNode>> rightOperand) {
+            Collection<FHIRPathNode> result = empty();
+
             // Returns true if both operands evaluate to true, false if either operand evaluates to false, and the empty collection ({ }) otherwise.
             if (evaluatesToBoolean(left) && isFalse(left)) {
                 // short-circuit evaluation
                 result = SINGLETON_FALSE;
             } else {
                 // evaluate right operand
-                Collection<FHIRPathNode> right = visit(ctx.expression(1));
+                Collection<FHIRPathNode> right = rightOperand.get();
                 if (evaluatesToBoolean(right) && isFalse(right)) {
                     result = SINGLETON_FALSE;
                 } else if (evaluatesToBoolean(left) && evaluatesToBoolean(right) &&
@@ -775,7 +844,6 @@ public class FHIRPathEvaluator {
                 }
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -784,12 +852,17 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = SINGLETON_FALSE;
-
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
-            String operator = ctx.getChild(1).getText();
+            Collection<FHIRPathNode> result = membership(ctx.getChild(1).getText(), left, right);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> membership(String operator, Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
+            Collection<FHIRPathNode> result = SINGLETON_FALSE;
 
             switch (operator) {
             case "in":
@@ -810,7 +883,6 @@ public class FHIRPathEvaluator {
                 break;
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -822,8 +894,14 @@ public class FHIRPathEvaluator {
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
+            Collection<FHIRPathNode> result = inequality(ctx.getChild(1).getText(), left, right);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> inequality(String operator, Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
             if (!isSingleton(left) || !isSingleton(right)) {
-                indentLevel--;
                 return SINGLETON_FALSE;
             }
 
@@ -837,8 +915,6 @@ public class FHIRPathEvaluator {
                 throw new IllegalArgumentException("Type: '" + leftNode.type().getName() + "' is not compatible with type: '" + rightNode.type().getName() + "'");
             }
 
-            String operator = ctx.getChild(1).getText();
-
             if (leftNode.isComparableTo(rightNode)) {
                 switch (operator) {
                 case "<=":
@@ -866,7 +942,6 @@ public class FHIRPathEvaluator {
                 result = empty();
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -888,28 +963,30 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = SINGLETON_FALSE;
-
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
+            Collection<FHIRPathNode> result = equality(ctx.getChild(1).getText(), left, right);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> equality(String operator, Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
+            Collection<FHIRPathNode> result = SINGLETON_FALSE;
+
             if (left.isEmpty() || right.isEmpty()) {
-                indentLevel--;
                 return empty();
             }
 
             if (left.size() != right.size()) {
-                indentLevel--;
                 return SINGLETON_FALSE;
             }
 
             if (!validateEqualityOperands(left, right)) {
-                indentLevel--;
                 return empty();
             }
 
-            String operator = ctx.getChild(1).getText();
-
             // TODO: "equals" and "equivalent" have different semantics
             switch (operator) {
             case "=":
@@ -926,7 +1003,6 @@ public class FHIRPathEvaluator {
                 break;
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -960,11 +1036,18 @@ public class FHIRPathEvaluator {
             debug(ctx);
             indentLevel++;
 
-            Collection<FHIRPathNode> result = empty();
-
             Collection<FHIRPathNode> left = visit(ctx.expression(0));
             Collection<FHIRPathNode> right = visit(ctx.expression(1));
 
+            Collection<FHIRPathNode> result = implies(left, right);
+
+            indentLevel--;
+            return result;
+        }
+
+        Collection<FHIRPathNode> implies(Collection<FHIRPathNode> left, Collection<FHIRPathNode> right) {
+            Collection<FHIRPathNode> result = empty();
+
             // If the left operand evaluates to true, this operator returns the boolean evaluation of the right operand. If the left operand evaluates to false, this operator returns true. Otherwise, this operator returns true if the right operand evaluates to true, and the empty collection ({ }) otherwise.
             if (evaluatesToBoolean(left) && evaluatesToBoolean(right)) {
                 // !left || right
@@ -974,7 +1057,6 @@ public class FHIRPathEvaluator {
                 result = SINGLETON_TRUE;
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -996,14 +1078,21 @@ public class FHIRPathEvaluator {
 
             String operator = ctx.getChild(1).getText();
 
-            Collection<FHIRPathNode> result = "is".equals(operator) ? SINGLETON_FALSE : new ArrayList<>();
-
             String qualifiedIdentifier = getString(visit(ctx.typeSpecifier()));
             FHIRPathType type = FHIRPathType.from(qualifiedIdentifier);
             if (type == null) {
                 throw new IllegalArgumentException(String.format("Argument '%s' cannot be resolved to a valid type identifier", qualifiedIdentifier));
             }
 
+            Collection<FHIRPathNode> result = typeExpression(operator, nodes, type);
+
+            indentLevel--;
+            return result;
+        }
+
+        static Collection<FHIRPathNode> typeExpression(String operator, Collection<FHIRPathNode> nodes, FHIRPathType type) {
+            Collection<FHIRPathNode> result = "is".equals(operator) ? SINGLETON_FALSE : new ArrayList<>();
+
             switch (operator) {
             case "is":
                 if (nodes.size() > 1) {
@@ -1024,7 +1113,6 @@ public class FHIRPathEvaluator {
                 break;
             }
 
-            indentLevel--;
             return result;
         }
 
@@ -1371,30 +1459,48 @@ public class FHIRPathEvaluator {
         /**
          * Create an evaluation context where the passed resource is the context root.
          * Sets %resource and %rootResource external constants to the passed resource, but these can be overridden.
+         * The nodes of the underlying {@link FHIRPathTree} are created as they are navigated.
          *
          * @param resource
          *     the resource
          */
         public EvaluationContext(Resource resource) {
-            this(FHIRPathTree.tree(resource));
+            this(FHIRPathTree.lazyTree(resource));
             externalConstantMap.put("rootResource", singleton(tree.getRoot()));
             externalConstantMap.put("resource", singleton(tree.getRoot()));
         }
 
         /**
          * Create an evaluation context where the passed element is the context root.
+         * The nodes of the underlying {@link FHIRPathTree} are created as they are navigated.
          *
          * @param element
          *     the element
          */
         public EvaluationContext(Element element) {
-            this(FHIRPathTree.tree(element));
+            this(FHIRPathTree.lazyTree(element));
         }
 
         private EvaluationContext(FHIRPathTree tree) {
             this.tree = tree;
         }
 
+        /**
+         * Create a new evaluation context that shares the FHIRPath tree of this EvaluationContext and starts with
+         * a copy of its external constants (but no constraint and no issues).
+         *
+         * <p>EvaluationContext instances are not thread-safe; threads that evaluate expressions against the same
+         * tree concurrently must each use their own copy (and their own {@link FHIRPathEvaluator}).
+         *
+         * @return
+         *     a new EvaluationContext instance
+         */
+        public EvaluationContext copy() {
+            EvaluationContext copy = new EvaluationContext(tree);
+            copy.externalConstantMap.putAll(externalConstantMap);
+            return copy;
+        }
+
         /**
          * Get the FHIRPath tree associated with this EvaluationContext
          *
@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.exception.FHIRPathException;
+
+/**
+ * Executes the FHIRPath specification tests with both the compiled and the interpreted evaluator and
+ * verifies that they produce the same results
+ */
+public class FHIRPathCompiledEvaluatorTest {
+    private final FHIRPathEvaluator compiledEvaluator = FHIRPathEvaluator.evaluator(true);
+    private final FHIRPathEvaluator interpretingEvaluator = FHIRPathEvaluator.evaluator(false);
+
+    @Test(dataProvider = "provideAllTestData", dataProviderClass = FHIRPathSpecTest.class)
+    public void testCompiledMatchesInterpreted(String testName, EvaluationContext context, FHIRPathSpecTest.TestExpression expression,
+            List<FHIRPathSpecTest.ExpectedOutput> outputs, boolean isPredicate) throws Exception {
+        if (expression.text.contains("now()") || expression.text.contains("timeOfDay()") || expression.text.contains("today()")) {
+            throw new SkipException("result depends on the time of evaluation");
+        }
+
+        Object interpreted = evaluate(interpretingEvaluator, context, expression.text);
+        Object compiled = evaluate(compiledEvaluator, context, expression.text);
+
+        assertEquals(compiled, interpreted, testName + ": " + expression.text);
+    }
+
+    @Test
+    public void testNullExternalConstant() {
+        Patient patient = Patient.builder()
+                .id("test")
+                .name(HumanName.builder().family(string("Doe")).build())
+                .build();
+        for (String expr : new String[] { "%unset.name", "%unset.name.family", "%c.name", "%c.name.family", "%c.exists()" }) {
+            EvaluationContext context = new EvaluationContext(patient);
+            context.setExternalConstant("c", (Collection<FHIRPathNode>) null);
+            assertEquals(evaluate(compiledEvaluator, context, expr), evaluate(interpretingEvaluator, context, expr), expr);
+        }
+    }
+
+    private Object evaluate(FHIRPathEvaluator evaluator, EvaluationContext context, String expr) {
+        try {
+            Collection<FHIRPathNode> result = evaluator.evaluate(context, expr);
+            return new ArrayList<>(result).toString();
+        } catch (FHIRPathException e) {
+            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+            return cause.getClass().getName();
+        }
+    }
+}
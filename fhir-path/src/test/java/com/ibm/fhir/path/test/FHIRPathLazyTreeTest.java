@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.path.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.examples.Index;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.spec.test.R4ExamplesDriver;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathTree;
+
+/**
+ * Verifies that lazy FHIRPath trees have the same nodes as eagerly built trees
+ */
+public class FHIRPathLazyTreeTest {
+    @Test
+    public void testLazyTreeMatchesEagerTree() throws Exception {
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor((jsonFile, resource) -> compareTrees(resource));
+        driver.processIndex(Index.MINIMAL_JSON);
+    }
+
+    @Test
+    public void testGetNodeCreatesAncestors() throws Exception {
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor((jsonFile, resource) -> compareLookups(resource));
+        driver.processIndex(Index.MINIMAL_JSON);
+    }
+
+    private void compareTrees(Resource resource) {
+        FHIRPathTree eager = FHIRPathTree.tree(resource);
+        FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+        assertFalse(eager.isLazy());
+        assertTrue(lazy.isLazy());
+
+        List<FHIRPathNode> expected = eager.getRoot().stream().collect(Collectors.toList());
+        List<FHIRPathNode> actual = lazy.getRoot().stream().collect(Collectors.toList());
+        assertEquals(actual.size(), expected.size());
+
+        Iterator<FHIRPathNode> iterator = actual.iterator();
+        for (FHIRPathNode expectedNode : expected) {
+            FHIRPathNode actualNode = iterator.next();
+            assertSameNode(actualNode, expectedNode);
+            assertEquals(actualNode.children().size(), expectedNode.children().size());
+            if (expectedNode.path() != null) {
+                assertSame(lazy.getNode(expectedNode.path()), actualNode);
+                FHIRPathNode expectedParent = eager.getParent(expectedNode);
+                if (expectedParent == null) {
+                    assertNull(lazy.getParent(actualNode));
+                } else {
+                    assertSameNode(lazy.getParent(actualNode), expectedParent);
+                }
+            }
+        }
+    }
+
+    private void assertSameNode(FHIRPathNode actual, FHIRPathNode expected) {
+        assertEquals(actual.getClass(), expected.getClass());
+        assertEquals(actual.name(), expected.name());
+        assertEquals(actual.path(), expected.path());
+        assertEquals(actual.type(), expected.type());
+        assertEquals(actual.hasValue(), expected.hasValue());
+        if (expected.hasValue()) {
+            assertEquals(actual.getValue().toString(), expected.getValue().toString());
+        }
+        if (expected.isElementNode()) {
+            assertSame(actual.asElementNode().element(), expected.asElementNode().element());
+        } else if (expected.isResourceNode()) {
+            assertSame(actual.asResourceNode().resource(), expected.asResourceNode().resource());
+        }
+    }
+
+    private void compareLookups(Resource resource) {
+        FHIRPathTree eager = FHIRPathTree.tree(resource);
+        List<FHIRPathNode> expected = eager.getRoot().stream()
+                .filter(node -> node.path() != null)
+                .collect(Collectors.toList());
+
+        // look up the deepest nodes first so that their ancestors get created on demand
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            FHIRPathNode expectedNode = expected.get(i);
+            FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+            FHIRPathNode actualNode = lazy.getNode(expectedNode.path());
+            assertNotNull(actualNode, expectedNode.path());
+            assertSameNode(actualNode, expectedNode);
+            if (i > 0 && i % 64 != 0) {
+                // limit the number of trees created for large examples
+                i = Math.max(0, i - 7);
+            }
+        }
+
+        FHIRPathTree lazy = FHIRPathTree.lazyTree(resource);
+        assertNull(lazy.getNode(eager.getRoot().path() + ".doesNotExist"));
+        assertNull(lazy.getNode("DoesNotExist.id"));
+    }
+}
@@ -10,6 +10,8 @@ import java.sql.Connection;
 
 import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.INameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IResourceCache;
 
 /**
  * Manages caches separated by tenant
@@ -42,6 +44,18 @@ public interface FHIRPersistenceJDBCCache {
      */
     INameIdCache<Integer> getParameterNameCache();
 
+    /**
+     * Getter for the cache of parsed resources used by read and vread
+     * @return the resource cache, or null if resource caching is disabled
+     */
+    IResourceCache getResourceCache();
+
+    /**
+     * Getter for the cache of search queries built by the JDBCQueryBuilder
+     * @return the query cache, or null if query caching is disabled
+     */
+    IQueryCache getQueryCache();
+
     /**
      * Tell any caches that the transaction on the current thread has just committed
      */
@@ -12,6 +12,8 @@ import java.util.logging.Logger;
 import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.INameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IResourceCache;
 
 /**
  * Aggregates and manages the individual caches used for a tenant
@@ -25,6 +27,12 @@ public class FHIRPersistenceJDBCCacheImpl implements FHIRPersistenceJDBCCache {
     
     private final ICommonTokenValuesCache resourceReferenceCache;
 
+    // optional cache of parsed resources (null if disabled)
+    private final IResourceCache resourceCache;
+
+    // optional cache of search queries (null if disabled)
+    private final IQueryCache queryCache;
+
     // flag to allow one lucky caller to get the opportunity to prefill
     private final AtomicBoolean needToPrefillFlag = new AtomicBoolean(true);
     
@@ -35,9 +43,36 @@ public class FHIRPersistenceJDBCCacheImpl implements FHIRPersistenceJDBCCache {
      * @param resourceReferenceCache
      */
     public FHIRPersistenceJDBCCacheImpl(INameIdCache<Integer> resourceTypeCache, INameIdCache<Integer> parameterNameCache, ICommonTokenValuesCache resourceReferenceCache) {
+        this(resourceTypeCache, parameterNameCache, resourceReferenceCache, null);
+    }
+
+    /**
+     * Public constructor
+     * @param resourceTypeCache
+     * @param parameterNameCache
+     * @param resourceReferenceCache
+     * @param resourceCache the cache of parsed resources, or null to disable resource caching
+     */
+    public FHIRPersistenceJDBCCacheImpl(INameIdCache<Integer> resourceTypeCache, INameIdCache<Integer> parameterNameCache, ICommonTokenValuesCache resourceReferenceCache,
+            IResourceCache resourceCache) {
+        this(resourceTypeCache, parameterNameCache, resourceReferenceCache, resourceCache, null);
+    }
+
+    /**
+     * Public constructor
+     * @param resourceTypeCache
+     * @param parameterNameCache
+     * @param resourceReferenceCache
+     * @param resourceCache the cache of parsed resources, or null to disable resource caching
+     * @param queryCache the cache of search queries, or null to disable query caching
+     */
+    public FHIRPersistenceJDBCCacheImpl(INameIdCache<Integer> resourceTypeCache, INameIdCache<Integer> parameterNameCache, ICommonTokenValuesCache resourceReferenceCache,
+            IResourceCache resourceCache, IQueryCache queryCache) {
         this.resourceTypeCache = resourceTypeCache;
         this.parameterNameCache = parameterNameCache;
         this.resourceReferenceCache = resourceReferenceCache;
+        this.resourceCache = resourceCache;
+        this.queryCache = queryCache;
     }
 
     /**
@@ -58,6 +93,16 @@ public class FHIRPersistenceJDBCCacheImpl implements FHIRPersistenceJDBCCache {
     public INameIdCache<Integer> getParameterNameCache() {
         return parameterNameCache;
     }
+
+    @Override
+    public IResourceCache getResourceCache() {
+        return this.resourceCache;
+    }
+
+    @Override
+    public IQueryCache getQueryCache() {
+        return this.queryCache;
+    }
     
     @Override
     public void transactionCommitted() {
@@ -65,6 +110,12 @@ public class FHIRPersistenceJDBCCacheImpl implements FHIRPersistenceJDBCCache {
         resourceTypeCache.updateSharedMaps();
         parameterNameCache.updateSharedMaps();
         resourceReferenceCache.updateSharedMaps();
+        if (resourceCache != null) {
+            resourceCache.updateSharedMaps();
+        }
+        if (queryCache != null) {
+            queryCache.updateSharedMaps();
+        }
     }
 
     @Override
@@ -73,6 +124,13 @@ public class FHIRPersistenceJDBCCacheImpl implements FHIRPersistenceJDBCCache {
         resourceTypeCache.clearLocalMaps();
         parameterNameCache.clearLocalMaps();
         resourceReferenceCache.clearLocalMaps();
+        if (resourceCache != null) {
+            // the versions we may have skipped are now stale, so evict them just like a commit
+            resourceCache.updateSharedMaps();
+        }
+        if (queryCache != null) {
+            queryCache.clearLocalMaps();
+        }
     }
 
     @Override
@@ -11,6 +11,8 @@ import java.util.Map;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IResourceCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ResourceDAO;
 
@@ -24,9 +26,39 @@ public class FHIRPersistenceJDBCCacheUtil {
      * @return
      */
     public static FHIRPersistenceJDBCCache create(int codeSystemCacheSize, int tokenValueCacheSize) {
+        return create(codeSystemCacheSize, tokenValueCacheSize, 0, 0);
+    }
+
+    /**
+     * Factory function to create a new cache instance, including a cache of parsed resources
+     * if resourceCacheSize is greater than zero
+     * @param codeSystemCacheSize
+     * @param tokenValueCacheSize
+     * @param resourceCacheSize the max number of resources to cache
+     * @param resourceCacheMaxBytes the max total length of the cached resources as compact JSON
+     * @return
+     */
+    public static FHIRPersistenceJDBCCache create(int codeSystemCacheSize, int tokenValueCacheSize, int resourceCacheSize, long resourceCacheMaxBytes) {
+        return create(codeSystemCacheSize, tokenValueCacheSize, resourceCacheSize, resourceCacheMaxBytes, 0);
+    }
+
+    /**
+     * Factory function to create a new cache instance, including a cache of parsed resources
+     * if resourceCacheSize is greater than zero and a cache of search queries if queryCacheSize
+     * is greater than zero
+     * @param codeSystemCacheSize
+     * @param tokenValueCacheSize
+     * @param resourceCacheSize the max number of resources to cache
+     * @param resourceCacheMaxBytes the max total length of the cached resources as compact JSON
+     * @param queryCacheSize the max number of search queries to cache
+     * @return
+     */
+    public static FHIRPersistenceJDBCCache create(int codeSystemCacheSize, int tokenValueCacheSize, int resourceCacheSize, long resourceCacheMaxBytes,
+            int queryCacheSize) {
         ICommonTokenValuesCache rrc = new CommonTokenValuesCacheImpl(codeSystemCacheSize, tokenValueCacheSize);
-        return new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc);
-        
+        IResourceCache rc = resourceCacheSize > 0 ? new ResourceCacheImpl(resourceCacheSize, resourceCacheMaxBytes) : null;
+        IQueryCache qc = queryCacheSize > 0 ? new QueryCacheImpl(queryCacheSize) : null;
+        return new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc, rc, qc);
     }
     /**
      * Prefill the cache with constants already committed in the database
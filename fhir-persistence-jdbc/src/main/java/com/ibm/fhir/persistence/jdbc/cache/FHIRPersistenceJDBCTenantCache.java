@@ -73,7 +73,11 @@ public class FHIRPersistenceJDBCTenantCache {
             } else {
                 int externalSystemCacheSize = pg.getIntProperty("externalSystemCacheSize", 1000);
                 int externalValueCacheSize = pg.getIntProperty("externalValueCacheSize", 100000);
-                return FHIRPersistenceJDBCCacheUtil.create(externalSystemCacheSize, externalValueCacheSize);
+                int resourceCacheSize = pg.getIntProperty("resourceCacheSize", 0);
+                long resourceCacheMaxBytes = pg.getIntProperty("resourceCacheMaxBytes", 64 * 1024 * 1024);
+                int queryCacheSize = pg.getIntProperty("queryCacheSize", 0);
+                return FHIRPersistenceJDBCCacheUtil.create(externalSystemCacheSize, externalValueCacheSize, resourceCacheSize, resourceCacheMaxBytes,
+                        queryCacheSize);
             }
         } catch (IllegalStateException ise) {
             throw ise;
@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache;
+import com.ibm.fhir.persistence.jdbc.util.SqlQueryData;
+
+/**
+ * Implementation of a shared LRU cache of search queries. Entries added by a transaction
+ * are held in a thread-local map until the transaction commits. The metrics of the cache
+ * are logged at level INFO every {@link #METRICS_LOG_INTERVAL} lookups.
+ */
+public class QueryCacheImpl implements IQueryCache {
+    private static final Logger logger = Logger.getLogger(QueryCacheImpl.class.getName());
+
+    // The number of lookups between two log lines with the metrics of the cache
+    public static final long METRICS_LOG_INTERVAL = 10000;
+
+    // The queries added by the current thread's transaction
+    private final ThreadLocal<Map<String, SqlQueryData>> local = new ThreadLocal<>();
+
+    // The lru cache shared at the server level
+    private final ConcurrentLRUCache<String, SqlQueryData> shared;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong lookupCount = new AtomicLong();
+
+    /**
+     * Public constructor
+     * @param maxSize the maximum number of queries held in the shared cache
+     */
+    public QueryCacheImpl(int maxSize) {
+        this.shared = new ConcurrentLRUCache<>(maxSize);
+    }
+
+    @Override
+    public SqlQueryData getQuery(String signature) {
+        SqlQueryData result = null;
+        Map<String, SqlQueryData> localMap = local.get();
+        if (localMap != null) {
+            result = localMap.get(signature);
+        }
+
+        if (result == null) {
+            result = shared.get(signature);
+        }
+
+        if (result != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        if (lookupCount.incrementAndGet() % METRICS_LOG_INTERVAL == 0) {
+            FHIRRequestContext context = FHIRRequestContext.get();
+            logger.info("Query cache metrics for tenant '" + context.getTenantId() + "', datastore '"
+                    + context.getDataStoreId() + "': " + getMetrics());
+        }
+        return result;
+    }
+
+    @Override
+    public void addQuery(String signature, SqlQueryData query) {
+        Map<String, SqlQueryData> localMap = local.get();
+        if (localMap == null) {
+            localMap = new HashMap<>();
+            local.set(localMap);
+        }
+        localMap.put(signature, query);
+    }
+
+    @Override
+    public void updateSharedMaps() {
+        Map<String, SqlQueryData> localMap = local.get();
+        if (localMap != null) {
+            shared.putAll(localMap);
+            localMap.clear();
+        }
+    }
+
+    @Override
+    public void clearLocalMaps() {
+        Map<String, SqlQueryData> localMap = local.get();
+        if (localMap != null) {
+            localMap.clear();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public String getMetrics() {
+        return String.format("size=%d, maxSize=%d, hits=%d, misses=%d, hitRate=%.1f%%",
+                shared.size(), shared.getMaxEntries(), getHitCount(), getMissCount(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.jdbc.dao.api.IResourceCache;
+
+/**
+ * Implementation of a shared LRU cache of parsed resources. Only one version of each
+ * logical resource is held, which is normally the current version. The cache is bounded
+ * by the number of entries and by the total length of the entries as compact JSON. The parsed
+ * resources take several times more heap than their JSON, but in proportion to it, so the JSON
+ * length bound limits the heap used by the cache where the (compressed) stored payload size would not.
+ */
+public class ResourceCacheImpl implements IResourceCache {
+
+    // The logical resources written by the current thread's transaction
+    private final ThreadLocal<Set<String>> changedResources = new ThreadLocal<>();
+
+    // The lru cache shared at the server level, in access order
+    private final LinkedHashMap<String, ResourceCacheEntry> resourceCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // The maximum number of entries permitted inside the cache
+    private final int maxSize;
+
+    // The maximum total JSON length of the entries inside the cache
+    private final long maxJsonBytes;
+
+    // The current total JSON length of the entries inside the cache
+    private long jsonBytes;
+
+    /**
+     * Public constructor
+     * @param maxSize
+     * @param maxJsonBytes
+     */
+    public ResourceCacheImpl(int maxSize, long maxJsonBytes) {
+        this.maxSize = maxSize;
+        this.maxJsonBytes = maxJsonBytes;
+    }
+
+    @Override
+    public Resource getResource(String resourceType, String logicalId, int versionId) {
+        final String key = makeKey(resourceType, logicalId);
+        if (isChanged(key)) {
+            return null;
+        }
+
+        ResourceCacheEntry entry;
+        synchronized (this.resourceCache) {
+            entry = resourceCache.get(key);
+        }
+        return entry != null && entry.versionId == versionId ? entry.resource : null;
+    }
+
+    @Override
+    public void addResource(String resourceType, String logicalId, int versionId, Resource resource, int jsonSize) {
+        final String key = makeKey(resourceType, logicalId);
+        if (isChanged(key) || jsonSize > maxJsonBytes) {
+            return;
+        }
+
+        synchronized (this.resourceCache) {
+            ResourceCacheEntry existing = resourceCache.get(key);
+            if (existing != null) {
+                if (existing.versionId >= versionId) {
+                    // don't replace a newer version
+                    return;
+                }
+                jsonBytes -= existing.jsonSize;
+            }
+            resourceCache.put(key, new ResourceCacheEntry(versionId, resource, jsonSize));
+            jsonBytes += jsonSize;
+
+            // eject the least recently used entries until we're back within our bounds
+            Iterator<ResourceCacheEntry> it = resourceCache.values().iterator();
+            while ((resourceCache.size() > maxSize || jsonBytes > maxJsonBytes) && it.hasNext()) {
+                jsonBytes -= it.next().jsonSize;
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void resourceChanged(String resourceType, String logicalId) {
+        Set<String> changed = changedResources.get();
+        if (changed == null) {
+            changed = new HashSet<>();
+            changedResources.set(changed);
+        }
+        changed.add(makeKey(resourceType, logicalId));
+    }
+
+    @Override
+    public void updateSharedMaps() {
+        Set<String> changed = changedResources.get();
+        if (changed != null && !changed.isEmpty()) {
+            synchronized (this.resourceCache) {
+                for (String key: changed) {
+                    ResourceCacheEntry entry = resourceCache.remove(key);
+                    if (entry != null) {
+                        jsonBytes -= entry.jsonSize;
+                    }
+                }
+            }
+
+            // clear the thread-local set
+            changed.clear();
+        }
+    }
+
+    /**
+     * Get the number of entries currently held in the cache
+     * @return
+     */
+    public int size() {
+        synchronized (this.resourceCache) {
+            return resourceCache.size();
+        }
+    }
+
+    private boolean isChanged(String key) {
+        Set<String> changed = changedResources.get();
+        return changed != null && changed.contains(key);
+    }
+
+    private static String makeKey(String resourceType, String logicalId) {
+        return resourceType + "/" + logicalId;
+    }
+
+    /**
+     * A cached resource version
+     */
+    private static class ResourceCacheEntry {
+        private final int versionId;
+        private final Resource resource;
+        private final int jsonSize;
+
+        private ResourceCacheEntry(int versionId, Resource resource, int jsonSize) {
+            this.versionId = versionId;
+            this.resource = resource;
+            this.jsonSize = jsonSize;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (this.resourceCache) {
+            return "ResourceCacheImpl[size=" + resourceCache.size() + ", jsonBytes=" + jsonBytes + "]";
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.dao.api;
+
+import com.ibm.fhir.persistence.jdbc.util.SqlQueryData;
+
+/**
+ * An interface for a cache of the search queries built by the JDBCQueryBuilder, keyed by
+ * the signature of the search (see SearchQuerySignature). The same search always builds the
+ * same SQL and bind variables, so a cached query can be executed again as-is.
+ * 
+ * A query may refer to code systems or parameter names which were added to the database
+ * by the current transaction, so new entries are only visible to the current thread until
+ * the transaction commits.
+ */
+public interface IQueryCache {
+
+    /**
+     * Get the cached query for the given search signature
+     * @param signature
+     * @return the query, or null if the search is not cached
+     */
+    SqlQueryData getQuery(String signature);
+
+    /**
+     * Add the query built for the given search signature. The entry is local to the
+     * current thread until the transaction commits.
+     * @param signature
+     * @param query
+     */
+    void addQuery(String signature, SqlQueryData query);
+
+    /**
+     * Called after the transaction on the current thread has committed to make the
+     * queries added by the transaction visible to other threads
+     */
+    void updateSharedMaps();
+
+    /**
+     * Called after the transaction on the current thread has rolled back to discard
+     * the queries added by the transaction
+     */
+    void clearLocalMaps();
+
+    /**
+     * @return the number of lookups which found a cached query
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of lookups which did not find a cached query
+     */
+    long getMissCount();
+
+    /**
+     * @return the fraction of lookups which found a cached query, or 0 if there were no lookups
+     */
+    double getHitRate();
+
+    /**
+     * @return a summary of the metrics of this cache, for logging
+     */
+    String getMetrics();
+}
@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.dao.api;
+
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * An interface for a cache of parsed resources, keyed by resource type, logical id
+ * and version. Resource versions are immutable, so an entry can be used for as long
+ * as the caller knows (from the database) that it wants that version.
+ * 
+ * Versions created by the current transaction are not visible to other transactions,
+ * so the cache tracks the logical resources written by the current thread and ignores
+ * them until the transaction completes.
+ */
+public interface IResourceCache {
+
+    /**
+     * Get the cached resource for the given version
+     * @param resourceType
+     * @param logicalId
+     * @param versionId
+     * @return the resource, or null if the version is not cached
+     */
+    Resource getResource(String resourceType, String logicalId, int versionId);
+
+    /**
+     * Add the given (committed) resource version to the cache. Ignored if the logical
+     * resource has been written by the transaction on the current thread.
+     * @param resourceType
+     * @param logicalId
+     * @param versionId
+     * @param resource
+     * @param jsonSize the length of the resource as compact JSON, used to bound the size of the cache
+     */
+    void addResource(String resourceType, String logicalId, int versionId, Resource resource, int jsonSize);
+
+    /**
+     * Record that the transaction on the current thread has written a new version
+     * of the given logical resource
+     * @param resourceType
+     * @param logicalId
+     */
+    void resourceChanged(String resourceType, String logicalId);
+
+    /**
+     * Called after the transaction on the current thread has completed (committed
+     * or rolled back) to remove the previous versions of the logical resources
+     * written by the transaction from the shared cache.
+     */
+    void updateSharedMaps();
+}
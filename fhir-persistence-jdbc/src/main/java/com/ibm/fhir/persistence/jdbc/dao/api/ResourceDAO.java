@@ -49,6 +49,19 @@ public interface ResourceDAO extends FHIRDbDAO {
     Resource versionRead(String logicalId, String resourceType, int versionId)
             throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
+    /**
+     * Reads the version id and deleted flag of the current version of the Resource with the passed
+     * logical id and resource type, without reading the resource payload. The data of the
+     * returned Resource DTO is null. If no matching resource is found, null is returned.
+     * @param logicalId
+     * @param resourceType
+     * @return Resource - The current version info of the Resource, or null if not found.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    Resource readVersionInfo(String logicalId, String resourceType)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
     /**
      * Reads and returns all versions of the Resource with the passed logicalId, ordered by descending version id.
      * If non-null, the passed fromDateTime is used to limit the returned Resource
@@ -63,6 +76,25 @@ public interface ResourceDAO extends FHIRDbDAO {
     List<Resource> history(String resourceType, String logicalId, Timestamp fromDateTime, int offset, int maxResults)
             throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
+    /**
+     * Reads and returns up to maxResults current, non-deleted Resources of the passed type, ordered by
+     * LAST_UPDATED and then RESOURCE_ID, which follow the passed (afterLastUpdated, afterResourceId) key.
+     * The key is compared by value rather than skipped by offset, so reading a page costs the same however
+     * far into the table it is.
+     * @param resourceType - The name of a FHIR Resource type
+     * @param fromLastUpdated - If non-null, only Resources updated at or after this time are returned.
+     * @param toLastUpdated - If non-null, only Resources updated before this time are returned.
+     * @param afterLastUpdated - If non-null, the LAST_UPDATED of the key to start after.
+     * @param afterResourceId - The RESOURCE_ID of the key to start after; ignored if afterLastUpdated is null.
+     * @param maxResults - The maximum number of Resources to return.
+     * @return List<Resource> - An ordered list of Resources.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    List<Resource> readAfter(String resourceType, Timestamp fromLastUpdated, Timestamp toLastUpdated,
+            Timestamp afterLastUpdated, long afterResourceId, int maxResults)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
     /**
      * Reads and returns the COUNT of all versions of the Resource with the passed logicalId.
      * If non-null, the passed fromDateTime is used to limit the count of Resource versions to those that were updated after the fromDateTime.
@@ -91,9 +123,8 @@ public interface ResourceDAO extends FHIRDbDAO {
      * @return List<String> A list of strings satisfying the passed search.
      * @throws FHIRPersistenceDataAccessException
      * @throws FHIRPersistenceDBConnectException
-     * @implNote This method is used within searches which have _include or _revinclude parameters
-     *           in order to return a list of Reference values (e.g. {@code "Patient/<UUID>"})
-     *           to use for filtering the list of resources to be included with the response.
+     * @implNote This method is used within searches which have chained parameters in order to return
+     *           the list of logical ids matched by a link of the chain.
      */
     List<String> searchStringValues(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
@@ -149,6 +180,27 @@ public interface ResourceDAO extends FHIRDbDAO {
      */
     int searchCount(String sqlSelectCount) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
 
+    /**
+     * Estimates the result of the count query contained in the passed SqlQueryData from the query optimizer's
+     * cardinality estimate, without executing the query.
+     * @param queryData - Contains a count search string and (optionally) bind variables.
+     * @return int - The estimated count, or -1 if the database cannot provide an estimate.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    int searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
+    /**
+     * Estimates the number of logical resources of the passed type from the table statistics of the database.
+     * The statistics cover all logical resources, including the deleted ones, so this is only used where the
+     * database cannot estimate the number of non-deleted resources from the count query itself (i.e. on Db2).
+     * @param resourceType - The type of the FHIR Resource
+     * @return int - The estimated count, or -1 if no statistics are available.
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     */
+    int estimateResourceCount(String resourceType) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException;
+
     /**
      * Sets the current persistence context
      * @param context
@@ -196,4 +248,25 @@ public interface ResourceDAO extends FHIRDbDAO {
      */
     Resource insert(Resource resource, List<ExtractedParameterValue> parameters, ParameterDAO parameterDao)
             throws FHIRPersistenceException;
-}
\ No newline at end of file
+
+    /**
+     * Inserts the passed Resource DTOs and their associated search parameters to the appropriate FHIR resource tables,
+     * in the order given. After insert, the generated primary key is acquired and set in each Resource object.
+     * Implementations may defer writing the search parameters of the resources so that they can be flushed together.
+     * @param resources A list of Resource Data Transfer Objects
+     * @param parameters The search parameters to be persisted along with each of the passed Resources (same order)
+     * @param parameterDao The Parameter DAO
+     * @return the passed list of Resource DTOs
+     * @throws FHIRPersistenceDataAccessException
+     * @throws FHIRPersistenceDBConnectException
+     * @throws FHIRPersistenceVersionIdMismatchException
+     * @throws FHIRPersistenceException
+     */
+    default List<Resource> insertAll(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        for (int i = 0; i < resources.size(); i++) {
+            insert(resources.get(i), parameters.get(i), parameterDao);
+        }
+        return resources;
+    }
+}
@@ -57,7 +57,7 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
     private final int batchSize;
 
     // FK to the logical resource for the parameters being added
-    private final long logicalResourceId;
+    private long logicalResourceId;
 
     // Maintainers: remember to close all statements in AutoCloseable#close()
     private final String insertString;
@@ -222,6 +222,15 @@ public class ParameterVisitorBatchDAO implements ExtractedParameterValueVisitor,
         return identityCache.getCodeSystemId(codeSystem);
     }
 
+    /**
+     * Set the logical resource for the parameters visited from now on. This allows the parameters of
+     * several resources of the same type to be added to the same batches and flushed together.
+     * @param logicalResourceId
+     */
+    public void setLogicalResourceId(long logicalResourceId) {
+        this.logicalResourceId = logicalResourceId;
+    }
+
     @Override
     public void visit(StringParmVal param) throws FHIRPersistenceException {
         String parameterName = param.getName();
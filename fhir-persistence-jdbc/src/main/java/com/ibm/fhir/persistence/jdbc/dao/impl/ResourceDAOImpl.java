@@ -11,6 +11,7 @@ import static com.ibm.fhir.persistence.jdbc.JDBCConstants.THEN;
 import static com.ibm.fhir.persistence.jdbc.JDBCConstants.UTC;
 import static com.ibm.fhir.persistence.jdbc.JDBCConstants.WHEN;
 
+import java.io.StringReader;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -23,13 +24,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.transaction.TransactionSynchronizationRegistry;
 
+import com.ibm.fhir.database.utils.model.DbType;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceVersionIdMismatchException;
@@ -71,6 +78,11 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
             "FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE " +
             "LR.LOGICAL_ID = ? AND R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID";
 
+    // Read the version info (but not the data) of the current version of the resource
+    private static final String SQL_READ_VERSION_INFO = "SELECT R.RESOURCE_ID, R.VERSION_ID, R.LAST_UPDATED, R.IS_DELETED " +
+            "FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE " +
+            "LR.LOGICAL_ID = ? AND R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID";
+
     // Read a specific version of the resource
     private static final String SQL_VERSION_READ =
             "SELECT R.RESOURCE_ID, R.LOGICAL_RESOURCE_ID, R.VERSION_ID, R.LAST_UPDATED, R.IS_DELETED, R.DATA, LR.LOGICAL_ID " +
@@ -105,10 +117,24 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
             "SELECT COUNT(R.VERSION_ID) FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE LR.LOGICAL_ID = ? AND " +
                     "R.LAST_UPDATED >= ? AND R.LOGICAL_RESOURCE_ID = LR.LOGICAL_RESOURCE_ID";
 
+    // Read the current, non-deleted versions of resources in (LAST_UPDATED, RESOURCE_ID) order,
+    // continuing after a given key; the range and key conditions are appended as needed
+    private static final String SQL_READ_AFTER =
+            "SELECT R.RESOURCE_ID, R.LOGICAL_RESOURCE_ID, R.VERSION_ID, R.LAST_UPDATED, R.IS_DELETED, R.DATA, LR.LOGICAL_ID " +
+                    "FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE " +
+                    "R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID AND R.IS_DELETED = 'N'";
+
+    private static final String SQL_READ_AFTER_ORDER_BY = " ORDER BY R.LAST_UPDATED, R.RESOURCE_ID ";
+
     private static final String SQL_READ_ALL_RESOURCE_TYPE_NAMES = "SELECT RESOURCE_TYPE_ID, RESOURCE_TYPE FROM RESOURCE_TYPES";
 
     private static final String SQL_READ_RESOURCE_TYPE = "CALL %s.add_resource_type(?, ?)";
 
+    // Table statistics maintained by RUNSTATS (Db2) and ANALYZE (PostgreSQL)
+    private static final String SQL_DB2_TABLE_CARDINALITY = "SELECT CARD FROM SYSCAT.TABLES WHERE TABSCHEMA = ? AND TABNAME = ?";
+
+    private static final String SQL_POSTGRESQL_EXPLAIN = "EXPLAIN (FORMAT JSON) ";
+
     private static final String SQL_SEARCH_BY_IDS =
             "SELECT R.RESOURCE_ID, R.LOGICAL_RESOURCE_ID, R.VERSION_ID, R.LAST_UPDATED, R.IS_DELETED, R.DATA, LR.LOGICAL_ID " +
                     "FROM %s_RESOURCES R, %s_LOGICAL_RESOURCES LR WHERE R.LOGICAL_RESOURCE_ID = LR.LOGICAL_RESOURCE_ID AND " +
@@ -120,6 +146,10 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
 
     private static final String DB2_PAGINATION_PARMS = "LIMIT ? OFFSET ?";
 
+    private static final String DERBY_LIMIT_PARMS = "FETCH FIRST ? ROWS ONLY";
+
+    private static final String DB2_LIMIT_PARMS = "LIMIT ?";
+
     @SuppressWarnings("unused")
     private FHIRPersistenceContext context;
 
@@ -228,6 +258,47 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
 
     }
 
+    @Override
+    public Resource readVersionInfo(String logicalId, String resourceType) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "readVersionInfo";
+        log.entering(CLASSNAME, METHODNAME);
+
+        final Connection connection = getConnection(); // do not close
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        Resource resource = null;
+        long dbCallStartTime;
+        double dbCallDuration;
+
+        try {
+            stmt = connection.prepareStatement(String.format(SQL_READ_VERSION_INFO, resourceType, resourceType));
+            stmt.setString(1, logicalId);
+            dbCallStartTime = System.nanoTime();
+            resultSet = stmt.executeQuery();
+            dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("DB read version info complete. executionTime=" + dbCallDuration + "ms");
+            }
+            if (resultSet.next()) {
+                resource = new Resource();
+                resource.setId(resultSet.getLong(1));
+                resource.setVersionId(resultSet.getInt(2));
+                resource.setLastUpdated(resultSet.getTimestamp(3, UTC));
+                resource.setDeleted("Y".equals(resultSet.getString(4)));
+                resource.setLogicalId(logicalId);
+                resource.setResourceType(resourceType);
+            }
+        } catch (Throwable e) {
+            final String errMsg = "Failure reading version info: " + resourceType + "/" + logicalId;
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException(errMsg);
+            throw severe(log, fx, e);
+        } finally {
+            this.cleanup(resultSet, stmt);
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return resource;
+    }
+
     /**
      * Creates and returns a Resource DTO based on the contents of the passed ResultSet
      *
@@ -246,7 +317,8 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         try {
             resource.setData(resultSet.getBytes("DATA"));
             resource.setId(resultSet.getLong("RESOURCE_ID"));
-            resource.setLastUpdated(resultSet.getTimestamp("LAST_UPDATED"));
+            // LAST_UPDATED is written in UTC; reading it in the default time zone would shift the keyset cursor of readAfter
+            resource.setLastUpdated(resultSet.getTimestamp("LAST_UPDATED", UTC));
             resource.setLogicalId(resultSet.getString("LOGICAL_ID"));
             resource.setVersionId(resultSet.getInt("VERSION_ID"));
             resource.setDeleted(resultSet.getString("IS_DELETED").equals("Y") ? true : false);
@@ -294,6 +366,44 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return resources;
     }
 
+    @Override
+    public List<Resource> readAfter(String resourceType, Timestamp fromLastUpdated, Timestamp toLastUpdated,
+            Timestamp afterLastUpdated, long afterResourceId, int maxResults)
+            throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "readAfter";
+        log.entering(CLASSNAME, METHODNAME);
+
+        List<Resource> resources = null;
+        List<Object> bindVariables = new ArrayList<>();
+        StringBuilder stmtString = new StringBuilder(String.format(SQL_READ_AFTER, resourceType, resourceType));
+
+        try {
+            if (fromLastUpdated != null) {
+                stmtString.append(" AND R.LAST_UPDATED >= ?");
+                bindVariables.add(fromLastUpdated);
+            }
+            if (toLastUpdated != null) {
+                stmtString.append(" AND R.LAST_UPDATED < ?");
+                bindVariables.add(toLastUpdated);
+            }
+            if (afterLastUpdated != null) {
+                // The first term lets the database use the LAST_UPDATED index to seek to the key
+                stmtString.append(" AND R.LAST_UPDATED >= ? AND (R.LAST_UPDATED > ? OR R.RESOURCE_ID > ?)");
+                bindVariables.add(afterLastUpdated);
+                bindVariables.add(afterLastUpdated);
+                bindVariables.add(afterResourceId);
+            }
+            stmtString.append(SQL_READ_AFTER_ORDER_BY);
+            stmtString.append(isDb2Database() ? DB2_LIMIT_PARMS : DERBY_LIMIT_PARMS);
+            bindVariables.add(maxResults);
+
+            resources = this.runQuery(stmtString.toString(), bindVariables.toArray());
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME, Arrays.toString(new Object[] { resources }));
+        }
+        return resources;
+    }
+
     @Override
     public int historyCount(String resourceType, String logicalId, Timestamp fromDateTime)
             throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
@@ -640,6 +750,176 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return resource;
     }
 
+    @Override
+    public List<Resource> insertAll(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        // Storing a new version of a logical resource replaces its search parameters, so the parameters of one
+        // version must be written before the next version of the same logical resource is stored.
+        Set<String> logicalResources = new HashSet<>();
+        int start = 0;
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            String key = resource.getResourceType() + "/" + resource.getLogicalId();
+            if (!logicalResources.add(key)) {
+                insertDistinct(resources.subList(start, i), parameters.subList(start, i), parameterDao);
+                logicalResources.clear();
+                logicalResources.add(key);
+                start = i;
+            }
+        }
+        if (start < resources.size()) {
+            insertDistinct(resources.subList(start, resources.size()), parameters.subList(start, resources.size()), parameterDao);
+        }
+        return resources;
+    }
+
+    /**
+     * Inserts the passed Resource DTOs, none of which is a version of the same logical resource as another,
+     * and their associated search parameters. The stored procedure is called once for each resource using a
+     * single prepared statement, then the search parameters of all the resources are written in one pass.
+     * @param resources
+     * @param parameters
+     * @param parameterDao
+     * @throws FHIRPersistenceException
+     */
+    protected void insertDistinct(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "insertDistinct";
+        log.entering(CLASSNAME, METHODNAME);
+
+        final Connection connection = getConnection(); // do not close
+        long dbCallStartTime = System.nanoTime();
+
+        try {
+            String stmtString = String.format(SQL_INSERT_WITH_PARAMETERS, getSchemaName());
+            try (CallableStatement stmt = connection.prepareCall(stmtString)) {
+                for (Resource resource : resources) {
+                    cacheResourceTypeId(resource.getResourceType());
+
+                    stmt.setString(1, resource.getResourceType());
+                    stmt.setString(2, resource.getLogicalId());
+                    boolean large = FhirSchemaConstants.STORED_PROCEDURE_SIZE_LIMIT < resource.getData().length;
+                    if (large) {
+                        stmt.setNull(3, Types.BLOB);
+                    } else {
+                        stmt.setBytes(3, resource.getData());
+                    }
+                    stmt.setTimestamp(4, resource.getLastUpdated(), UTC);
+                    stmt.setString(5, resource.isDeleted() ? "Y": "N");
+                    stmt.setInt(6, resource.getVersionId());
+                    stmt.registerOutParameter(7, Types.BIGINT);
+                    stmt.registerOutParameter(8, Types.BIGINT);
+                    stmt.execute();
+
+                    resource.setId(stmt.getLong(7));
+                    if (large) {
+                        String largeStmtString = String.format(LARGE_BLOB, resource.getResourceType());
+                        try (PreparedStatement ps = connection.prepareStatement(largeStmtString)) {
+                            ps.setBytes(1, resource.getData());
+                            ps.setLong(2, stmt.getLong(8));
+                            ps.execute();
+                        }
+                    }
+                }
+            }
+            double dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+
+            long paramInsertStartTime = System.nanoTime();
+            insertParameters(resources, parameters, parameterDao, "FHIR_ADMIN", true);
+
+            if (log.isLoggable(Level.FINE)) {
+                double paramInsertDuration = (System.nanoTime() - paramInsertStartTime) / 1e6;
+                log.fine("Successfully inserted " + resources.size() + " Resources. proc=" + dbCallDuration + "ms, param=" + paramInsertDuration + "ms");
+            }
+        } catch (FHIRPersistenceDBConnectException | FHIRPersistenceDataAccessException e) {
+            throw e;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            FHIRPersistenceFKVException fx = new FHIRPersistenceFKVException("Encountered FK violation while inserting Resource.");
+            throw severe(log, fx, e);
+        } catch (SQLException e) {
+            if ("99001".equals(e.getSQLState())) {
+                // this is just a concurrency update, so there's no need to log the SQLException here
+                throw new FHIRPersistenceVersionIdMismatchException("Encountered version id mismatch while inserting Resource");
+            } else {
+                FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("SQLException encountered while inserting Resource.");
+                throw severe(log, fx, e);
+            }
+        } catch (Throwable e) {
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Failure inserting Resource.");
+            throw severe(log, fx, e);
+        } finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    /**
+     * Make sure the id of the named resource type is known, adding it to the cache candidates if it had to be read
+     * from the database
+     * @param resourceType
+     * @throws FHIRPersistenceException
+     */
+    protected void cacheResourceTypeId(String resourceType) throws FHIRPersistenceException {
+        if (getResourceTypeIdFromCaches(resourceType) == null) {
+            Integer resourceTypeId = this.readResourceTypeId(resourceType);
+            this.addResourceTypeCacheCandidate(resourceType, resourceTypeId);
+        }
+    }
+
+    /**
+     * Write the search parameters of the passed resources, which have already been stored. All parameters of
+     * the same resource type share one {@link ParameterVisitorBatchDAO}, so the rows of all the resources
+     * are added to the same batches.
+     * @param resources
+     * @param parameters
+     * @param parameterDao
+     * @param adminSchemaName
+     * @param multitenant
+     * @throws Exception
+     */
+    protected void insertParameters(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao,
+            String adminSchemaName, boolean multitenant) throws Exception {
+        JDBCIdentityCache identityCache = new JDBCIdentityCacheImpl(getCache(), this, parameterDao);
+        Map<String, ParameterVisitorBatchDAO> visitors = new HashMap<>();
+        Exception failure = null;
+        try {
+            for (int i = 0; i < resources.size(); i++) {
+                List<ExtractedParameterValue> resourceParameters = parameters.get(i);
+                if (resourceParameters == null) {
+                    continue;
+                }
+                Resource resource = resources.get(i);
+                ParameterVisitorBatchDAO pvd = visitors.get(resource.getResourceType());
+                if (pvd == null) {
+                    pvd = new ParameterVisitorBatchDAO(getConnection(), adminSchemaName, resource.getResourceType(), multitenant,
+                        resource.getId(), 100, identityCache, getResourceReferenceDAO(), getTransactionData());
+                    visitors.put(resource.getResourceType(), pvd);
+                }
+                pvd.setLogicalResourceId(resource.getId());
+                for (ExtractedParameterValue p: resourceParameters) {
+                    p.accept(pvd);
+                }
+            }
+        } catch (Exception x) {
+            failure = x;
+        }
+
+        // Flush the remaining rows of each visitor, like try-with-resources would
+        for (ParameterVisitorBatchDAO pvd: visitors.values()) {
+            try {
+                pvd.close();
+            } catch (Exception x) {
+                if (failure == null) {
+                    failure = x;
+                } else {
+                    failure.addSuppressed(x);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     @Override
     public List<Resource> search(String sqlSelect) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
         final String METHODNAME = "search";
@@ -733,6 +1013,118 @@ public class ResourceDAOImpl extends FHIRDbDAOImpl implements ResourceDAO {
         return count;
     }
 
+    @Override
+    public int searchCountEstimate(SqlQueryData queryData) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "searchCountEstimate";
+        log.entering(CLASSNAME, METHODNAME);
+
+        if (getFlavor().getType() != DbType.POSTGRESQL) {
+            // Db2 needs the explain tables to be created first and Derby has no usable estimate
+            log.exiting(CLASSNAME, METHODNAME);
+            return -1;
+        }
+
+        String sql = SQL_POSTGRESQL_EXPLAIN + queryData.getQueryString();
+        Object[] bindVariables = queryData.getBindVariables().toArray();
+        String errMsg = "Failure retrieving count estimate. SQL=" + sql + "  searchArgs=" + Arrays.toString(bindVariables);
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        int estimate = -1;
+
+        try {
+            stmt = getConnection().prepareStatement(sql);
+            for (int i = 0; i < bindVariables.length; i++) {
+                if (bindVariables[i] instanceof Timestamp) {
+                    stmt.setTimestamp(i + 1, (Timestamp) bindVariables[i], UTC);
+                } else {
+                    stmt.setObject(i + 1, bindVariables[i]);
+                }
+            }
+            long dbCallStartTime = System.nanoTime();
+            resultSet = stmt.executeQuery();
+            if (resultSet.next()) {
+                try (JsonReader reader = Json.createReader(new StringReader(resultSet.getString(1)))) {
+                    JsonObject plan = reader.readArray().getJsonObject(0).getJsonObject("Plan");
+                    // the count query is an aggregate; its input is the estimated number of matching rows
+                    if ("Aggregate".equals(plan.getString("Node Type", null)) && plan.containsKey("Plans")) {
+                        plan = plan.getJsonArray("Plans").getJsonObject(0);
+                    }
+                    estimate = (int) Math.min(plan.getJsonNumber("Plan Rows").longValue(), Integer.MAX_VALUE);
+                }
+            }
+            if (log.isLoggable(Level.FINE)) {
+                double dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+                log.fine("DB search count estimate complete. estimate=" + estimate + " executionTime=" + dbCallDuration + "ms");
+            }
+        } catch (Throwable e) {
+            // Don't emit the SQL text in an exception - it risks returning it to the client in a response
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Server error: failure retrieving count estimate");
+            throw severe(log, fx, errMsg, e);
+        } finally {
+            this.cleanup(resultSet, stmt);
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return estimate;
+    }
+
+    @Override
+    public int estimateResourceCount(String resourceType) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        final String METHODNAME = "estimateResourceCount";
+        log.entering(CLASSNAME, METHODNAME);
+
+        String sql;
+        String schemaName = getSchemaName();
+        String tableName = resourceType + "_LOGICAL_RESOURCES";
+        switch (getFlavor().getType()) {
+        case DB2:
+            // the statistics of a multi-tenant schema cover the rows of all tenants
+            sql = getFlavor().isMultitenant() ? null : SQL_DB2_TABLE_CARDINALITY;
+            schemaName = schemaName == null ? null : schemaName.toUpperCase();
+            tableName = tableName.toUpperCase();
+            break;
+        default:
+            // PostgreSQL estimates the count query itself, which excludes the deleted resources
+            // that the table statistics would include
+            sql = null;
+            break;
+        }
+        if (sql == null || schemaName == null) {
+            log.exiting(CLASSNAME, METHODNAME);
+            return -1;
+        }
+
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        int estimate = -1;
+
+        try {
+            stmt = getConnection().prepareStatement(sql);
+            stmt.setString(1, schemaName);
+            stmt.setString(2, tableName);
+            long dbCallStartTime = System.nanoTime();
+            resultSet = stmt.executeQuery();
+            if (resultSet.next()) {
+                // Db2 reports -1 if the table has not been analyzed
+                double cardinality = resultSet.getDouble(1);
+                if (cardinality > 0) {
+                    estimate = (int) Math.min(cardinality, Integer.MAX_VALUE);
+                }
+            }
+            if (log.isLoggable(Level.FINE)) {
+                double dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+                log.fine("DB resource count estimate complete. estimate=" + estimate + " executionTime=" + dbCallDuration + "ms");
+            }
+        } catch (Throwable e) {
+            final String errMsg = "Failure retrieving resource count estimate: resourceType=" + resourceType;
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException(errMsg);
+            throw severe(log, fx, e);
+        } finally {
+            this.cleanup(resultSet, stmt);
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+        return estimate;
+    }
+
     @Override
     public List<String> searchStringValues(SqlQueryData queryData)
             throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
@@ -162,6 +162,18 @@ public class DerbyResourceDAO extends ResourceDAOImpl {
 
     }
 
+    /**
+     * Resources are stored one at a time, because {@link #storeResource} writes the search parameters
+     * of each resource along with it.
+     */
+    @Override
+    protected void insertDistinct(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        for (int i = 0; i < resources.size(); i++) {
+            insert(resources.get(i), parameters.get(i), parameterDao);
+        }
+    }
+
     /**
      * Store the resource in the database, creating a new logical_resource entry if this is
      * the first version of this resource, or creating a new resource entry if this a new
@@ -8,16 +8,16 @@ package com.ibm.fhir.persistence.jdbc.impl;
 
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_CODE_SYSTEMS_CACHE;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_PARAMETER_NAMES_CACHE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_DECODE_THREADS;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_PAYLOAD_CODEC;
+import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_JDBC_STAGED_CHAIN_THRESHOLD;
 import static com.ibm.fhir.config.FHIRConfiguration.PROPERTY_UPDATE_CREATE_ENABLED;
 import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.model.util.ModelSupport.getResourceType;
 import static com.ibm.fhir.persistence.jdbc.JDBCConstants.MAX_NUM_OF_COMPOSITE_COMPONENTS;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -28,6 +28,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -36,8 +38,6 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.naming.InitialContext;
 import javax.transaction.TransactionSynchronizationRegistry;
@@ -54,10 +54,6 @@ import com.ibm.fhir.core.context.FHIRPagingContext;
 import com.ibm.fhir.database.utils.api.DataAccessException;
 import com.ibm.fhir.database.utils.api.IConnectionProvider;
 import com.ibm.fhir.exception.FHIRException;
-import com.ibm.fhir.model.format.Format;
-import com.ibm.fhir.model.generator.FHIRGenerator;
-import com.ibm.fhir.model.parser.FHIRJsonParser;
-import com.ibm.fhir.model.parser.FHIRParser;
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.OperationOutcome.Issue;
 import com.ibm.fhir.model.resource.Resource;
@@ -83,6 +79,10 @@ import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
 import com.ibm.fhir.persistence.MultiResourceResult;
+import com.ibm.fhir.persistence.ResourceCursor;
+import com.ibm.fhir.persistence.ResourcePage;
+import com.ibm.fhir.persistence.ResourcePayload;
+import com.ibm.fhir.persistence.ResourceVersionInfo;
 import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
@@ -107,6 +107,7 @@ import com.ibm.fhir.persistence.jdbc.connection.SchemaNameImpl;
 import com.ibm.fhir.persistence.jdbc.connection.SchemaNameSupplier;
 import com.ibm.fhir.persistence.jdbc.connection.SetTenantAction;
 import com.ibm.fhir.persistence.jdbc.dao.ReindexResourceDAO;
+import com.ibm.fhir.persistence.jdbc.dao.api.IResourceCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.IResourceReferenceDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.JDBCIdentityCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
@@ -127,6 +128,10 @@ import com.ibm.fhir.persistence.jdbc.dto.TokenParmVal;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceDBConnectException;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceDataAccessException;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceFKVException;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadCodec;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadCodecRegistry;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadDecodeExecutor;
+import com.ibm.fhir.persistence.jdbc.payload.StoredResourcePayload;
 import com.ibm.fhir.persistence.jdbc.util.CodeSystemsCache;
 import com.ibm.fhir.persistence.jdbc.util.JDBCParameterBuildingVisitor;
 import com.ibm.fhir.persistence.jdbc.util.JDBCQueryBuilder;
@@ -140,10 +145,12 @@ import com.ibm.fhir.schema.control.FhirSchemaConstants;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SearchConstants.Modifier;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.compartment.CompartmentUtil;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.date.DateTimeHandler;
 import com.ibm.fhir.search.exception.FHIRSearchException;
+import com.ibm.fhir.search.parameters.InclusionParameter;
 import com.ibm.fhir.search.parameters.QueryParameter;
 import com.ibm.fhir.search.reference.value.CompartmentReference;
 import com.ibm.fhir.search.util.ReferenceValue;
@@ -192,6 +199,15 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
     // The shared cache, used by all requests for the same tenant/datasource
     private final FHIRPersistenceJDBCCache cache;
 
+    // The codec used to serialize resources; rows written by any registered codec can be read
+    private final PayloadCodec payloadCodec;
+
+    // Decodes the resources of search and history result pages
+    private final PayloadDecodeExecutor decodeExecutor;
+
+    // The maximum number of ids resolved by each stage of a chained search, or 0 to resolve chains in a single statement
+    private final int stagedChainThreshold;
+
     // The transactionDataImpl for use when collecting data across multiple resources in a transaction bundle
     private TransactionDataImpl<ParameterTransactionDataImpl> transactionDataImpl;
 
@@ -225,6 +241,11 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                                     Boolean.TRUE));
         ResourceTypesCache.setEnabled(fhirConfig.getBooleanProperty(PROPERTY_JDBC_ENABLE_RESOURCE_TYPES_CACHE,
                                       Boolean.TRUE));
+        this.payloadCodec = PayloadCodecRegistry.getCodec(fhirConfig.getStringProperty(PROPERTY_JDBC_PAYLOAD_CODEC,
+                                      PayloadCodecRegistry.DEFAULT_CODEC_NAME));
+        this.decodeExecutor = PayloadDecodeExecutor.getInstance(fhirConfig.getIntProperty(PROPERTY_JDBC_DECODE_THREADS,
+                                      Runtime.getRuntime().availableProcessors()));
+        this.stagedChainThreshold = fhirConfig.getIntProperty(PROPERTY_JDBC_STAGED_CHAIN_THRESHOLD, 0);
 
 
         // Set up the connection strategy for use within a JEE container. The actions
@@ -283,6 +304,10 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
         this.cache = cache;
         this.updateCreateEnabled = Boolean.parseBoolean(configProps.getProperty("updateCreateEnabled"));
+        this.payloadCodec = PayloadCodecRegistry.getCodec(configProps.getProperty("payloadCodec", PayloadCodecRegistry.DEFAULT_CODEC_NAME));
+        this.decodeExecutor = PayloadDecodeExecutor.getInstance(Integer.parseInt(configProps.getProperty("decodeThreads",
+                Integer.toString(Runtime.getRuntime().availableProcessors()))));
+        this.stagedChainThreshold = Integer.parseInt(configProps.getProperty("stagedChainThreshold", "0"));
 
         // not running inside a JEE container
         this.trxSynchRegistry = null;
@@ -332,7 +357,6 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         final String METHODNAME = "create";
         log.entering(CLASSNAME, METHODNAME);
 
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
         String logicalId;
 
         // We need to update the meta in the resource, so we need a modifiable version
@@ -350,6 +374,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                 log.fine("Creating new FHIR Resource of type '" + resource.getClass().getSimpleName() + "'");
             }
 
+            resourceChanged(resource.getClass().getSimpleName(), logicalId);
+
             // Set the resource id and meta fields.
             Instant lastUpdated = Instant.now(ZoneOffset.UTC);
             resultResourceBuilder.id(logicalId);
@@ -371,12 +397,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceDTO.setLastUpdated(timestamp);
             resourceDTO.setResourceType(updatedResource.getClass().getSimpleName());
 
-            // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
-            FHIRGenerator.generator( Format.JSON, false).generate(updatedResource, zipStream);
-            zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
-            zipStream.close();
+            // Serialize the Resource using the configured payload codec
+            resourceDTO.setData(PayloadCodecRegistry.encode(payloadCodec, updatedResource));
 
             // The DAO objects are now created on-the-fly (not expensive to construct) and
             // given the connection to use while processing this request
@@ -471,7 +493,6 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
         Class<? extends Resource> resourceType = resource.getClass();
         com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO;
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
         // Resources are immutable, so we need a new builder to update it (since R4)
         Resource.Builder resultResourceBuilder = resource.toBuilder();
@@ -479,6 +500,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         try (Connection connection = openConnection()) {
             ResourceDAO resourceDao = makeResourceDAO(connection);
             ParameterDAO parameterDao = makeParameterDAO(connection);
+            resourceChanged(resourceType.getSimpleName(), logicalId);
 
             // Assume we have no existing resource.
             int existingVersion = 0;
@@ -545,12 +567,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceDTO.setLastUpdated(timestamp);
             resourceDTO.setResourceType(updatedResource.getClass().getSimpleName());
 
-            // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
-            FHIRGenerator.generator(Format.JSON, false).generate(updatedResource, zipStream);
-            zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
-            zipStream.close();
+            // Serialize the Resource using the configured payload codec
+            resourceDTO.setData(PayloadCodecRegistry.encode(payloadCodec, updatedResource));
 
             // Persist the Resource DTO.
             resourceDao.setPersistenceContext(context);
@@ -591,6 +609,219 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         }
     }
 
+    @Override
+    public <T extends Resource> List<SingleResourceResult<T>> createAll(FHIRPersistenceContext context, List<T> resources)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "createAll";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try (Connection connection = openConnection()) {
+            ResourceDAO resourceDao = makeResourceDAO(connection);
+            ParameterDAO parameterDao = makeParameterDAO(connection);
+
+            // Allocate the logical ids for the whole batch in one go. As in create(), any
+            // id in the given resources is ignored. Default version is 1 for brand new resources.
+            List<String> logicalIds = logicalIdentityProvider.createNewIdentityValues(resources.size());
+            Instant lastUpdated = Instant.now(ZoneOffset.UTC);
+
+            List<SingleResourceResult<T>> results = new ArrayList<>(Collections.nCopies(resources.size(), null));
+            List<Integer> resultIndexes = new ArrayList<>(resources.size());
+            List<T> updatedResources = new ArrayList<>(resources.size());
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOs = new ArrayList<>(resources.size());
+            List<List<ExtractedParameterValue>> parameters = new ArrayList<>(resources.size());
+            for (int i = 0; i < resources.size(); i++) {
+                resourceChanged(resources.get(i).getClass().getSimpleName(), logicalIds.get(i));
+                try {
+                    T updatedResource = updateIdAndMeta(resources.get(i), logicalIds.get(i), 1, lastUpdated);
+                    com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = createResourceDTO(updatedResource, logicalIds.get(i), 1, lastUpdated);
+                    List<ExtractedParameterValue> resourceParameters = this.extractSearchParameters(updatedResource, resourceDTO);
+                    resultIndexes.add(i);
+                    updatedResources.add(updatedResource);
+                    resourceDTOs.add(resourceDTO);
+                    parameters.add(resourceParameters);
+                } catch (Exception e) {
+                    results.set(i, buildPreparationFailureResult(e));
+                }
+            }
+
+            // Persist all the Resource DTOs using the same connection and DAOs
+            resourceDao.setPersistenceContext(context);
+            resourceDao.insertAll(resourceDTOs, parameters, parameterDao);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Persisted " + resourceDTOs.size() + " new FHIR Resources");
+            }
+
+            for (int i = 0; i < updatedResources.size(); i++) {
+                results.set(resultIndexes.get(i), buildSuccessResult(updatedResources.get(i)));
+            }
+            return results;
+        }
+        catch(FHIRPersistenceFKVException e) {
+            log.log(Level.SEVERE, "FK violation", e);
+            throw e;
+        }
+        catch(FHIRPersistenceException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a create operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+           log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    @Override
+    public <T extends Resource> List<SingleResourceResult<T>> updateAll(FHIRPersistenceContext context, List<T> resources)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "updateAll";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try (Connection connection = openConnection()) {
+            ResourceDAO resourceDao = makeResourceDAO(connection);
+            ParameterDAO parameterDao = makeParameterDAO(connection);
+
+            Instant lastUpdated = Instant.now(ZoneOffset.UTC);
+
+            // The version assigned to each logical resource by this batch, so that a resource may be updated
+            // more than once. The persistence event of the context relates to a single resource, so we always
+            // read the existing version from the datastore.
+            Map<String, Integer> batchVersions = new HashMap<>();
+
+            List<SingleResourceResult<T>> results = new ArrayList<>(Collections.nCopies(resources.size(), null));
+            List<Integer> resultIndexes = new ArrayList<>(resources.size());
+            List<T> updatedResources = new ArrayList<>(resources.size());
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOs = new ArrayList<>(resources.size());
+            List<List<ExtractedParameterValue>> parameters = new ArrayList<>(resources.size());
+            for (int i = 0; i < resources.size(); i++) {
+                T resource = resources.get(i);
+                String resourceTypeName = resource.getClass().getSimpleName();
+                String logicalId = resource.getId();
+                String key = resourceTypeName + "/" + logicalId;
+                resourceChanged(resourceTypeName, logicalId);
+
+                Integer existingVersion = batchVersions.get(key);
+                if (existingVersion == null) {
+                    com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO = resourceDao.read(logicalId, resourceTypeName);
+                    existingVersion = existingResourceDTO != null ? existingResourceDTO.getVersionId() : 0;
+                }
+
+                // If this logical resource didn't exist and the "updateCreate" feature is not enabled,
+                // then this resource can't be stored.
+                if (existingVersion == 0 && !updateCreateEnabled) {
+                    String msg = "Resource '" + key + "' not found.";
+                    log.log(Level.SEVERE, msg);
+                    results.set(i, new SingleResourceResult.Builder<T>()
+                        .success(false)
+                        .outcome(FHIRUtil.buildOperationOutcome(new FHIRPersistenceResourceNotFoundException(msg), false))
+                        .build());
+                    continue;
+                }
+
+                int newVersionNumber = existingVersion + 1;
+                try {
+                    T updatedResource = updateIdAndMeta(resource, logicalId, newVersionNumber, lastUpdated);
+                    com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = createResourceDTO(updatedResource, logicalId, newVersionNumber, lastUpdated);
+                    List<ExtractedParameterValue> resourceParameters = this.extractSearchParameters(updatedResource, resourceDTO);
+                    batchVersions.put(key, newVersionNumber);
+                    resultIndexes.add(i);
+                    updatedResources.add(updatedResource);
+                    resourceDTOs.add(resourceDTO);
+                    parameters.add(resourceParameters);
+                } catch (Exception e) {
+                    results.set(i, buildPreparationFailureResult(e));
+                }
+            }
+
+            // Persist all the Resource DTOs using the same connection and DAOs
+            resourceDao.setPersistenceContext(context);
+            resourceDao.insertAll(resourceDTOs, parameters, parameterDao);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Persisted " + resourceDTOs.size() + " FHIR Resource versions");
+            }
+
+            for (int i = 0; i < updatedResources.size(); i++) {
+                results.set(resultIndexes.get(i), buildSuccessResult(updatedResources.get(i)));
+            }
+            return results;
+        }
+        catch(FHIRPersistenceFKVException e) {
+            log.log(Level.SEVERE, this.performCacheDiagnostics());
+            throw e;
+        }
+        catch(FHIRPersistenceException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            // don't chain the exception to avoid leaking secrets
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing an update operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    /**
+     * Build a copy of the passed resource with the given id, version and last updated time
+     */
+    private <T extends Resource> T updateIdAndMeta(T resource, String logicalId, int versionNumber, Instant lastUpdated) {
+        Meta meta = resource.getMeta();
+        Meta.Builder metaBuilder = meta == null ? Meta.builder() : meta.toBuilder();
+        metaBuilder.versionId(Id.of(Integer.toString(versionNumber)));
+        metaBuilder.lastUpdated(lastUpdated);
+
+        @SuppressWarnings("unchecked")
+        T updatedResource = (T) resource.toBuilder()
+                .id(logicalId)
+                .meta(metaBuilder.build())
+                .build();
+        return updatedResource;
+    }
+
+    /**
+     * Create the Resource DTO for the passed resource, serialized using the configured payload codec
+     */
+    private com.ibm.fhir.persistence.jdbc.dto.Resource createResourceDTO(Resource resource, String logicalId, int versionNumber, Instant lastUpdated)
+            throws FHIRException, IOException {
+        com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = new com.ibm.fhir.persistence.jdbc.dto.Resource();
+        resourceDTO.setLogicalId(logicalId);
+        resourceDTO.setVersionId(versionNumber);
+        resourceDTO.setLastUpdated(FHIRUtilities.convertToTimestamp(lastUpdated.getValue()));
+        resourceDTO.setResourceType(resource.getClass().getSimpleName());
+        resourceDTO.setData(PayloadCodecRegistry.encode(payloadCodec, resource));
+        return resourceDTO;
+    }
+
+    /**
+     * Build the unsuccessful result of a resource of a batch which could not be prepared for storage; nothing has been
+     * written for the batch at this point, so the other resources of the batch can still be stored
+     */
+    private <T extends Resource> SingleResourceResult<T> buildPreparationFailureResult(Exception e) {
+        log.log(Level.WARNING, "Unable to prepare a resource of the batch for storage", e);
+        return new SingleResourceResult.Builder<T>()
+                .success(false)
+                .outcome(FHIRUtil.buildOperationOutcome(e, false))
+                .build();
+    }
+
+    private <T extends Resource> SingleResourceResult<T> buildSuccessResult(T resource) {
+        SingleResourceResult.Builder<T> resultBuilder = new SingleResourceResult.Builder<T>()
+                .success(true)
+                .resource(resource);
+
+        // Add supplemental issues to an OperationOutcome
+        if (!supplementalIssues.isEmpty()) {
+            resultBuilder.outcome(OperationOutcome.builder()
+                .issue(supplementalIssues)
+                .build());
+        }
+        return resultBuilder.build();
+    }
+
     @Override
     public MultiResourceResult<Resource> search(FHIRPersistenceContext context, Class<? extends Resource> resourceType)
             throws FHIRPersistenceException {
@@ -602,8 +833,10 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         FHIRSearchContext searchContext = context.getSearchContext();
         JDBCQueryBuilder queryBuilder;
         List<Long> sortedIdList;
+        List<Long> pageIdList;
         List<com.ibm.fhir.persistence.jdbc.dto.Resource> unsortedResultsList;
         int searchResultCount = 0;
+        boolean hasNextPage;
         SqlQueryData countQuery;
         SqlQueryData query;
 
@@ -613,17 +846,32 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             JDBCIdentityCache identityCache = new JDBCIdentityCacheImpl(cache, resourceDao, parameterDao);
 
             checkModifiers(searchContext, isSystemLevelSearch(resourceType));
-            queryBuilder = new JDBCQueryBuilder(parameterDao, resourceDao, connectionStrategy.getQueryHints(), identityCache);
+            queryBuilder = new JDBCQueryBuilder(parameterDao, resourceDao, connectionStrategy.getQueryHints(), identityCache,
+                    cache.getQueryCache());
+            queryBuilder.setStagedChainThreshold(stagedChainThreshold);
 
             countQuery = queryBuilder.buildCountQuery(resourceType, searchContext);
             if (countQuery != null) {
-                searchResultCount = resourceDao.searchCount(countQuery);
+                // With _total=none or _total=estimate, the count query (which can cost more than the page itself)
+                // is skipped and one extra row is fetched to determine whether there is a next page
+                boolean fetchExtraRow = false;
+                if (isCountSkippable(searchContext)) {
+                    int estimate = TotalValueSet.ESTIMATE.equals(searchContext.getTotalParameter())
+                            ? estimateSearchCount(resourceDao, resourceType, searchContext, countQuery) : 0;
+                    if (estimate >= 0) {
+                        fetchExtraRow = true;
+                        searchResultCount = estimate;
+                    }
+                }
+                if (!fetchExtraRow) {
+                    searchResultCount = resourceDao.searchCount(countQuery);
+                }
                 if (log.isLoggable(Level.FINE)) {
-                    log.fine("searchResultCount = " + searchResultCount);
+                    log.fine("searchResultCount = " + searchResultCount + (fetchExtraRow ? " (not counted)" : ""));
                 }
                 searchContext.setTotalCount(searchResultCount);
 
-                List<OperationOutcome.Issue> issues = validatePagingContext(searchContext);
+                List<OperationOutcome.Issue> issues = validatePagingContext(searchContext, !fetchExtraRow);
                 if (!issues.isEmpty()) {
                     resultBuilder.outcome(OperationOutcome.builder()
                         .issue(issues)
@@ -634,10 +882,10 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                 }
 
                 // For _summary=count or pageSize == 0, we return only the count
-                if (searchResultCount > 0
+                if ((searchResultCount > 0 || fetchExtraRow)
                         && !SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())
                         && searchContext.getPageSize() > 0) {
-                    query = queryBuilder.buildQuery(resourceType, searchContext);
+                    query = queryBuilder.buildQuery(resourceType, searchContext, fetchExtraRow ? 1 : 0);
 
                     List<String> elements = searchContext.getElementsParameters();
 
@@ -670,14 +918,34 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
                         // Sorting results of a system-level search is limited, and has a different logic path
                         // than other sorted searches.
                         if (resourceType.equals(Resource.class)) {
-                           resources = this.convertResourceDTOList(resourceDao.search(query), resourceType, elements);
+                            unsortedResultsList = resourceDao.search(query);
+                            hasNextPage = fetchExtraRow && removeExtraRow(unsortedResultsList, searchContext.getPageSize());
+                            resources = this.convertResourceDTOList(unsortedResultsList, resourceType, elements);
+                            pageIdList = getResourceIds(unsortedResultsList);
                         } else {
                             sortedIdList = resourceDao.searchForIds(query);
+                            hasNextPage = fetchExtraRow && removeExtraRow(sortedIdList, searchContext.getPageSize());
                             resources = this.buildSortedFhirResources(resourceDao, context, resourceType, sortedIdList, elements);
+                            pageIdList = sortedIdList;
                         }
                     } else {
                         unsortedResultsList = resourceDao.search(query);
+                        hasNextPage = fetchExtraRow && removeExtraRow(unsortedResultsList, searchContext.getPageSize());
                         resources = this.convertResourceDTOList(unsortedResultsList, resourceType, elements);
+                        pageIdList = getResourceIds(unsortedResultsList);
+                    }
+
+                    if (fetchExtraRow) {
+                        updatePagingContext(searchContext, resources.size(), hasNextPage);
+                    }
+
+                    if (!resources.isEmpty() && (searchContext.hasIncludeParameters() || searchContext.hasRevIncludeParameters())) {
+                        List<Resource> includedResources = this.searchIncludes(resourceDao, queryBuilder, resourceType, searchContext,
+                                resources, pageIdList, elements);
+                        if (!includedResources.isEmpty()) {
+                            resources = new ArrayList<>(resources);
+                            resources.addAll(includedResources);
+                        }
                     }
                 }
             }
@@ -704,6 +972,176 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         return Resource.class.equals(resourceType);
     }
 
+    /**
+     * @return true if the client asked for no total or an estimated total and the total is not needed to
+     *         assemble the result
+     */
+    private boolean isCountSkippable(FHIRSearchContext searchContext) {
+        return (TotalValueSet.NONE.equals(searchContext.getTotalParameter()) || TotalValueSet.ESTIMATE.equals(searchContext.getTotalParameter()))
+                && !SummaryValueSet.COUNT.equals(searchContext.getSummaryParameter())
+                && searchContext.getPageSize() > 0;
+    }
+
+    /**
+     * Reads the resources to include with a page of search results for the _include and _revinclude parameters
+     * of the search. The resource ids selected for each inclusion parameter are combined per resource type,
+     * leaving out the resources on the page and the resources selected by another inclusion parameter, and
+     * then read with a single query per resource type. Each included resource is therefore read and parsed
+     * once, however many resources on the page reference it.
+     *
+     * @param resourceDao
+     * @param queryBuilder
+     * @param resourceType the type of resource being searched for
+     * @param searchContext
+     * @param resources the resources on the page
+     * @param pageIdList the resource ids of the resources on the page
+     * @param elements the elements to include in the resources, or null for all elements
+     * @return the included resources, grouped by resource type
+     * @throws Exception
+     */
+    private List<Resource> searchIncludes(ResourceDAO resourceDao, JDBCQueryBuilder queryBuilder, Class<? extends Resource> resourceType,
+            FHIRSearchContext searchContext, List<Resource> resources, List<Long> pageIdList, List<String> elements) throws Exception {
+        final String METHODNAME = "searchIncludes";
+        log.entering(CLASSNAME, METHODNAME);
+
+        List<String> logicalIds = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            logicalIds.add(resource.getId());
+        }
+
+        // The resource ids to read per resource type, starting with the resources already on the page
+        Map<String, Set<Long>> includeIds = new LinkedHashMap<>();
+        includeIds.put(resourceType.getSimpleName(), new LinkedHashSet<>(pageIdList));
+        if (searchContext.hasIncludeParameters()) {
+            for (InclusionParameter includeParm : searchContext.getIncludeParameters()) {
+                includeIds.computeIfAbsent(includeParm.getSearchParameterTargetType(), k -> new LinkedHashSet<>())
+                    .addAll(resourceDao.searchForIds(queryBuilder.buildIncludeQuery(resourceType, includeParm, logicalIds)));
+            }
+        }
+        if (searchContext.hasRevIncludeParameters()) {
+            for (InclusionParameter revIncludeParm : searchContext.getRevIncludeParameters()) {
+                includeIds.computeIfAbsent(revIncludeParm.getJoinResourceType(), k -> new LinkedHashSet<>())
+                    .addAll(resourceDao.searchForIds(queryBuilder.buildRevIncludeQuery(revIncludeParm, logicalIds)));
+            }
+        }
+        includeIds.get(resourceType.getSimpleName()).removeAll(pageIdList);
+
+        List<Resource> includedResources = new ArrayList<>();
+        for (Entry<String, Set<Long>> entry : includeIds.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList =
+                        resourceDao.searchByIds(entry.getKey(), new ArrayList<>(entry.getValue()));
+                includedResources.addAll(this.convertIncludedResourceDTOList(resourceDTOList, getResourceType(entry.getKey()),
+                        resourceType, elements));
+            }
+        }
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Included " + includedResources.size() + " resources with a page of " + resources.size() + " resources");
+        }
+        log.exiting(CLASSNAME, METHODNAME);
+        return includedResources;
+    }
+
+    /**
+     * Converts the passed Resource DTOs of included resources to FHIR resources. If the resource cache is
+     * enabled (and all elements are requested), resources already parsed by an earlier request are taken
+     * from the cache, and the resources parsed here are added to it.
+     *
+     * @param resourceDTOList the included resources, all of the same resource type
+     * @param includedType the resource type of the included resources
+     * @param resourceType the type of resource being searched for
+     * @param elements the elements to include in the resources, or null for all elements
+     * @return the FHIR resources
+     * @throws FHIRException
+     * @throws IOException
+     */
+    private List<Resource> convertIncludedResourceDTOList(List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList,
+            Class<? extends Resource> includedType, Class<? extends Resource> resourceType, List<String> elements) throws FHIRException, IOException {
+        // The resource cache is only used on this thread, which knows the resources written by the current transaction
+        IResourceCache resourceCache = elements == null ? getResourceCache() : null;
+        if (resourceCache == null) {
+            return this.convertResourceDTOList(resourceDTOList, resourceType, elements);
+        }
+
+        List<Resource> resources = new ArrayList<>(resourceDTOList.size());
+        List<com.ibm.fhir.persistence.jdbc.dto.Resource> uncachedDTOList = new ArrayList<>();
+        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            Resource resource = getCachedResource(resourceCache, includedType, resourceDTO.getLogicalId(), resourceDTO.getVersionId());
+            if (resource != null) {
+                resources.add(resource);
+            } else {
+                uncachedDTOList.add(resourceDTO);
+            }
+        }
+
+        List<Resource> parsedResources = this.convertResourceDTOList(uncachedDTOList, resourceType, null);
+        for (int i = 0; i < uncachedDTOList.size(); i++) {
+            cacheResource(resourceCache, uncachedDTOList.get(i), includedType, parsedResources.get(i));
+        }
+        resources.addAll(parsedResources);
+        return resources;
+    }
+
+    /**
+     * @return the resource ids of the passed Resource DTOs
+     */
+    private List<Long> getResourceIds(List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList) {
+        List<Long> resourceIds = new ArrayList<>(resourceDTOList.size());
+        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            resourceIds.add(resourceDTO.getId());
+        }
+        return resourceIds;
+    }
+
+    /**
+     * Estimates the number of matches of a search from the query optimizer's estimate for the count query or, on Db2
+     * (which has no optimizer estimate without the explain tables), from the table statistics for searches without
+     * search parameters; the table statistics include deleted resources.
+     *
+     * @return the estimated count, or -1 if the database cannot provide an estimate
+     */
+    private int estimateSearchCount(ResourceDAO resourceDao, Class<? extends Resource> resourceType, FHIRSearchContext searchContext,
+            SqlQueryData countQuery) throws FHIRPersistenceDataAccessException, FHIRPersistenceDBConnectException {
+        int estimate = resourceDao.searchCountEstimate(countQuery);
+        if (estimate < 0 && !isSystemLevelSearch(resourceType) && searchContext.getSearchParameters().isEmpty()) {
+            estimate = resourceDao.estimateResourceCount(resourceType.getSimpleName());
+        }
+        return estimate;
+    }
+
+    /**
+     * Removes the row fetched after the last row of the page, if any.
+     *
+     * @return true if there was such a row, i.e. there is a next page
+     */
+    private boolean removeExtraRow(List<?> rows, int pageSize) {
+        if (rows.size() > pageSize) {
+            rows.subList(pageSize, rows.size()).clear();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the last page number (and, for _total=estimate, corrects the total) of a search whose count query was
+     * skipped, based on the rows of the current page.
+     */
+    private void updatePagingContext(FHIRSearchContext searchContext, int pageRowCount, boolean hasNextPage) {
+        int pageNumber = searchContext.getPageNumber();
+        int offset = (pageNumber - 1) * searchContext.getPageSize();
+        searchContext.setLastPageNumber(hasNextPage ? pageNumber + 1 : pageNumber);
+
+        if (TotalValueSet.ESTIMATE.equals(searchContext.getTotalParameter())) {
+            if (!hasNextPage && (pageRowCount > 0 || pageNumber == 1)) {
+                // this is the last page, so the total is known
+                searchContext.setTotalCount(offset + pageRowCount);
+            } else {
+                searchContext.setTotalCount(Math.max(searchContext.getTotalCount(), offset + pageRowCount + (hasNextPage ? 1 : 0)));
+            }
+        }
+    }
+
     /**
      * @param resourceType
      * @throws FHIRPersistenceNotSupportedException if the search context contains one or more unsupported modifiers
@@ -756,12 +1194,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
         com.ibm.fhir.persistence.jdbc.dto.Resource existingResourceDTO = null;
         T existingResource = null;
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
         Resource.Builder resourceBuilder;
 
         try (Connection connection = openConnection()) {
             ResourceDAO resourceDao = makeResourceDAO(connection);
+            resourceChanged(resourceType.getSimpleName(), logicalId);
 
             existingResourceDTO = resourceDao.read(logicalId, resourceType.getSimpleName());
 
@@ -809,12 +1247,8 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceDTO.setLogicalId(logicalId);
             resourceDTO.setVersionId(newVersionNumber);
 
-            // Serialize and compress the Resource
-            GZIPOutputStream zipStream = new GZIPOutputStream(stream);
-            FHIRGenerator.generator(Format.JSON, false).generate(updatedResource, zipStream);
-            zipStream.finish();
-            resourceDTO.setData(stream.toByteArray());
-            zipStream.close();
+            // Serialize the Resource using the configured payload codec
+            resourceDTO.setData(PayloadCodecRegistry.encode(payloadCodec, updatedResource));
 
             Timestamp timestamp = FHIRUtilities.convertToTimestamp(lastUpdated.getValue());
             resourceDTO.setLastUpdated(timestamp);
@@ -897,12 +1331,27 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         try (Connection connection = openConnection()) {
             ResourceDAO resourceDao = makeResourceDAO(connection);
 
-            resourceDTO = resourceDao.read(logicalId, resourceType.getSimpleName());
-            if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
-                throw new FHIRPersistenceResourceDeletedException("Resource '" +
-                        resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+            // Resource payloads are only cached in full (not filtered by _summary elements)
+            IResourceCache resourceCache = elements == null ? getResourceCache() : null;
+            if (resourceCache != null) {
+                // Always check the current version in the database, then use the cached
+                // resource if it matches. This avoids reading and parsing the payload.
+                resourceDTO = resourceDao.readVersionInfo(logicalId, resourceType.getSimpleName());
+                if (resourceDTO != null && !resourceDTO.isDeleted()) {
+                    resource = getCachedResource(resourceCache, resourceType, logicalId, resourceDTO.getVersionId());
+                }
+            }
+
+            // Skip the full read if the version check already told us the resource doesn't exist
+            if (resource == null && (resourceCache == null || resourceDTO != null)) {
+                resourceDTO = resourceDao.read(logicalId, resourceType.getSimpleName());
+                if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+                }
+                resource = this.convertResourceDTO(resourceDTO, resourceType, elements);
+                cacheResource(resourceCache, resourceDTO, resourceType, resource);
             }
-            resource = this.convertResourceDTO(resourceDTO, resourceType, elements);
 
             SingleResourceResult<T> result = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -924,6 +1373,122 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         }
     }
 
+    @Override
+    public <T extends Resource> ResourceVersionInfo readVersionInfo(FHIRPersistenceContext context, Class<T> resourceType, String logicalId)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "readVersionInfo";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try (Connection connection = openConnection()) {
+            ResourceDAO resourceDao = makeResourceDAO(connection);
+
+            // Only the version columns are selected, so the payload is never read or parsed
+            com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO = resourceDao.readVersionInfo(logicalId, resourceType.getSimpleName());
+            if (resourceDTO == null) {
+                return null;
+            }
+            if (resourceDTO.isDeleted() && !context.includeDeleted()) {
+                throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                        resourceType.getSimpleName() + "/" + logicalId + "' is deleted.");
+            }
+            return new ResourceVersionInfo(resourceDTO.getVersionId(), resourceDTO.getLastUpdated().toInstant(), resourceDTO.isDeleted());
+        }
+        catch(FHIRPersistenceResourceDeletedException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a read operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    @Override
+    public boolean isCursorSupported() {
+        return true;
+    }
+
+    @Override
+    public <T extends Resource> ResourcePage<T> readAfter(FHIRPersistenceContext context, Class<T> resourceType,
+            java.time.Instant fromLastUpdated, java.time.Instant toLastUpdated, ResourceCursor after, int maxResults) throws FHIRPersistenceException {
+        final String METHODNAME = "readAfter";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try {
+            ResourcePage<com.ibm.fhir.persistence.jdbc.dto.Resource> page =
+                    readResourceDTOsAfter(resourceType, fromLastUpdated, toLastUpdated, after, maxResults);
+            List<T> resources = this.convertResourceDTOList(page.getResources(), resourceType);
+            return new ResourcePage<>(resources, page.getCursor(), page.isLast());
+        }
+        catch(FHIRPersistenceException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a readAfter operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    @Override
+    public ResourcePage<ResourcePayload> readPayloadsAfter(FHIRPersistenceContext context, Class<? extends Resource> resourceType,
+            java.time.Instant fromLastUpdated, java.time.Instant toLastUpdated, ResourceCursor after, int maxResults) throws FHIRPersistenceException {
+        final String METHODNAME = "readPayloadsAfter";
+        log.entering(CLASSNAME, METHODNAME);
+
+        try {
+            ResourcePage<com.ibm.fhir.persistence.jdbc.dto.Resource> page =
+                    readResourceDTOsAfter(resourceType, fromLastUpdated, toLastUpdated, after, maxResults);
+            // The payloads are passed on as stored; they are only decompressed when written
+            List<ResourcePayload> payloads = new ArrayList<>(page.getResources().size());
+            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : page.getResources()) {
+                payloads.add(new StoredResourcePayload(resourceDTO.getLogicalId(), resourceDTO.getData()));
+            }
+            return new ResourcePage<>(payloads, page.getCursor(), page.isLast());
+        }
+        catch(FHIRPersistenceException e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            FHIRPersistenceException fx = new FHIRPersistenceException("Unexpected error while performing a readPayloadsAfter operation.");
+            log.log(Level.SEVERE, fx.getMessage(), e);
+            throw fx;
+        }
+        finally {
+            log.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
+    /**
+     * Read the next page of resource DTOs after the passed cursor
+     */
+    private ResourcePage<com.ibm.fhir.persistence.jdbc.dto.Resource> readResourceDTOsAfter(Class<? extends Resource> resourceType,
+            java.time.Instant fromLastUpdated, java.time.Instant toLastUpdated, ResourceCursor after, int maxResults) throws Exception {
+        try (Connection connection = openConnection()) {
+            ResourceDAO resourceDao = makeResourceDAO(connection);
+
+            List<com.ibm.fhir.persistence.jdbc.dto.Resource> resourceDTOList = resourceDao.readAfter(resourceType.getSimpleName(),
+                    fromLastUpdated == null ? null : Timestamp.from(fromLastUpdated),
+                    toLastUpdated == null ? null : Timestamp.from(toLastUpdated),
+                    after == null ? null : Timestamp.from(after.getLastUpdated()),
+                    after == null ? 0 : after.getResourceId(),
+                    maxResults);
+
+            ResourceCursor cursor = after;
+            if (!resourceDTOList.isEmpty()) {
+                com.ibm.fhir.persistence.jdbc.dto.Resource last = resourceDTOList.get(resourceDTOList.size() - 1);
+                cursor = new ResourceCursor(last.getLastUpdated().toInstant(), last.getId());
+            }
+            return new ResourcePage<>(resourceDTOList, cursor, resourceDTOList.size() < maxResults);
+        }
+    }
+
     @Override
     public <T extends Resource> MultiResourceResult<T> history(FHIRPersistenceContext context, Class<T> resourceType,
             String logicalId) throws FHIRPersistenceException {
@@ -953,7 +1518,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             resourceCount = resourceDao.historyCount(resourceType.getSimpleName(), logicalId, fromDateTime);
             historyContext.setTotalCount(resourceCount);
 
-            List<OperationOutcome.Issue> issues = validatePagingContext(historyContext);
+            List<OperationOutcome.Issue> issues = validatePagingContext(historyContext, true);
 
             if (!issues.isEmpty()) {
                 resultBuilder.outcome(OperationOutcome.builder()
@@ -1001,10 +1566,13 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
      *
      * @param pagingContext
      *     the FHIRPagingContext instance (FHIRSearchContext or FHIRHistoryContext)
+     * @param totalCountKnown
+     *     false if the total count of the paging context was not counted; the page number is then not checked
+     *     against the last page number, which must be set once the page has been fetched
      * @return
      *     a list of operation outcome issues if the paging context has invalid parameters
      */
-    private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext) {
+    private List<OperationOutcome.Issue> validatePagingContext(FHIRPagingContext pagingContext, boolean totalCountKnown) {
         List<OperationOutcome.Issue> issues = new ArrayList<>();
 
         int pageSize = pagingContext.getPageSize();
@@ -1019,7 +1587,7 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             pagingContext.setPageSize(10);
         }
 
-        int lastPageNumber = Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1);
+        int lastPageNumber = totalCountKnown ? Math.max(((pagingContext.getTotalCount() + pageSize - 1) / pageSize), 1) : Integer.MAX_VALUE;
         pagingContext.setLastPageNumber(lastPageNumber);
 
         int pageNumber = pagingContext.getPageNumber();
@@ -1064,12 +1632,23 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
             ResourceDAO resourceDao = makeResourceDAO(connection);
 
             version = Integer.parseInt(versionId);
-            resourceDTO = resourceDao.versionRead(logicalId, resourceType.getSimpleName(), version);
-            if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
-                throw new FHIRPersistenceResourceDeletedException("Resource '" +
-                        resourceType.getSimpleName() + "/" + logicalId + "' version " + versionId + " is deleted.");
+
+            // Resource versions are immutable and deleted versions are never cached, so
+            // a cached version can be returned without going to the database
+            IResourceCache resourceCache = getResourceCache();
+            if (resourceCache != null) {
+                resource = getCachedResource(resourceCache, resourceType, logicalId, version);
+            }
+
+            if (resource == null) {
+                resourceDTO = resourceDao.versionRead(logicalId, resourceType.getSimpleName(), version);
+                if (resourceDTO != null && resourceDTO.isDeleted() && !context.includeDeleted()) {
+                    throw new FHIRPersistenceResourceDeletedException("Resource '" +
+                            resourceType.getSimpleName() + "/" + logicalId + "' version " + versionId + " is deleted.");
+                }
+                resource = this.convertResourceDTO(resourceDTO, resourceType, null);
+                cacheResource(resourceCache, resourceDTO, resourceType, resource);
             }
-            resource = this.convertResourceDTO(resourceDTO, resourceType, null);
 
             SingleResourceResult<T> result = new SingleResourceResult.Builder<T>()
                     .success(true)
@@ -1129,10 +1708,12 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
 
         // Convert the returned JPA Resources to FHIR Resources, and store each FHIRResource in its proper position
         // in the returned sorted resource list.
-        for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
-            fhirResource = this.convertResourceDTO(resourceDTO, resourceType, elements);
+        List<? extends Resource> fhirResources = decodeExecutor.decode(resourceDTOList,
+                resourceDTO -> this.convertResourceDTO(resourceDTO, resourceType, elements));
+        for (int i = 0; i < resourceDTOList.size(); i++) {
+            fhirResource = fhirResources.get(i);
             if (fhirResource != null) {
-                sortIndex = idPositionMap.get(resourceDTO.getId());
+                sortIndex = idPositionMap.get(resourceDTOList.get(i).getId());
                 sortedFhirResources[sortIndex] = fhirResource;
             }
         }
@@ -1173,17 +1754,15 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         final String METHODNAME = "convertResourceDTO List";
         log.entering(CLASSNAME, METHODNAME);
 
-        List<Resource> resources = new ArrayList<>();
+        List<Resource> resources;
         try {
-            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
+            resources = decodeExecutor.decode(resourceDTOList, resourceDTO -> {
                 Resource existingResource = this.convertResourceDTO(resourceDTO, resourceType, elements);
                 if (resourceDTO.isDeleted()) {
-                    Resource deletedResourceMarker = FHIRPersistenceUtil.createDeletedResourceMarker(existingResource);
-                    resources.add(deletedResourceMarker);
-                } else {
-                    resources.add(existingResource);
+                    return FHIRPersistenceUtil.createDeletedResourceMarker(existingResource);
                 }
-            }
+                return existingResource;
+            });
         }
         finally {
             log.exiting(CLASSNAME, METHODNAME);
@@ -1600,11 +2179,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         final String METHODNAME = "convertResourceDTO List";
         log.entering(CLASSNAME, METHODNAME);
 
-        List<T> resources = new ArrayList<>();
+        List<T> resources;
         try {
-            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
-                resources.add(this.convertResourceDTO(resourceDTO, resourceType, null));
-            }
+            resources = decodeExecutor.decode(resourceDTOList, resourceDTO -> this.convertResourceDTO(resourceDTO, resourceType, null));
         }
         finally {
             log.exiting(CLASSNAME, METHODNAME);
@@ -1628,11 +2205,9 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         final String METHODNAME = "convertResourceDTO List";
         log.entering(CLASSNAME, METHODNAME);
 
-        List<Resource> resources = new ArrayList<>();
+        List<Resource> resources;
         try {
-            for (com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO : resourceDTOList) {
-                resources.add(this.convertResourceDTO(resourceDTO, resourceType, null));
-            }
+            resources = decodeExecutor.decode(resourceDTOList, resourceDTO -> this.convertResourceDTO(resourceDTO, resourceType, null));
         }
         finally {
             log.exiting(CLASSNAME, METHODNAME);
@@ -1656,18 +2231,15 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         T resource = null;
         try {
             if (resourceDTO != null) {
-                InputStream in = new GZIPInputStream(new ByteArrayInputStream(resourceDTO.getData()));
+                // the payload header identifies the codec used to write the resource, which may differ from the configured one
+                resource = PayloadCodecRegistry.decode(resourceDTO.getData(), elements);
                 if (elements != null) {
-                    // parse/filter the resource using elements
-                    resource = FHIRParser.parser(Format.JSON).as(FHIRJsonParser.class).parseAndFilter(in, elements);
+                    // the resource was parsed/filtered using elements
                     if (resourceType.equals(resource.getClass()) && !FHIRUtil.hasTag(resource, SearchConstants.SUBSETTED_TAG)) {
                         // add a SUBSETTED tag to this resource to indicate that its elements have been filtered
                         resource = FHIRUtil.addTag(resource, SearchConstants.SUBSETTED_TAG);
                     }
-                } else {
-                    resource = FHIRParser.parser(Format.JSON).parse(in);
                 }
-                in.close();
             }
         } finally {
             log.exiting(CLASSNAME, METHODNAME);
@@ -1675,6 +2247,56 @@ public class FHIRPersistenceJDBCImpl implements FHIRPersistence, SchemaNameSuppl
         return resource;
     }
 
+    /**
+     * Get the shared cache of parsed resources for the current tenant/datasource
+     * @return the resource cache, or null if resource caching is disabled
+     */
+    private IResourceCache getResourceCache() {
+        return cache != null ? cache.getResourceCache() : null;
+    }
+
+    /**
+     * Tell the resource cache (if enabled) that the current transaction is writing
+     * a new version of the given logical resource
+     * @param resourceType
+     * @param logicalId
+     */
+    private void resourceChanged(String resourceType, String logicalId) {
+        IResourceCache resourceCache = getResourceCache();
+        if (resourceCache != null) {
+            resourceCache.resourceChanged(resourceType, logicalId);
+        }
+    }
+
+    /**
+     * Get the given version of the resource from the resource cache
+     * @return the cached resource, or null if not found or not of the expected type
+     */
+    private <T extends Resource> T getCachedResource(IResourceCache resourceCache, Class<T> resourceType, String logicalId, int versionId) {
+        Resource cached = resourceCache.getResource(resourceType.getSimpleName(), logicalId, versionId);
+        if (cached != null && resourceType.isInstance(cached)) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Resource cache hit for '" + resourceType.getSimpleName() + "/" + logicalId + "', version=" + versionId);
+            }
+            return resourceType.cast(cached);
+        }
+        return null;
+    }
+
+    /**
+     * Add the resource we just read and parsed to the resource cache, if enabled. Deleted
+     * versions are not cached. The size of the entry is the length of the resource as JSON,
+     * which (unlike the stored payload) grows with the size of the parsed resource.
+     */
+    private void cacheResource(IResourceCache resourceCache, com.ibm.fhir.persistence.jdbc.dto.Resource resourceDTO,
+            Class<? extends Resource> resourceType, Resource resource) throws FHIRException, IOException {
+        if (resourceCache != null && resource != null && !resourceDTO.isDeleted()) {
+            long jsonLength = PayloadCodecRegistry.getJsonLength(resourceDTO.getData());
+            resourceCache.addResource(resourceType.getSimpleName(), resourceDTO.getLogicalId(), resourceDTO.getVersionId(), resource,
+                (int) Math.min(jsonLength, Integer.MAX_VALUE));
+        }
+    }
+
     @Override
     public boolean isTransactional() {
         return true;
@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
+import com.ibm.fhir.model.parser.FHIRJsonParser;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * Base class for codecs which store the resource as (optionally compressed) compact JSON
+ */
+public abstract class AbstractJsonPayloadCodec implements PayloadCodec {
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    /**
+     * Write the resource as compact JSON to the output stream
+     */
+    protected void generate(Resource resource, OutputStream out) throws FHIRGeneratorException {
+        FHIRGenerator.generator(Format.JSON, false).generate(resource, out);
+    }
+
+    /**
+     * Read the resource from the JSON input stream, applying the elements filter (if any)
+     */
+    protected <T extends Resource> T parse(InputStream in, List<String> elements) throws FHIRParserException {
+        if (elements != null) {
+            return FHIRParser.parser(Format.JSON).as(FHIRJsonParser.class).parseAndFilter(in, elements);
+        }
+        return FHIRParser.parser(Format.JSON).parse(in);
+    }
+
+    /**
+     * Copy the (decompressed) JSON input stream to the output stream
+     */
+    protected void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+    }
+}
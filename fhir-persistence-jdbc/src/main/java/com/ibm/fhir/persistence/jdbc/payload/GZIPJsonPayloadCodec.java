@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * The original payload format: GZIP compressed JSON without a payload header. The GZIP magic number
+ * identifies these payloads, so rows written before payload codecs were introduced remain readable.
+ */
+public class GZIPJsonPayloadCodec extends AbstractJsonPayloadCodec {
+    public static final String NAME = "gzip";
+
+    /**
+     * Reserved; payloads of this codec are written without a header
+     */
+    public static final int ID = 0;
+
+    // The GZIP trailer holds the CRC-32 and the uncompressed length (ISIZE), four bytes each
+    private static final int GZIP_TRAILER_LENGTH = 8;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Resource resource, OutputStream out) throws FHIRGeneratorException, IOException {
+        GZIPOutputStream zipStream = new GZIPOutputStream(out);
+        try {
+            generate(resource, zipStream);
+            zipStream.finish();
+        } finally {
+            zipStream.close();
+        }
+    }
+
+    @Override
+    public <T extends Resource> T decode(InputStream in, List<String> elements) throws FHIRParserException, IOException {
+        try (GZIPInputStream zipStream = new GZIPInputStream(in)) {
+            return parse(zipStream, elements);
+        }
+    }
+
+    @Override
+    public void transferJson(InputStream in, OutputStream out) throws IOException {
+        try (GZIPInputStream zipStream = new GZIPInputStream(in)) {
+            copy(zipStream, out);
+        }
+    }
+
+    /**
+     * Read the uncompressed length (modulo 2^32) from the ISIZE field which ends the GZIP trailer
+     */
+    @Override
+    public long getJsonLength(InputStream in, int length) throws IOException {
+        if (length < GZIP_TRAILER_LENGTH) {
+            throw new IOException("Truncated GZIP payload");
+        }
+        skipFully(in, length - 4);
+        long size = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Truncated GZIP payload");
+            }
+            size |= (long) b << (8 * i);
+        }
+        return size;
+    }
+
+    /**
+     * Skip the passed number of bytes; InputStream.skip may skip fewer bytes than requested
+     */
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                // skip makes no progress at the end of the stream, or for some streams before it
+                if (in.read() == -1) {
+                    throw new EOFException("Truncated GZIP payload");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * Uncompressed compact JSON; trades storage for the lowest CPU cost on both the read and the write path
+ */
+public class JsonPayloadCodec extends AbstractJsonPayloadCodec {
+    public static final String NAME = "json";
+    public static final int ID = 1;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void encode(Resource resource, OutputStream out) throws FHIRGeneratorException, IOException {
+        generate(resource, out);
+    }
+
+    @Override
+    public <T extends Resource> T decode(InputStream in, List<String> elements) throws FHIRParserException, IOException {
+        return parse(in, elements);
+    }
+
+    @Override
+    public void transferJson(InputStream in, OutputStream out) throws IOException {
+        copy(in, out);
+    }
+
+    @Override
+    public long getJsonLength(InputStream in, int length) {
+        return length;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.generator.exception.FHIRGeneratorException;
+import com.ibm.fhir.model.parser.exception.FHIRParserException;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * Serializes resources to, and deserializes resources from, the payload stored in the DATA column of the
+ * resource tables.
+ *
+ * <p>Implementations must be thread-safe. Additional codecs can be contributed through the
+ * {@link java.util.ServiceLoader} mechanism and selected with the
+ * {@code fhirServer/persistence/jdbc/payloadCodec} property; see {@link PayloadCodecRegistry}.
+ */
+public interface PayloadCodec {
+    /**
+     * The identifier written to the header of each payload produced by this codec. Identifiers must be unique,
+     * must be in the range 1-255 and must never be reused by a different codec once payloads have been stored.
+     *
+     * @return the codec id
+     */
+    int getId();
+
+    /**
+     * @return the name used to select this codec in the configuration
+     */
+    String getName();
+
+    /**
+     * Serialize the resource to the output stream; the codec may close the output stream when it is done.
+     *
+     * @param resource
+     *     the resource to serialize
+     * @param out
+     *     the output stream
+     * @throws FHIRGeneratorException
+     * @throws IOException
+     */
+    void encode(Resource resource, OutputStream out) throws FHIRGeneratorException, IOException;
+
+    /**
+     * Deserialize a resource from the input stream; the codec may close the input stream when it is done.
+     *
+     * @param in
+     *     the input stream positioned after the payload header
+     * @param elements
+     *     an optional list of the elements to include in the resource, or null to include all elements
+     * @return the resource
+     * @throws FHIRParserException
+     * @throws IOException
+     */
+    <T extends Resource> T decode(InputStream in, List<String> elements) throws FHIRParserException, IOException;
+
+    /**
+     * Write the resource as compact JSON to the output stream. Codecs which store JSON should override this to copy
+     * the stored JSON without parsing it; the default implementation decodes the resource and generates the JSON.
+     *
+     * @param in
+     *     the input stream positioned after the payload header
+     * @param out
+     *     the output stream, which must be left open
+     * @throws FHIRException
+     * @throws IOException
+     */
+    default void transferJson(InputStream in, OutputStream out) throws FHIRException, IOException {
+        FHIRGenerator.generator(Format.JSON, false).generate(decode(in, null), out);
+    }
+
+    /**
+     * Get the length of the resource as compact JSON. Codecs which can read the length from the payload should
+     * override this; the default implementation counts the bytes written by {@link #transferJson(InputStream, OutputStream)}.
+     *
+     * @param in
+     *     the input stream positioned after the payload header
+     * @param length
+     *     the number of bytes of the payload after the header
+     * @return the length of the JSON in bytes
+     * @throws FHIRException
+     * @throws IOException
+     */
+    default long getJsonLength(InputStream in, int length) throws FHIRException, IOException {
+        long[] count = new long[1];
+        transferJson(in, new OutputStream() {
+            @Override
+            public void write(int b) {
+                count[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                count[0] += len;
+            }
+        });
+        return count[0];
+    }
+}
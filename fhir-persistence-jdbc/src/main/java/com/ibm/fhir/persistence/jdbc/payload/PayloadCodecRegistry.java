@@ -0,0 +1,190 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+
+/**
+ * The registry of payload codecs and the payload header format.
+ *
+ * <p>Payloads written by the {@link GZIPJsonPayloadCodec} have no header; they start with the GZIP magic number
+ * (0x1f 0x8b). All other payloads start with a two byte header: the {@link #HEADER_MARKER} followed by the
+ * id of the codec which wrote them. Because the codec is recorded with each payload, the configured codec can
+ * be changed at any time (and changed back) without migrating the rows which are already stored.
+ */
+public final class PayloadCodecRegistry {
+    private static final Logger log = Logger.getLogger(PayloadCodecRegistry.class.getName());
+
+    public static final byte HEADER_MARKER = (byte) 0xFE;
+    public static final int HEADER_LENGTH = 2;
+
+    public static final String DEFAULT_CODEC_NAME = GZIPJsonPayloadCodec.NAME;
+
+    private static final PayloadCodec[] CODECS_BY_ID = new PayloadCodec[256];
+    private static final Map<String, PayloadCodec> CODECS_BY_NAME = new TreeMap<>();
+
+    static {
+        register(new GZIPJsonPayloadCodec());
+        register(new JsonPayloadCodec());
+        register(new DeflateJsonPayloadCodec());
+
+        // https://docs.oracle.com/javase/8/docs/api/java/util/ServiceLoader.html#iterator--
+        Iterator<PayloadCodec> iterator = ServiceLoader.load(PayloadCodec.class).iterator();
+        while (iterator.hasNext()) {
+            try {
+                PayloadCodec codec = iterator.next();
+                log.fine("Found PayloadCodec implementation class: " + codec.getClass().getName());
+                if (codec.getId() < 1 || codec.getId() > 255) {
+                    log.severe("Payload codec '" + codec.getName() + "' has invalid id " + codec.getId() + " and will be skipped.");
+                } else if (CODECS_BY_ID[codec.getId()] != null || CODECS_BY_NAME.containsKey(codec.getName())) {
+                    log.severe("Payload codec '" + codec.getName() + "' has a duplicate id or name and will be skipped.");
+                } else {
+                    register(codec);
+                }
+            } catch (Throwable t) {
+                log.severe("Unable to load payload codec: " + t);
+            }
+        }
+    }
+
+    private PayloadCodecRegistry() {
+        // no instances
+    }
+
+    private static void register(PayloadCodec codec) {
+        CODECS_BY_ID[codec.getId()] = codec;
+        CODECS_BY_NAME.put(codec.getName(), codec);
+    }
+
+    /**
+     * Get the codec with the passed name
+     *
+     * @param name
+     *     the codec name, or null for the default codec
+     * @return the codec
+     * @throws IllegalArgumentException
+     *     if no codec with the passed name is registered
+     */
+    public static PayloadCodec getCodec(String name) {
+        PayloadCodec codec = CODECS_BY_NAME.get(name == null ? DEFAULT_CODEC_NAME : name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown payload codec '" + name + "'; valid values are " + CODECS_BY_NAME.keySet());
+        }
+        return codec;
+    }
+
+    /**
+     * Serialize the resource with the passed codec, including the payload header
+     *
+     * @param codec
+     *     the codec
+     * @param resource
+     *     the resource to serialize
+     * @return the payload
+     * @throws FHIRException
+     * @throws IOException
+     */
+    public static byte[] encode(PayloadCodec codec, Resource resource) throws FHIRException, IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        if (codec.getId() != GZIPJsonPayloadCodec.ID) {
+            stream.write(HEADER_MARKER);
+            stream.write(codec.getId());
+        }
+        codec.encode(resource, stream);
+        return stream.toByteArray();
+    }
+
+    /**
+     * Deserialize the resource from a payload written by any of the registered codecs
+     *
+     * @param data
+     *     the payload
+     * @param elements
+     *     an optional list of the elements to include in the resource, or null to include all elements
+     * @return the resource
+     * @throws FHIRException
+     *     if the payload was written by a codec which is not registered, or cannot be parsed
+     * @throws IOException
+     */
+    public static <T extends Resource> T decode(byte[] data, List<String> elements) throws FHIRException, IOException {
+        return getCodec(data).decode(getInputStream(data), elements);
+    }
+
+    /**
+     * Write the resource in a payload written by any of the registered codecs as compact JSON to the output stream,
+     * without parsing it if the codec stores JSON
+     *
+     * @param data
+     *     the payload
+     * @param out
+     *     the output stream, which is left open
+     * @throws FHIRException
+     *     if the payload was written by a codec which is not registered, or cannot be converted to JSON
+     * @throws IOException
+     */
+    public static void transferJson(byte[] data, OutputStream out) throws FHIRException, IOException {
+        getCodec(data).transferJson(getInputStream(data), out);
+    }
+
+    /**
+     * Get the length of the resource in a payload written by any of the registered codecs as compact JSON, without
+     * parsing it
+     *
+     * @param data
+     *     the payload
+     * @return the length of the JSON in bytes
+     * @throws FHIRException
+     *     if the payload was written by a codec which is not registered
+     * @throws IOException
+     */
+    public static long getJsonLength(byte[] data) throws FHIRException, IOException {
+        return getCodec(data).getJsonLength(getInputStream(data), hasHeader(data) ? data.length - HEADER_LENGTH : data.length);
+    }
+
+    private static boolean hasHeader(byte[] data) {
+        return data.length >= HEADER_LENGTH && data[0] == HEADER_MARKER;
+    }
+
+    /**
+     * Get the codec which wrote the passed payload
+     */
+    private static PayloadCodec getCodec(byte[] data) throws FHIRPersistenceException {
+        if (!hasHeader(data)) {
+            return CODECS_BY_ID[GZIPJsonPayloadCodec.ID];
+        }
+        int id = data[1] & 0xFF;
+        PayloadCodec codec = CODECS_BY_ID[id];
+        if (codec == null) {
+            throw new FHIRPersistenceException("Resource payload was written by unknown payload codec id " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * Get an input stream positioned after the header (if any) of the passed payload
+     */
+    private static InputStream getInputStream(byte[] data) {
+        if (hasHeader(data)) {
+            return new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+        }
+        return new ByteArrayInputStream(data);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+
+/**
+ * Decodes the rows of a result page on a bounded number of worker threads while preserving the order of the rows.
+ *
+ * <p>The page is split into contiguous chunks, one per worker thread plus one that the calling thread decodes
+ * itself along with any chunk that cannot be scheduled, so a busy server degrades to sequential decoding rather than
+ * queuing requests behind each other. The workers run on the container's managed executor service
+ * (java:comp/DefaultManagedExecutorService); outside of a container, a private daemon thread pool is used instead.
+ * The {@link FHIRRequestContext} (tenant and datastore) of the calling thread is propagated to the worker threads
+ * for the duration of each chunk.
+ *
+ * <p>The thread count of an executor only determines how each page is split into chunks. The number of chunks
+ * decoded on worker threads at the same time is limited server-wide, across all searches and executors, to
+ * {@link #MAX_ACTIVE_TASKS}; chunks beyond that limit are decoded on the calling thread.
+ *
+ * <p>The number of decoded pages and resources, the cumulative decode time and the number of chunks that could
+ * not be scheduled are exposed as counters, which are logged at level INFO every {@link #METRICS_LOG_INTERVAL} pages.
+ */
+public final class PayloadDecodeExecutor {
+    private static final Logger log = Logger.getLogger(PayloadDecodeExecutor.class.getName());
+
+    // Pages smaller than this are decoded on the calling thread
+    public static final int DEFAULT_MIN_PARALLEL_SIZE = 16;
+
+    // Keep chunks large enough to amortize the hand-off to a worker thread
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    // The maximum number of chunks decoded on worker threads at the same time, across all executors
+    public static final int MAX_ACTIVE_TASKS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // The number of pages between two log lines with the counters of an executor
+    public static final long METRICS_LOG_INTERVAL = 1000;
+
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+    private static final Semaphore ACTIVE_TASK_PERMITS = new Semaphore(MAX_ACTIVE_TASKS);
+
+    private static final ConcurrentHashMap<Integer, PayloadDecodeExecutor> INSTANCES = new ConcurrentHashMap<>();
+
+    private static volatile ExecutorService executorService;
+
+    private final int threadCount;
+
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong resourceCount = new AtomicLong();
+    private final AtomicLong decodeTimeNanos = new AtomicLong();
+    private final AtomicLong rejectedChunkCount = new AtomicLong();
+
+    /**
+     * Decodes a single row
+     */
+    @FunctionalInterface
+    public interface Decoder<T, R> {
+        R decode(T row) throws FHIRException, IOException;
+    }
+
+    private PayloadDecodeExecutor(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Get the shared executor with the passed number of worker threads
+     *
+     * @param threadCount
+     *     the number of worker threads; values less than 2 disable parallel decoding
+     * @return the shared executor
+     */
+    public static PayloadDecodeExecutor getInstance(int threadCount) {
+        return INSTANCES.computeIfAbsent(Math.max(threadCount, 1), PayloadDecodeExecutor::new);
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @return the number of pages decoded by this executor
+     */
+    public long getPageCount() {
+        return pageCount.get();
+    }
+
+    /**
+     * @return the number of resources decoded by this executor
+     */
+    public long getResourceCount() {
+        return resourceCount.get();
+    }
+
+    /**
+     * @return the cumulative time, in nanoseconds, spent decoding pages
+     */
+    public long getDecodeTimeNanos() {
+        return decodeTimeNanos.get();
+    }
+
+    /**
+     * @return the number of chunks decoded on the calling thread because they could not be scheduled
+     */
+    public long getRejectedChunkCount() {
+        return rejectedChunkCount.get();
+    }
+
+    /**
+     * @return a summary of the counters of this executor, for logging
+     */
+    public String getMetrics() {
+        long pages = getPageCount();
+        return String.format("threads=%d, pages=%d, resources=%d, rejectedChunks=%d, avgPageDecodeTime=%.3fms",
+                threadCount, pages, getResourceCount(), getRejectedChunkCount(),
+                pages > 0 ? getDecodeTimeNanos() / (pages * 1e6) : 0);
+    }
+
+    /**
+     * Decode the passed rows
+     *
+     * @param rows
+     *     the rows to decode
+     * @param decoder
+     *     the decoder applied to each row; must be safe to call from multiple threads
+     * @return the decoded rows, in the same order as the passed rows
+     * @throws FHIRException
+     * @throws IOException
+     */
+    public <T, R> List<R> decode(List<T> rows, Decoder<T, R> decoder) throws FHIRException, IOException {
+        long start = System.nanoTime();
+
+        final int size = rows.size();
+        List<R> result;
+        if (threadCount < 2 || size < DEFAULT_MIN_PARALLEL_SIZE) {
+            result = new ArrayList<>(size);
+            for (T row : rows) {
+                result.add(decoder.decode(row));
+            }
+        } else {
+            Object[] decoded = new Object[size];
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + threadCount) / (threadCount + 1));
+
+            // hand off all but the first chunk to the executor
+            ExecutorService executor = getExecutorService();
+            FHIRRequestContext context = FHIRRequestContext.get();
+            List<Future<?>> futures = new ArrayList<>();
+            List<Integer> rejected = new ArrayList<>();
+            for (int from = chunkSize; from < size; from += chunkSize) {
+                final int chunkStart = from;
+                final int chunkEnd = Math.min(from + chunkSize, size);
+                if (!ACTIVE_TASK_PERMITS.tryAcquire()) {
+                    rejected.add(chunkStart);
+                    rejectedChunkCount.incrementAndGet();
+                    continue;
+                }
+                FutureTask<Void> future = new FutureTask<Void>(() -> {
+                    FHIRRequestContext previous = FHIRRequestContext.get();
+                    FHIRRequestContext.set(context);
+                    try {
+                        decodeChunk(rows, decoder, decoded, chunkStart, chunkEnd);
+                    } finally {
+                        FHIRRequestContext.set(previous);
+                    }
+                    return null;
+                }) {
+                    @Override
+                    protected void done() {
+                        // called once, when the chunk is decoded or cancelled
+                        ACTIVE_TASK_PERMITS.release();
+                    }
+                };
+                try {
+                    executor.execute(future);
+                    futures.add(future);
+                } catch (RejectedExecutionException e) {
+                    future.cancel(false);
+                    rejected.add(chunkStart);
+                    rejectedChunkCount.incrementAndGet();
+                }
+            }
+
+            try {
+                decodeChunk(rows, decoder, decoded, 0, Math.min(chunkSize, size));
+                for (int chunkStart : rejected) {
+                    decodeChunk(rows, decoder, decoded, chunkStart, Math.min(chunkStart + chunkSize, size));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FHIRPersistenceException("Interrupted while decoding resources", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof FHIRException) {
+                    throw (FHIRException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new FHIRPersistenceException("Unexpected error while decoding resources", cause);
+            } finally {
+                for (Future<?> future : futures) {
+                    future.cancel(false);
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            List<R> list = (List<R>) Arrays.asList(decoded);
+            result = new ArrayList<>(list);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long pages = pageCount.incrementAndGet();
+        resourceCount.addAndGet(size);
+        decodeTimeNanos.addAndGet(elapsed);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Resource page decode complete. resourceCount=" + size + " executionTime=" + (elapsed / 1e6) + "ms");
+        }
+        if (pages % METRICS_LOG_INTERVAL == 0) {
+            log.info("Resource page decode metrics: " + getMetrics());
+        }
+        return result;
+    }
+
+    private <T, R> void decodeChunk(List<T> rows, Decoder<T, R> decoder, Object[] decoded, int from, int to)
+            throws FHIRException, IOException {
+        for (int i = from; i < to; i++) {
+            decoded[i] = decoder.decode(rows.get(i));
+        }
+    }
+
+    private static ExecutorService getExecutorService() {
+        ExecutorService result = executorService;
+        if (result == null) {
+            synchronized (PayloadDecodeExecutor.class) {
+                result = executorService;
+                if (result == null) {
+                    result = lookupManagedExecutorService();
+                    if (result == null) {
+                        result = createExecutorService();
+                    }
+                    executorService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves (via a JNDI lookup) the default managed executor service. If the JNDI lookup fails, we'll assume that
+     * we're not running inside the container.
+     */
+    private static ExecutorService lookupManagedExecutorService() {
+        try {
+            InitialContext ctx = new InitialContext();
+            ExecutorService result = (ExecutorService) ctx.lookup(MANAGED_EXECUTOR_JNDI_NAME);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Using managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' for payload decoding");
+            }
+            return result;
+        } catch (Throwable t) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' is not available: " + t.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static ExecutorService createExecutorService() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "fhir-payload-decode-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
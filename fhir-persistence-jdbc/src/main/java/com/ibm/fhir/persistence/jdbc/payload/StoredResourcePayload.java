@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.persistence.ResourcePayload;
+
+/**
+ * A resource payload as stored in the DATA column of the resource tables; the JSON is written by
+ * the codec which stored the payload, without parsing the resource if the codec stores JSON.
+ */
+public class StoredResourcePayload implements ResourcePayload {
+    private final String logicalId;
+    private final byte[] data;
+
+    /**
+     * Public constructor
+     * @param logicalId
+     * @param data the payload, including the payload header (if any)
+     */
+    public StoredResourcePayload(String logicalId, byte[] data) {
+        this.logicalId = logicalId;
+        this.data = data;
+    }
+
+    @Override
+    public String getLogicalId() {
+        return logicalId;
+    }
+
+    @Override
+    public void transferTo(OutputStream out) throws FHIRException, IOException {
+        PayloadCodecRegistry.transferJson(data, out);
+    }
+}
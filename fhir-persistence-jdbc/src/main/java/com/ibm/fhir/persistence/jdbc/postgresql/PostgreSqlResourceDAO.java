@@ -164,6 +164,63 @@ public class PostgreSqlResourceDAO extends ResourceDAOImpl {
         return resource;
     }
 
+    @Override
+    protected void insertDistinct(List<Resource> resources, List<List<ExtractedParameterValue>> parameters, ParameterDAO parameterDao)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "insertDistinct";
+        logger.entering(CLASSNAME, METHODNAME);
+
+        final Connection connection = getConnection(); // do not close
+        long dbCallStartTime = System.nanoTime();
+
+        try {
+            String stmtString = String.format(SQL_INSERT_WITH_PARAMETERS, getSchemaName());
+            try (CallableStatement stmt = connection.prepareCall(stmtString)) {
+                for (Resource resource : resources) {
+                    cacheResourceTypeId(resource.getResourceType());
+
+                    stmt.setString(1, resource.getResourceType());
+                    stmt.setString(2, resource.getLogicalId());
+                    stmt.setBytes(3, resource.getData());
+                    stmt.setTimestamp(4, resource.getLastUpdated(), UTC);
+                    stmt.setString(5, resource.isDeleted() ? "Y": "N");
+                    stmt.setString(6, UUID.randomUUID().toString());
+                    stmt.setInt(7, resource.getVersionId());
+                    stmt.registerOutParameter(8, Types.BIGINT);
+                    stmt.execute();
+
+                    resource.setId(stmt.getLong(8));
+                }
+            }
+            double dbCallDuration = (System.nanoTime() - dbCallStartTime) / 1e6;
+
+            // postgresql doesn't support partitioned multi-tenancy, so we disable it on the DAO
+            insertParameters(resources, parameters, parameterDao, null, false);
+
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Successfully inserted " + resources.size() + " Resources. executionTime=" + dbCallDuration + "ms");
+            }
+        } catch(FHIRPersistenceDBConnectException | FHIRPersistenceDataAccessException e) {
+            throw e;
+        } catch(SQLIntegrityConstraintViolationException e) {
+            FHIRPersistenceFKVException fx = new FHIRPersistenceFKVException("Encountered FK violation while inserting Resource.");
+            throw severe(logger, fx, e);
+        } catch(SQLException e) {
+            if ("99001".equals(e.getSQLState())) {
+                // this is just a concurrency update, so there's no need to log the SQLException here
+                throw new FHIRPersistenceVersionIdMismatchException("Encountered version id mismatch while inserting Resource");
+            } else {
+                FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("SQLException encountered while inserting Resource.");
+                throw severe(logger, fx, e);
+            }
+        } catch(Throwable e) {
+            FHIRPersistenceDataAccessException fx = new FHIRPersistenceDataAccessException("Failure inserting Resource.");
+            throw severe(logger, fx, e);
+        } finally {
+            logger.exiting(CLASSNAME, METHODNAME);
+        }
+    }
+
     /**
      * Delete all parameters for the given resourceId from the parameters table
      *
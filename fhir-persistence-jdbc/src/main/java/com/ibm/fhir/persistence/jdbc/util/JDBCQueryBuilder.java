@@ -51,7 +51,9 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -63,6 +65,7 @@ import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceNotSupportedException;
 import com.ibm.fhir.persistence.jdbc.connection.QueryHints;
+import com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.JDBCIdentityCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ResourceDAO;
@@ -82,6 +85,7 @@ import com.ibm.fhir.search.exception.FHIRSearchException;
 import com.ibm.fhir.search.location.NearLocationHandler;
 import com.ibm.fhir.search.location.bounding.Bounding;
 import com.ibm.fhir.search.location.util.LocationUtil;
+import com.ibm.fhir.search.parameters.InclusionParameter;
 import com.ibm.fhir.search.parameters.QueryParameter;
 import com.ibm.fhir.search.parameters.QueryParameterValue;
 import com.ibm.fhir.search.util.SearchUtil;
@@ -126,6 +130,21 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
     // Hints to use for certain queries
     private final QueryHints queryHints;
 
+    // Cache of previously built queries (null if disabled)
+    private final IQueryCache queryCache;
+
+    // The maximum number of ids resolved by each stage of a chained search (0 if staging is disabled)
+    private int stagedChainThreshold;
+
+    // The ids resolved by each stage, so that the count and page queries of a search share them
+    private final Map<String, List<String>> stagedIds = new HashMap<>();
+
+    // True once a query contains resolved ids, which makes it unsuitable for the query cache
+    private boolean staged;
+
+    // A condition which is never true, for a chain link which matches no resources
+    private static final String NO_MATCH = "1 = 0";
+
     // Table alias prefixes
     private static final String CR = "CR";
     private static final String CLR = "CLR";
@@ -139,10 +158,36 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
      * @param identityCache
      */
     public JDBCQueryBuilder(ParameterDAO parameterDao, ResourceDAO resourceDao, QueryHints queryHints, JDBCIdentityCache identityCache) {
+        this(parameterDao, resourceDao, queryHints, identityCache, null);
+    }
+
+    /**
+     * Public constructor
+     * @param parameterDao
+     * @param resourceDao
+     * @param queryHints
+     * @param identityCache
+     * @param queryCache the cache of previously built count and page queries, or null to build every query
+     */
+    public JDBCQueryBuilder(ParameterDAO parameterDao, ResourceDAO resourceDao, QueryHints queryHints, JDBCIdentityCache identityCache,
+            IQueryCache queryCache) {
         this.parameterDao = parameterDao;
         this.resourceDao  = resourceDao;
         this.queryHints = queryHints;
         this.identityCache = identityCache;
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * Resolve chained and reverse chained (_has) search parameters in stages instead of a single statement.
+     * Each link of the chain is evaluated first into a list of logical ids which is bound in the query of the
+     * next link (or the search query). If a link matches more ids than the threshold, the parameter falls back
+     * to the single statement in which the links are nested as sub-selects.
+     *
+     * @param stagedChainThreshold the maximum number of ids resolved by a stage, or 0 to disable staging
+     */
+    public void setStagedChainThreshold(int stagedChainThreshold) {
+        this.stagedChainThreshold = stagedChainThreshold;
     }
 
     /**
@@ -165,9 +210,21 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         QuerySegmentAggregator helper;
         SqlQueryData query = null;
 
-        helper = this.buildQueryCommon(resourceType, searchContext);
+        sortSearchParameters(searchContext);
+        String signature = null;
+        if (queryCache != null) {
+            signature = SearchQuerySignature.forCountQuery(resourceType, searchContext);
+            query = getCachedQuery(signature);
+            if (query != null) {
+                log.exiting(CLASSNAME, METHODNAME);
+                return query;
+            }
+        }
+
+        helper = this.buildQueryCommon(resourceType, searchContext, 0);
         if (helper != null) {
             query = helper.buildCountQuery();
+            addCachedQuery(signature, searchContext, query);
         }
 
         log.exiting(CLASSNAME, METHODNAME);
@@ -176,6 +233,24 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
 
     @Override
     public SqlQueryData buildQuery(Class<?> resourceType, FHIRSearchContext searchContext) throws Exception {
+        return buildQuery(resourceType, searchContext, 0);
+    }
+
+    /**
+     * Builds a query for the current page of the passed search context which fetches the given number of rows
+     * in addition to the rows of the page. Fetching one extra row tells whether there is a next page without
+     * running a count query.
+     *
+     * @param resourceType
+     *                      - The type of resource being searched for.
+     * @param searchContext
+     *                      - The search context containing the search parameters.
+     * @param extraRows
+     *                      - The number of rows to fetch after the last row of the page.
+     * @return SqlQueryData - the query, or null if the search cannot match any resources
+     * @throws Exception
+     */
+    public SqlQueryData buildQuery(Class<?> resourceType, FHIRSearchContext searchContext, int extraRows) throws Exception {
         final String METHODNAME = "buildQuery";
         log.entering(CLASSNAME, METHODNAME,
                 new Object[] { resourceType.getSimpleName(), searchContext.getSearchParameters() });
@@ -183,15 +258,180 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         SqlQueryData query = null;
         QuerySegmentAggregator helper;
 
-        helper = this.buildQueryCommon(resourceType, searchContext);
+        sortSearchParameters(searchContext);
+        String signature = null;
+        if (queryCache != null) {
+            signature = SearchQuerySignature.forQuery(resourceType, searchContext, extraRows);
+            query = getCachedQuery(signature);
+            if (query != null) {
+                log.exiting(CLASSNAME, METHODNAME);
+                return query;
+            }
+        }
+
+        helper = this.buildQueryCommon(resourceType, searchContext, extraRows);
         if (helper != null) {
             query = helper.buildQuery();
+            addCachedQuery(signature, searchContext, query);
         }
 
         log.exiting(CLASSNAME, METHODNAME);
         return query;
     }
 
+    /**
+     * Get the query previously built for the given search signature from the query cache
+     * @param signature
+     * @return the cached query, or null
+     */
+    private SqlQueryData getCachedQuery(String signature) {
+        SqlQueryData query = queryCache.getQuery(signature);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Query cache " + (query != null ? "hit" : "miss") + ", hits=" + queryCache.getHitCount()
+                    + " misses=" + queryCache.getMissCount());
+        }
+        return query;
+    }
+
+    /**
+     * Add the query built for the given search signature to the query cache. Like staged queries,
+     * queries of searches with _include or _revinclude parameters are not cached, because the
+     * inclusion query segments may be built from ids read while the query is built.
+     * @param signature the signature, or null if the query cache is disabled
+     * @param searchContext the search context the query was built for
+     * @param query the query, or null if the search cannot match any resources
+     */
+    private void addCachedQuery(String signature, FHIRSearchContext searchContext, SqlQueryData query) {
+        if (signature != null && query != null && !staged
+                && !searchContext.hasIncludeParameters() && !searchContext.hasRevIncludeParameters()) {
+            queryCache.addQuery(signature, new SqlQueryData(query.getQueryString(),
+                    Collections.unmodifiableList(new ArrayList<>(query.getBindVariables()))));
+        }
+    }
+
+    /**
+     * Sorts the search parameters of the passed search context in place, forcing _id and _lastUpdated
+     * to come before all other parameters.
+     *
+     * @param searchContext
+     */
+    private void sortSearchParameters(FHIRSearchContext searchContext) {
+        searchContext.getSearchParameters().sort(new Comparator<QueryParameter>() {
+            @Override
+            public int compare(QueryParameter leftParameter, QueryParameter rightParameter) {
+                int result = 0;
+                if (QuerySegmentAggregator.ID.equals(leftParameter.getCode())) {
+                    result = -100;
+                } else if (LastUpdatedParmBehaviorUtil.LAST_UPDATED.equals(leftParameter.getCode())) {
+                    result = -90;
+                }
+                return result;
+            }
+
+        });
+    }
+
+    /**
+     * Builds a query for the resource ids of the resources to include with a page of search results for the
+     * passed _include parameter. Only the current, not deleted, versions are selected.
+     * <p>
+     * For example, {@code /Observation?_include=Observation:patient} selects the Patient resources referenced
+     * by the Observation resources on the page:
+     *
+     * <pre>
+     * SELECT R.RESOURCE_ID FROM Patient_RESOURCES R JOIN Patient_LOGICAL_RESOURCES LR ON R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID
+     *  WHERE R.IS_DELETED = 'N' AND LR.LOGICAL_ID IN
+     *    (SELECT P1.TOKEN_VALUE FROM Observation_TOKEN_VALUES_V P1
+     *       JOIN Observation_LOGICAL_RESOURCES PLR ON PLR.LOGICAL_RESOURCE_ID = P1.LOGICAL_RESOURCE_ID
+     *      WHERE P1.PARAMETER_NAME_ID = {n} AND P1.CODE_SYSTEM_ID = {Patient} AND PLR.LOGICAL_ID IN (?, ?, ...))
+     * </pre>
+     *
+     * @param resourceType
+     *                      - The type of resource being searched for.
+     * @param includeParm
+     *                      - The _include parameter.
+     * @param logicalIds
+     *                      - The logical ids of the resources on the page.
+     * @return SqlQueryData - the query for the resource ids of the included resources
+     * @throws FHIRPersistenceException
+     */
+    public SqlQueryData buildIncludeQuery(Class<?> resourceType, InclusionParameter includeParm, List<String> logicalIds)
+            throws FHIRPersistenceException {
+        final String METHODNAME = "buildIncludeQuery";
+        log.entering(CLASSNAME, METHODNAME);
+
+        String sourceType = resourceType.getSimpleName();
+        String targetType = includeParm.getSearchParameterTargetType();
+        List<Object> bindVariables = new ArrayList<>();
+
+        StringBuilder queryString = new StringBuilder();
+        appendCurrentResourceIdSelect(queryString, targetType);
+        queryString.append(" AND LR.LOGICAL_ID IN (SELECT P1.TOKEN_VALUE FROM ").append(sourceType).append("_TOKEN_VALUES_V P1")
+                .append(JOIN).append(sourceType).append(_LOGICAL_RESOURCES).append(" PLR ON PLR.LOGICAL_RESOURCE_ID = P1.LOGICAL_RESOURCE_ID")
+                .append(WHERE).append("P1.PARAMETER_NAME_ID = ").append(nullCheck(identityCache.getParameterNameId(includeParm.getSearchParameter())))
+                .append(AND).append("P1.CODE_SYSTEM_ID = ").append(nullCheck(getCodeSystemId(targetType)))
+                .append(AND).append("PLR.LOGICAL_ID IN ");
+        appendIdList(queryString, bindVariables, logicalIds);
+        queryString.append(RIGHT_PAREN);
+
+        SqlQueryData queryData = new SqlQueryData(queryString.toString(), bindVariables);
+        log.exiting(CLASSNAME, METHODNAME, queryData);
+        return queryData;
+    }
+
+    /**
+     * Builds a query for the resource ids of the resources to include with a page of search results for the
+     * passed _revinclude parameter. Only the current, not deleted, versions are selected.
+     * <p>
+     * For example, {@code /Patient?_revinclude=Observation:patient} selects the Observation resources which
+     * reference the Patient resources on the page:
+     *
+     * <pre>
+     * SELECT R.RESOURCE_ID FROM Observation_RESOURCES R JOIN Observation_LOGICAL_RESOURCES LR ON R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID
+     *  WHERE R.IS_DELETED = 'N' AND LR.LOGICAL_RESOURCE_ID IN
+     *    (SELECT P1.LOGICAL_RESOURCE_ID FROM Observation_TOKEN_VALUES_V P1
+     *      WHERE P1.PARAMETER_NAME_ID = {n} AND P1.CODE_SYSTEM_ID = {Patient} AND P1.TOKEN_VALUE IN (?, ?, ...))
+     * </pre>
+     *
+     * @param revIncludeParm
+     *                      - The _revinclude parameter.
+     * @param logicalIds
+     *                      - The logical ids of the resources on the page.
+     * @return SqlQueryData - the query for the resource ids of the included resources
+     * @throws FHIRPersistenceException
+     */
+    public SqlQueryData buildRevIncludeQuery(InclusionParameter revIncludeParm, List<String> logicalIds) throws FHIRPersistenceException {
+        final String METHODNAME = "buildRevIncludeQuery";
+        log.entering(CLASSNAME, METHODNAME);
+
+        String joinType = revIncludeParm.getJoinResourceType();
+        List<Object> bindVariables = new ArrayList<>();
+
+        StringBuilder queryString = new StringBuilder();
+        appendCurrentResourceIdSelect(queryString, joinType);
+        queryString.append(" AND LR.LOGICAL_RESOURCE_ID IN (SELECT P1.LOGICAL_RESOURCE_ID FROM ").append(joinType).append("_TOKEN_VALUES_V P1")
+                .append(WHERE).append("P1.PARAMETER_NAME_ID = ").append(nullCheck(identityCache.getParameterNameId(revIncludeParm.getSearchParameter())))
+                .append(AND).append("P1.CODE_SYSTEM_ID = ").append(nullCheck(getCodeSystemId(revIncludeParm.getSearchParameterTargetType())))
+                .append(AND).append("P1.TOKEN_VALUE IN ");
+        appendIdList(queryString, bindVariables, logicalIds);
+        queryString.append(RIGHT_PAREN);
+
+        SqlQueryData queryData = new SqlQueryData(queryString.toString(), bindVariables);
+        log.exiting(CLASSNAME, METHODNAME, queryData);
+        return queryData;
+    }
+
+    /**
+     * Builds this piece of an inclusion query:
+     * SELECT R.RESOURCE_ID FROM x_RESOURCES R JOIN x_LOGICAL_RESOURCES LR ON R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID WHERE R.IS_DELETED = 'N'
+     */
+    private void appendCurrentResourceIdSelect(StringBuilder queryString, String resourceTypeName) {
+        queryString.append(SELECT).append("R.RESOURCE_ID").append(FROM).append(resourceTypeName).append(_RESOURCES).append(" R")
+                .append(JOIN).append(resourceTypeName).append(_LOGICAL_RESOURCES).append(" LR")
+                .append(ON).append("R.RESOURCE_ID = LR.CURRENT_RESOURCE_ID")
+                .append(WHERE).append("R.").append(IS_DELETED_NO);
+    }
+
     /**
      * Contains logic common to the building of both 'count' resource queries and
      * 'regular' resource queries.
@@ -200,11 +440,13 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
      *                      The type of FHIR resource being searched for.
      * @param searchContext
      *                      The search context containing search parameters.
+     * @param extraRows
+     *                      The number of rows to fetch in addition to the page size.
      * @return QuerySegmentAggregator - A query builder helper containing processed
      *         query segments.
      * @throws Exception
      */
-    private QuerySegmentAggregator buildQueryCommon(Class<?> resourceType, FHIRSearchContext searchContext)
+    private QuerySegmentAggregator buildQueryCommon(Class<?> resourceType, FHIRSearchContext searchContext, int extraRows)
             throws Exception {
         final String METHODNAME = "buildQueryCommon";
         log.entering(CLASSNAME, METHODNAME,
@@ -212,32 +454,17 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
 
         SqlQueryData querySegment;
         int nearParameterIndex;
+        // The parameters have been sorted by sortSearchParameters, with _id and _lastUpdated first
         List<QueryParameter> searchParameters = searchContext.getSearchParameters();
 
-        // Forces _id and _lastUpdated to come before all other parameters, which is good for this bit here
-        // zero is used to for all other cases.
-        searchParameters.sort(new Comparator<QueryParameter>() {
-            @Override
-            public int compare(QueryParameter leftParameter, QueryParameter rightParameter) {
-                int result = 0;
-                if (QuerySegmentAggregator.ID.equals(leftParameter.getCode())) {
-                    result = -100;
-                } else if (LastUpdatedParmBehaviorUtil.LAST_UPDATED.equals(leftParameter.getCode())) {
-                    result = -90;
-                }
-                return result;
-            }
-
-        });
-
         int pageSize = searchContext.getPageSize();
         int offset = (searchContext.getPageNumber() - 1) * pageSize;
         QuerySegmentAggregator helper;
         boolean isValidQuery = true;
 
         helper =
-                QuerySegmentAggregatorFactory.buildQuerySegmentAggregator(resourceType, offset, pageSize,
-                        this.parameterDao, this.resourceDao, searchContext, this.queryHints, this.identityCache);
+                QuerySegmentAggregatorFactory.buildQuerySegmentAggregator(resourceType, offset, pageSize + extraRows,
+                        this.parameterDao, this.resourceDao, searchContext, this.queryHints);
 
         // Special logic for handling LocationPosition queries. These queries have interdependencies between
         // a couple of related input query parameters
@@ -373,8 +600,16 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
                 case REFERENCE:
                     if (queryParm.isReverseChained()) {
                         databaseQueryParm = this.processReverseChainedReferenceParm(resourceType, queryParm);
+                        if (stagedChainThreshold > 0 && databaseQueryParm != null) {
+                            databaseQueryParm = this.stageReverseChainedReferenceParm(resourceType, databaseQueryParm);
+                        }
                     } else if (queryParm.isChained()) {
-                        databaseQueryParm = this.processChainedReferenceParm(queryParm);
+                        if (stagedChainThreshold > 0) {
+                            databaseQueryParm = this.processChainedReferenceParmStaged(queryParm);
+                        }
+                        if (databaseQueryParm == null) {
+                            databaseQueryParm = this.processChainedReferenceParm(queryParm);
+                        }
                     } else if (queryParm.isInclusionCriteria()) {
                         databaseQueryParm = this.processInclusionCriteria(queryParm);
                     } else {
@@ -660,25 +895,8 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
             QueryParameter nextParameter = currentParm.getNextParameter();
             if (nextParameter != null) {
                 if (refParmIndex == 0) {
-                    // Must build this first piece using px placeholder table alias, which will be replaced with a
-                    // generated value in the buildQuery() method. The CODE_SYSTEM_ID filter is added for issue #1366
-                    // due to the normalization of token values
                     // Build this piece:P1.PARAMETER_NAME_ID = x AND AND P1.CODE_SYSTEM_ID = x AND (p1.TOKEN_VALUE IN
-                    this.populateNameIdSubSegment(whereClauseSegment, currentParm.getCode(), PARAMETER_TABLE_ALIAS);
-
-                    // The resource type of the reference is encoded as the code system associated with the token value
-                    // so we need to add a filter to ensure we don't match logical-ids for other resource types
-                    // Note if the match is for any resource, we simply don't filter on the resource type
-                    final String codeSystemName = currentParm.getModifierResourceTypeName();
-                    if (codeSystemName != null && !codeSystemName.equals("*")) {
-                        Integer codeSystemId = identityCache.getCodeSystemId(codeSystemName);
-                        if (codeSystemId != null) {
-                            whereClauseSegment.append(AND).append(PARAMETER_TABLE_ALIAS).append(DOT).append(CODE_SYSTEM_ID).append(EQ)
-                                    .append(codeSystemId);
-                        }
-                    }
-
-                    whereClauseSegment.append(AND);
+                    appendFirstChainParm(whereClauseSegment, currentParm);
                     whereClauseSegment.append(LEFT_PAREN);
                     whereClauseSegment.append(PARAMETER_TABLE_ALIAS).append(DOT).append(TOKEN_VALUE).append(IN);
                 } else {
@@ -710,32 +928,10 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
                         chainedResourceVar, chainedLogicalResourceVar, chainedParmVar);
             } else {
                 // This logic processes the LAST parameter in the chain.
-                // Build this piece: CPx.PARAMETER_NAME_ID = x AND CPx.TOKEN_VALUE = ?
-                // TODO do we need to filter the code-system here too?
                 if (chainedParmVar == null) {
                     chainedParmVar = CP + 1;
                 }
-                Class<?> chainedResourceType = ModelSupport.getResourceType(resourceTypeName);
-
-                String code = currentParm.getCode();
-                SqlQueryData sqlQueryData;
-                if ("_id".equals(code)) {
-                    // The code '_id' is only going to be the end of the change as it is a base element.
-                    // We know at this point this is an '_id' and at the tail of the parameter chain
-                    sqlQueryData = buildChainedIdClause(currentParm, chainedParmVar);
-                } else if ("_lastUpdated".equals(code)) {
-                    // Build the rest: (LAST_UPDATED <operator> ?)
-                    LastUpdatedParmBehaviorUtil util = new LastUpdatedParmBehaviorUtil();
-                    StringBuilder lastUpdatedWhereClause = new StringBuilder();
-                    util.executeBehavior(lastUpdatedWhereClause, currentParm);
-                    sqlQueryData = new SqlQueryData(lastUpdatedWhereClause.toString(), util.getBindVariables());
-                } else {
-                    sqlQueryData = buildQueryParm(chainedResourceType, currentParm, chainedParmVar);
-                }
-
-                if (log.isLoggable(Level.FINE)) {
-                    log.fine("chained sqlQueryData[" + chainedParmVar + "] = " + sqlQueryData.getQueryString());
-                }
+                SqlQueryData sqlQueryData = buildLastChainParm(currentParm, resourceTypeName, chainedParmVar);
                 whereClauseSegment.append(sqlQueryData.getQueryString());
                 bindVariables.addAll(sqlQueryData.getBindVariables());
             }
@@ -753,6 +949,255 @@ public class JDBCQueryBuilder extends AbstractQueryBuilder<SqlQueryData> {
         return queryData;
     }
 
+    /**
+     * Staged alternative to {@link #processChainedReferenceParm(QueryParameter)}. The last link of the chain is
+     * evaluated first into a list of logical ids, which is bound in the select of the previous link, and so on back
+     * to the first link. This avoids the nested sub-selects which Db2 and PostgreSQL tend to plan badly once the
+     * chain has more than one link or an inner select matches many rows.
+     * <p>
+     * For Observation?device:Device.patient:Patient.name=Monella, the stages are:
+     *
+     * <pre>
+     * SELECT DISTINCT CLR1.LOGICAL_ID FROM Patient_RESOURCES CR1, Patient_LOGICAL_RESOURCES CLR1, Patient_STR_VALUES CP1 WHERE
+     *   CR1.RESOURCE_ID = CLR1.CURRENT_RESOURCE_ID AND CR1.IS_DELETED = 'N' AND CP1.LOGICAL_RESOURCE_ID = CR1.LOGICAL_RESOURCE_ID AND
+     *   (CP1.PARAMETER_NAME_ID = 5 AND CP1.STR_VALUE = ?) FETCH FIRST 1001 ROWS ONLY
+     *
+     * SELECT DISTINCT CLR1.LOGICAL_ID FROM Device_RESOURCES CR1, Device_LOGICAL_RESOURCES CLR1, Device_TOKEN_VALUES_V CP1 WHERE
+     *   CR1.RESOURCE_ID = CLR1.CURRENT_RESOURCE_ID AND CR1.IS_DELETED = 'N' AND CP1.LOGICAL_RESOURCE_ID = CR1.LOGICAL_RESOURCE_ID AND
+     *   CP1.PARAMETER_NAME_ID = 17 AND CP1.CODE_SYSTEM_ID = 20 AND CP1.TOKEN_VALUE IN (?, ?) FETCH FIRST 1001 ROWS ONLY
+     * </pre>
+     *
+     * and the returned segment is:
+     *
+     * <pre>
+     * (P1.PARAMETER_NAME_ID = 107 AND P1.CODE_SYSTEM_ID = 21 AND (P1.TOKEN_VALUE IN (?, ?, ?)))
+     * </pre>
+     *
+     * @param queryParm
+     *                  - A Parameter representing a chained query.
+     * @return SqlQueryData - The query segment for the chained parameter, or null if the chain contains a wildcard
+     *         resource type or one of its links matches more ids than the staged chain threshold
+     * @throws Exception
+     */
+    private SqlQueryData processChainedReferenceParmStaged(QueryParameter queryParm) throws Exception {
+        final String METHODNAME = "processChainedReferenceParmStaged";
+        log.entering(CLASSNAME, METHODNAME, queryParm.toString());
+
+        List<QueryParameter> links = new ArrayList<>();
+        for (QueryParameter currentParm = queryParm; currentParm.getNextParameter() != null; currentParm = currentParm.getNextParameter()) {
+            if ("*".equals(currentParm.getModifierResourceTypeName())) {
+                // Wildcard links are a union over all resource types, see processWildcardChainedRefParm
+                log.exiting(CLASSNAME, METHODNAME);
+                return null;
+            }
+            links.add(currentParm);
+        }
+
+        // Resolve the links from the last one back to the first one. The select of each link is the same as
+        // the sub-select nested for it by processChainedReferenceParm, with the ids of the next link bound.
+        List<String> ids = null;
+        for (int i = links.size() - 1; i >= 0; i--) {
+            QueryParameter currentParm = links.get(i);
+            String resourceTypeName = currentParm.getModifierResourceTypeName();
+            StringBuilder selectSegment = new StringBuilder();
+            List<Object> bindVariables = new ArrayList<>();
+            appendInnerSelect(selectSegment, currentParm, resourceTypeName, CR + 1, CLR + 1, CP + 1);
+            if (ids == null) {
+                SqlQueryData sqlQueryData = buildLastChainParm(currentParm.getNextParameter(), resourceTypeName, CP + 1);
+                selectSegment.append(sqlQueryData.getQueryString());
+                bindVariables.addAll(sqlQueryData.getBindVariables());
+            } else {
+                appendMidChainParm(selectSegment, currentParm.getNextParameter(), CP + 1);
+                appendIdList(selectSegment, bindVariables, ids);
+            }
+
+            // Only distinct ids count towards the threshold
+            selectSegment.replace(0, SELECT.length(), SELECT + "DISTINCT ");
+            ids = resolveStagedIds(selectSegment, bindVariables);
+            if (ids == null) {
+                log.exiting(CLASSNAME, METHODNAME);
+                return null;
+            }
+            if (ids.isEmpty()) {
+                // nothing further up the chain can match
+                break;
+            }
+        }
+
+        // Build this piece: (P1.PARAMETER_NAME_ID = x AND P1.CODE_SYSTEM_ID = x AND (P1.TOKEN_VALUE IN (?, ?)))
+        StringBuilder whereClauseSegment = new StringBuilder();
+        List<Object> bindVariables = new ArrayList<>();
+        appendFirstChainParm(whereClauseSegment, queryParm);
+        whereClauseSegment.append(LEFT_PAREN);
+        if (ids.isEmpty()) {
+            whereClauseSegment.append(NO_MATCH);
+        } else {
+            whereClauseSegment.append(PARAMETER_TABLE_ALIAS).append(DOT).append(TOKEN_VALUE).append(IN);
+            appendIdList(whereClauseSegment, bindVariables, ids);
+        }
+        whereClauseSegment.append(RIGHT_PAREN).append(RIGHT_PAREN);
+
+        SqlQueryData queryData = new SqlQueryData(whereClauseSegment.toString(), bindVariables);
+        log.exiting(CLASSNAME, METHODNAME, queryData.getQueryString());
+        return queryData;
+    }
+
+    /**
+     * Resolves the reverse chained query segment built by
+     * {@link #processReverseChainedReferenceParm(Class, QueryParameter)} into the logical ids of the resources it
+     * matches, and replaces it with a select of those ids:
+     *
+     * <pre>
+     * SELECT CLR0.LOGICAL_ID FROM Patient_LOGICAL_RESOURCES AS CLR0 WHERE CLR0.LOGICAL_ID IN (?, ?, ?)
+     * </pre>
+     *
+     * @param resourceType
+     *                  - The resource type being searched.
+     * @param queryData
+     *                  - The reverse chained query segment
+     * @return SqlQueryData - The staged query segment, or the passed query segment if it matches more ids than the
+     *         staged chain threshold
+     * @throws Exception
+     */
+    private SqlQueryData stageReverseChainedReferenceParm(Class<?> resourceType, SqlQueryData queryData) throws Exception {
+        final String METHODNAME = "stageReverseChainedReferenceParm";
+        log.entering(CLASSNAME, METHODNAME);
+
+        List<String> ids = resolveStagedIds(new StringBuilder(queryData.getQueryString()),
+                new ArrayList<>(queryData.getBindVariables()));
+        if (ids == null) {
+            log.exiting(CLASSNAME, METHODNAME);
+            return queryData;
+        }
+
+        String logicalResourceVar = CLR + 0;
+        StringBuilder selectSegment = new StringBuilder();
+        List<Object> bindVariables = new ArrayList<>();
+        selectSegment.append(SELECT).append(logicalResourceVar).append(DOT).append(LOGICAL_ID)
+                .append(FROM).append(resourceType.getSimpleName()).append(_LOGICAL_RESOURCES).append(AS).append(logicalResourceVar)
+                .append(WHERE);
+        if (ids.isEmpty()) {
+            selectSegment.append(NO_MATCH);
+        } else {
+            selectSegment.append(logicalResourceVar).append(DOT).append(LOGICAL_ID).append(IN);
+            appendIdList(selectSegment, bindVariables, ids);
+        }
+
+        SqlQueryData result = new SqlQueryData(selectSegment.toString(), bindVariables);
+        log.exiting(CLASSNAME, METHODNAME, result.getQueryString());
+        return result;
+    }
+
+    /**
+     * Runs the passed select of a chain link, limited to one row more than the staged chain threshold.
+     * The result is kept, so the count and page queries of a search run each select once.
+     *
+     * @param selectSegment a select returning logical ids
+     * @param bindVariables
+     * @return the selected logical ids, or null if there are more of them than the staged chain threshold
+     * @throws Exception
+     */
+    private List<String> resolveStagedIds(StringBuilder selectSegment, List<Object> bindVariables) throws Exception {
+        // Whether the ids are used or not, the plan now depends on the data
+        staged = true;
+
+        if (parameterDao.isDb2Database()) {
+            selectSegment.append(" LIMIT ").append(stagedChainThreshold + 1);
+        } else {
+            selectSegment.append(" FETCH FIRST ").append(stagedChainThreshold + 1).append(" ROWS ONLY");
+        }
+
+        String key = selectSegment.toString() + bindVariables;
+        List<String> ids = stagedIds.get(key);
+        if (ids == null) {
+            ids = resourceDao.searchStringValues(new SqlQueryData(selectSegment.toString(), bindVariables));
+            stagedIds.put(key, ids);
+        }
+
+        if (ids.size() > stagedChainThreshold) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Chain link matches more than " + stagedChainThreshold + " ids, using a single statement");
+            }
+            return null;
+        }
+        return ids;
+    }
+
+    /**
+     * Appends a list of bind markers for the passed ids: (?, ?, ?)
+     */
+    private void appendIdList(StringBuilder whereClauseSegment, List<Object> bindVariables, List<String> ids) {
+        whereClauseSegment.append(LEFT_PAREN);
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                whereClauseSegment.append(COMMA);
+            }
+            whereClauseSegment.append(BIND_VAR);
+        }
+        whereClauseSegment.append(RIGHT_PAREN);
+        bindVariables.addAll(ids);
+    }
+
+    /**
+     * Builds this piece for the first parameter in a chain:
+     * (P1.PARAMETER_NAME_ID = x AND P1.CODE_SYSTEM_ID = x AND
+     */
+    private void appendFirstChainParm(StringBuilder whereClauseSegment, QueryParameter currentParm) throws FHIRPersistenceException {
+        // Must build this first piece using px placeholder table alias, which will be replaced with a
+        // generated value in the buildQuery() method. The CODE_SYSTEM_ID filter is added for issue #1366
+        // due to the normalization of token values
+        this.populateNameIdSubSegment(whereClauseSegment, currentParm.getCode(), PARAMETER_TABLE_ALIAS);
+
+        // The resource type of the reference is encoded as the code system associated with the token value
+        // so we need to add a filter to ensure we don't match logical-ids for other resource types
+        // Note if the match is for any resource, we simply don't filter on the resource type
+        final String codeSystemName = currentParm.getModifierResourceTypeName();
+        if (codeSystemName != null && !codeSystemName.equals("*")) {
+            Integer codeSystemId = identityCache.getCodeSystemId(codeSystemName);
+            if (codeSystemId != null) {
+                whereClauseSegment.append(AND).append(PARAMETER_TABLE_ALIAS).append(DOT).append(CODE_SYSTEM_ID).append(EQ)
+                        .append(codeSystemId);
+            }
+        }
+
+        whereClauseSegment.append(AND);
+    }
+
+    /**
+     * Builds the query segment for the LAST parameter in a chain, e.g. CPx.PARAMETER_NAME_ID = x AND CPx.TOKEN_VALUE = ?
+     *
+     * @param currentParm the last parameter in the chain
+     * @param resourceTypeName the resource type of the last link
+     * @param chainedParmVar the parameter table alias of the last link
+     * @return
+     * @throws Exception
+     */
+    private SqlQueryData buildLastChainParm(QueryParameter currentParm, String resourceTypeName, String chainedParmVar) throws Exception {
+        // TODO do we need to filter the code-system here too?
+        Class<?> chainedResourceType = ModelSupport.getResourceType(resourceTypeName);
+
+        String code = currentParm.getCode();
+        SqlQueryData sqlQueryData;
+        if ("_id".equals(code)) {
+            // The code '_id' is only going to be the end of the change as it is a base element.
+            // We know at this point this is an '_id' and at the tail of the parameter chain
+            sqlQueryData = buildChainedIdClause(currentParm, chainedParmVar);
+        } else if ("_lastUpdated".equals(code)) {
+            // Build the rest: (LAST_UPDATED <operator> ?)
+            LastUpdatedParmBehaviorUtil util = new LastUpdatedParmBehaviorUtil();
+            StringBuilder lastUpdatedWhereClause = new StringBuilder();
+            util.executeBehavior(lastUpdatedWhereClause, currentParm);
+            sqlQueryData = new SqlQueryData(lastUpdatedWhereClause.toString(), util.getBindVariables());
+        } else {
+            sqlQueryData = buildQueryParm(chainedResourceType, currentParm, chainedParmVar);
+        }
+
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("chained sqlQueryData[" + chainedParmVar + "] = " + sqlQueryData.getQueryString());
+        }
+        return sqlQueryData;
+    }
+
     /*
      * Builds the specific handling for exact matches on _id.
      * The procedure here is SIMILAR to that of QuerySegmentAggregator.processFromClauseForId
@@ -10,7 +10,6 @@ import java.util.logging.Logger;
 
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.persistence.jdbc.connection.QueryHints;
-import com.ibm.fhir.persistence.jdbc.dao.api.JDBCIdentityCache;
 import com.ibm.fhir.persistence.jdbc.dao.api.ParameterDAO;
 import com.ibm.fhir.persistence.jdbc.dao.api.ResourceDAO;
 import com.ibm.fhir.search.context.FHIRSearchContext;
@@ -27,18 +26,14 @@ public class QuerySegmentAggregatorFactory {
      *
      */
     public static QuerySegmentAggregator buildQuerySegmentAggregator(Class<?> resourceType, int offset, int pageSize, 
-                                    ParameterDAO parameterDao, ResourceDAO resourceDao, FHIRSearchContext searchContext, QueryHints queryHints,
-                                    JDBCIdentityCache identityCache) {
+                                    ParameterDAO parameterDao, ResourceDAO resourceDao, FHIRSearchContext searchContext, QueryHints queryHints) {
         final String METHODNAME = "buildQuerySegmentAggregator";
         log.entering(CLASSNAME, METHODNAME);
         
         QuerySegmentAggregator qsa;
         
-        if (searchContext.hasIncludeParameters() || searchContext.hasRevIncludeParameters()) {
-            qsa = new InclusionQuerySegmentAggregator(resourceType, offset, pageSize, parameterDao, resourceDao, 
-                                                      searchContext.getIncludeParameters(), searchContext.getRevIncludeParameters(), queryHints, identityCache);
-        }
-        else if (searchContext.hasSortParameters()) {
+        // The _include and _revinclude resources are read separately, after the page (see JDBCQueryBuilder.buildIncludeQuery)
+        if (searchContext.hasSortParameters()) {
             qsa = new SortedQuerySegmentAggregator(resourceType, offset, pageSize, parameterDao, resourceDao, searchContext.getSortParameters(), queryHints);
         }
         else {
@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.util;
+
+import java.util.List;
+
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.parameters.QueryParameter;
+import com.ibm.fhir.search.parameters.QueryParameterValue;
+import com.ibm.fhir.search.parameters.SortParameter;
+
+/**
+ * Builds the signature of a search, used as the key of the {@link com.ibm.fhir.persistence.jdbc.dao.api.IQueryCache}.
+ * <br>
+ * The signature covers everything in the search context which the JDBCQueryBuilder uses to build a query:
+ * the resource type(s), the search parameters (including chained and composite parameters and all their values),
+ * the sort parameters and, for the page query, the page. The _include and _revinclude parameters are not part
+ * of it; the included resources are selected by separate queries. The search values must be included
+ * because the builder does not only bind them; the number of values, the date and number ranges and the
+ * code systems they refer to all change the text of the generated SQL.
+ */
+public class SearchQuerySignature {
+    // Separates the elements of the signature; strings are length-prefixed so can't be confused with it
+    private static final char SEP = '|';
+
+    private SearchQuerySignature() {
+        // static only
+    }
+
+    /**
+     * Build the signature of the count query for the given search
+     * @param resourceType
+     * @param searchContext
+     * @return
+     */
+    public static String forCountQuery(Class<?> resourceType, FHIRSearchContext searchContext) {
+        StringBuilder signature = new StringBuilder("count");
+        appendSearch(signature, resourceType, searchContext);
+        return signature.toString();
+    }
+
+    /**
+     * Build the signature of the page query for the given search
+     * @param resourceType
+     * @param searchContext
+     * @param extraRows the number of rows fetched after the last row of the page
+     * @return
+     */
+    public static String forQuery(Class<?> resourceType, FHIRSearchContext searchContext, int extraRows) {
+        StringBuilder signature = new StringBuilder("query");
+        signature.append(SEP).append(searchContext.getPageNumber())
+            .append(SEP).append(searchContext.getPageSize())
+            .append(SEP).append(extraRows);
+        appendSearch(signature, resourceType, searchContext);
+        return signature.toString();
+    }
+
+    private static void appendSearch(StringBuilder signature, Class<?> resourceType, FHIRSearchContext searchContext) {
+        appendString(signature, resourceType.getName());
+
+        List<String> searchResourceTypes = searchContext.getSearchResourceTypes();
+        if (searchResourceTypes != null) {
+            signature.append(SEP).append("types");
+            for (String searchResourceType : searchResourceTypes) {
+                appendString(signature, searchResourceType);
+            }
+        }
+
+        for (QueryParameter parameter : searchContext.getSearchParameters()) {
+            signature.append(SEP).append("param");
+            appendParameter(signature, parameter);
+        }
+
+        if (searchContext.hasSortParameters()) {
+            for (SortParameter sortParameter : searchContext.getSortParameters()) {
+                signature.append(SEP).append("sort");
+                appendString(signature, sortParameter.getCode());
+                appendObject(signature, sortParameter.getType());
+                appendObject(signature, sortParameter.getDirection());
+            }
+        }
+    }
+
+    private static void appendParameter(StringBuilder signature, QueryParameter parameter) {
+        appendObject(signature, parameter.getType());
+        appendString(signature, parameter.getCode());
+        appendObject(signature, parameter.getModifier());
+        appendString(signature, parameter.getModifierResourceTypeName());
+        signature.append(SEP).append(parameter.isInclusionCriteria())
+            .append(SEP).append(parameter.isReverseChained());
+
+        for (QueryParameterValue value : parameter.getValues()) {
+            signature.append(SEP).append("value");
+            appendObject(signature, value.getPrefix());
+            appendString(signature, value.getValueString());
+            appendObject(signature, value.getValueDateLowerBound());
+            appendObject(signature, value.getValueDateUpperBound());
+            // BigDecimal.toString keeps the scale, which determines the implied range of the value
+            appendObject(signature, value.getValueNumber());
+            appendString(signature, value.getValueSystem());
+            appendString(signature, value.getValueCode());
+            signature.append(SEP).append(value.isHidden());
+            for (QueryParameter component : value.getComponent()) {
+                signature.append(SEP).append("component");
+                appendParameter(signature, component);
+            }
+        }
+
+        if (parameter.getNextParameter() != null) {
+            signature.append(SEP).append("next");
+            appendParameter(signature, parameter.getNextParameter());
+        }
+        signature.append(SEP).append("end");
+    }
+
+    private static void appendObject(StringBuilder signature, Object value) {
+        appendString(signature, value != null ? value.toString() : null);
+    }
+
+    private static void appendString(StringBuilder signature, String value) {
+        signature.append(SEP);
+        if (value == null) {
+            signature.append('-');
+        } else {
+            signature.append(value.length()).append(':').append(value);
+        }
+    }
+}
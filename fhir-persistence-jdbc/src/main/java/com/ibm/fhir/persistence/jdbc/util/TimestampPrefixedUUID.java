@@ -6,6 +6,8 @@
 
 package com.ibm.fhir.persistence.jdbc.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import com.ibm.fhir.persistence.util.LogicalIdentityProvider;
@@ -33,6 +35,23 @@ public class TimestampPrefixedUUID implements LogicalIdentityProvider {
         // Do not use Base64.
         String prefix = Long.toHexString(millis);
         
+        return createNewIdentityValue(prefix);
+    }
+
+    @Override
+    public List<String> createNewIdentityValues(int count) {
+        // The whole block shares one prefix, so we only need to read the clock once.
+        // The values still collate after any value created before this call.
+        String prefix = Long.toHexString(System.currentTimeMillis());
+
+        List<String> result = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            result.add(createNewIdentityValue(prefix));
+        }
+        return result;
+    }
+
+    private String createNewIdentityValue(String prefix) {
         UUID uuid = UUID.randomUUID();
         
         StringBuilder result = new StringBuilder();
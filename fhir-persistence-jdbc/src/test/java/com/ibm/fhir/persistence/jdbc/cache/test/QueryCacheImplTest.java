@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.persistence.jdbc.cache.QueryCacheImpl;
+import com.ibm.fhir.persistence.jdbc.util.SqlQueryData;
+
+/**
+ * Unit tests for {@link QueryCacheImpl}
+ */
+public class QueryCacheImplTest {
+
+    @Test
+    public void testCommit() throws Exception {
+        QueryCacheImpl cache = new QueryCacheImpl(10);
+        SqlQueryData query = new SqlQueryData("SELECT 1", Collections.emptyList());
+        assertNull(cache.getQuery("a"));
+        cache.addQuery("a", query);
+        assertSame(cache.getQuery("a"), query);
+
+        // not visible to other threads until the transaction commits
+        assertNull(getQueryInOtherThread(cache, "a"));
+        cache.updateSharedMaps();
+        assertSame(getQueryInOtherThread(cache, "a"), query);
+
+        assertEquals(cache.getHitCount(), 2);
+        assertEquals(cache.getMissCount(), 2);
+        assertEquals(cache.getHitRate(), 0.5);
+        assertEquals(cache.getMetrics(), "size=1, maxSize=10, hits=2, misses=2, hitRate=50.0%");
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        QueryCacheImpl cache = new QueryCacheImpl(10);
+        cache.addQuery("a", new SqlQueryData("SELECT 1", Collections.emptyList()));
+        cache.clearLocalMaps();
+        cache.updateSharedMaps();
+        assertNull(cache.getQuery("a"));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        QueryCacheImpl cache = new QueryCacheImpl(1);
+        cache.addQuery("a", new SqlQueryData("SELECT 1", Collections.emptyList()));
+        cache.addQuery("b", new SqlQueryData("SELECT 2", Collections.emptyList()));
+        cache.updateSharedMaps();
+        assertNull(cache.getQuery("a"));
+        assertEquals(cache.getQuery("b").getQueryString(), "SELECT 2");
+    }
+
+    private SqlQueryData getQueryInOtherThread(QueryCacheImpl cache, String signature) throws Exception {
+        SqlQueryData[] result = new SqlQueryData[1];
+        Thread t = new Thread(() -> result[0] = cache.getQuery(signature));
+        t.start();
+        t.join();
+        return result[0];
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.cache.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.jdbc.cache.ResourceCacheImpl;
+
+/**
+ * Unit tests for {@link ResourceCacheImpl}
+ */
+public class ResourceCacheImplTest {
+
+    @Test
+    public void testVersions() {
+        ResourceCacheImpl cache = new ResourceCacheImpl(10, 1000);
+        Resource v1 = patient("a");
+        Resource v2 = patient("a");
+        cache.addResource("Patient", "a", 1, v1, 10);
+        assertSame(cache.getResource("Patient", "a", 1), v1);
+        assertNull(cache.getResource("Patient", "a", 2));
+        assertNull(cache.getResource("Observation", "a", 1));
+
+        // a newer version replaces the old one, but not the other way around
+        cache.addResource("Patient", "a", 2, v2, 10);
+        assertNull(cache.getResource("Patient", "a", 1));
+        assertSame(cache.getResource("Patient", "a", 2), v2);
+        cache.addResource("Patient", "a", 1, v1, 10);
+        assertSame(cache.getResource("Patient", "a", 2), v2);
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testMaxSize() {
+        ResourceCacheImpl cache = new ResourceCacheImpl(2, 1000);
+        cache.addResource("Patient", "a", 1, patient("a"), 10);
+        cache.addResource("Patient", "b", 1, patient("b"), 10);
+
+        // touch a so that b is the least recently used
+        cache.getResource("Patient", "a", 1);
+        cache.addResource("Patient", "c", 1, patient("c"), 10);
+        assertEquals(cache.size(), 2);
+        assertNull(cache.getResource("Patient", "b", 1));
+    }
+
+    @Test
+    public void testMaxBytes() {
+        ResourceCacheImpl cache = new ResourceCacheImpl(10, 100);
+        cache.addResource("Patient", "a", 1, patient("a"), 40);
+        cache.addResource("Patient", "b", 1, patient("b"), 40);
+        cache.addResource("Patient", "c", 1, patient("c"), 40);
+        assertEquals(cache.size(), 2);
+        assertNull(cache.getResource("Patient", "a", 1));
+
+        // too big to cache at all
+        cache.addResource("Patient", "d", 1, patient("d"), 101);
+        assertNull(cache.getResource("Patient", "d", 1));
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testResourceChanged() {
+        ResourceCacheImpl cache = new ResourceCacheImpl(10, 1000);
+        cache.addResource("Patient", "a", 1, patient("a"), 10);
+
+        // the current transaction writes a new version, which can't be seen or cached until it completes
+        cache.resourceChanged("Patient", "a");
+        assertNull(cache.getResource("Patient", "a", 1));
+        cache.addResource("Patient", "a", 2, patient("a"), 10);
+        assertNull(cache.getResource("Patient", "a", 2));
+
+        cache.updateSharedMaps();
+        assertEquals(cache.size(), 0);
+        Resource v2 = patient("a");
+        cache.addResource("Patient", "a", 2, v2, 10);
+        assertSame(cache.getResource("Patient", "a", 2), v2);
+    }
+
+    @Test
+    public void testOtherThread() throws Exception {
+        ResourceCacheImpl cache = new ResourceCacheImpl(10, 1000);
+        Resource v1 = patient("a");
+        cache.addResource("Patient", "a", 1, v1, 10);
+        cache.resourceChanged("Patient", "a");
+
+        // changes are tracked per thread, so other threads still see the committed version
+        Resource[] result = new Resource[1];
+        Thread t = new Thread(() -> result[0] = cache.getResource("Patient", "a", 1));
+        t.start();
+        t.join();
+        assertSame(result[0], v1);
+        cache.updateSharedMaps();
+    }
+
+    private Patient patient(String id) {
+        return Patient.builder().id(id).build();
+    }
+}
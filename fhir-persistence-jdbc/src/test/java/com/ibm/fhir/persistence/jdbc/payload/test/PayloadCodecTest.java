@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.Date;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Id;
+import com.ibm.fhir.model.type.Meta;
+import com.ibm.fhir.model.type.code.AdministrativeGender;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
+import com.ibm.fhir.persistence.jdbc.payload.DeflateJsonPayloadCodec;
+import com.ibm.fhir.persistence.jdbc.payload.GZIPJsonPayloadCodec;
+import com.ibm.fhir.persistence.jdbc.payload.JsonPayloadCodec;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadCodec;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadCodecRegistry;
+
+/**
+ * Tests for the resource payload codecs
+ */
+public class PayloadCodecTest {
+    private final Patient patient = Patient.builder()
+            .id("123")
+            .meta(Meta.builder().versionId(Id.of("1")).build())
+            .name(HumanName.builder()
+                .family(com.ibm.fhir.model.type.String.of("Doe"))
+                .given(com.ibm.fhir.model.type.String.of("John"))
+                .build())
+            .gender(AdministrativeGender.MALE)
+            .birthDate(Date.of("1970-01-01"))
+            .build();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String name : new String[] { GZIPJsonPayloadCodec.NAME, JsonPayloadCodec.NAME, DeflateJsonPayloadCodec.NAME }) {
+            PayloadCodec codec = PayloadCodecRegistry.getCodec(name);
+            byte[] data = PayloadCodecRegistry.encode(codec, patient);
+            Patient result = PayloadCodecRegistry.decode(data, null);
+            assertEquals(result, patient, name);
+        }
+    }
+
+    @Test
+    public void testTransferJson() throws Exception {
+        StringWriter writer = new StringWriter();
+        FHIRGenerator.generator(Format.JSON, false).generate(patient, writer);
+        String expected = writer.toString();
+        for (String name : new String[] { GZIPJsonPayloadCodec.NAME, JsonPayloadCodec.NAME, DeflateJsonPayloadCodec.NAME }) {
+            byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(name), patient);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PayloadCodecRegistry.transferJson(data, out);
+            assertEquals(new String(out.toByteArray(), StandardCharsets.UTF_8), expected, name);
+        }
+    }
+
+    @Test
+    public void testJsonLength() throws Exception {
+        StringWriter writer = new StringWriter();
+        FHIRGenerator.generator(Format.JSON, false).generate(patient, writer);
+        long expected = writer.toString().getBytes(StandardCharsets.UTF_8).length;
+        for (String name : new String[] { GZIPJsonPayloadCodec.NAME, JsonPayloadCodec.NAME, DeflateJsonPayloadCodec.NAME }) {
+            byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(name), patient);
+            assertEquals(PayloadCodecRegistry.getJsonLength(data), expected, name);
+        }
+    }
+
+    @Test
+    public void testGZIPJsonLengthShortSkip() throws Exception {
+        StringWriter writer = new StringWriter();
+        FHIRGenerator.generator(Format.JSON, false).generate(patient, writer);
+        long expected = writer.toString().getBytes(StandardCharsets.UTF_8).length;
+        byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(GZIPJsonPayloadCodec.NAME), patient);
+
+        // a stream which skips at most one byte at a time
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public long skip(long n) throws IOException {
+                return super.skip(Math.min(n, 1));
+            }
+        };
+        assertEquals(new GZIPJsonPayloadCodec().getJsonLength(in, data.length), expected);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testGZIPJsonLengthTruncated() throws Exception {
+        byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(GZIPJsonPayloadCodec.NAME), patient);
+        new GZIPJsonPayloadCodec().getJsonLength(new ByteArrayInputStream(data, 0, data.length - 2), data.length);
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(DeflateJsonPayloadCodec.NAME), patient);
+        assertEquals(data[0], PayloadCodecRegistry.HEADER_MARKER);
+        assertEquals(data[1], (byte) DeflateJsonPayloadCodec.ID);
+
+        // the legacy format has no header
+        data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(GZIPJsonPayloadCodec.NAME), patient);
+        assertNotEquals(data[0], PayloadCodecRegistry.HEADER_MARKER);
+    }
+
+    @Test
+    public void testDefaultCodec() {
+        assertEquals(PayloadCodecRegistry.getCodec(null).getName(), GZIPJsonPayloadCodec.NAME);
+    }
+
+    @Test
+    public void testDecodeLegacyPayload() throws Exception {
+        // payloads written before codecs were introduced
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        GZIPOutputStream zipStream = new GZIPOutputStream(stream);
+        FHIRGenerator.generator(Format.JSON, false).generate(patient, zipStream);
+        zipStream.finish();
+        zipStream.close();
+
+        Patient result = PayloadCodecRegistry.decode(stream.toByteArray(), null);
+        assertEquals(result, patient);
+    }
+
+    @Test
+    public void testDecodeWithElements() throws Exception {
+        byte[] data = PayloadCodecRegistry.encode(PayloadCodecRegistry.getCodec(JsonPayloadCodec.NAME), patient);
+        Patient result = PayloadCodecRegistry.decode(data, Arrays.asList("gender"));
+        assertEquals(result.getGender(), patient.getGender());
+        assertNull(result.getBirthDate());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownCodecName() {
+        PayloadCodecRegistry.getCodec("unknown");
+    }
+
+    @Test(expectedExceptions = FHIRPersistenceException.class)
+    public void testUnknownCodecId() throws Exception {
+        PayloadCodecRegistry.decode(new byte[] { PayloadCodecRegistry.HEADER_MARKER, (byte) 200, '{', '}' }, null);
+    }
+}
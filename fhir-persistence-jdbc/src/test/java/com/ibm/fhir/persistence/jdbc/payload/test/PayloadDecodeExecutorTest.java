@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.payload.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.persistence.jdbc.payload.PayloadDecodeExecutor;
+
+/**
+ * Tests for the parallel decoding of result pages
+ */
+public class PayloadDecodeExecutorTest {
+    private final PayloadDecodeExecutor executor = PayloadDecodeExecutor.getInstance(4);
+
+    @Test
+    public void testOrderIsPreserved() throws Exception {
+        for (int size : new int[] { 0, 1, PayloadDecodeExecutor.DEFAULT_MIN_PARALLEL_SIZE, 1000 }) {
+            List<Integer> rows = rows(size);
+            List<String> result = executor.decode(rows, row -> Integer.toString(row));
+            assertEquals(result.size(), size);
+            for (int i = 0; i < size; i++) {
+                assertEquals(result.get(i), Integer.toString(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        PayloadDecodeExecutor sequential = PayloadDecodeExecutor.getInstance(1);
+        Thread caller = Thread.currentThread();
+        List<Thread> result = sequential.decode(rows(100), row -> Thread.currentThread());
+        for (Thread thread : result) {
+            assertSame(thread, caller);
+        }
+    }
+
+    @Test
+    public void testRequestContextIsPropagated() throws Exception {
+        FHIRRequestContext previous = FHIRRequestContext.get();
+        FHIRRequestContext context = new FHIRRequestContext("tenant1", "profile");
+        FHIRRequestContext.set(context);
+        try {
+            List<FHIRRequestContext> result = executor.decode(rows(200), row -> FHIRRequestContext.get());
+            for (FHIRRequestContext c : result) {
+                assertSame(c, context);
+            }
+        } finally {
+            FHIRRequestContext.set(previous);
+        }
+    }
+
+    @Test(expectedExceptions = FHIRException.class)
+    public void testFHIRExceptionIsPropagated() throws Exception {
+        executor.decode(rows(200), row -> {
+            if (row == 150) {
+                throw new FHIRException("bad row");
+            }
+            return row;
+        });
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testIOExceptionIsPropagated() throws Exception {
+        executor.decode(rows(200), row -> {
+            if (row == 199) {
+                throw new IOException("bad row");
+            }
+            return row;
+        });
+    }
+
+    @Test
+    public void testCounters() throws Exception {
+        PayloadDecodeExecutor counted = PayloadDecodeExecutor.getInstance(3);
+        long pages = counted.getPageCount();
+        long resources = counted.getResourceCount();
+        long nanos = counted.getDecodeTimeNanos();
+        counted.decode(rows(10), row -> row);
+        counted.decode(rows(500), row -> row);
+        assertEquals(counted.getPageCount(), pages + 2);
+        assertEquals(counted.getResourceCount(), resources + 510);
+        assertTrue(counted.getDecodeTimeNanos() > nanos);
+    }
+
+    @Test
+    public void testActiveTaskLimit() throws Exception {
+        // more chunks per page than the server-wide limit, decoded by several searches at the same time
+        PayloadDecodeExecutor wide = PayloadDecodeExecutor.getInstance(PayloadDecodeExecutor.MAX_ACTIVE_TASKS * 2);
+        Set<Thread> callers = ConcurrentHashMap.newKeySet();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Thread> searches = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            Thread search = new Thread(() -> {
+                callers.add(Thread.currentThread());
+                try {
+                    wide.decode(rows(1000), row -> {
+                        if (callers.contains(Thread.currentThread())) {
+                            return row;
+                        }
+                        int n = active.incrementAndGet();
+                        maxActive.accumulateAndGet(n, Math::max);
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException e) {
+                            throw new FHIRException("interrupted", e);
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                        return row;
+                    });
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            });
+            searches.add(search);
+        }
+        for (Thread search : searches) {
+            search.start();
+        }
+        for (Thread search : searches) {
+            search.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(maxActive.get() <= PayloadDecodeExecutor.MAX_ACTIVE_TASKS, "maxActive=" + maxActive.get());
+        assertTrue(wide.getRejectedChunkCount() > 0);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        PayloadDecodeExecutor sequential = PayloadDecodeExecutor.getInstance(1);
+        sequential.decode(rows(10), row -> row);
+        assertTrue(sequential.getMetrics().startsWith("threads=1, pages="), sequential.getMetrics());
+    }
+
+    private List<Integer> rows(int size) {
+        List<Integer> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(i);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.jdbc.test;
+
+import static org.testng.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.database.utils.api.IConnectionProvider;
+import com.ibm.fhir.database.utils.pool.PoolConnectionProvider;
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.resource.Organization;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.jdbc.FHIRPersistenceJDBCCache;
+import com.ibm.fhir.persistence.jdbc.cache.CommonTokenValuesCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.FHIRPersistenceJDBCCacheImpl;
+import com.ibm.fhir.persistence.jdbc.cache.NameIdCache;
+import com.ibm.fhir.persistence.jdbc.dao.api.ICommonTokenValuesCache;
+import com.ibm.fhir.persistence.jdbc.impl.FHIRPersistenceJDBCImpl;
+import com.ibm.fhir.persistence.jdbc.test.util.DerbyInitializer;
+import com.ibm.fhir.persistence.test.common.AbstractReverseChainTest;
+
+/**
+ * Runs the _has tests, and some chained parameter tests on the same resources, with the chained and reverse
+ * chained parameters resolved in stages. The threshold of 3 ids makes some of the stages fall back to the
+ * single statement.
+ */
+public class JDBCStagedChainTest extends AbstractReverseChainTest {
+
+    // test properties
+    private Properties testProps;
+
+    // Connection pool used to provide connections for the FHIRPersistenceJDBCImpl
+    private PoolConnectionProvider connectionPool;
+
+    private FHIRPersistenceJDBCCache cache;
+
+    // before the resources of this class are created
+    private final Instant start = Instant.now();
+
+    public JDBCStagedChainTest() throws Exception {
+        this.testProps = TestUtil.readTestProperties("test.jdbc.properties");
+        this.testProps.setProperty("stagedChainThreshold", "3");
+    }
+
+    @Override
+    public void bootstrapDatabase() throws Exception {
+        DerbyInitializer derbyInit;
+        String dbDriverName = this.testProps.getProperty("dbDriverName");
+        if (dbDriverName != null && dbDriverName.contains("derby")) {
+            derbyInit = new DerbyInitializer(this.testProps);
+            IConnectionProvider cp = derbyInit.getConnectionProvider(false);
+            this.connectionPool = new PoolConnectionProvider(cp, 1);
+            ICommonTokenValuesCache rrc = new CommonTokenValuesCacheImpl(100, 100);
+            cache = new FHIRPersistenceJDBCCacheImpl(new NameIdCache<Integer>(), new NameIdCache<Integer>(), rrc);
+        }
+    }
+
+    @Override
+    public FHIRPersistence getPersistenceImpl() throws Exception {
+        if (this.connectionPool == null) {
+            throw new IllegalStateException("Database not bootstrapped");
+        }
+        return new FHIRPersistenceJDBCImpl(this.testProps, this.connectionPool, cache);
+    }
+
+    @Override
+    protected void shutdownPools() throws Exception {
+        // Mark the pool as no longer in use. This allows the pool to check for
+        // lingering open connections/transactions.
+        if (this.connectionPool != null) {
+            this.connectionPool.close();
+        }
+    }
+
+    /**
+     * A single link which resolves to one Patient
+     */
+    @Test
+    public void testChainSingleLink() throws Exception {
+        List<Resource> resources = runQueryTest(Observation.class, "subject:Patient.name", "Vito");
+        assertEquals(resources.size(), 1);
+        assertEquals(((Observation) resources.get(0)).getValue(), com.ibm.fhir.model.type.String.of("test"));
+    }
+
+    /**
+     * A link which resolves to no Patient
+     */
+    @Test
+    public void testChainNoResult() throws Exception {
+        List<Resource> resources = runQueryTest(Observation.class, "subject:Patient.name", "Tessio");
+        assertEquals(resources.size(), 0);
+    }
+
+    /**
+     * Two links, each resolving to 3 resources: the 3 Organizations and the 3 Patients which reference them
+     */
+    @Test
+    public void testChainMultipleLinks() throws Exception {
+        String orgIds = idsCreatedByThisClass(Organization.class);
+        List<Resource> resources = runQueryTest(Observation.class, "subject:Patient.organization:Organization._id", orgIds);
+        assertEquals(resources.size(), 4);
+    }
+
+    /**
+     * A link which resolves to 4 Patients, more than the threshold, so is nested as a sub-select
+     */
+    @Test
+    public void testChainAboveThreshold() throws Exception {
+        String patientIds = idsCreatedByThisClass(Patient.class);
+        List<Resource> resources = runQueryTest(Observation.class, "subject:Patient._id", patientIds);
+        assertEquals(resources.size(), 4);
+    }
+
+    private String idsCreatedByThisClass(Class<? extends Resource> resourceType) throws Exception {
+        return runQueryTest(resourceType, "_lastUpdated", "gt" + start.toString()).stream()
+                .map(Resource::getId)
+                .collect(Collectors.joining(","));
+    }
+}
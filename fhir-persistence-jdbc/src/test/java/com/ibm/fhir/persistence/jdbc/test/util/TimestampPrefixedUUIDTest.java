@@ -6,8 +6,12 @@
 
 package com.ibm.fhir.persistence.jdbc.test.util;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.HashSet;
+import java.util.List;
+
 import org.testng.annotations.Test;
 
 import com.ibm.fhir.persistence.jdbc.util.TimestampPrefixedUUID;
@@ -36,4 +40,22 @@ public class TimestampPrefixedUUIDTest {
             assertTrue(s1.compareTo(s2) < 0); // s1 < s2
         }
     }
+
+    @Test
+    public void testBlock() {
+        TimestampPrefixedUUID provider = new TimestampPrefixedUUID();
+
+        String before = provider.createNewIdentityValue();
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException x) {
+            // NOP. Not gonna happen
+        }
+        List<String> block = provider.createNewIdentityValues(100);
+        assertEquals(block.size(), 100);
+        assertEquals(new HashSet<>(block).size(), 100); // all unique
+        for (String value: block) {
+            assertTrue(before.compareTo(value) < 0);
+        }
+    }
 }
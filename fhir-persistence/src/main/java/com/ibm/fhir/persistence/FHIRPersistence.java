@@ -7,12 +7,18 @@
 package com.ibm.fhir.persistence;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.ibm.fhir.model.resource.OperationOutcome;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
+import com.ibm.fhir.persistence.context.FHIRPersistenceContextFactory;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceNotSupportedException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceDeletedException;
+import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
 
 /**
  * This interface defines the contract between the FHIR Server's REST API layer and the underlying
@@ -45,6 +51,39 @@ public interface FHIRPersistence {
     <T extends Resource> SingleResourceResult<T> read(FHIRPersistenceContext context, Class<T> resourceType, String logicalId)
             throws FHIRPersistenceException;
 
+    /**
+     * Retrieves the version id, last updated time and deleted state of the most recent version of a FHIR Resource
+     * without retrieving the resource itself. This allows conditional interactions (e.g. If-None-Match and If-Match)
+     * to be evaluated without reading and parsing the resource.
+     *
+     * <p>As for {@link #read}, a FHIRPersistenceResourceDeletedException is thrown if the resource is deleted and
+     * the context does not include deleted resources. The default implementation is based on {@link #read}.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resourceType the resource type of the Resource instance
+     * @param logicalId the logical id of the Resource instance
+     * @return the version info of the most recent version of the resource, or null if the resource doesn't exist
+     * @throws FHIRPersistenceException
+     */
+    default <T extends Resource> ResourceVersionInfo readVersionInfo(FHIRPersistenceContext context, Class<T> resourceType, String logicalId)
+            throws FHIRPersistenceException {
+        T resource = read(context, resourceType, logicalId).getResource();
+        if (resource == null) {
+            return null;
+        }
+
+        boolean deleted = false;
+        if (context.includeDeleted()) {
+            try {
+                read(FHIRPersistenceContextFactory.createPersistenceContext(context.getPersistenceEvent(), false), resourceType, logicalId);
+            } catch (FHIRPersistenceResourceDeletedException e) {
+                deleted = true;
+            }
+        }
+        return new ResourceVersionInfo(Integer.parseInt(resource.getMeta().getVersionId().getValue()),
+            resource.getMeta().getLastUpdated().getValue().toInstant(), deleted);
+    }
+
     /**
      * Retrieves a specific version of a FHIR Resource from the datastore.
      *
@@ -71,6 +110,60 @@ public interface FHIRPersistence {
      */
     <T extends Resource> SingleResourceResult<T> update(FHIRPersistenceContext context, String logicalId, T resource) throws FHIRPersistenceException;
 
+    /**
+     * Stores new FHIR Resources in the datastore, in the order given.
+     *
+     * <p>Implementations may store the resources more efficiently than a series of calls to
+     * {@link #create(FHIRPersistenceContext, Resource)}, for example by sharing database round-trips between them.
+     * Such implementations may report a resource that cannot be prepared for storage with an unsuccessful result and
+     * an OperationOutcome, without preventing the other resources from being stored. A thrown exception may leave
+     * some of the resources stored, so the caller must roll back the transaction.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resources the FHIR Resource instances to be created in the datastore
+     * @return a SingleResourceResult for each of the resources, in the same order
+     * @throws FHIRPersistenceException
+     */
+    default <T extends Resource> List<SingleResourceResult<T>> createAll(FHIRPersistenceContext context, List<T> resources)
+            throws FHIRPersistenceException {
+        List<SingleResourceResult<T>> results = new ArrayList<>(resources.size());
+        for (T resource : resources) {
+            results.add(create(context, resource));
+        }
+        return results;
+    }
+
+    /**
+     * Updates existing FHIR Resources by storing new versions in the datastore, in the order given. The logical id
+     * of each FHIR Resource to be updated is the id of the passed resource.
+     *
+     * <p>Implementations may store the resources more efficiently than a series of calls to
+     * {@link #update(FHIRPersistenceContext, String, Resource)}, for example by sharing database round-trips between
+     * them. A resource that cannot be updated because it does not exist yields an unsuccessful result with an
+     * OperationOutcome, and does not prevent the other resources from being stored; as for
+     * {@link #createAll(FHIRPersistenceContext, List)}, so may a resource that cannot be prepared for storage.
+     *
+     * @param context the FHIRPersistenceContext instance associated with the current request
+     * @param resources the new contents of the FHIR Resources to be stored
+     * @return a SingleResourceResult for each of the resources, in the same order
+     * @throws FHIRPersistenceException
+     */
+    default <T extends Resource> List<SingleResourceResult<T>> updateAll(FHIRPersistenceContext context, List<T> resources)
+            throws FHIRPersistenceException {
+        List<SingleResourceResult<T>> results = new ArrayList<>(resources.size());
+        for (T resource : resources) {
+            try {
+                results.add(update(context, resource.getId(), resource));
+            } catch (FHIRPersistenceResourceNotFoundException e) {
+                results.add(new SingleResourceResult.Builder<T>()
+                    .success(false)
+                    .outcome(FHIRUtil.buildOperationOutcome(e, false))
+                    .build());
+            }
+        }
+        return results;
+    }
+
     /**
      * Deletes the specified FHIR Resource from the datastore.
      *
@@ -133,6 +226,56 @@ public interface FHIRPersistence {
         return false;
     }
 
+    /**
+     * Returns true iff the persistence layer implementation supports {@link #readAfter}.
+     */
+    default boolean isCursorSupported() {
+        return false;
+    }
+
+    /**
+     * Reads the next page of current, non-deleted resources of the passed type, ordered by last updated
+     * time and then by the internal resource id, starting after the passed cursor.
+     * Unlike a search for a page number, the cost of reading a page does not depend on how many
+     * resources were read before it, which makes this suitable for reading a large number of resources
+     * page by page (e.g. for bulk export).
+     * @param context the FHIRPersistenceContext instance associated with the current request.
+     * @param resourceType the resource type of the resources to be read.
+     * @param fromLastUpdated if non-null, only resources last updated at or after this time are read.
+     * @param toLastUpdated if non-null, only resources last updated before this time are read.
+     * @param after the cursor returned with the previous page, or null to read the first page.
+     * @param maxResults the maximum number of resources to read.
+     * @return the page of resources; never null
+     * @throws FHIRPersistenceException
+     */
+    default <T extends Resource> ResourcePage<T> readAfter(FHIRPersistenceContext context, Class<T> resourceType,
+            Instant fromLastUpdated, Instant toLastUpdated, ResourceCursor after, int maxResults) throws FHIRPersistenceException {
+        throw new FHIRPersistenceNotSupportedException("The persistence layer does not support reading resources by cursor.");
+    }
+
+    /**
+     * Reads the next page of resources like {@link #readAfter}, but returns the stored form of each resource
+     * instead of the parsed resource. This allows resources to be written out (e.g. by bulk export) without
+     * parsing and re-generating them. The default implementation is based on {@link #readAfter}.
+     * @param context the FHIRPersistenceContext instance associated with the current request.
+     * @param resourceType the resource type of the resources to be read.
+     * @param fromLastUpdated if non-null, only resources last updated at or after this time are read.
+     * @param toLastUpdated if non-null, only resources last updated before this time are read.
+     * @param after the cursor returned with the previous page, or null to read the first page.
+     * @param maxResults the maximum number of resources to read.
+     * @return the page of resource payloads; never null
+     * @throws FHIRPersistenceException
+     */
+    default ResourcePage<ResourcePayload> readPayloadsAfter(FHIRPersistenceContext context, Class<? extends Resource> resourceType,
+            Instant fromLastUpdated, Instant toLastUpdated, ResourceCursor after, int maxResults) throws FHIRPersistenceException {
+        ResourcePage<? extends Resource> page = readAfter(context, resourceType, fromLastUpdated, toLastUpdated, after, maxResults);
+        List<ResourcePayload> payloads = new ArrayList<>(page.getResources().size());
+        for (Resource resource : page.getResources()) {
+            payloads.add(ResourcePayload.of(resource));
+        }
+        return new ResourcePage<>(payloads, page.getCursor(), page.isLast());
+    }
+
     /**
      * Generates a resource ID.
      *
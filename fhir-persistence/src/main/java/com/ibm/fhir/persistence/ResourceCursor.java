@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * The position of a resource in the (last updated, resource id) order used by
+ * {@link FHIRPersistence#readAfter}. The resource id is the internal key of the resource version
+ * assigned by the persistence layer, not the logical id of the resource.
+ * Instances are immutable and can be saved (e.g. in a batch checkpoint) to resume reading later.
+ */
+public class ResourceCursor implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Instant lastUpdated;
+    private final long resourceId;
+
+    /**
+     * Public constructor
+     * @param lastUpdated
+     * @param resourceId
+     */
+    public ResourceCursor(Instant lastUpdated, long resourceId) {
+        this.lastUpdated = Objects.requireNonNull(lastUpdated, "lastUpdated");
+        this.resourceId = resourceId;
+    }
+
+    /**
+     * @return the last updated time of the resource at this position
+     */
+    public Instant getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @return the internal id of the resource version at this position
+     */
+    public long getResourceId() {
+        return resourceId;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ResourceCursor)) {
+            return false;
+        }
+        ResourceCursor other = (ResourceCursor) obj;
+        return resourceId == other.resourceId && lastUpdated.equals(other.lastUpdated);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastUpdated, resourceId);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceCursor[lastUpdated=" + lastUpdated + ", resourceId=" + resourceId + "]";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of resources (or {@link ResourcePayload resource payloads}) returned by {@link FHIRPersistence#readAfter}
+ * and {@link FHIRPersistence#readPayloadsAfter}, together with the cursor from which to read the next page.
+ * Instances are immutable.
+ */
+public class ResourcePage<T> {
+    private final List<T> resources;
+    private final ResourceCursor cursor;
+    private final boolean last;
+
+    /**
+     * Public constructor
+     * @param resources the resources on this page, in cursor order
+     * @param cursor the position of the last resource on this page, or null if the page is empty
+     * @param last true if there are no more resources after this page
+     */
+    public ResourcePage(List<T> resources, ResourceCursor cursor, boolean last) {
+        this.resources = Collections.unmodifiableList(resources);
+        this.cursor = cursor;
+        this.last = last;
+    }
+
+    /**
+     * @return an unmodifiable list of the resources on this page
+     */
+    public List<T> getResources() {
+        return resources;
+    }
+
+    /**
+     * @return the position of the last resource on this page, or null if the page is empty
+     */
+    public ResourceCursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return true if there are no more resources after this page
+     */
+    public boolean isLast() {
+        return last;
+    }
+}
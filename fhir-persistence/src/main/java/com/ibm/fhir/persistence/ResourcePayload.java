@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.generator.FHIRGenerator;
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * The stored form of a resource, as returned by {@link FHIRPersistence#readPayloadsAfter}. Persistence
+ * layers which store resources as JSON can write the stored JSON directly, without parsing the resource.
+ */
+public interface ResourcePayload {
+    /**
+     * @return the logical id of the resource
+     */
+    String getLogicalId();
+
+    /**
+     * Write the resource as compact (single line) JSON to the output stream
+     * @param out the output stream, which is left open
+     * @throws FHIRException if the stored resource cannot be converted to JSON
+     * @throws IOException
+     */
+    void transferTo(OutputStream out) throws FHIRException, IOException;
+
+    /**
+     * @param resource
+     * @return a payload which generates the JSON of the passed resource
+     */
+    static ResourcePayload of(Resource resource) {
+        return new ResourcePayload() {
+            @Override
+            public String getLogicalId() {
+                return resource.getId();
+            }
+
+            @Override
+            public void transferTo(OutputStream out) throws FHIRException {
+                FHIRGenerator.generator(Format.JSON, false).generate(resource, out);
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence;
+
+import java.time.Instant;
+
+/**
+ * The version id, last updated time and deleted state of a version of a resource,
+ * as returned by {@link FHIRPersistence#readVersionInfo}.
+ * Instances are immutable.
+ */
+public class ResourceVersionInfo {
+    private final int versionId;
+    private final Instant lastUpdated;
+    private final boolean deleted;
+
+    /**
+     * Public constructor
+     * @param versionId
+     * @param lastUpdated
+     * @param deleted
+     */
+    public ResourceVersionInfo(int versionId, Instant lastUpdated, boolean deleted) {
+        this.versionId = versionId;
+        this.lastUpdated = lastUpdated;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return the version id
+     */
+    public int getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * @return the time this version was last updated
+     */
+    public Instant getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @return true if this version marks the resource as deleted
+     */
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceVersionInfo[versionId=" + versionId + ", lastUpdated=" + lastUpdated + ", deleted=" + deleted + "]";
+    }
+}
@@ -83,6 +83,26 @@ public class FHIRPersistenceInterceptorMgr {
         interceptors.add(0, interceptor);
     }
     
+    /**
+     * Returns true if any registered interceptor implements the afterRead method. Callers which
+     * don't otherwise need the resource (e.g. to check its version) must still read it and fire
+     * the afterRead event when this is true, because the interceptor may need to inspect it.
+     * @return whether any registered interceptor implements afterRead
+     */
+    public boolean hasAfterReadInterceptors() {
+        for (FHIRPersistenceInterceptor interceptor : interceptors) {
+            try {
+                if (!interceptor.getClass().getMethod("afterRead", FHIRPersistenceEvent.class).isDefault()) {
+                    return true;
+                }
+            } catch (NoSuchMethodException e) {
+                // can't happen for an implementation of the interface, but assume the worst
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * The following methods will invoke the respective interceptor methods on each registered interceptor.
      */
@@ -6,6 +6,9 @@
 
 package com.ibm.fhir.persistence.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Supports different strategies for creating identity strings
  */
@@ -17,4 +20,17 @@ public interface LogicalIdentityProvider {
      * @return
      */
     String createNewIdentityValue();
-}
\ No newline at end of file
+
+    /**
+     * Create a block of new identity strings
+     * @param count the number of identity strings to create
+     * @return
+     */
+    default List<String> createNewIdentityValues(int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            result.add(createNewIdentityValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.test.common;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Device;
+import com.ibm.fhir.model.resource.Observation;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.SingleResourceResult;
+
+/**
+ * This class contains tests for storing several resources with a single call to
+ * {@link com.ibm.fhir.persistence.FHIRPersistence#createAll} or {@link com.ibm.fhir.persistence.FHIRPersistence#updateAll}.
+ */
+public abstract class AbstractBatchTest extends AbstractPersistenceTest {
+
+    @Test
+    public void testCreateAll() throws Exception {
+        Device device = TestUtil.readExampleResource("json/ibm/minimal/Device-1.json");
+        Observation observation = TestUtil.readExampleResource("json/ibm/minimal/Observation-1.json");
+        List<Resource> resources = Arrays.asList(device, observation, device, observation, device);
+
+        List<SingleResourceResult<Resource>> results = persistence.createAll(getDefaultPersistenceContext(), resources);
+        assertEquals(results.size(), resources.size());
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            SingleResourceResult<Resource> result = results.get(i);
+            assertTrue(result.isSuccess());
+            Resource created = result.getResource();
+            assertNotNull(created);
+            assertEquals(created.getClass(), resources.get(i).getClass());
+            assertEquals(created.getMeta().getVersionId().getValue(), "1");
+            assertTrue(ids.add(created.getId()));
+
+            Resource read = persistence.read(getDefaultPersistenceContext(), created.getClass(), created.getId()).getResource();
+            assertNotNull(read);
+            assertEquals(read.getId(), created.getId());
+            assertEquals(read.getMeta().getVersionId().getValue(), "1");
+        }
+    }
+
+    @Test
+    public void testUpdateAll() throws Exception {
+        String id1 = UUID.randomUUID().toString();
+        String id2 = UUID.randomUUID().toString();
+        Device device = TestUtil.readExampleResource("json/ibm/minimal/Device-1.json");
+        Observation observation = TestUtil.readExampleResource("json/ibm/minimal/Observation-1.json");
+
+        // the first resource already exists; the others are created by the update
+        Device existing = persistence.update(getDefaultPersistenceContext(), id1, device.toBuilder().id(id1).build()).getResource();
+        assertEquals(existing.getMeta().getVersionId().getValue(), "1");
+
+        List<Resource> resources = new ArrayList<>();
+        resources.add(device.toBuilder().id(id1).build());
+        resources.add(observation.toBuilder().id(id1).build());
+        resources.add(device.toBuilder().id(id2).build());
+        resources.add(device.toBuilder().id(id1).build());
+
+        List<SingleResourceResult<Resource>> results = persistence.updateAll(getDefaultPersistenceContext(), resources);
+        assertEquals(results.size(), resources.size());
+        for (SingleResourceResult<Resource> result : results) {
+            assertTrue(result.isSuccess());
+        }
+
+        // the same logical resource may be updated more than once in a batch
+        assertEquals(results.get(0).getResource().getMeta().getVersionId().getValue(), "2");
+        assertEquals(results.get(1).getResource().getMeta().getVersionId().getValue(), "1");
+        assertEquals(results.get(2).getResource().getMeta().getVersionId().getValue(), "1");
+        assertEquals(results.get(3).getResource().getMeta().getVersionId().getValue(), "3");
+
+        Device read = persistence.read(getDefaultPersistenceContext(), Device.class, id1).getResource();
+        assertEquals(read.getMeta().getVersionId().getValue(), "3");
+        Device version2 = persistence.vread(getDefaultPersistenceContext(), Device.class, id1, "2").getResource();
+        assertNotNull(version2);
+        assertNotEquals(version2.getMeta().getLastUpdated(), existing.getMeta().getLastUpdated());
+        assertNotNull(persistence.read(getDefaultPersistenceContext(), Observation.class, id1).getResource());
+        assertNotNull(persistence.read(getDefaultPersistenceContext(), Device.class, id2).getResource());
+    }
+}
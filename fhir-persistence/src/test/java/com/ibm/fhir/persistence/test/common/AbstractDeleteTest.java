@@ -22,6 +22,7 @@ import com.ibm.fhir.model.resource.Device;
 import com.ibm.fhir.model.resource.Device.UdiCarrier;
 import com.ibm.fhir.model.test.TestUtil;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.ResourceVersionInfo;
 import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
@@ -86,6 +87,30 @@ public abstract class AbstractDeleteTest extends AbstractPersistenceTest {
      
     }
     
+    @Test
+    public void testReadVersionInfoInvalidDevice() throws Exception {
+        
+        assertNull(persistence.readVersionInfo(getDefaultPersistenceContext(), Device.class, "invalid-device-id"));
+    }
+    
+    @Test(dependsOnMethods = { "testDeleteValidDevice" }, 
+                    expectedExceptions = FHIRPersistenceResourceDeletedException.class)
+    public void testReadVersionInfoDeletedDevice() throws Exception {
+        
+        persistence.readVersionInfo(getDefaultPersistenceContext(), Device.class, this.deviceId1);
+    }
+    
+    @Test(dependsOnMethods = { "testDeleteValidDevice" })
+    public void testReadVersionInfoIncludeDeleted() throws Exception {
+        
+        FHIRPersistenceContext context = FHIRPersistenceContextFactory.createPersistenceContext(null, true);
+        ResourceVersionInfo versionInfo = persistence.readVersionInfo(context, Device.class, this.deviceId1);
+        assertNotNull(versionInfo);
+        assertEquals(2, versionInfo.getVersionId());
+        assertTrue(versionInfo.isDeleted());
+        assertNotNull(versionInfo.getLastUpdated());
+    }
+    
     @Test(dependsOnMethods = { "testDeleteValidDevice" })
     public void testVReadNonDeletedDevice() throws Exception {
     
@@ -189,6 +189,36 @@ public abstract class AbstractIncludeRevincludeTest extends AbstractPersistenceT
         }
     }
 
+    /**
+     * This test queries two Observations and requests the inclusion of the referenced Patient through two
+     * search parameters. Both Observations reference the same Patient, which must be included only once.
+     * @throws Exception
+     */
+    @Test
+    public void testIncludedDataSharedTarget() throws Exception {
+        Map<String, List<String>> queryParms = new HashMap<String, List<String>>();
+        queryParms.put("_id", Collections.singletonList(savedObservation2.getId() + "," + savedObservation3.getId()));
+        queryParms.put("_include", Arrays.asList(new String[] {"Observation:patient", "Observation:subject"}));
+        List<Resource> resources = runQueryTest(Observation.class, queryParms);
+        assertNotNull(resources);
+        assertEquals(3, resources.size());
+        int numOfPatients = 0;
+        for (Resource resource : resources) {
+            if (resource instanceof Observation) {
+                assertTrue(savedObservation2.getId().equals(resource.getId()) ||
+                           savedObservation3.getId().equals(resource.getId()));
+            }
+            else if (resource instanceof Patient) {
+                assertEquals(savedPatient1.getId(), resource.getId());
+                numOfPatients++;
+            }
+            else {
+                fail("Unexpected resource type returned.");
+            }
+        }
+        assertEquals(1, numOfPatients);
+    }
+
     /**
      * This test queries an Observation and requests the inclusion of a referenced Patient and a referenced Encounter.
      * The Observation only contains a referenced patient.
@@ -120,6 +120,53 @@ public abstract class AbstractPagingTest extends AbstractPersistenceTest {
         assertTrue(isResourceInResponse(resource3, results));
     }
     
+    @Test
+    public void testSearchPagingWithoutTotal() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Collections.singletonList("accurate"));
+        FHIRSearchContext searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+        MultiResourceResult<Resource> result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+        assertTrue(result.isSuccess());
+        int totalCount = searchContext.getTotalCount();
+        assertTrue(totalCount >= 3);
+
+        // the first page has a next page
+        queryParameters.put("_total", Collections.singletonList("none"));
+        queryParameters.put("_page", Collections.singletonList("1"));
+        searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+        result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+        assertTrue(result.isSuccess());
+        assertEquals(result.getResource().size(), 1, "expected number of results");
+        assertEquals(searchContext.getLastPageNumber(), 2);
+
+        // the last page has no next page
+        queryParameters.put("_page", Collections.singletonList(java.lang.Integer.toString(totalCount)));
+        searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+        result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+        assertTrue(result.isSuccess());
+        assertEquals(result.getResource().size(), 1, "expected number of results");
+        assertEquals(searchContext.getLastPageNumber(), totalCount);
+
+        // without a count, a page after the last page is empty rather than invalid
+        queryParameters.put("_page", Collections.singletonList(java.lang.Integer.toString(totalCount + 1)));
+        searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+        searchContext.setLenient(false);
+        result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+        assertTrue(result.isSuccess());
+        assertTrue(result.getResource().isEmpty());
+        assertTrue(result.getOutcome() == null);
+
+        // an estimate never undercounts the resources seen on the last page
+        queryParameters.put("_total", Collections.singletonList("estimate"));
+        queryParameters.put("_page", Collections.singletonList(java.lang.Integer.toString(totalCount)));
+        searchContext = SearchUtil.parseQueryParameters(Basic.class, queryParameters);
+        result = runQueryTest(searchContext, Basic.class, queryParameters, 1);
+        assertTrue(result.isSuccess());
+        assertEquals(result.getResource().size(), 1, "expected number of results");
+        assertEquals(searchContext.getTotalCount(), totalCount);
+        assertEquals(searchContext.getLastPageNumber(), totalCount);
+    }
+
     // history results should be sorted with oldest versions last
     @Test
     public void testHistoryPaging() throws Exception {
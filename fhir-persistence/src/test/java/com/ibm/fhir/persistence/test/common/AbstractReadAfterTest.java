@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.persistence.test.common;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Device;
+import com.ibm.fhir.model.test.TestUtil;
+import com.ibm.fhir.persistence.ResourceCursor;
+import com.ibm.fhir.persistence.ResourcePage;
+import com.ibm.fhir.persistence.ResourcePayload;
+
+/**
+ * This class tests reading resources and resource payloads page by page with a {@link ResourceCursor}.
+ */
+public abstract class AbstractReadAfterTest extends AbstractPersistenceTest {
+    private Instant start;
+    private Instant end;
+    private final List<String> expectedIds = new ArrayList<>();
+
+    @BeforeClass
+    public void createResources() throws Exception {
+        Device device = TestUtil.readExampleResource("json/ibm/minimal/Device-1.json");
+
+        start = Instant.now();
+        for (int i = 0; i < 7; i++) {
+            expectedIds.add(persistence.create(getDefaultPersistenceContext(), device).getResource().getId());
+        }
+
+        // an updated resource is read once, in the position of its current version
+        String updatedId = expectedIds.remove(1);
+        persistence.update(getDefaultPersistenceContext(), updatedId, device.toBuilder().id(updatedId).build());
+        expectedIds.add(updatedId);
+
+        // a deleted resource is not read
+        String deletedId = expectedIds.remove(2);
+        persistence.delete(getDefaultPersistenceContext(), Device.class, deletedId);
+
+        end = Instant.now().plusSeconds(1);
+    }
+
+    @Test
+    public void testCursorSupported() throws Exception {
+        assertTrue(persistence.isCursorSupported());
+    }
+
+    @Test
+    public void testReadAllPages() throws Exception {
+        assertEquals(readAllPages(2), expectedIds);
+    }
+
+    /**
+     * Read the ids of all the resources created by this test, page by page with the passed page size
+     */
+    protected List<String> readAllPages(int pageSize) throws Exception {
+        List<String> ids = new ArrayList<>();
+        ResourceCursor cursor = null;
+        ResourcePage<Device> page;
+        int pages = 0;
+        int expectedPages = expectedIds.size() / pageSize + 1;
+        do {
+            page = persistence.readAfter(getDefaultPersistenceContext(), Device.class, start, end, cursor, pageSize);
+            for (Device device : page.getResources()) {
+                ids.add(device.getId());
+            }
+            cursor = page.getCursor();
+            pages++;
+        } while (!page.isLast() && pages <= expectedPages);
+
+        assertTrue(page.isLast(), "too many pages");
+        assertEquals(pages, expectedPages);
+        assertNotNull(cursor);
+        return ids;
+    }
+
+    /**
+     * @return the ids of the current versions of the resources created by this test, in cursor order
+     */
+    protected List<String> getExpectedIds() {
+        return expectedIds;
+    }
+
+    @Test
+    public void testReadSinglePage() throws Exception {
+        ResourcePage<Device> page = persistence.readAfter(getDefaultPersistenceContext(), Device.class, start, end, null, 100);
+        assertTrue(page.isLast());
+        assertEquals(page.getResources().size(), expectedIds.size());
+
+        // reading after the last resource returns an empty page with the same cursor
+        ResourcePage<Device> next = persistence.readAfter(getDefaultPersistenceContext(), Device.class, start, end, page.getCursor(), 100);
+        assertTrue(next.isLast());
+        assertTrue(next.getResources().isEmpty());
+        assertEquals(next.getCursor(), page.getCursor());
+    }
+
+    @Test
+    public void testReadPayloads() throws Exception {
+        ResourcePage<Device> page = persistence.readAfter(getDefaultPersistenceContext(), Device.class, start, end, null, 100);
+        ResourcePage<ResourcePayload> payloads = persistence.readPayloadsAfter(getDefaultPersistenceContext(), Device.class, start, end, null, 100);
+        assertEquals(payloads.getCursor(), page.getCursor());
+        assertEquals(payloads.getResources().size(), page.getResources().size());
+        for (int i = 0; i < page.getResources().size(); i++) {
+            ResourcePayload payload = payloads.getResources().get(i);
+            assertEquals(payload.getLogicalId(), page.getResources().get(i).getId());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            payload.transferTo(out);
+            Device device = FHIRParser.parser(Format.JSON).parse(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(device, page.getResources().get(i));
+        }
+    }
+
+    @Test
+    public void testReadEmptyRange() throws Exception {
+        ResourcePage<Device> page = persistence.readAfter(getDefaultPersistenceContext(), Device.class, end, null, null, 10);
+        assertTrue(page.isLast());
+        assertTrue(page.getResources().isEmpty());
+        assertNull(page.getCursor());
+    }
+
+    @Test
+    public void testReadFullPage() throws Exception {
+        ResourcePage<Device> page = persistence.readAfter(getDefaultPersistenceContext(), Device.class, start, end, null, expectedIds.size() - 1);
+        assertFalse(page.isLast());
+        assertEquals(page.getResources().size(), expectedIds.size() - 1);
+    }
+}
@@ -9,7 +9,9 @@ package com.ibm.fhir.registry.util;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -147,6 +149,24 @@ public final class FHIRRegistryUtil {
     public static Collection<FHIRRegistryResource> getRegistryResources(String packageId) {
         List<FHIRRegistryResource> resources = new ArrayList<>();
         String packageDirectory = packageId.replace(".", "/") + "/package";
+        PackageSnapshot snapshot = readSnapshot(packageDirectory + "/" + PackageSnapshot.FILE_NAME);
+        if (snapshot != null) {
+            List<Entry> entries = snapshot.getEntries();
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                resources.add(new PackageSnapshotRegistryResource(
+                    ModelSupport.getResourceType(entry.getResourceType()),
+                    entry.getId(),
+                    entry.getUrl(),
+                    Version.from(entry.getVersion()),
+                    entry.getKind(),
+                    entry.getType(),
+                    packageDirectory + "/" + entry.getFileName(),
+                    snapshot,
+                    i));
+            }
+            return Collections.unmodifiableList(resources);
+        }
         for (Entry entry : readIndex(packageDirectory + "/.index.json")) {
             resources.add(new PackageRegistryResource(
                 ModelSupport.getResourceType(entry.getResourceType()),
@@ -160,6 +180,34 @@ public final class FHIRRegistryUtil {
         return Collections.unmodifiableList(resources);
     }
 
+    /**
+     * Read the package snapshot at the specified classpath location. A snapshot in the file system is memory mapped,
+     * while a snapshot in a jar is first extracted to a temporary file.
+     *
+     * @param snapshotPath
+     *     the classpath location of the snapshot
+     * @return
+     *     the snapshot, or null if there is no snapshot at the location or it could not be read
+     */
+    public static PackageSnapshot readSnapshot(String snapshotPath) {
+        URL url = FHIRRegistryUtil.class.getClassLoader().getResource(snapshotPath);
+        if (url == null) {
+            return null;
+        }
+        log.info("Loading package snapshot: " + snapshotPath);
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return PackageSnapshot.read(Paths.get(url.toURI()));
+            }
+            try (InputStream in = url.openStream()) {
+                return PackageSnapshot.read(in);
+            }
+        } catch (Exception e) {
+            log.log(Level.WARNING, "Unexpected error while loading package snapshot '" + snapshotPath + "'; falling back to the index", e);
+        }
+        return null;
+    }
+
     public static List<Entry> readIndex(String indexPath) {
         log.info("Loading index: " + indexPath);
         try (InputStream in = FHIRRegistryUtil.class.getClassLoader().getResourceAsStream(indexPath)) {
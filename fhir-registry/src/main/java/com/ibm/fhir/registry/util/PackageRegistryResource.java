@@ -50,11 +50,21 @@ public class PackageRegistryResource extends FHIRRegistryResource {
             synchronized (this) {
                 resource = this.resource;
                 if (resource == null) {
-                    resource = loadResource(path);
+                    resource = load();
                     this.resource = resource;
                 }
             }
         }
         return resource;
     }
+
+    /**
+     * Load the FHIR resource associated with this registry resource
+     *
+     * @return
+     *     the FHIR resource, or null if it could not be loaded
+     */
+    protected Resource load() {
+        return loadResource(path);
+    }
 }
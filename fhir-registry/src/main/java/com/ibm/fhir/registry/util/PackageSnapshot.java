@@ -0,0 +1,293 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.registry.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.registry.util.Index.Entry;
+
+/**
+ * A binary snapshot of an NPM package, generated at build time from the package index and resource files.
+ *
+ * <p>The snapshot starts with the index entries, so they can be read without parsing the JSON index, followed by the
+ * JSON of each resource. The snapshot file is memory mapped, so only the index entries are held in the heap and the
+ * resources are parsed from the mapped bytes on demand. A snapshot packaged in a jar is first extracted to a temporary
+ * file.
+ *
+ * <p>The layout is:
+ * <pre>
+ * int magic, int format version, int header length
+ * header: int index version, int entry count, and for each entry:
+ *     UTF filename, resourceType, id, url, version; boolean + UTF kind, type; int data offset, int data length
+ * data: the UTF-8 JSON of the resources
+ * </pre>
+ * A data offset of -1 means the resource is not in the snapshot.
+ */
+public final class PackageSnapshot {
+    private static final Logger log = Logger.getLogger(PackageSnapshot.class.getName());
+
+    public static final String FILE_NAME = ".index.snapshot";
+
+    private static final int MAGIC = 0x46484952;
+    private static final int FORMAT_VERSION = 1;
+    private static final int PREAMBLE_LENGTH = 12;
+
+    private final int version;
+    private final List<Entry> entries;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    // The mapped data section
+    private final ByteBuffer data;
+
+    private PackageSnapshot(int version, List<Entry> entries, int[] offsets, int[] lengths, ByteBuffer data) {
+        this.version = version;
+        this.entries = Collections.unmodifiableList(entries);
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.data = data;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Parse the resource of the index entry at the specified position from the snapshot.
+     *
+     * @param index
+     *     the position of the index entry
+     * @return
+     *     the resource, or null if the resource is not in the snapshot or could not be parsed
+     */
+    public Resource loadResource(int index) {
+        if (offsets[index] < 0) {
+            return null;
+        }
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(offsets[index]);
+        buffer.limit(offsets[index] + lengths[index]);
+        try (InputStream in = new ByteBufferInputStream(buffer)) {
+            return FHIRParser.parser(Format.JSON).parse(in);
+        } catch (Exception e) {
+            log.warning("Unable to load resource: " + entries.get(index).getFileName() + " from the package snapshot due to the following exception: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Read a snapshot file and map its resources into memory.
+     *
+     * @param file
+     *     the snapshot file
+     * @return
+     *     the snapshot
+     * @throws IOException
+     *     if the file could not be read or is not a package snapshot
+     */
+    public static PackageSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Extract a snapshot from a stream to a temporary file and map its resources into memory. The temporary file is
+     * deleted when the virtual machine exits.
+     *
+     * @param in
+     *     the input stream of the snapshot
+     * @return
+     *     the snapshot
+     * @throws IOException
+     *     if the stream could not be extracted or is not a package snapshot
+     */
+    public static PackageSnapshot read(InputStream in) throws IOException {
+        Path file = Files.createTempFile("fhir-registry-", FILE_NAME);
+        file.toFile().deleteOnExit();
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            return read(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static PackageSnapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < PREAMBLE_LENGTH) {
+            throw new IOException("not a package snapshot");
+        }
+        int headerLength = readPreamble(buffer.getInt(), buffer.getInt(), buffer.getInt());
+        if (headerLength < 0 || headerLength > buffer.remaining()) {
+            throw new IOException("invalid package snapshot header length: " + headerLength);
+        }
+        byte[] header = new byte[headerLength];
+        buffer.get(header);
+        return readHeader(new DataInputStream(new ByteArrayInputStream(header)), buffer.slice());
+    }
+
+    private static int readPreamble(int magic, int formatVersion, int headerLength) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("not a package snapshot");
+        }
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("unsupported package snapshot format version: " + formatVersion);
+        }
+        return headerLength;
+    }
+
+    private static PackageSnapshot readHeader(DataInputStream in, ByteBuffer data) throws IOException {
+        int version = in.readInt();
+        int count = in.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            String fileName = in.readUTF();
+            String resourceType = in.readUTF();
+            String id = in.readUTF();
+            String url = in.readUTF();
+            String entryVersion = in.readUTF();
+            String kind = in.readBoolean() ? in.readUTF() : null;
+            String type = in.readBoolean() ? in.readUTF() : null;
+            entries.add(new Entry(fileName, resourceType, id, url, entryVersion, kind, type));
+            offsets[i] = in.readInt();
+            lengths[i] = in.readInt();
+        }
+        return new PackageSnapshot(version, entries, offsets, lengths, data);
+    }
+
+    /**
+     * Write a snapshot of the package with the specified index.
+     *
+     * @param index
+     *     the index of the package
+     * @param packageDirectory
+     *     the directory of the package resource files
+     * @param out
+     *     the output stream to write the snapshot to
+     * @throws IOException
+     *     if a resource file could not be read or the snapshot could not be written
+     */
+    public static void write(Index index, Path packageDirectory, OutputStream out) throws IOException {
+        if (index.getVersion() < 1) {
+            throw new IllegalStateException("index version was not set");
+        }
+        List<Entry> entries = index.getEntries();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(index.getVersion());
+        headerOut.writeInt(entries.size());
+
+        List<byte[]> resources = new ArrayList<>(entries.size());
+        int offset = 0;
+        for (Entry entry : entries) {
+            Path file = packageDirectory.resolve(entry.getFileName());
+            byte[] bytes = null;
+            if (Files.isRegularFile(file)) {
+                bytes = Files.readAllBytes(file);
+                if ((long) offset + bytes.length > Integer.MAX_VALUE) {
+                    throw new IOException("package snapshot exceeds the maximum size");
+                }
+            } else {
+                log.warning("Resource file: " + file + " not found; the resource will be loaded from the package");
+            }
+
+            headerOut.writeUTF(entry.getFileName());
+            headerOut.writeUTF(entry.getResourceType());
+            headerOut.writeUTF(entry.getId());
+            headerOut.writeUTF(entry.getUrl());
+            headerOut.writeUTF(entry.getVersion());
+            writeOptionalUTF(headerOut, entry.getKind());
+            writeOptionalUTF(headerOut, entry.getType());
+            headerOut.writeInt(bytes != null ? offset : -1);
+            headerOut.writeInt(bytes != null ? bytes.length : 0);
+
+            if (bytes != null) {
+                resources.add(bytes);
+                offset += bytes.length;
+            }
+        }
+        headerOut.flush();
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(FORMAT_VERSION);
+        dataOut.writeInt(header.size());
+        header.writeTo(dataOut);
+        for (byte[] bytes : resources) {
+            dataOut.write(bytes);
+        }
+        dataOut.flush();
+    }
+
+    private static void writeOptionalUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Exposes the remaining bytes of a buffer as an input stream
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.registry.util;
+
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the {@link PackageSnapshot} of each package directory passed as an argument, from the package index
+ * (.index.json) and resource files in the directory. A directory without an index is skipped with a warning.
+ *
+ * <p>Usage: PackageSnapshotGenerator &lt;package directory&gt;...
+ */
+public class PackageSnapshotGenerator {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: PackageSnapshotGenerator <package directory>...");
+            System.exit(1);
+        }
+        for (String arg : args) {
+            Path packageDirectory = Paths.get(arg);
+            Path indexFile = packageDirectory.resolve(".index.json");
+            if (!Files.isRegularFile(indexFile)) {
+                System.err.println("WARNING: Index file " + indexFile + " not found; skipping the package snapshot of " + packageDirectory);
+                continue;
+            }
+            Index index = new Index();
+            try (InputStream in = Files.newInputStream(indexFile)) {
+                index.load(in);
+            }
+            Path snapshotFile = packageDirectory.resolve(PackageSnapshot.FILE_NAME);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(snapshotFile))) {
+                PackageSnapshot.write(index, packageDirectory, out);
+            }
+            System.out.println("Generated " + snapshotFile + " with " + index.getEntries().size() + " entries");
+        }
+    }
+}
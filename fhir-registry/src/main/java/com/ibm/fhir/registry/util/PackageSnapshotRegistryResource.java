@@ -0,0 +1,41 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.registry.util;
+
+import java.util.Objects;
+
+import com.ibm.fhir.model.resource.Resource;
+
+/**
+ * A package registry resource that loads its FHIR resource from a package snapshot,
+ * or from the path of the resource in the package if it is not in the snapshot
+ */
+public class PackageSnapshotRegistryResource extends PackageRegistryResource {
+    private final PackageSnapshot snapshot;
+    private final int index;
+
+    public PackageSnapshotRegistryResource(
+            Class<? extends Resource> resourceType,
+            String id,
+            String url,
+            Version version,
+            String kind,
+            String type,
+            String path,
+            PackageSnapshot snapshot,
+            int index) {
+        super(resourceType, id, url, version, kind, type, path);
+        this.snapshot = Objects.requireNonNull(snapshot);
+        this.index = index;
+    }
+
+    @Override
+    protected Resource load() {
+        Resource resource = snapshot.loadResource(index);
+        return (resource != null) ? resource : super.load();
+    }
+}
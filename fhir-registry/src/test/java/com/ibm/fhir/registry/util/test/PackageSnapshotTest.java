@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.registry.util.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.ValueSet;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.registry.util.Index;
+import com.ibm.fhir.registry.util.Index.Entry;
+import com.ibm.fhir.registry.util.PackageSnapshot;
+import com.ibm.fhir.registry.util.PackageSnapshotGenerator;
+
+public class PackageSnapshotTest {
+    private Path packageDirectory;
+    private CodeSystem codeSystem;
+    private ValueSet valueSet;
+
+    @BeforeClass
+    public void generateSnapshot() throws Exception {
+        packageDirectory = Files.createTempDirectory("package");
+
+        codeSystem = CodeSystem.builder()
+                .id("snapshot-test")
+                .url(Uri.of("http://ibm.com/fhir/CodeSystem/snapshot-test"))
+                .version(string("1.0.0"))
+                .status(PublicationStatus.ACTIVE)
+                .content(CodeSystemContentMode.COMPLETE)
+                .concept(CodeSystem.Concept.builder().code(Code.of("a")).display(string("Concept ä")).build())
+                .build();
+        valueSet = ValueSet.builder()
+                .id("snapshot-test")
+                .url(Uri.of("http://ibm.com/fhir/ValueSet/snapshot-test"))
+                .version(string("1.0.0"))
+                .status(PublicationStatus.ACTIVE)
+                .build();
+
+        Index index = new Index(1);
+        for (Resource resource : new Resource[] { codeSystem, valueSet }) {
+            Entry entry = Entry.entry(resource);
+            try (Writer writer = Files.newBufferedWriter(packageDirectory.resolve(entry.getFileName()), StandardCharsets.UTF_8)) {
+                writer.write(resource.toString());
+            }
+            index.add(entry);
+        }
+        try (OutputStream out = Files.newOutputStream(packageDirectory.resolve(".index.json"))) {
+            index.store(out);
+        }
+
+        PackageSnapshotGenerator.main(new String[] { packageDirectory.toString() });
+    }
+
+    @AfterClass
+    public void deletePackage() throws Exception {
+        try (Stream<Path> paths = Files.walk(packageDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(java.io.File::delete);
+        }
+    }
+
+    @Test
+    public void testReadMapped() throws Exception {
+        PackageSnapshot snapshot = PackageSnapshot.read(packageDirectory.resolve(PackageSnapshot.FILE_NAME));
+        assertEquals(snapshot.getVersion(), 1);
+        assertEquals(snapshot.getEntries().size(), 2);
+
+        Entry entry = snapshot.getEntries().get(0);
+        assertEquals(entry, Entry.entry(codeSystem));
+        assertEquals(snapshot.loadResource(0), codeSystem);
+        assertEquals(snapshot.getEntries().get(1), Entry.entry(valueSet));
+        assertEquals(snapshot.loadResource(1), valueSet);
+    }
+
+    @Test
+    public void testReadStream() throws Exception {
+        try (InputStream in = Files.newInputStream(packageDirectory.resolve(PackageSnapshot.FILE_NAME))) {
+            PackageSnapshot snapshot = PackageSnapshot.read(in);
+            assertEquals(snapshot.getEntries().size(), 2);
+            assertEquals(snapshot.getEntries().get(0), Entry.entry(codeSystem));
+            assertEquals(snapshot.loadResource(0), codeSystem);
+            assertEquals(snapshot.getEntries().get(1), Entry.entry(valueSet));
+            assertEquals(snapshot.loadResource(1), valueSet);
+        }
+    }
+
+    @Test
+    public void testGenerateWithoutIndex() throws Exception {
+        Path emptyDirectory = Files.createTempDirectory("package");
+        try {
+            PackageSnapshotGenerator.main(new String[] { emptyDirectory.toString() });
+            assertFalse(Files.exists(emptyDirectory.resolve(PackageSnapshot.FILE_NAME)));
+        } finally {
+            Files.delete(emptyDirectory);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search;
+
+/**
+ * Search _total Constants
+ * @see <a href="https://www.hl7.org/fhir/r4/search.html#total">https://www.hl7.org/fhir/r4/search.html#total</a>
+ */
+public enum TotalValueSet {
+    NONE("none"),
+    ESTIMATE("estimate"),
+    ACCURATE("accurate");
+
+    private final String value;
+
+    TotalValueSet(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static TotalValueSet from(String value) {
+        for (TotalValueSet c : TotalValueSet.values()) {
+            if (c.value.equals(value)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException(value);
+    }
+}
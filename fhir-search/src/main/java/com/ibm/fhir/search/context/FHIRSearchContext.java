@@ -10,6 +10,7 @@ import java.util.List;
 
 import com.ibm.fhir.core.context.FHIRPagingContext;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.parameters.InclusionParameter;
 import com.ibm.fhir.search.parameters.QueryParameter;
 import com.ibm.fhir.search.parameters.SortParameter;
@@ -83,4 +84,21 @@ public interface FHIRSearchContext extends FHIRPagingContext {
      * Set the value of the summary parameter.
      */
     void setSummaryParameter(SummaryValueSet summary);
+
+    /**
+     * @return true when the total parameter is not null
+     */
+    boolean hasTotalParameter();
+
+    /**
+     * Get the total parameter.
+     *
+     * @return the value of the total parameter, or null if the client did not specify how the total should be computed
+     */
+    TotalValueSet getTotalParameter();
+
+    /**
+     * Set the value of the total parameter.
+     */
+    void setTotalParameter(TotalValueSet total);
 }
@@ -11,6 +11,7 @@ import java.util.List;
 
 import com.ibm.fhir.core.context.impl.FHIRPagingContextImpl;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.parameters.InclusionParameter;
 import com.ibm.fhir.search.parameters.QueryParameter;
@@ -25,6 +26,7 @@ public class FHIRSearchContextImpl extends FHIRPagingContextImpl implements FHIR
     private List<InclusionParameter> revIncludeParameters = new ArrayList<>();
     private List<String> elementsParameters = null;
     private SummaryValueSet summaryParameter = null; 
+    private TotalValueSet totalParameter = null;
 
     public FHIRSearchContextImpl() {
         searchParameters = new ArrayList<>();
@@ -124,6 +126,21 @@ public class FHIRSearchContextImpl extends FHIRPagingContextImpl implements FHIR
 
     }
 
+    @Override
+    public boolean hasTotalParameter() {
+        return this.totalParameter != null;
+    }
+
+    @Override
+    public TotalValueSet getTotalParameter() {
+        return this.totalParameter;
+    }
+
+    @Override
+    public void setTotalParameter(TotalValueSet total) {
+        this.totalParameter = total;
+    }
+
     @Override
     public List<String> getSearchResourceTypes() {
         return this.searchResourceTypes;
@@ -93,6 +93,7 @@ public class UriBuilder {
         appendRevInclusionParameters();
         appendSortParameters();
         appendSummaryParameter();
+        appendTotalParameter();
         appendResourceTypesParameter();
 
         // Always include page number at the end, even if it wasn't in the request
@@ -162,6 +163,15 @@ public class UriBuilder {
         }
     }
 
+    private void appendTotalParameter() {
+        if (context.getTotalParameter() != null) {
+            queryString.append(SearchConstants.AND_CHAR);
+            queryString.append(SearchConstants.TOTAL);
+            queryString.append(SearchConstants.EQUALS_CHAR);
+            queryString.append(context.getTotalParameter().value());
+        }
+    }
+
     private void appendRevInclusionParameters() {
         for (InclusionParameter param : context.getRevIncludeParameters()) {
             queryString.append(SearchConstants.AND_CHAR);
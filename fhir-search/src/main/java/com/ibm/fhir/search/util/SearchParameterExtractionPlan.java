@@ -0,0 +1,328 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.path.FHIRPathNode;
+import com.ibm.fhir.path.FHIRPathParser;
+import com.ibm.fhir.path.FHIRPathParser.ExpressionContext;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.exception.FHIRPathException;
+import com.ibm.fhir.path.util.FHIRPathUtil;
+
+/**
+ * An extraction plan for the search parameters that apply to a single resource type.
+ *
+ * <p>The expressions of all search parameters are split into their top-level union branches and the leading
+ * member path of each branch (e.g. {@code Observation.code} in {@code Observation.code.coding}) is merged into
+ * a shared prefix tree. While a plan is executed against a resource, each path in the prefix tree is evaluated
+ * at most once and the remainder of each branch is evaluated against the nodes selected by its path.
+ *
+ * <p>Branches that cannot be split (for example, because they reference {@code %context}) are evaluated
+ * against the resource like before.
+ */
+public final class SearchParameterExtractionPlan {
+    private static final String THIS = "$this";
+    private static final Set<String> CONTEXT_CONSTANTS = new HashSet<>(Arrays.asList("%context", "%`context`", "%'context'"));
+
+    private final List<SearchParameter> parameters;
+    private final Map<SearchParameter, List<Branch>> branchMap;
+    private final Path root = new Path(null, null, -1);
+    private int pathCount = 0;
+
+    private SearchParameterExtractionPlan(List<SearchParameter> parameters) {
+        this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        this.branchMap = new IdentityHashMap<>();
+        for (SearchParameter parameter : this.parameters) {
+            if (parameter.getExpression() != null && parameter.getExpression().getValue() != null) {
+                branchMap.put(parameter, compile(parameter.getExpression().getValue()));
+            }
+        }
+    }
+
+    /**
+     * Create an extraction plan for the passed search parameters
+     *
+     * @param parameters
+     *     the search parameters that apply to a resource type
+     * @return
+     *     a new extraction plan
+     */
+    public static SearchParameterExtractionPlan compile(List<SearchParameter> parameters) {
+        return new SearchParameterExtractionPlan(parameters);
+    }
+
+    /**
+     * @param parameters
+     *     a list of search parameters
+     * @return
+     *     true if this plan was compiled from the same search parameter instances in the same order
+     */
+    public boolean isCompiledFrom(List<SearchParameter> parameters) {
+        if (parameters.size() != this.parameters.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i) != this.parameters.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the search parameters this plan was compiled from
+     */
+    public List<SearchParameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Begin the execution of this plan against the resource of the passed evaluation context
+     *
+     * @param evaluator
+     *     the FHIRPath evaluator
+     * @param evaluationContext
+     *     the evaluation context of the resource
+     * @return
+     *     a new execution whose shared path results are computed on demand
+     */
+    public Execution execute(FHIRPathEvaluator evaluator, EvaluationContext evaluationContext) {
+        return new Execution(evaluator, evaluationContext);
+    }
+
+    private List<Branch> compile(String expr) {
+        List<Branch> branches = new ArrayList<>();
+        try {
+            List<ExpressionContext> unionBranches = new ArrayList<>();
+            collectUnionBranches(FHIRPathUtil.compile(expr), unionBranches);
+            for (ExpressionContext branch : unionBranches) {
+                branches.add(compileBranch(branch));
+            }
+        } catch (Exception e) {
+            // let the evaluator report the problem with the original expression
+            branches.clear();
+            branches.add(new Branch(null, expr));
+        }
+        return branches;
+    }
+
+    private void collectUnionBranches(ExpressionContext ctx, List<ExpressionContext> branches) {
+        if (ctx instanceof FHIRPathParser.UnionExpressionContext) {
+            for (ExpressionContext operand : ((FHIRPathParser.UnionExpressionContext) ctx).expression()) {
+                collectUnionBranches(operand, branches);
+            }
+            return;
+        }
+        if (ctx instanceof FHIRPathParser.TermExpressionContext) {
+            FHIRPathParser.TermContext term = ((FHIRPathParser.TermExpressionContext) ctx).term();
+            if (term instanceof FHIRPathParser.ParenthesizedTermContext) {
+                ExpressionContext inner = ((FHIRPathParser.ParenthesizedTermContext) term).expression();
+                if (inner instanceof FHIRPathParser.UnionExpressionContext) {
+                    collectUnionBranches(inner, branches);
+                    return;
+                }
+            }
+        }
+        branches.add(ctx);
+    }
+
+    private Branch compileBranch(ExpressionContext branch) {
+        String text = getText(branch, branch.start.getStartIndex(), branch.stop.getStopIndex());
+        if (referencesContext(branch)) {
+            return new Branch(null, text);
+        }
+
+        // find the leftmost term of the branch, only passing through constructs that evaluate their operand
+        // against the same context as the construct itself
+        ExpressionContext leftmost = branch;
+        while (true) {
+            if (leftmost instanceof FHIRPathParser.InvocationExpressionContext) {
+                leftmost = ((FHIRPathParser.InvocationExpressionContext) leftmost).expression();
+            } else if (leftmost instanceof FHIRPathParser.TypeExpressionContext) {
+                leftmost = ((FHIRPathParser.TypeExpressionContext) leftmost).expression();
+            } else if (leftmost instanceof FHIRPathParser.TermExpressionContext) {
+                FHIRPathParser.TermContext term = ((FHIRPathParser.TermExpressionContext) leftmost).term();
+                if (term instanceof FHIRPathParser.ParenthesizedTermContext) {
+                    leftmost = ((FHIRPathParser.ParenthesizedTermContext) term).expression();
+                } else if (term instanceof FHIRPathParser.InvocationTermContext
+                        && ((FHIRPathParser.InvocationTermContext) term).invocation() instanceof FHIRPathParser.MemberInvocationContext) {
+                    break;
+                } else {
+                    return new Branch(null, text);
+                }
+            } else {
+                return new Branch(null, text);
+            }
+        }
+
+        // extend the leftmost term with the member invocations that follow it
+        FHIRPathParser.TermExpressionContext termExpression = (FHIRPathParser.TermExpressionContext) leftmost;
+        FHIRPathParser.InvocationTermContext invocationTerm = (FHIRPathParser.InvocationTermContext) termExpression.term();
+        Path path = root.child(identifier(invocationTerm.invocation()));
+        ExpressionContext prefix = leftmost;
+        while (prefix != branch && prefix.getParent() instanceof FHIRPathParser.InvocationExpressionContext) {
+            FHIRPathParser.InvocationExpressionContext parent = (FHIRPathParser.InvocationExpressionContext) prefix.getParent();
+            if (parent.expression() != prefix || !(parent.invocation() instanceof FHIRPathParser.MemberInvocationContext)) {
+                break;
+            }
+            path = path.child(identifier(parent.invocation()));
+            prefix = parent;
+        }
+
+        if (prefix == branch) {
+            return new Branch(path, null);
+        }
+
+        String remainder = getText(branch, branch.start.getStartIndex(), prefix.start.getStartIndex() - 1) + THIS
+                + getText(branch, prefix.stop.getStopIndex() + 1, branch.stop.getStopIndex());
+        return new Branch(path, remainder);
+    }
+
+    private String identifier(FHIRPathParser.InvocationContext invocation) {
+        return ((FHIRPathParser.MemberInvocationContext) invocation).identifier().getText();
+    }
+
+    private boolean referencesContext(ParseTree tree) {
+        if (tree instanceof FHIRPathParser.ExternalConstantContext) {
+            return CONTEXT_CONSTANTS.contains(tree.getText());
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            if (referencesContext(tree.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getText(ParserRuleContext ctx, int start, int stop) {
+        if (start > stop) {
+            return "";
+        }
+        return ctx.start.getInputStream().getText(Interval.of(start, stop));
+    }
+
+    /**
+     * A node in the shared prefix tree; identifies the nodes selected by a simple member path such as
+     * {@code Observation.code}
+     */
+    private final class Path {
+        private final Path parent;
+        private final String identifier;
+        private final int index;
+        private final Map<String, Path> children = new LinkedHashMap<>();
+
+        private Path(Path parent, String identifier, int index) {
+            this.parent = parent;
+            this.identifier = identifier;
+            this.index = index;
+        }
+
+        private Path child(String identifier) {
+            return children.computeIfAbsent(identifier, k -> new Path(this, k, pathCount++));
+        }
+    }
+
+    /**
+     * A top-level union branch of a search parameter expression; the remainder is evaluated against the nodes
+     * selected by the path. A branch without a path is evaluated against the resource, and a branch without
+     * a remainder selects the nodes of its path.
+     */
+    private static final class Branch {
+        private final Path path;
+        private final String expression;
+
+        private Branch(Path path, String expression) {
+            this.path = path;
+            this.expression = expression;
+        }
+    }
+
+    /**
+     * The execution of a plan against a single resource; path results are memoized so that each path of the
+     * shared prefix tree is evaluated at most once.
+     *
+     * <p>Instances are not thread-safe.
+     */
+    public final class Execution {
+        private final FHIRPathEvaluator evaluator;
+        private final EvaluationContext evaluationContext;
+        private final Collection<FHIRPathNode> rootContext;
+        private final List<Collection<FHIRPathNode>> pathResults;
+
+        private Execution(FHIRPathEvaluator evaluator, EvaluationContext evaluationContext) {
+            this.evaluator = evaluator;
+            this.evaluationContext = evaluationContext;
+            this.rootContext = Collections.singletonList(evaluationContext.getTree().getRoot());
+            this.pathResults = new ArrayList<>(Collections.nCopies(pathCount, null));
+        }
+
+        /**
+         * Evaluate the expression of the passed search parameter against the resource
+         *
+         * @param parameter
+         *     a search parameter with a non-null expression
+         * @return
+         *     the result of evaluation as a non-null, potentially empty collection of FHIRPath nodes
+         * @throws FHIRPathException
+         *     if an exception occurs during evaluation
+         */
+        public Collection<FHIRPathNode> evaluate(SearchParameter parameter) throws FHIRPathException {
+            List<Branch> branches = branchMap.get(parameter);
+            if (branches == null) {
+                // not part of this plan
+                return evaluator.evaluate(evaluationContext, parameter.getExpression().getValue());
+            }
+            if (branches.size() == 1) {
+                return evaluate(branches.get(0));
+            }
+            Set<FHIRPathNode> union = new LinkedHashSet<>();
+            for (Branch branch : branches) {
+                union.addAll(evaluate(branch));
+            }
+            return new ArrayList<>(union);
+        }
+
+        private Collection<FHIRPathNode> evaluate(Branch branch) throws FHIRPathException {
+            if (branch.path == null) {
+                return evaluator.evaluate(evaluationContext, branch.expression, rootContext);
+            }
+            Collection<FHIRPathNode> nodes = evaluate(branch.path);
+            if (branch.expression == null) {
+                return nodes;
+            }
+            return evaluator.evaluate(evaluationContext, branch.expression, nodes);
+        }
+
+        private Collection<FHIRPathNode> evaluate(Path path) throws FHIRPathException {
+            Collection<FHIRPathNode> result = pathResults.get(path.index);
+            if (result == null) {
+                Collection<FHIRPathNode> parentNodes = (path.parent == root) ? rootContext : evaluate(path.parent);
+                result = evaluator.evaluate(evaluationContext, path.identifier, parentNodes);
+                pathResults.set(path.index, result);
+            }
+            return result;
+        }
+    }
+}
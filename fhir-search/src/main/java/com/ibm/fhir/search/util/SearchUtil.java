@@ -33,6 +33,7 @@ import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.config.PropertyGroup;
 import com.ibm.fhir.config.PropertyGroup.PropertyEntry;
 import com.ibm.fhir.core.FHIRConstants;
+import com.ibm.fhir.core.util.ConcurrentLRUCache;
 import com.ibm.fhir.model.resource.Resource;
 import com.ibm.fhir.model.resource.SearchParameter;
 import com.ibm.fhir.model.resource.SearchParameter.Component;
@@ -54,6 +55,7 @@ import com.ibm.fhir.search.SearchConstants.Modifier;
 import com.ibm.fhir.search.SearchConstants.Prefix;
 import com.ibm.fhir.search.SearchConstants.Type;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.compartment.CompartmentUtil;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.context.FHIRSearchContextFactory;
@@ -140,6 +142,9 @@ public class SearchUtil {
      */
     private static TenantSpecificSearchParameterCache searchParameterCache = new TenantSpecificSearchParameterCache();
 
+    // Extraction plans keyed by tenant id and resource type; a plan is rebuilt when the applicable search parameters change
+    private static final Map<String, SearchParameterExtractionPlan> extractionPlanCache = ConcurrentLRUCache.createConcurrentLRUCache(1024);
+
     private SearchUtil() {
         // No Operation
         // Hides the Initialization
@@ -670,6 +675,10 @@ public class SearchUtil {
 
         List<SearchParameter> parameters = getApplicableSearchParameters(resourceType.getSimpleName());
 
+        // Paths shared by the search parameter expressions are evaluated once per resource.
+        SearchParameterExtractionPlan.Execution execution =
+                getExtractionPlan(resourceType.getSimpleName(), parameters).execute(evaluator, evaluationContext);
+
         for (SearchParameter parameter : parameters) {
 
             com.ibm.fhir.model.type.String expression = parameter.getExpression();
@@ -692,7 +701,7 @@ public class SearchUtil {
                 continue;
             }
             try {
-                Collection<FHIRPathNode> tmpResults = evaluator.evaluate(evaluationContext, expression.getValue());
+                Collection<FHIRPathNode> tmpResults = execution.evaluate(parameter);
 
                 if (log.isLoggable(Level.FINEST)) {
                     log.finest("Expression [" + expression.getValue() + "] parameter-code ["
@@ -714,6 +723,26 @@ public class SearchUtil {
         return result;
     }
 
+    /**
+     * Returns the cached extraction plan for the current tenant and the specified resource type, compiling
+     * a new plan if the applicable search parameters have changed since the cached plan was compiled.
+     *
+     * @param resourceType
+     *     the resource type
+     * @param parameters
+     *     the search parameters that apply to the resource type
+     * @return the extraction plan
+     */
+    private static SearchParameterExtractionPlan getExtractionPlan(String resourceType, List<SearchParameter> parameters) {
+        String key = FHIRRequestContext.get().getTenantId() + "/" + resourceType;
+        SearchParameterExtractionPlan plan = extractionPlanCache.get(key);
+        if (plan == null || !plan.isCompiledFrom(parameters)) {
+            plan = SearchParameterExtractionPlan.compile(parameters);
+            extractionPlanCache.put(key, plan);
+        }
+        return plan;
+    }
+
     public static FHIRSearchContext parseQueryParameters(Class<?> resourceType,
             Map<String, List<String>> queryParameters)
             throws Exception {
@@ -1440,6 +1469,8 @@ public class SearchUtil {
                 parseElementsParameter(resourceType, context, values, lenient);
             } else if (SearchConstants.SUMMARY.equals(name) && first != null) {
                 context.setSummaryParameter(SummaryValueSet.from(first));
+            } else if (SearchConstants.TOTAL.equals(name) && first != null) {
+                context.setTotalParameter(TotalValueSet.from(first));
             }
         } catch (FHIRSearchException se) {
             throw se;
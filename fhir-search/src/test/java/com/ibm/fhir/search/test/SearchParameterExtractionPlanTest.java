@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.examples.Index;
+import com.ibm.fhir.model.format.Format;
+import com.ibm.fhir.model.parser.FHIRParser;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.SearchParameter;
+import com.ibm.fhir.model.spec.test.IExampleProcessor;
+import com.ibm.fhir.model.spec.test.R4ExamplesDriver;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Markdown;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.model.type.code.ResourceType;
+import com.ibm.fhir.model.type.code.SearchParamType;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
+import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.search.util.SearchParameterExtractionPlan;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * Verifies that the search parameter extraction plan produces the same results as evaluating each search
+ * parameter expression on its own
+ */
+public class SearchParameterExtractionPlanTest extends BaseSearchTest {
+    private final FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        FHIRConfiguration.setConfigHome("target/test-classes");
+    }
+
+    @Test
+    public void testSplitExpressions() throws Exception {
+        Resource resource = parse("extract/observation-full.json");
+        List<SearchParameter> parameters = Arrays.asList(
+            searchParameter("a", "Observation.code"),
+            searchParameter("b", "Observation.code.coding.code"),
+            searchParameter("c", "Observation.code | Observation.category | Observation.code"),
+            searchParameter("d", "(Observation.value as Quantity) | (Observation.value as CodeableConcept)"),
+            searchParameter("e", "Observation.component.code.where(coding.exists())"),
+            searchParameter("f", "Observation.subject.where(%context.id.exists())"),
+            searchParameter("g", "Observation.code.exists()"),
+            searchParameter("h", "Observation.component[0].code"),
+            searchParameter("i", "%resource.code"),
+            searchParameter("j", "Observation.code.coding.code.foo("));
+
+        assertParity(resource, parameters);
+    }
+
+    @Test
+    public void testPlanIsCompiledFrom() throws Exception {
+        List<SearchParameter> parameters = Arrays.asList(
+            searchParameter("a", "Observation.code"),
+            searchParameter("b", "Observation.category"),
+            searchParameter("c", "Observation.subject"));
+        SearchParameterExtractionPlan plan = SearchParameterExtractionPlan.compile(parameters);
+        assertTrue(plan.isCompiledFrom(new ArrayList<>(parameters)));
+
+        List<SearchParameter> reversed = new ArrayList<>(parameters);
+        Collections.reverse(reversed);
+        assertFalse(plan.isCompiledFrom(reversed));
+        assertFalse(plan.isCompiledFrom(parameters.subList(1, parameters.size())));
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor(new IExampleProcessor() {
+            @Override
+            public void process(String jsonFile, Resource resource) throws Exception {
+                assertParity(resource, SearchUtil.getApplicableSearchParameters(resource.getClass().getSimpleName()));
+            }
+        });
+        driver.processIndex(Index.MINIMAL_JSON);
+    }
+
+    private void assertParity(Resource resource, List<SearchParameter> parameters) throws Exception {
+        EvaluationContext evaluationContext = new EvaluationContext(resource);
+        SearchParameterExtractionPlan.Execution execution =
+                SearchParameterExtractionPlan.compile(parameters).execute(evaluator, evaluationContext);
+        for (SearchParameter parameter : parameters) {
+            if (parameter.getExpression() == null) {
+                continue;
+            }
+            String expr = parameter.getExpression().getValue();
+            assertEquals(evaluate(execution, parameter), evaluate(evaluationContext, expr), parameter.getCode().getValue() + ": " + expr);
+        }
+    }
+
+    private Object evaluate(SearchParameterExtractionPlan.Execution execution, SearchParameter parameter) {
+        try {
+            return new ArrayList<>(execution.evaluate(parameter));
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private Object evaluate(EvaluationContext evaluationContext, String expr) {
+        try {
+            return new ArrayList<>(evaluator.evaluate(evaluationContext, expr));
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private Resource parse(String file) throws Exception {
+        try (InputStream stream = SearchParameterExtractionPlanTest.class.getResourceAsStream("/testdata/" + file)) {
+            return FHIRParser.parser(Format.JSON).parse(stream);
+        }
+    }
+
+    private SearchParameter searchParameter(String code, String expression) {
+        return SearchParameter.builder()
+                .url(Uri.of("http://example.com/SearchParameter/" + code))
+                .name(com.ibm.fhir.model.type.String.of(code))
+                .status(PublicationStatus.ACTIVE)
+                .description(Markdown.of(code))
+                .code(Code.of(code))
+                .base(ResourceType.OBSERVATION)
+                .type(SearchParamType.TOKEN)
+                .expression(com.ibm.fhir.model.type.String.of(expression))
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.search.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.search.TotalValueSet;
+import com.ibm.fhir.search.context.FHIRSearchContext;
+import com.ibm.fhir.search.util.SearchUtil;
+
+/**
+ * This testng test class contains methods that test the parsing of the search result _total parameter in the
+ * SearchUtil class.
+ */
+public class TotalParameterParseTest extends BaseSearchTest {
+
+    @Test
+    public void testTotal() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        Class<Patient> resourceType = Patient.class;
+
+        for (TotalValueSet total : TotalValueSet.values()) {
+            queryParameters.put("_total", Arrays.asList(total.value()));
+            FHIRSearchContext context = SearchUtil.parseQueryParameters(resourceType, queryParameters);
+            assertNotNull(context);
+            assertTrue(context.hasTotalParameter());
+            assertEquals(context.getTotalParameter(), total);
+        }
+    }
+
+    @Test
+    public void testTotalNotSpecified() throws Exception {
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Patient.class, new HashMap<>());
+        assertFalse(context.hasTotalParameter());
+    }
+
+    @Test
+    public void testTotalInSelfUri() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("none"));
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Patient.class, queryParameters);
+        String selfUri = SearchUtil.buildSearchSelfUri("https://example.com/Patient?_total=none", context);
+        assertTrue(selfUri.contains("_total=none"), selfUri);
+    }
+
+    @Test
+    public void testTotalInvalid_lenient() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("invalid"));
+        FHIRSearchContext context = SearchUtil.parseQueryParameters(Patient.class, queryParameters, true);
+        assertNotNull(context);
+        assertNull(context.getTotalParameter());
+    }
+
+    @Test(expectedExceptions = Exception.class)
+    public void testTotalInvalid_strict() throws Exception {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("_total", Arrays.asList("invalid"));
+        SearchUtil.parseQueryParameters(Patient.class, queryParameters, false);
+    }
+}
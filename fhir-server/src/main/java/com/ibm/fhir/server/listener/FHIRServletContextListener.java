@@ -41,6 +41,7 @@ import javax.websocket.server.ServerContainer;
 
 import org.owasp.encoder.Encode;
 
+import com.ibm.fhir.audit.AuditLogServiceFactory;
 import com.ibm.fhir.config.FHIRConfigHelper;
 import com.ibm.fhir.config.FHIRConfiguration;
 import com.ibm.fhir.config.FHIRRequestContext;
@@ -412,6 +413,9 @@ public class FHIRServletContextListener implements ServletContextListener {
                 natsPublisher.shutdown();
                 natsPublisher = null;
             }
+
+            // Let the audit log service write the audit events it still holds.
+            AuditLogServiceFactory.stopService();
         } catch (Exception e) {
         } finally {
             if (log.isLoggable(Level.FINER)) {
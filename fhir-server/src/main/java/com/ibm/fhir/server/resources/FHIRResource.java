@@ -49,6 +49,7 @@ import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.ResourceVersionInfo;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.helper.FHIRPersistenceHelper;
 import com.ibm.fhir.persistence.helper.PersistenceHelper;
@@ -210,6 +211,11 @@ public class FHIRResource {
                 .lastModified(Date.from(resource.getMeta().getLastUpdated().getValue().toInstant()));
     }
 
+    protected ResponseBuilder addHeaders(ResponseBuilder rb, ResourceVersionInfo versionInfo) {
+        return rb.header(HttpHeaders.ETAG, "W/\"" + versionInfo.getVersionId() + "\"")
+                .lastModified(Date.from(versionInfo.getLastUpdated()));
+    }
+
     private String getEtagValue(Resource resource) {
         return "W/\"" + resource.getMeta().getVersionId().getValue() + "\"";
     }
@@ -302,7 +308,7 @@ public class FHIRResource {
     /**
      * Retrieves the shared persistence helper object from the servlet context.
      */
-    private PersistenceHelper getPersistenceHelper() {
+    protected PersistenceHelper getPersistenceHelper() {
         if (persistenceHelper == null) {
             persistenceHelper =
                     (PersistenceHelper) context.getAttribute(FHIRPersistenceHelper.class.getName());
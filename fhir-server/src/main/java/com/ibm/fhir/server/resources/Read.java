@@ -18,6 +18,7 @@ import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -34,6 +35,7 @@ import org.eclipse.microprofile.jwt.JsonWebToken;
 import com.ibm.fhir.core.FHIRMediaType;
 import com.ibm.fhir.exception.FHIROperationException;
 import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.persistence.ResourceVersionInfo;
 import com.ibm.fhir.server.operation.spi.FHIRRestOperationResponse;
 import com.ibm.fhir.server.util.FHIRRestHelper;
 import com.ibm.fhir.server.util.RestAuditLogger;
@@ -73,47 +75,65 @@ public class Read extends FHIRResource {
             long modifiedSince = parseIfModifiedSince();
 
             FHIRRestHelper helper = new FHIRRestHelper(getPersistenceImpl());
-            Resource resource = helper.doRead(type, id, true, false, null, null, queryParameters);
-            int version2Match = -1;
-            // Support ETag value with or without " (and W/)
-            // e.g:  1, "1", W/1, W/"1" (the first format is used by TouchStone)
-            if (ifNoneMatch != null) {
-                ifNoneMatch = ifNoneMatch.replaceAll("\"", "").replaceAll("W/", "").trim();
-                if (!ifNoneMatch.isEmpty()) {
-                    try {
-                        version2Match = Integer.parseInt(ifNoneMatch);
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        // ignore invalid version
-                        version2Match = -1;
-                    }
-                }
-            }
+            int version2Match = parseIfNoneMatch(ifNoneMatch);
             Instant modifiedTime2Compare = null;
             if (modifiedSince > 0 ) {
                 modifiedTime2Compare = Instant.ofEpochMilli(modifiedSince);
             }
 
-            boolean isModified = true;
-            // check if-not-match first
-            if (version2Match != -1) {
-                if (version2Match == Integer.parseInt(resource.getMeta().getVersionId().getValue())) {
-                    isModified = false;
+            // For a conditional read, check the current version before reading the whole resource
+            if (version2Match != -1 || modifiedTime2Compare != null) {
+                ResourceVersionInfo versionInfo = helper.doReadVersionInfo(type, id, true, false, null);
+                if (!isModified(versionInfo, version2Match, modifiedTime2Compare)) {
+                    status = Status.NOT_MODIFIED;
+                    return Response.status(Response.Status.NOT_MODIFIED).build();
                 }
             }
-            // then check if-modified-since
-            if(isModified && modifiedTime2Compare != null) {
-                if (resource.getMeta().getLastUpdated().getValue().toInstant().isBefore(modifiedTime2Compare)) {
-                    isModified = false;
-                }
+
+            Resource resource = helper.doRead(type, id, true, false, null, null, queryParameters);
+            status = Status.OK;
+            ResponseBuilder response = Response.ok().entity(resource);
+            response = addHeaders(response, resource);
+            return response.build();
+        } catch (FHIROperationException e) {
+            status = issueListToStatus(e.getIssues());
+            return exceptionResponse(e, status);
+        } catch (Exception e) {
+            status = Status.INTERNAL_SERVER_ERROR;
+            return exceptionResponse(e, status);
+        } finally {
+            try {
+                RestAuditLogger.logRead(httpServletRequest,
+                        ior != null ? ior.getResource() : null,
+                        startTime, new Date(), status);
+            } catch (Exception e) {
+                log.log(Level.SEVERE, AUDIT_LOGGING_ERR_MSG, e);
             }
 
+            log.exiting(this.getClass().getName(), "read(String,String)");
+        }
+    }
+
+    @HEAD
+    @Path("{type}/{id}")
+    public Response head(@PathParam("type") String type, @PathParam("id") String id,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws Exception {
+        log.entering(this.getClass().getName(), "head(String,String)");
+        Date startTime = new Date();
+        Response.Status status = null;
+
+        try {
+            checkInitComplete();
+            long modifiedSince = parseIfModifiedSince();
+
+            // The headers only depend on the version, so we never need to read the resource itself
+            FHIRRestHelper helper = new FHIRRestHelper(getPersistenceImpl());
+            ResourceVersionInfo versionInfo = helper.doReadVersionInfo(type, id, true, false, null);
+
             ResponseBuilder response;
-            if (isModified) {
+            if (isModified(versionInfo, parseIfNoneMatch(ifNoneMatch), modifiedSince > 0 ? Instant.ofEpochMilli(modifiedSince) : null)) {
                 status = Status.OK;
-                response = Response.ok().entity(resource);
-                response = addHeaders(response, resource);
+                response = addHeaders(Response.ok(), versionInfo);
             } else {
                 status = Status.NOT_MODIFIED;
                 response = Response.status(Response.Status.NOT_MODIFIED);
@@ -121,20 +141,63 @@ public class Read extends FHIRResource {
             return response.build();
         } catch (FHIROperationException e) {
             status = issueListToStatus(e.getIssues());
-            return exceptionResponse(e, status);
+            return Response.status(status).build();
         } catch (Exception e) {
             status = Status.INTERNAL_SERVER_ERROR;
-            return exceptionResponse(e, status);
+            log.log(Level.SEVERE, "An unexpected error occurred while processing a HEAD request", e);
+            return Response.status(status).build();
         } finally {
             try {
-                RestAuditLogger.logRead(httpServletRequest,
-                        ior != null ? ior.getResource() : null,
-                        startTime, new Date(), status);
+                RestAuditLogger.logRead(httpServletRequest, null, startTime, new Date(), status);
             } catch (Exception e) {
                 log.log(Level.SEVERE, AUDIT_LOGGING_ERR_MSG, e);
             }
 
-            log.exiting(this.getClass().getName(), "read(String,String)");
+            log.exiting(this.getClass().getName(), "head(String,String)");
+        }
+    }
+
+    /**
+     * Parse the version from the If-None-Match header value
+     * @return the version, or -1 if the header is missing or invalid
+     */
+    private int parseIfNoneMatch(String ifNoneMatch) {
+        int version2Match = -1;
+        // Support ETag value with or without " (and W/)
+        // e.g:  1, "1", W/1, W/"1" (the first format is used by TouchStone)
+        if (ifNoneMatch != null) {
+            ifNoneMatch = ifNoneMatch.replaceAll("\"", "").replaceAll("W/", "").trim();
+            if (!ifNoneMatch.isEmpty()) {
+                try {
+                    version2Match = Integer.parseInt(ifNoneMatch);
+                }
+                catch (NumberFormatException e)
+                {
+                    // ignore invalid version
+                    version2Match = -1;
+                }
+            }
+        }
+        return version2Match;
+    }
+
+    /**
+     * Check the current version against the If-None-Match version and If-Modified-Since time (if given)
+     */
+    private boolean isModified(ResourceVersionInfo versionInfo, int version2Match, Instant modifiedTime2Compare) {
+        boolean isModified = true;
+        // check if-not-match first
+        if (version2Match != -1) {
+            if (version2Match == versionInfo.getVersionId()) {
+                isModified = false;
+            }
+        }
+        // then check if-modified-since
+        if (isModified && modifiedTime2Compare != null) {
+            if (versionInfo.getLastUpdated().isBefore(modifiedTime2Compare)) {
+                isModified = false;
+            }
         }
+        return isModified;
     }
 }
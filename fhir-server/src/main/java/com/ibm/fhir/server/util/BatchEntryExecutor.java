@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+
+/**
+ * Processes independent units of work (e.g. the entries of a batch bundle) on a bounded number of threads.
+ *
+ * <p>The calling thread always takes part in the processing; additional workers run on the container's managed
+ * executor service (java:comp/DefaultManagedExecutorService) so that they inherit the JNDI and transaction context
+ * of the application. Outside of a container, a private daemon thread pool is used instead. Workers that cannot be
+ * scheduled are simply not started, so a busy server degrades to sequential processing on the calling thread.
+ *
+ * <p>The {@link FHIRRequestContext} of the calling thread is set on each worker thread while it processes items.
+ */
+public final class BatchEntryExecutor {
+    private static final Logger log = Logger.getLogger(BatchEntryExecutor.class.getName());
+
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+    private static volatile ExecutorService executorService;
+
+    /**
+     * Processes a single item
+     */
+    @FunctionalInterface
+    public interface Worker<T> {
+        void process(T item) throws Exception;
+    }
+
+    /**
+     * Creates a worker for an additional thread; called on the calling thread
+     */
+    @FunctionalInterface
+    public interface WorkerFactory<T> {
+        Worker<T> createWorker() throws Exception;
+    }
+
+    private BatchEntryExecutor() { }
+
+    /**
+     * Process the passed items using at most {@code parallelism} threads (including the calling thread)
+     *
+     * @param items
+     *     the items to process; each item is processed exactly once, by a single worker
+     * @param parallelism
+     *     the maximum number of threads used to process the items
+     * @param callerWorker
+     *     the worker used on the calling thread
+     * @param workerFactory
+     *     the factory used to create a separate worker for each additional thread
+     * @throws Exception
+     *     the first exception thrown by a worker; remaining items are not processed once a worker has failed
+     */
+    public static <T> void execute(List<T> items, int parallelism, Worker<T> callerWorker, WorkerFactory<T> workerFactory)
+            throws Exception {
+        final int size = items.size();
+        final AtomicInteger next = new AtomicInteger();
+        int additionalWorkers = Math.min(parallelism, size) - 1;
+
+        List<Future<?>> futures = new ArrayList<>();
+        if (additionalWorkers > 0) {
+            ExecutorService executor = getExecutorService();
+            FHIRRequestContext context = FHIRRequestContext.get();
+            for (int i = 0; i < additionalWorkers; i++) {
+                Worker<T> worker = workerFactory.createWorker();
+                try {
+                    futures.add(executor.submit(() -> {
+                        FHIRRequestContext previous = FHIRRequestContext.get();
+                        FHIRRequestContext.set(context);
+                        try {
+                            processItems(items, next, worker);
+                        } finally {
+                            FHIRRequestContext.set(previous);
+                        }
+                        return null;
+                    }));
+                } catch (RejectedExecutionException e) {
+                    if (log.isLoggable(Level.FINE)) {
+                        log.fine("Unable to schedule worker; continuing with " + (futures.size() + 1) + " thread(s)");
+                    }
+                    break;
+                }
+            }
+        }
+
+        try {
+            processItems(items, next, callerWorker);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            // stop handing out items and wait for running workers so that no work outlives the request
+            next.set(size);
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    // already reported above or superseded by the original failure
+                }
+            }
+        }
+    }
+
+    private static <T> void processItems(List<T> items, AtomicInteger next, Worker<T> worker) throws Exception {
+        int index;
+        try {
+            while ((index = next.getAndIncrement()) < items.size()) {
+                worker.process(items.get(index));
+            }
+        } catch (Exception | Error e) {
+            // make the other workers stop at their next item
+            next.set(items.size());
+            throw e;
+        }
+    }
+
+    private static ExecutorService getExecutorService() {
+        ExecutorService result = executorService;
+        if (result == null) {
+            synchronized (BatchEntryExecutor.class) {
+                result = executorService;
+                if (result == null) {
+                    result = lookupManagedExecutorService();
+                    if (result == null) {
+                        result = createExecutorService();
+                    }
+                    executorService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves (via a JNDI lookup) the default managed executor service. If the JNDI lookup fails, we'll assume that
+     * we're not running inside the container.
+     */
+    private static ExecutorService lookupManagedExecutorService() {
+        try {
+            InitialContext ctx = new InitialContext();
+            ExecutorService result = (ExecutorService) ctx.lookup(MANAGED_EXECUTOR_JNDI_NAME);
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Using managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' for batch entries");
+            }
+            return result;
+        } catch (Throwable t) {
+            if (log.isLoggable(Level.FINE)) {
+                log.fine("Managed executor service '" + MANAGED_EXECUTOR_JNDI_NAME + "' is not available: " + t.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static ExecutorService createExecutorService() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "fhir-batch-entry-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        return pool;
+    }
+}
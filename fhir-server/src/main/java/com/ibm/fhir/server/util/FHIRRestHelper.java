@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -57,17 +58,20 @@ import com.ibm.fhir.model.type.Code;
 import com.ibm.fhir.model.type.CodeableConcept;
 import com.ibm.fhir.model.type.Extension;
 import com.ibm.fhir.model.type.UnsignedInt;
+import com.ibm.fhir.model.type.Reference;
 import com.ibm.fhir.model.type.Uri;
 import com.ibm.fhir.model.type.Url;
 import com.ibm.fhir.model.type.code.BundleType;
 import com.ibm.fhir.model.type.code.HTTPVerb;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
+import com.ibm.fhir.model.util.CollectingVisitor;
 import com.ibm.fhir.model.util.FHIRUtil;
 import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.model.util.ReferenceMappingVisitor;
 import com.ibm.fhir.persistence.FHIRPersistence;
 import com.ibm.fhir.persistence.FHIRPersistenceTransaction;
+import com.ibm.fhir.persistence.ResourceVersionInfo;
 import com.ibm.fhir.persistence.SingleResourceResult;
 import com.ibm.fhir.persistence.context.FHIRHistoryContext;
 import com.ibm.fhir.persistence.context.FHIRPersistenceContext;
@@ -76,6 +80,7 @@ import com.ibm.fhir.persistence.exception.FHIRPersistenceException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceDeletedException;
 import com.ibm.fhir.persistence.exception.FHIRPersistenceResourceNotFoundException;
 import com.ibm.fhir.persistence.helper.FHIRTransactionHelper;
+import com.ibm.fhir.persistence.helper.PersistenceHelper;
 import com.ibm.fhir.persistence.interceptor.FHIRPersistenceEvent;
 import com.ibm.fhir.persistence.interceptor.impl.FHIRPersistenceInterceptorMgr;
 import com.ibm.fhir.persistence.jdbc.exception.FHIRPersistenceDataAccessException;
@@ -84,6 +89,7 @@ import com.ibm.fhir.profile.ProfileSupport;
 import com.ibm.fhir.provider.util.FHIRUrlParser;
 import com.ibm.fhir.search.SearchConstants;
 import com.ibm.fhir.search.SummaryValueSet;
+import com.ibm.fhir.search.TotalValueSet;
 import com.ibm.fhir.search.context.FHIRSearchContext;
 import com.ibm.fhir.search.exception.FHIRSearchException;
 import com.ibm.fhir.search.util.SearchUtil;
@@ -123,6 +129,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             .optionalEnd().toFormatter();
 
     private FHIRPersistence persistence = null;
+    private PersistenceHelper persistenceHelper = null;
 
     // These values are used for correlating requests within a bundle.
     private String bundleTransactionCorrelationId = null;
@@ -132,6 +139,18 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         this.persistence = persistence;
     }
 
+    /**
+     * @param persistence
+     *            the persistence implementation for the current request
+     * @param persistenceHelper
+     *            the helper used to obtain additional persistence instances for entries of batch bundles
+     *            that are processed in parallel (see fhirServer/core/batchParallelism)
+     */
+    public FHIRRestHelper(FHIRPersistence persistence, PersistenceHelper persistenceHelper) {
+        this.persistence = persistence;
+        this.persistenceHelper = persistenceHelper;
+    }
+
     @Override
     public FHIRRestOperationResponse doCreate(String type, Resource resource, String ifNoneExist,
             Map<String, String> requestProperties, boolean doValidation) throws Exception {
@@ -292,6 +311,9 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
         FHIRRestOperationResponse ior = new FHIRRestOperationResponse();
 
+        // The version info of the current version of the resource, if we've read it
+        ResourceVersionInfo currentVersionInfo = null;
+
         try {
             // Make sure the type specified in the URL string matches the resource type obtained from the new resource.
             if (patch == null) {
@@ -388,6 +410,14 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                     }
                 }
 
+                // When If-Match is given, check the current version before reading the whole resource
+                if (ifMatchValue != null) {
+                    currentVersionInfo = doReadVersionInfo(type, id, (patch != null), true, requestProperties);
+                    if (currentVersionInfo != null) {
+                        performVersionAwareUpdateCheck(Integer.toString(currentVersionInfo.getVersionId()), ifMatchValue);
+                    }
+                }
+
                 // Retrieve the resource to be updated using the type and id values.
                 ior.setPrevResource(doRead(type, id, (patch != null), true, requestProperties, newResource));
             }
@@ -402,13 +432,13 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
             // Perform the "version-aware" update check, and also find out if the resource was deleted.
             boolean isDeleted = false;
             if (ior.getPrevResource() != null) {
-                performVersionAwareUpdateCheck(ior.getPrevResource(), ifMatchValue);
+                performVersionAwareUpdateCheck(getVersionId(ior.getPrevResource()), ifMatchValue);
 
-                try {
-                    doRead(type, id, (patch != null), false, requestProperties, newResource);
-                } catch (FHIRPersistenceResourceDeletedException e) {
-                    isDeleted = true;
+                // The version info only needs to be read again if the resource changed since we last checked
+                if (currentVersionInfo == null || !getVersionId(ior.getPrevResource()).equals(Integer.toString(currentVersionInfo.getVersionId()))) {
+                    currentVersionInfo = doReadVersionInfo(type, id, false, true, requestProperties);
                 }
+                isDeleted = currentVersionInfo != null && currentVersionInfo.isDeleted();
             }
 
             // First, create the persistence event.
@@ -744,6 +774,79 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         }
     }
 
+    /**
+     * Retrieves the version id, last updated time and deleted state of the current version of a Resource without
+     * reading the resource itself, unless a persistence interceptor needs the resource for its afterRead event.
+     * The 'beforeRead' interceptor methods are invoked as for a 'read' operation.
+     *
+     * @param type
+     *            the resource type associated with the Resource
+     * @param id
+     *            the id of the Resource
+     * @param throwExcOnNull
+     *            whether to throw a FHIRPersistenceResourceNotFoundException if the resource doesn't exist
+     * @param includeDeleted
+     *            whether to return the version info of a deleted resource instead of throwing a
+     *            FHIRPersistenceResourceDeletedException
+     * @param requestProperties
+     *            additional request properties which supplement the HTTP headers associated with this request
+     * @return the version info, or null if the resource doesn't exist and throwExcOnNull is false
+     * @throws Exception
+     */
+    public ResourceVersionInfo doReadVersionInfo(String type, String id, boolean throwExcOnNull, boolean includeDeleted,
+            Map<String, String> requestProperties) throws Exception {
+        log.entering(this.getClass().getName(), "doReadVersionInfo");
+
+        // Start a new txn in the persistence layer if one is not already active.
+        FHIRTransactionHelper txn = new FHIRTransactionHelper(getTransaction());
+        txn.begin();
+
+        // Save the current request context.
+        FHIRRequestContext requestContext = FHIRRequestContext.get();
+
+        try {
+            if (!ModelSupport.isResourceType(type)) {
+                throw buildUnsupportedResourceTypeException(type);
+            }
+
+            Class<? extends Resource> resourceType = getResourceType(type);
+
+            // First, invoke the 'beforeRead' interceptor methods.
+            FHIRPersistenceEvent event =
+                    new FHIRPersistenceEvent(null, buildPersistenceEventProperties(type, id, null, null));
+            getInterceptorMgr().fireBeforeReadEvent(event);
+
+            FHIRPersistenceContext persistenceContext =
+                    FHIRPersistenceContextFactory.createPersistenceContext(event, includeDeleted);
+            ResourceVersionInfo versionInfo = persistence.readVersionInfo(persistenceContext, resourceType, id);
+            if (versionInfo == null && throwExcOnNull) {
+                throw new FHIRPersistenceResourceNotFoundException("Resource '" + type + "/" + id + "' not found.");
+            }
+
+            // Interceptors may enforce access to the resource in 'afterRead', so give them the resource
+            if (versionInfo != null && getInterceptorMgr().hasAfterReadInterceptors()) {
+                event.setFhirResource(persistence.read(persistenceContext, resourceType, id).getResource());
+                getInterceptorMgr().fireAfterReadEvent(event);
+            }
+
+            // Commit our transaction if we started one before.
+            txn.commit();
+            txn = null;
+
+            return versionInfo;
+        } finally {
+            // Restore the original request context.
+            FHIRRequestContext.set(requestContext);
+
+            // If we previously started a transaction and it's still active, we need to rollback due to an error.
+            if (txn != null) {
+                txn.rollback();
+            }
+
+            log.exiting(this.getClass().getName(), "doReadVersionInfo");
+        }
+    }
+
     /**
      * Performs a 'vread' operation by retrieving the specified version of a Resource.
      *
@@ -1356,15 +1459,27 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
         }
     }
 
+    /**
+     * Get the version id from the meta of the passed resource
+     *
+     * @return the version id, or null if the resource has no version id
+     */
+    private String getVersionId(Resource resource) {
+        if (resource.getMeta() != null && resource.getMeta().getVersionId() != null) {
+            return resource.getMeta().getVersionId().getValue();
+        }
+        return null;
+    }
+
     /**
      * This function will perform the version-aware update check by making sure that the If-Match request header value
      * (if present) specifies a version # equal to the current latest version of the resource. If the check fails, then
      * a FHIRRestException will be thrown. If the check succeeds then nothing occurs and processing continues.
      *
-     * @param currentResource
-     *            the current latest version of the resource
+     * @param currentVersion
+     *            the version id of the current latest version of the resource
      */
-    private void performVersionAwareUpdateCheck(Resource currentResource, String ifMatchValue)
+    private void performVersionAwareUpdateCheck(String currentVersion, String ifMatchValue)
             throws FHIROperationException {
         if (ifMatchValue != null) {
             if (log.isLoggable(Level.FINE)) {
@@ -1384,13 +1499,6 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
                 log.fine("Version id from ETag value specified in request: " + ifMatchVersion);
             }
 
-            // Retrieve the version #'s from the current and updated resources.
-            String currentVersion = null;
-            if (currentResource.getMeta() != null
-                    && currentResource.getMeta().getVersionId() != null) {
-                currentVersion = currentResource.getMeta().getVersionId().getValue();
-            }
-
             // Next, make sure that the If-Match version matches the version # found
             // in the current latest version of the resource.
             // If they don't match we'll return an HTTP 412 (Precondition Failed) status code.
@@ -1587,105 +1695,269 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
             // Now visit each of the request entries using the list of indices obtained above.
             // Use hashmap to store both the index and the accordingly updated response bundle entry.
-            Map<Integer, Bundle.Entry> responseIndexAndEntries = new HashMap<Integer, Bundle.Entry>();
-            for (Integer entryIndex : entryIndices) {
-                Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
-                Bundle.Entry.Request request = requestEntry.getRequest();
-                Bundle.Entry responseEntry = responseBundle.getEntry().get(entryIndex);
-                Bundle.Entry.Response response = responseEntry.getResponse();
-                if (response.getStatus().equals(SC_OK_STRING) && request.getMethod().equals(httpMethod)) {
-                    // Process request entry.
-                    Bundle.Entry.Builder responseEntryBuilder = responseEntry.toBuilder();
-                    StringBuffer requestDescription = new StringBuffer();
-                    long initialTime = System.currentTimeMillis();
-
-                    try {
-                        FHIRUrlParser requestURL = new FHIRUrlParser(request.getUrl().getValue());
+            Map<Integer, Bundle.Entry> responseIndexAndEntries;
+            int parallelism = failFast ? 1 : getBatchParallelism();
+            List<List<Integer>> entryGroups = (parallelism > 1) ? groupIndependentEntries(requestBundle, entryIndices, localRefMap) : null;
+            if (entryGroups != null && entryGroups.size() > 1) {
+                // Batch entries are independent, so process groups of entries concurrently.
+                // Each additional worker gets its own helper and persistence instance.
+                if (log.isLoggable(Level.FINE)) {
+                    log.fine("Processing " + entryIndices.size() + " " + httpMethod.getValue() + " entries in "
+                            + entryGroups.size() + " groups with parallelism " + parallelism);
+                }
+                Map<Integer, Bundle.Entry> concurrentResponseIndexAndEntries = new ConcurrentHashMap<>();
+                BatchEntryExecutor.execute(entryGroups, parallelism,
+                    group -> processEntries(requestBundle, responseBundle, httpMethod, failFast, localRefMap,
+                            bundleRequestCorrelationId, concurrentResponseIndexAndEntries, group),
+                    () -> {
+                        FHIRRestHelper helper = new FHIRRestHelper(persistenceHelper.getFHIRPersistenceImplementation(), persistenceHelper);
+                        return group -> helper.processEntries(requestBundle, responseBundle, httpMethod, failFast, localRefMap,
+                                bundleRequestCorrelationId, concurrentResponseIndexAndEntries, group);
+                    });
+                responseIndexAndEntries = concurrentResponseIndexAndEntries;
+            } else {
+                responseIndexAndEntries = new HashMap<Integer, Bundle.Entry>();
+                processEntries(requestBundle, responseBundle, httpMethod, failFast, localRefMap,
+                        bundleRequestCorrelationId, responseIndexAndEntries, entryIndices);
+            }
 
-                        if (log.isLoggable(Level.FINER)) {
-                            log.finer("Processing bundle request entry " + entryIndex + "; method="
-                                    + request.getMethod().getValue() + ", url="
-                                    + request.getUrl().getValue());
-                            log.finer("--> path: '" + requestURL.getPath() + "'");
-                            log.finer("--> query: '" + requestURL.getQuery() + "'");
-                        }
+            // Now, let's re-construct the responseBundle
+            return reconstructResponseBundle(responseBundle, responseIndexAndEntries);
 
-                        // Log our initial info message for this request.
-                        requestDescription.append("entryIndex:[");
-                        requestDescription.append(entryIndex);
-                        requestDescription.append("] correlationId:[");
-                        requestDescription.append(bundleRequestCorrelationId);
-                        requestDescription.append("] method:[");
-                        requestDescription.append(request.getMethod().getValue());
-                        requestDescription.append("] uri:[");
-                        requestDescription.append(request.getUrl().getValue());
-                        requestDescription.append("]");
-                        log.info("Received bundle request: " + requestDescription.toString());
-
-                        // Construct the absolute requestUri to be used for any response bundles associated
-                        // with history and search requests.
-                        String absoluteUri = getAbsoluteUri(getRequestUri(), request.getUrl().getValue());
-
-                        if (request.getMethod().equals(HTTPVerb.GET)) {
-                            processEntryForGet(responseEntry, responseIndexAndEntries, entryIndex, requestURL, absoluteUri, requestDescription.toString(), initialTime);
-                        } else if (request.getMethod().equals(HTTPVerb.POST)) {
-                            processEntryForPost(requestEntry, responseEntry, responseIndexAndEntries, entryIndex, localRefMap, requestURL, absoluteUri, requestDescription.toString(), initialTime);
-                        } else if (request.getMethod().equals(HTTPVerb.PUT)) {
-                            processEntryForPut(requestEntry, responseEntry, responseIndexAndEntries, entryIndex, localRefMap, requestURL, absoluteUri, requestDescription.toString(), initialTime);
-                        } else if (request.getMethod().equals(HTTPVerb.DELETE)) {
-                            processEntryForDelete(responseEntry, responseIndexAndEntries, entryIndex, requestURL, requestDescription.toString(), initialTime);
-                        } else {
-                            // Internal error, should not get here!
-                            throw new IllegalStateException("Internal Server Error: reached an unexpected code location.");
-                        }
-                    } catch (FHIRPersistenceResourceNotFoundException e) {
-                        if (failFast) {
-                            String msg = "Error while processing request bundle.";
-                            throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
-                        }
+        } finally {
+            log.exiting(this.getClass().getName(), "processEntriesForMethod");
+        }
+    }
 
-                        Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                        responseBuilder.status(SC_NOT_FOUND_STRING);
-                        responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
-                        logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, SC_NOT_FOUND);
-                    } catch (FHIRPersistenceResourceDeletedException e) {
-                        if (failFast) {
-                            String msg = "Error while processing request bundle.";
-                            throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
-                        }
+    /**
+     * Processes the request entries at the specified indices, in order.
+     *
+     * @param requestBundle
+     *            the bundle containing the request entries
+     * @param responseBundle
+     *            the bundle containing the corresponding response entries
+     * @param httpMethod
+     *            the HTTP method (GET, POST, PUT, etc.) to be processed
+     * @param failFast
+     *            a boolean value indicating if processing should stop on first failure
+     * @param localRefMap
+     *            the map of local references to external references
+     * @param bundleRequestCorrelationId
+     *            the bundle request correlation ID
+     * @param responseIndexAndEntries
+     *            the hashmap containing bundle entry indexes and their associated response entries
+     * @param entryIndices
+     *            the bundle entry indexes of the bundle entries to be processed
+     * @throws Exception
+     */
+    private void processEntries(Bundle requestBundle, Bundle responseBundle, HTTPVerb httpMethod, boolean failFast,
+        Map<String, String> localRefMap, String bundleRequestCorrelationId, Map<Integer, Bundle.Entry> responseIndexAndEntries,
+        List<Integer> entryIndices) throws Exception {
+        for (Integer entryIndex : entryIndices) {
+            Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
+            Bundle.Entry.Request request = requestEntry.getRequest();
+            Bundle.Entry responseEntry = responseBundle.getEntry().get(entryIndex);
+            Bundle.Entry.Response response = responseEntry.getResponse();
+            if (response.getStatus().equals(SC_OK_STRING) && request.getMethod().equals(httpMethod)) {
+                // Process request entry.
+                Bundle.Entry.Builder responseEntryBuilder = responseEntry.toBuilder();
+                StringBuffer requestDescription = new StringBuffer();
+                long initialTime = System.currentTimeMillis();
 
-                        Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                        responseBuilder.status(SC_GONE_STRING);
-                        responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
-                        logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, SC_GONE);
-                    } catch (FHIROperationException e) {
-                        if (failFast) {
-                            String msg = "Error while processing request bundle.";
-                            throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
-                        }
+                try {
+                    FHIRUrlParser requestURL = new FHIRUrlParser(request.getUrl().getValue());
+
+                    if (log.isLoggable(Level.FINER)) {
+                        log.finer("Processing bundle request entry " + entryIndex + "; method="
+                                + request.getMethod().getValue() + ", url="
+                                + request.getUrl().getValue());
+                        log.finer("--> path: '" + requestURL.getPath() + "'");
+                        log.finer("--> query: '" + requestURL.getQuery() + "'");
+                    }
 
-                        Status status;
-                        if (e instanceof FHIRSearchException) {
-                            status = Status.BAD_REQUEST;
-                        } else {
-                            status = IssueTypeToHttpStatusMapper.issueListToStatus(e.getIssues());
-                        }
+                    // Log our initial info message for this request.
+                    requestDescription.append("entryIndex:[");
+                    requestDescription.append(entryIndex);
+                    requestDescription.append("] correlationId:[");
+                    requestDescription.append(bundleRequestCorrelationId);
+                    requestDescription.append("] method:[");
+                    requestDescription.append(request.getMethod().getValue());
+                    requestDescription.append("] uri:[");
+                    requestDescription.append(request.getUrl().getValue());
+                    requestDescription.append("]");
+                    log.info("Received bundle request: " + requestDescription.toString());
+
+                    // Construct the absolute requestUri to be used for any response bundles associated
+                    // with history and search requests.
+                    String absoluteUri = getAbsoluteUri(getRequestUri(), request.getUrl().getValue());
+
+                    if (request.getMethod().equals(HTTPVerb.GET)) {
+                        processEntryForGet(responseEntry, responseIndexAndEntries, entryIndex, requestURL, absoluteUri, requestDescription.toString(), initialTime);
+                    } else if (request.getMethod().equals(HTTPVerb.POST)) {
+                        processEntryForPost(requestEntry, responseEntry, responseIndexAndEntries, entryIndex, localRefMap, requestURL, absoluteUri, requestDescription.toString(), initialTime);
+                    } else if (request.getMethod().equals(HTTPVerb.PUT)) {
+                        processEntryForPut(requestEntry, responseEntry, responseIndexAndEntries, entryIndex, localRefMap, requestURL, absoluteUri, requestDescription.toString(), initialTime);
+                    } else if (request.getMethod().equals(HTTPVerb.DELETE)) {
+                        processEntryForDelete(responseEntry, responseIndexAndEntries, entryIndex, requestURL, requestDescription.toString(), initialTime);
+                    } else {
+                        // Internal error, should not get here!
+                        throw new IllegalStateException("Internal Server Error: reached an unexpected code location.");
+                    }
+                } catch (FHIRPersistenceResourceNotFoundException e) {
+                    if (failFast) {
+                        String msg = "Error while processing request bundle.";
+                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+                    }
+
+                    Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+                    responseBuilder.status(SC_NOT_FOUND_STRING);
+                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
+                    logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, SC_NOT_FOUND);
+                } catch (FHIRPersistenceResourceDeletedException e) {
+                    if (failFast) {
+                        String msg = "Error while processing request bundle.";
+                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+                    }
 
-                        Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
-                        responseBuilder.status(string(Integer.toString(status.getStatusCode())));
-                        responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
-                        logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, status.getStatusCode());
+                    Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+                    responseBuilder.status(SC_GONE_STRING);
+                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
+                    logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, SC_GONE);
+                } catch (FHIROperationException e) {
+                    if (failFast) {
+                        String msg = "Error while processing request bundle.";
+                        throw new FHIRRestBundledRequestException(msg).withIssue(e.getIssues());
+                    }
+
+                    Status status;
+                    if (e instanceof FHIRSearchException) {
+                        status = Status.BAD_REQUEST;
+                    } else {
+                        status = IssueTypeToHttpStatusMapper.issueListToStatus(e.getIssues());
                     }
+
+                    Bundle.Entry.Response.Builder responseBuilder = response.toBuilder();
+                    responseBuilder.status(string(Integer.toString(status.getStatusCode())));
+                    responseIndexAndEntries.put(entryIndex, responseEntryBuilder.resource(FHIRUtil.buildOperationOutcome(e, false)).response(responseBuilder.build()).build());
+                    logBundleRequestCompletedMsg(requestDescription.toString(), initialTime, status.getStatusCode());
                 }
             }
+        }
+    }
 
-            // Now, let's re-construct the responseBundle
-            responseBundle = reconstructResponseBundle(responseBundle, responseIndexAndEntries);
-            return responseBundle;
+    /**
+     * Returns the number of batch bundle entries that may be processed concurrently. Parallel processing requires a
+     * persistence helper so that each worker can obtain its own persistence instance.
+     */
+    private int getBatchParallelism() {
+        if (persistenceHelper == null) {
+            return 1;
+        }
+        return Math.max(1, FHIRConfigHelper.getIntProperty(FHIRConfiguration.PROPERTY_BATCH_PARALLELISM, 1));
+    }
 
-        } finally {
-            log.exiting(this.getClass().getName(), "processEntriesForMethod");
+    /**
+     * Partitions the specified request entries into groups which can be processed independently of each other.
+     * Entries which target the same request url (or the same conditional create) stay in the same group, in their
+     * original order. Conditional creates and updates with a local identifier map that identifier only once they have
+     * been processed, so these entries, the entries which reference their local identifiers, and the other entries of
+     * their url groups, are all placed in a single group, in their original order.
+     *
+     * @param requestBundle
+     *            the bundle containing the request entries
+     * @param entryIndices
+     *            the bundle entry indexes of the bundle entries to be processed
+     * @param localRefMap
+     *            the map of local references to external references
+     * @return the groups of entry indices
+     */
+    private List<List<Integer>> groupIndependentEntries(Bundle requestBundle, List<Integer> entryIndices,
+        Map<String, String> localRefMap) {
+        // Find the local identifiers which will only be mapped while the entries are processed.
+        Set<String> unresolvedLocalIdentifiers = new HashSet<>();
+        for (Integer entryIndex : entryIndices) {
+            Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
+            HTTPVerb method = requestEntry.getRequest().getMethod();
+            if (method.equals(HTTPVerb.POST) || method.equals(HTTPVerb.PUT)) {
+                String localIdentifier = retrieveLocalIdentifier(requestEntry);
+                if (localIdentifier != null && localRefMap.get(localIdentifier) == null) {
+                    unresolvedLocalIdentifiers.add(localIdentifier);
+                }
+            }
+        }
+
+        // Find the entries which map or reference one of these local identifiers, and the urls of these entries.
+        String[] urls = new String[entryIndices.size()];
+        boolean[] dependent = new boolean[entryIndices.size()];
+        Set<String> dependentUrls = new HashSet<>();
+        for (int i = 0; i < entryIndices.size(); i++) {
+            Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndices.get(i));
+            urls[i] = getGroupingUrl(requestEntry.getRequest());
+            if (!unresolvedLocalIdentifiers.isEmpty()) {
+                dependent[i] = unresolvedLocalIdentifiers.contains(retrieveLocalIdentifier(requestEntry))
+                        || referencesLocalIdentifier(requestEntry.getResource(), unresolvedLocalIdentifiers);
+                if (dependent[i] && urls[i] != null) {
+                    dependentUrls.add(urls[i]);
+                }
+            }
         }
+
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> dependentGroup = null;
+        Map<String, List<Integer>> groupsByUrl = new HashMap<>();
+        for (int i = 0; i < entryIndices.size(); i++) {
+            Integer entryIndex = entryIndices.get(i);
+            String url = urls[i];
+            if (dependent[i] || (url != null && dependentUrls.contains(url))) {
+                if (dependentGroup == null) {
+                    dependentGroup = new ArrayList<>();
+                    groups.add(dependentGroup);
+                }
+                dependentGroup.add(entryIndex);
+            } else if (url == null) {
+                groups.add(Collections.singletonList(entryIndex));
+            } else {
+                List<Integer> group = groupsByUrl.get(url);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groupsByUrl.put(url, group);
+                    groups.add(group);
+                }
+                group.add(entryIndex);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the url by which entries that must be processed in order are grouped: the request url of PUT and DELETE
+     * requests, and the request url and query of conditional creates; null for any other request.
+     */
+    private String getGroupingUrl(Bundle.Entry.Request request) {
+        if (request.getMethod().equals(HTTPVerb.PUT) || request.getMethod().equals(HTTPVerb.DELETE)) {
+            return request.getUrl().getValue();
+        } else if (request.getMethod().equals(HTTPVerb.POST) && request.getIfNoneExist() != null
+                && request.getIfNoneExist().getValue() != null && !request.getIfNoneExist().getValue().isEmpty()) {
+            return request.getUrl().getValue() + "?" + request.getIfNoneExist().getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the specified resource contains a reference to one of the specified local identifiers.
+     */
+    private boolean referencesLocalIdentifier(Resource resource, Set<String> localIdentifiers) {
+        if (resource == null) {
+            return false;
+        }
+        CollectingVisitor<Reference> visitor = new CollectingVisitor<>(Reference.class);
+        resource.accept(visitor);
+        for (Reference reference : visitor.getResult()) {
+            if (reference.getReference() != null && localIdentifiers.contains(reference.getReference().getValue())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -2178,7 +2450,8 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
      * @return local reference map
      */
     private Map<String, String> buildLocalRefMap(Bundle requestBundle, Bundle responseBundle) throws Exception {
-        Map<String, String> localRefMap = new HashMap<>();
+        // batch entries that map local identifiers may be processed concurrently with entries that read the map
+        Map<String, String> localRefMap = new ConcurrentHashMap<>();
 
         for (int entryIndex=0; entryIndex<requestBundle.getEntry().size(); ++entryIndex) {
             Bundle.Entry requestEntry = requestBundle.getEntry().get(entryIndex);
@@ -2282,7 +2555,7 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
      */
     private String retrieveGeneratedIdentifier(Map<String, String> localRefMap, String localIdentifier) {
         String generatedIdentifier = null;
-        String externalIdentifier = localRefMap.get(localIdentifier);
+        String externalIdentifier = (localIdentifier != null) ? localRefMap.get(localIdentifier) : null;
         if (externalIdentifier != null) {
             int index = externalIdentifier.indexOf("/");
             if (index > -1) {
@@ -2380,11 +2653,13 @@ public class FHIRRestHelper implements FHIRResourceHelpers {
 
         // throws if we have a count of more than 2,147,483,647 resources
         UnsignedInt totalCount = UnsignedInt.of(searchContext.getTotalCount());
-        // generate ID for this bundle and set total
+        // generate ID for this bundle and set total (unless the client asked for _total=none)
         Bundle.Builder bundleBuider = Bundle.builder()
                                             .type(BundleType.SEARCHSET)
-                                            .id(UUID.randomUUID().toString())
-                                            .total(totalCount);
+                                            .id(UUID.randomUUID().toString());
+        if (!TotalValueSet.NONE.equals(searchContext.getTotalParameter())) {
+            bundleBuider.total(totalCount);
+        }
 
         for (Resource resource : resources) {
             if (resource.getId() == null) {
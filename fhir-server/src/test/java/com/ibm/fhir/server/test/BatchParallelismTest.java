@@ -0,0 +1,218 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.server.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRConfiguration;
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.core.HTTPReturnPreference;
+import com.ibm.fhir.exception.FHIRException;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.type.HumanName;
+import com.ibm.fhir.model.type.Narrative;
+import com.ibm.fhir.model.type.Reference;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.Xhtml;
+import com.ibm.fhir.model.type.code.BundleType;
+import com.ibm.fhir.model.type.code.HTTPVerb;
+import com.ibm.fhir.model.type.code.LinkType;
+import com.ibm.fhir.model.type.code.NarrativeStatus;
+import com.ibm.fhir.persistence.FHIRPersistence;
+import com.ibm.fhir.persistence.helper.PersistenceHelper;
+import com.ibm.fhir.server.util.FHIRRestHelper;
+
+/**
+ * Verifies that processing batch bundle entries in parallel (fhirServer/core/batchParallelism) produces the same
+ * response entries, in the same order, as sequential processing
+ */
+public class BatchParallelismTest {
+    private final AtomicInteger persistenceCount = new AtomicInteger();
+    private final PersistenceHelper persistenceHelper = new PersistenceHelper() {
+        @Override
+        public FHIRPersistence getFHIRPersistenceImplementation() {
+            persistenceCount.incrementAndGet();
+            return new MockPersistenceImpl();
+        }
+
+        @Override
+        public FHIRPersistence getFHIRPersistenceImplementation(String factoryPropertyName) {
+            return getFHIRPersistenceImplementation();
+        }
+    };
+
+    @BeforeClass
+    void setup() throws FHIRException {
+        FHIRConfiguration.setConfigHome("src/test/resources");
+        FHIRRequestContext.get().setTenantId("batchParallelismTest");
+        FHIRRequestContext.get().setOriginalRequestUri("test");
+        FHIRRequestContext.get().setReturnPreference(HTTPReturnPreference.OPERATION_OUTCOME);
+    }
+
+    @AfterClass
+    void tearDown() throws FHIRException {
+        FHIRConfiguration.setConfigHome("");
+        FHIRRequestContext.get().setTenantId("default");
+    }
+
+    @Test
+    public void testBatchBundle() throws Exception {
+        Bundle requestBundle = buildBatchBundle();
+
+        Bundle expected = new FHIRRestHelper(new MockPersistenceImpl()).doBundle(requestBundle, null);
+        assertEquals(persistenceCount.get(), 0);
+
+        Bundle actual = new FHIRRestHelper(new MockPersistenceImpl(), persistenceHelper).doBundle(requestBundle, null);
+        assertTrue(persistenceCount.get() > 0);
+
+        assertNotNull(actual);
+        assertEquals(actual.getType(), BundleType.BATCH_RESPONSE);
+        assertEquals(actual.getEntry().size(), expected.getEntry().size());
+        for (int i = 0; i < expected.getEntry().size(); i++) {
+            Bundle.Entry expectedEntry = expected.getEntry().get(i);
+            Bundle.Entry actualEntry = actual.getEntry().get(i);
+            assertEquals(actualEntry.getResponse().getStatus(), expectedEntry.getResponse().getStatus(), "entry " + i);
+            assertEquals(resourceType(actualEntry.getResource()), resourceType(expectedEntry.getResource()), "entry " + i);
+        }
+    }
+
+    @Test
+    public void testLocalReferences() throws Exception {
+        // the conditional create maps its local identifier during processing, so it is processed in order with the
+        // entry that references it; the independent entry is processed concurrently
+        Bundle requestBundle = Bundle.builder()
+                .type(BundleType.BATCH)
+                .entry(Bundle.Entry.builder()
+                    .fullUrl(Uri.of("urn:uuid:11111111-1111-1111-1111-111111111111"))
+                    .resource(patient("Conditional"))
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.POST)
+                        .url(Uri.of("Patient"))
+                        .ifNoneExist(string("name=Conditional"))
+                        .build())
+                    .build())
+                .entry(Bundle.Entry.builder()
+                    .resource(patient("Independent"))
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.POST)
+                        .url(Uri.of("Patient"))
+                        .build())
+                    .build())
+                .entry(Bundle.Entry.builder()
+                    .resource(patient("Referencing").toBuilder()
+                        .link(Patient.Link.builder()
+                            .other(Reference.builder()
+                                .reference(string("urn:uuid:11111111-1111-1111-1111-111111111111"))
+                                .build())
+                            .type(LinkType.SEEALSO)
+                            .build())
+                        .build())
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.POST)
+                        .url(Uri.of("Patient"))
+                        .build())
+                    .build())
+                .build();
+
+        FHIRRequestContext.get().setReturnPreference(HTTPReturnPreference.REPRESENTATION);
+        try {
+            Bundle expected = new FHIRRestHelper(new MockPersistenceImpl()).doBundle(requestBundle, null);
+
+            int count = persistenceCount.get();
+            Bundle actual = new FHIRRestHelper(new MockPersistenceImpl(), persistenceHelper).doBundle(requestBundle, null);
+            assertTrue(persistenceCount.get() > count);
+
+            assertEquals(actual.getEntry().size(), 3);
+            for (int i = 0; i < expected.getEntry().size(); i++) {
+                assertEquals(actual.getEntry().get(i).getResponse().getStatus(), expected.getEntry().get(i).getResponse().getStatus());
+            }
+            Patient conditional = (Patient) actual.getEntry().get(0).getResource();
+            Patient referencing = (Patient) actual.getEntry().get(2).getResource();
+            assertEquals(referencing.getLink().get(0).getOther().getReference().getValue(), "Patient/" + conditional.getId());
+        } finally {
+            FHIRRequestContext.get().setReturnPreference(HTTPReturnPreference.OPERATION_OUTCOME);
+        }
+    }
+
+    private Bundle buildBatchBundle() {
+        List<Bundle.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            switch (i % 4) {
+            case 0:
+                entries.add(Bundle.Entry.builder()
+                    .resource(patient("Create" + i))
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.POST)
+                        .url(Uri.of("Patient"))
+                        .build())
+                    .build());
+                break;
+            case 1:
+                // pairs of updates to the same resource are processed in order by the same worker
+                String id = Integer.toString(i % 8);
+                entries.add(Bundle.Entry.builder()
+                    .resource(patient("Update" + i).toBuilder().id(id).build())
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.PUT)
+                        .url(Uri.of("Patient/" + id))
+                        .build())
+                    .build());
+                break;
+            case 2:
+                entries.add(Bundle.Entry.builder()
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.GET)
+                        .url(Uri.of("Patient/" + i))
+                        .build())
+                    .build());
+                break;
+            default:
+                // unrecognized path
+                entries.add(Bundle.Entry.builder()
+                    .request(Bundle.Entry.Request.builder()
+                        .method(HTTPVerb.GET)
+                        .url(Uri.of("Patient/" + i + "/a/b/c"))
+                        .build())
+                    .build());
+                break;
+            }
+        }
+        return Bundle.builder()
+                .type(BundleType.BATCH)
+                .entry(entries)
+                .build();
+    }
+
+    private Patient patient(String family) {
+        return Patient.builder()
+                .name(HumanName.builder()
+                    .family(string(family))
+                    .build())
+                .text(Narrative.builder()
+                    .div(Xhtml.of("<div xmlns=\"http://www.w3.org/1999/xhtml\">Some narrative</div>"))
+                    .status(NarrativeStatus.GENERATED)
+                    .build())
+                .build();
+    }
+
+    private String resourceType(Resource resource) {
+        return (resource == null) ? null : resource.getClass().getSimpleName();
+    }
+}
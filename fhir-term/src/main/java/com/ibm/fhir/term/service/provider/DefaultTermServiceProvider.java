@@ -6,12 +6,11 @@
 
 package com.ibm.fhir.term.service.provider;
 
-import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
 import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.model.util.FHIRUtil.STRING_DATA_ABSENT_REASON_UNKNOWN;
 import static com.ibm.fhir.term.util.CodeSystemSupport.findConcept;
 import static com.ibm.fhir.term.util.CodeSystemSupport.getCodeSystem;
-import static com.ibm.fhir.term.util.CodeSystemSupport.getConcepts;
 import static com.ibm.fhir.term.util.CodeSystemSupport.isCaseSensitive;
 import static com.ibm.fhir.term.util.ValueSetSupport.getContains;
 
@@ -53,6 +52,7 @@ import com.ibm.fhir.term.spi.TranslationOutcome.Match;
 import com.ibm.fhir.term.spi.TranslationParameters;
 import com.ibm.fhir.term.spi.ValidationOutcome;
 import com.ibm.fhir.term.spi.ValidationParameters;
+import com.ibm.fhir.term.util.CodeSystemIndex;
 import com.ibm.fhir.term.util.ValueSetSupport;
 
 /**
@@ -62,7 +62,7 @@ public class DefaultTermServiceProvider implements FHIRTermServiceProvider {
     private static final Logger log = Logger.getLogger(DefaultTermServiceProvider.class.getName());
 
     private static final String VERSION_UNKNOWN = "<version unknown>";
-    private static final Map<String, Map<String, Set<String>>> CODE_SET_MAP_CACHE = createLRUCache(1024);
+    private static final Map<String, Map<String, Set<String>>> CODE_SET_MAP_CACHE = createConcurrentLRUCache(1024);
 
     @Override
     public boolean isExpandable(ValueSet valueSet) {
@@ -136,17 +136,14 @@ public class DefaultTermServiceProvider implements FHIRTermServiceProvider {
 
             CodeSystem codeSystem = getCodeSystem(url);
             if (codeSystem != null && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-                Concept conceptA = findConcept(codeSystem, codeA);
-                if (conceptA != null) {
-                    Concept conceptB = findConcept(codeSystem, conceptA, codeB);
-                    if (conceptB != null) {
+                CodeSystemIndex index = CodeSystemIndex.of(codeSystem);
+                Concept conceptA = index.findConcept(codeA);
+                Concept conceptB = index.findConcept(codeB);
+                if (conceptA != null && conceptB != null) {
+                    if (index.subsumes(conceptA, conceptB)) {
                         return conceptA.equals(conceptB) ? ConceptSubsumptionOutcome.EQUIVALENT : ConceptSubsumptionOutcome.SUBSUMES;
                     }
-                    conceptB = findConcept(codeSystem, codeB);
-                    if (conceptB != null) {
-                        conceptA = findConcept(codeSystem, conceptB, codeA);
-                        return (conceptA != null) ? ConceptSubsumptionOutcome.SUBSUMED_BY : ConceptSubsumptionOutcome.NOT_SUBSUMED;
-                    }
+                    return index.subsumes(conceptB, conceptA) ? ConceptSubsumptionOutcome.SUBSUMED_BY : ConceptSubsumptionOutcome.NOT_SUBSUMED;
                 }
             }
         }
@@ -164,9 +161,10 @@ public class DefaultTermServiceProvider implements FHIRTermServiceProvider {
             String url = (version != null) ? system.getValue() + "|" + version : system.getValue();
             CodeSystem codeSystem = getCodeSystem(url);
             if (codeSystem != null && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-                Concept concept = findConcept(codeSystem, code);
+                CodeSystemIndex index = CodeSystemIndex.of(codeSystem);
+                Concept concept = index.findConcept(code);
                 if (concept != null) {
-                    return getConcepts(concept);
+                    return index.getConcepts(concept);
                 }
             }
         }
@@ -0,0 +1,301 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.util;
+
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Code;
+
+/**
+ * An immutable index of the concepts of a code system, built once per code system version.
+ *
+ * <p>The concepts are numbered in depth-first (pre-order) order, so the descendants of a concept are the concepts
+ * numbered after it up to the end of its subtree. Finding a concept by code is a hash lookup of the normalized
+ * code, and subsumption is a comparison of the concept numbers.
+ */
+public final class CodeSystemIndex {
+    private static final Map<String, CodeSystemIndex> INDEX_CACHE = createConcurrentLRUCache(128);
+
+    private final CodeSystem codeSystem;
+    private final boolean caseSensitive;
+
+    // The concepts in pre-order, the parent of each concept (-1 for a root concept), and the end of its subtree
+    private final Concept[] concepts;
+    private final int[] parent;
+    private final int[] end;
+
+    // The first concept with each normalized code, and the number of each concept instance
+    private final Map<String, Integer> codeMap;
+    private final Map<Concept, Integer> conceptMap;
+
+    private final Set<Concept> conceptSet;
+
+    private CodeSystemIndex(CodeSystem codeSystem) {
+        this.codeSystem = codeSystem;
+        this.caseSensitive = CodeSystemSupport.isCaseSensitive(codeSystem);
+
+        List<Concept> conceptList = new ArrayList<>();
+        List<Integer> parentList = new ArrayList<>();
+        for (Concept concept : codeSystem.getConcept()) {
+            collect(concept, -1, conceptList, parentList);
+        }
+
+        int size = conceptList.size();
+        concepts = conceptList.toArray(new Concept[size]);
+        parent = new int[size];
+        end = new int[size];
+        codeMap = new HashMap<>(size * 2);
+        conceptMap = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            parent[i] = parentList.get(i);
+            end[i] = i + 1;
+            if (concepts[i].getCode() != null && concepts[i].getCode().getValue() != null) {
+                codeMap.putIfAbsent(normalize(concepts[i].getCode().getValue()), i);
+            }
+            conceptMap.putIfAbsent(concepts[i], i);
+        }
+        // Children come after their parent, so walking backwards extends each parent's subtree by its children's
+        for (int i = size - 1; i >= 0; i--) {
+            if (parent[i] >= 0) {
+                end[parent[i]] = Math.max(end[parent[i]], end[i]);
+            }
+        }
+
+        Set<Concept> conceptSet = new LinkedHashSet<>(size);
+        Collections.addAll(conceptSet, concepts);
+        this.conceptSet = Collections.unmodifiableSet(conceptSet);
+    }
+
+    private static void collect(Concept concept, int parentIndex, List<Concept> conceptList, List<Integer> parentList) {
+        int index = conceptList.size();
+        conceptList.add(concept);
+        parentList.add(parentIndex);
+        for (Concept child : concept.getConcept()) {
+            collect(child, index, conceptList, parentList);
+        }
+    }
+
+    /**
+     * Get the index of the provided code system, building it if the code system has not been indexed yet.
+     *
+     * <p>Indexes are cached by code system url and version.
+     *
+     * @param codeSystem
+     *     the code system
+     * @return
+     *     the index of the code system
+     */
+    public static CodeSystemIndex of(CodeSystem codeSystem) {
+        if (codeSystem.getUrl() == null || codeSystem.getUrl().getValue() == null) {
+            return new CodeSystemIndex(codeSystem);
+        }
+        String key = codeSystem.getUrl().getValue();
+        if (codeSystem.getVersion() != null && codeSystem.getVersion().getValue() != null) {
+            key = key + "|" + codeSystem.getVersion().getValue();
+        }
+        CodeSystemIndex index = INDEX_CACHE.get(key);
+        if (index == null || index.codeSystem != codeSystem) {
+            // Another instance with the same url and version (e.g. from another registry provider) replaces the cached index
+            index = new CodeSystemIndex(codeSystem);
+            INDEX_CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * @return
+     *     the indexed code system
+     */
+    public CodeSystem getCodeSystem() {
+        return codeSystem;
+    }
+
+    /**
+     * @return
+     *     true if the codes of the code system are case sensitive, false otherwise
+     */
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /**
+     * Find the concept that matches the specified code.
+     *
+     * @param code
+     *     the code to match
+     * @return
+     *     the concept that matches the specified code, or null if no such concept exists
+     */
+    public Concept findConcept(Code code) {
+        int index = indexOf(code);
+        return (index >= 0) ? concepts[index] : null;
+    }
+
+    /**
+     * Find the concept in the tree rooted by the provided concept that matches the specified code.
+     *
+     * @param concept
+     *     the root of the tree to search
+     * @param code
+     *     the code to match
+     * @return
+     *     the concept that matches the specified code, or null if no such concept exists
+     */
+    public Concept findConcept(Concept concept, Code code) {
+        int root = indexOf(concept);
+        int index = indexOf(code);
+        return (root >= 0 && index >= 0 && isAncestorOrSelf(root, index)) ? concepts[index] : null;
+    }
+
+    /**
+     * Determine whether concept A subsumes (is an ancestor of, or is) concept B.
+     *
+     * @param conceptA
+     *     concept A
+     * @param conceptB
+     *     concept B
+     * @return
+     *     true if both concepts are in the code system and concept A subsumes concept B, false otherwise
+     */
+    public boolean subsumes(Concept conceptA, Concept conceptB) {
+        int a = indexOf(conceptA);
+        int b = indexOf(conceptB);
+        return a >= 0 && b >= 0 && isAncestorOrSelf(a, b);
+    }
+
+    /**
+     * Get the parent of the provided concept.
+     *
+     * @param concept
+     *     the concept
+     * @return
+     *     the parent of the concept, or null if the concept is a root concept or not in the code system
+     */
+    public Concept getParent(Concept concept) {
+        int index = indexOf(concept);
+        return (index >= 0 && parent[index] >= 0) ? concepts[parent[index]] : null;
+    }
+
+    /**
+     * Get all the concepts of the code system, with the structural hierarchies flattened.
+     *
+     * @return
+     *     an unmodifiable set of the concepts, in depth-first order
+     */
+    public Set<Concept> getConcepts() {
+        return conceptSet;
+    }
+
+    /**
+     * Get the concept and its descendants, with the structural hierarchies flattened.
+     *
+     * @param concept
+     *     the root of the tree
+     * @return
+     *     an unmodifiable set of the concept and its descendants, in depth-first order, or an empty set if the
+     *     concept is not in the code system
+     */
+    public Set<Concept> getConcepts(Concept concept) {
+        int index = indexOf(concept);
+        return (index >= 0) ? new ConceptRange(index, end[index]) : Collections.emptySet();
+    }
+
+    private boolean isAncestorOrSelf(int ancestor, int descendant) {
+        return ancestor <= descendant && descendant < end[ancestor];
+    }
+
+    private int indexOf(Code code) {
+        if (code == null || code.getValue() == null) {
+            return -1;
+        }
+        Integer index = codeMap.get(normalize(code.getValue()));
+        return (index != null) ? index : -1;
+    }
+
+    private int indexOf(Concept concept) {
+        if (concept == null) {
+            return -1;
+        }
+        Integer index = conceptMap.get(concept);
+        if (index == null) {
+            // Not an instance from this code system; look for an equal concept
+            for (int i = 0; i < concepts.length; i++) {
+                if (concepts[i].equals(concept)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return index;
+    }
+
+    private String normalize(String code) {
+        return caseSensitive ? code : code.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The concepts in a range of concept numbers; i.e. a concept and its descendants
+     */
+    private class ConceptRange extends AbstractSet<Concept> {
+        private final int from;
+        private final int to;
+
+        private ConceptRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Concept)) {
+                return false;
+            }
+            int index = indexOf((Concept) o);
+            return from <= index && index < to;
+        }
+
+        @Override
+        public Iterator<Concept> iterator() {
+            return new Iterator<Concept>() {
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public Concept next() {
+                    if (next >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return concepts[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
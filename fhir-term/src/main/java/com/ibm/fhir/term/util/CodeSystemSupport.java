@@ -6,7 +6,7 @@
 
 package com.ibm.fhir.term.util;
 
-import static com.ibm.fhir.core.util.LRUCache.createLRUCache;
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
 
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -23,7 +23,7 @@ import com.ibm.fhir.registry.FHIRRegistry;
  * A utility class for FHIR code systems
  */
 public final class CodeSystemSupport {
-    private static final Map<String, Boolean> CASE_SENSITIVITY_CACHE = createLRUCache(2048);
+    private static final Map<String, Boolean> CASE_SENSITIVITY_CACHE = createConcurrentLRUCache(2048);
 
     private CodeSystemSupport() { }
 
@@ -38,14 +38,7 @@ public final class CodeSystemSupport {
      *     the code system concept that matches the specified code, or null if no such concept exists
      */
     public static Concept findConcept(CodeSystem codeSystem, Code code) {
-        Concept result = null;
-        for (Concept concept : codeSystem.getConcept()) {
-            result = findConcept(codeSystem, concept, code);
-            if (result != null) {
-                break;
-            }
-        }
-        return result;
+        return CodeSystemIndex.of(codeSystem).findConcept(code);
     }
 
     /**
@@ -61,17 +54,7 @@ public final class CodeSystemSupport {
      *     the code system concept that matches the specified code, or null if not such concept exists
      */
     public static Concept findConcept(CodeSystem codeSystem, Concept concept, Code code) {
-        if (concept.getCode().equals(code) || (!isCaseSensitive(codeSystem)) && concept.getCode().getValue().equalsIgnoreCase(code.getValue())) {
-            return concept;
-        }
-        Concept result = null;
-        for (Concept child : concept.getConcept()) {
-            result = findConcept(codeSystem, child, code);
-            if (result != null) {
-                break;
-            }
-        }
-        return result;
+        return CodeSystemIndex.of(codeSystem).findConcept(concept, code);
     }
 
     /**
@@ -173,14 +156,26 @@ public final class CodeSystemSupport {
      * @param codeSystem
      *     the code system containing the list of of Concept instances to be flattened
      * @return
-     *     flattened list of Concept instances for the given code system
+     *     unmodifiable flattened set of Concept instances for the given code system
      */
     public static Set<Concept> getConcepts(CodeSystem codeSystem) {
-        Set<Concept> concepts = (codeSystem.getCount() != null) ? new LinkedHashSet<>(codeSystem.getCount().getValue()) : new LinkedHashSet<>();
-        for (Concept concept : codeSystem.getConcept()) {
-            concepts.addAll(getConcepts(concept));
-        }
-        return concepts;
+        return CodeSystemIndex.of(codeSystem).getConcepts();
+    }
+
+    /**
+     * Get a set containing the provided {@link CodeSystem.Concept} and its descendants, where all structural
+     * hierarchies have been flattened.
+     *
+     * @param codeSystem
+     *     the code system containing the concept
+     * @param concept
+     *     the root of the tree containing the Concept instances to be flattened
+     * @return
+     *     unmodifiable flattened set of Concept instances for the given tree, or an empty set if the concept
+     *     is not in the code system
+     */
+    public static Set<Concept> getConcepts(CodeSystem codeSystem, Concept concept) {
+        return CodeSystemIndex.of(codeSystem).getConcepts(concept);
     }
 
     /**
@@ -6,8 +6,8 @@
 
 package com.ibm.fhir.term.util;
 
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
 import static com.ibm.fhir.model.type.String.string;
-import static com.ibm.fhir.term.util.CodeSystemSupport.findConcept;
 import static com.ibm.fhir.term.util.CodeSystemSupport.getCodeSystem;
 import static com.ibm.fhir.term.util.CodeSystemSupport.getConceptPropertyValue;
 import static com.ibm.fhir.term.util.CodeSystemSupport.getConcepts;
@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
@@ -55,31 +56,56 @@ import com.ibm.fhir.registry.FHIRRegistry;
  */
 public final class ValueSetSupport {
     private static final Logger log = Logger.getLogger(ValueSetSupport.class.getName());
+    private static final Map<java.lang.String, CachedExpansion> EXPANSION_CACHE = createConcurrentLRUCache(1024);
 
     private ValueSetSupport() { }
 
     /**
      * Expand the given value set per the algorithm here: http://hl7.org/fhir/valueset.html#expansion
      *
+     * <p>Expansions of value sets with a url and version are cached by url and version.
+     *
      * @param valueSet
      *     the value set to be expanded
      * @return
      *     the expanded value set, or the original value set if already expanded or unable to expand
      */
     public static ValueSet expand(ValueSet valueSet) {
-        if (!isExpanded(valueSet) && isExpandable(valueSet)) {
+        if (isExpanded(valueSet)) {
+            return valueSet;
+        }
+        java.lang.String key = getCacheKey(valueSet);
+        if (key != null) {
+            CachedExpansion cached = EXPANSION_CACHE.get(key);
+            if (cached != null && cached.valueSet == valueSet) {
+                return cached.expanded;
+            }
+        }
+        if (isExpandable(valueSet)) {
             Set<Contains> result = expand(valueSet.getCompose());
-            return valueSet.toBuilder()
+            ValueSet expanded = valueSet.toBuilder()
                 .expansion(Expansion.builder()
                     .total(Integer.of(result.size()))
                     .timestamp(DateTime.now(ZoneOffset.UTC))
                     .contains(unwrap(result))
                     .build())
                 .build();
+            if (key != null) {
+                EXPANSION_CACHE.put(key, new CachedExpansion(valueSet, expanded));
+            }
+            return expanded;
         }
         return valueSet;
     }
 
+    private static java.lang.String getCacheKey(ValueSet valueSet) {
+        if (valueSet == null || valueSet.getUrl() == null || valueSet.getUrl().getValue() == null ||
+                valueSet.getVersion() == null || valueSet.getVersion().getValue() == null) {
+            return null;
+        }
+        return valueSet.getUrl().getValue() + "|" + valueSet.getVersion().getValue();
+    }
+
     public static boolean isExpanded(ValueSet valueSet) {
         return valueSet != null && valueSet.getExpansion() != null;
     }
@@ -187,30 +213,31 @@ public final class ValueSetSupport {
     }
 
     private static List<ConceptFilter> buildConceptFilters(CodeSystem codeSystem, List<Filter> filters) {
+        CodeSystemIndex index = CodeSystemIndex.of(codeSystem);
         List<ConceptFilter> conceptFilters = new ArrayList<>(filters.size());
         for (Filter filter : filters) {
             ConceptFilter conceptFilter = null;
             switch (FilterOperator.ValueSet.from(filter.getOp().getValue())) {
             case DESCENDENT_OF:
-                conceptFilter = createDescendentOfFilter(codeSystem, filter);
+                conceptFilter = createDescendentOfFilter(index, filter);
                 break;
             case EQUALS:
-                conceptFilter = createEqualsFilter(codeSystem, filter);
+                conceptFilter = createEqualsFilter(index, filter);
                 break;
             case EXISTS:
                 conceptFilter = createExistsFilter(codeSystem, filter);
                 break;
             case GENERALIZES:
-                conceptFilter = createGeneralizesFilter(codeSystem, filter);
+                conceptFilter = createGeneralizesFilter(index, filter);
                 break;
             case IN:
                 conceptFilter = createInFilter(codeSystem, filter);
                 break;
             case IS_A:
-                conceptFilter = createIsAFilter(codeSystem, filter);
+                conceptFilter = createIsAFilter(index, filter);
                 break;
             case IS_NOT_A:
-                conceptFilter = createIsNotAFilter(codeSystem, filter);
+                conceptFilter = createIsNotAFilter(index, filter);
                 break;
             case NOT_IN:
                 conceptFilter = createNotInFilter(codeSystem, filter);
@@ -272,22 +299,22 @@ public final class ValueSetSupport {
         return "true".equals(value.getValue()) || "false".equals(value.getValue());
     }
 
-    private static ConceptFilter createDescendentOfFilter(CodeSystem codeSystem, Filter filter) {
-        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-            Concept concept = findConcept(codeSystem, code(filter.getValue()));
+    private static ConceptFilter createDescendentOfFilter(CodeSystemIndex index, Filter filter) {
+        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(index.getCodeSystem().getHierarchyMeaning())) {
+            Concept concept = index.findConcept(code(filter.getValue()));
             if (concept != null) {
-                return new DescendentOfFilter(concept);
+                return new DescendentOfFilter(index, concept);
             }
         }
         return null;
     }
 
-    private static ConceptFilter createEqualsFilter(CodeSystem codeSystem, Filter filter) {
+    private static ConceptFilter createEqualsFilter(CodeSystemIndex index, Filter filter) {
         Code property = filter.getProperty();
         if ("parent".equals(property.getValue()) ||
                 "child".equals(property.getValue()) ||
-                hasCodeSystemProperty(codeSystem, property)) {
-            return new EqualsFilter(codeSystem, property, filter.getValue());
+                hasCodeSystemProperty(index.getCodeSystem(), property)) {
+            return new EqualsFilter(index, property, filter.getValue());
         }
         return null;
     }
@@ -301,11 +328,11 @@ public final class ValueSetSupport {
         return null;
     }
 
-    private static ConceptFilter createGeneralizesFilter(CodeSystem codeSystem, Filter filter) {
-        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-            Concept concept = findConcept(codeSystem, code(filter.getValue()));
+    private static ConceptFilter createGeneralizesFilter(CodeSystemIndex index, Filter filter) {
+        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(index.getCodeSystem().getHierarchyMeaning())) {
+            Concept concept = index.findConcept(code(filter.getValue()));
             if (concept != null) {
-                return new GeneralizesFilter(concept);
+                return new GeneralizesFilter(index, concept);
             }
         }
         return null;
@@ -321,21 +348,21 @@ public final class ValueSetSupport {
         return null;
     }
 
-    private static ConceptFilter createIsAFilter(CodeSystem codeSystem, Filter filter) {
-        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-            Concept concept = findConcept(codeSystem, code(filter.getValue()));
+    private static ConceptFilter createIsAFilter(CodeSystemIndex index, Filter filter) {
+        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(index.getCodeSystem().getHierarchyMeaning())) {
+            Concept concept = index.findConcept(code(filter.getValue()));
             if (concept != null) {
-                return new IsAFilter(concept);
+                return new IsAFilter(index, concept);
             }
         }
         return null;
     }
 
-    private static ConceptFilter createIsNotAFilter(CodeSystem codeSystem, Filter filter) {
-        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(codeSystem.getHierarchyMeaning())) {
-            Concept concept = findConcept(codeSystem, code(filter.getValue()));
+    private static ConceptFilter createIsNotAFilter(CodeSystemIndex index, Filter filter) {
+        if ("concept".equals(filter.getProperty().getValue()) && CodeSystemHierarchyMeaning.IS_A.equals(index.getCodeSystem().getHierarchyMeaning())) {
+            Concept concept = index.findConcept(code(filter.getValue()));
             if (concept != null) {
-                return new IsNotAFilter(concept);
+                return new IsNotAFilter(index, concept);
             }
         }
         return null;
@@ -467,46 +494,42 @@ public final class ValueSetSupport {
     }
 
     private static class DescendentOfFilter implements ConceptFilter {
-        private final Set<Concept> descendants;
+        private final CodeSystemIndex index;
+        private final Concept concept;
 
-        public DescendentOfFilter(Concept concept) {
-            Set<Concept> descendants = getConcepts(concept);
-            descendants.remove(concept);
-            this.descendants = descendants;
+        public DescendentOfFilter(CodeSystemIndex index, Concept concept) {
+            this.index = index;
+            this.concept = concept;
         }
 
         @Override
         public boolean accept(Concept concept) {
-            return descendants.contains(concept);
+            return !this.concept.equals(concept) && index.subsumes(this.concept, concept);
         }
     }
 
     private static class EqualsFilter implements ConceptFilter {
         private final Code property;
         private final String value;
-        private final Set<Concept> children;
+        private final CodeSystemIndex index;
+        private final Concept parent;
         private final Concept child;
 
-        public EqualsFilter(CodeSystem codeSystem, Code property, String value) {
+        public EqualsFilter(CodeSystemIndex index, Code property, String value) {
             this.property = property;
             this.value = value;
-            children = new LinkedHashSet<>();
-            if ("parent".equals(property.getValue())) {
-                Concept parent = findConcept(codeSystem, code(value));
-                if (parent != null) {
-                    children.addAll(parent.getConcept());
-                }
-            }
-            this.child = "child".equals(property.getValue()) ? findConcept(codeSystem, code(value)) : null;
+            this.index = index;
+            this.parent = "parent".equals(property.getValue()) ? index.findConcept(code(value)) : null;
+            this.child = "child".equals(property.getValue()) ? index.findConcept(code(value)) : null;
         }
 
         @Override
         public boolean accept(Concept concept) {
             if ("parent".equals(property.getValue())) {
-                return children.contains(concept);
+                return parent != null && parent.equals(index.getParent(concept));
             }
             if ("child".equals(property.getValue())) {
-                return concept.getConcept().contains(child);
+                return child != null && concept.equals(index.getParent(child));
             }
             if (hasConceptProperty(concept, property)) {
                 Element value = getConceptPropertyValue(concept, property);
@@ -536,15 +559,17 @@ public final class ValueSetSupport {
     }
 
     private static class GeneralizesFilter implements ConceptFilter {
+        private final CodeSystemIndex index;
         private final Concept concept;
 
-        public GeneralizesFilter(Concept concept) {
+        public GeneralizesFilter(CodeSystemIndex index, Concept concept) {
+            this.index = index;
             this.concept = concept;
         }
 
         @Override
         public boolean accept(Concept concept) {
-            return getConcepts(concept).contains(this.concept);
+            return index.subsumes(concept, this.concept);
         }
     }
 
@@ -566,21 +591,23 @@ public final class ValueSetSupport {
     }
 
     private static class IsAFilter implements ConceptFilter {
-        protected final Set<Concept> descendantsAndSelf;
+        protected final CodeSystemIndex index;
+        protected final Concept concept;
 
-        public IsAFilter(Concept concept) {
-            descendantsAndSelf = getConcepts(concept);
+        public IsAFilter(CodeSystemIndex index, Concept concept) {
+            this.index = index;
+            this.concept = concept;
         }
 
         @Override
         public boolean accept(Concept concept) {
-            return descendantsAndSelf.contains(concept);
+            return index.subsumes(this.concept, concept);
         }
     }
 
     private static class IsNotAFilter extends IsAFilter {
-        public IsNotAFilter(Concept concept) {
-            super(concept);
+        public IsNotAFilter(CodeSystemIndex index, Concept concept) {
+            super(index, concept);
         }
 
         @Override
@@ -641,6 +668,19 @@ public final class ValueSetSupport {
             .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
+    /**
+     * An expansion and the value set it was expanded from
+     */
+    private static class CachedExpansion {
+        private final ValueSet valueSet;
+        private final ValueSet expanded;
+
+        public CachedExpansion(ValueSet valueSet, ValueSet expanded) {
+            this.valueSet = valueSet;
+            this.expanded = expanded;
+        }
+    }
+
     private static class Contains {
         private final Expansion.Contains contains;
         private final int hashCode;
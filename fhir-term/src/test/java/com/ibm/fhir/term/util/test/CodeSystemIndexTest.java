@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.term.util.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.CodeSystem;
+import com.ibm.fhir.model.resource.CodeSystem.Concept;
+import com.ibm.fhir.model.type.Boolean;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.CodeSystemContentMode;
+import com.ibm.fhir.model.type.code.CodeSystemHierarchyMeaning;
+import com.ibm.fhir.model.type.code.PublicationStatus;
+import com.ibm.fhir.term.util.CodeSystemIndex;
+
+public class CodeSystemIndexTest {
+    /*
+     * a
+     *   b
+     *     c
+     *   d
+     * e
+     */
+    private static CodeSystem buildCodeSystem(boolean caseSensitive) {
+        return CodeSystem.builder()
+                .url(Uri.of("http://ibm.com/fhir/CodeSystem/index-test"))
+                .version(string(caseSensitive ? "1.0.0" : "2.0.0"))
+                .status(PublicationStatus.ACTIVE)
+                .caseSensitive(Boolean.of(caseSensitive))
+                .hierarchyMeaning(CodeSystemHierarchyMeaning.IS_A)
+                .content(CodeSystemContentMode.COMPLETE)
+                .concept(concept("a", concept("b", concept("c")), concept("d")), concept("e"))
+                .build();
+    }
+
+    private static Concept concept(String code, Concept... children) {
+        return Concept.builder()
+                .code(Code.of(code))
+                .display(string("Concept " + code))
+                .concept(children)
+                .build();
+    }
+
+    @Test
+    public void testFindConcept() {
+        CodeSystemIndex index = CodeSystemIndex.of(buildCodeSystem(true));
+
+        assertEquals(index.findConcept(Code.of("c")).getCode().getValue(), "c");
+        assertEquals(index.findConcept(Code.of("e")).getCode().getValue(), "e");
+        assertNull(index.findConcept(Code.of("C")));
+        assertNull(index.findConcept(Code.of("x")));
+
+        Concept a = index.findConcept(Code.of("a"));
+        Concept b = index.findConcept(Code.of("b"));
+        assertSame(index.findConcept(a, Code.of("c")), index.findConcept(Code.of("c")));
+        assertSame(index.findConcept(b, Code.of("b")), b);
+        assertNull(index.findConcept(b, Code.of("d")));
+        assertNull(index.findConcept(b, Code.of("a")));
+    }
+
+    @Test
+    public void testFindConceptCaseInsensitive() {
+        CodeSystemIndex index = CodeSystemIndex.of(buildCodeSystem(false));
+
+        assertFalse(index.isCaseSensitive());
+        assertEquals(index.findConcept(Code.of("C")).getCode().getValue(), "c");
+    }
+
+    @Test
+    public void testFindConceptCaseInsensitiveTurkishLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            CodeSystem codeSystem = CodeSystem.builder()
+                    .url(Uri.of("http://ibm.com/fhir/CodeSystem/index-locale-test"))
+                    .version(string("1.0.0"))
+                    .status(PublicationStatus.ACTIVE)
+                    .caseSensitive(Boolean.FALSE)
+                    .content(CodeSystemContentMode.COMPLETE)
+                    .concept(concept("INFO"))
+                    .build();
+            CodeSystemIndex index = CodeSystemIndex.of(codeSystem);
+
+            assertEquals(index.findConcept(Code.of("info")).getCode().getValue(), "INFO");
+            assertEquals(index.findConcept(Code.of("Info")).getCode().getValue(), "INFO");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testSubsumes() {
+        CodeSystemIndex index = CodeSystemIndex.of(buildCodeSystem(true));
+        Concept a = index.findConcept(Code.of("a"));
+        Concept b = index.findConcept(Code.of("b"));
+        Concept c = index.findConcept(Code.of("c"));
+        Concept d = index.findConcept(Code.of("d"));
+        Concept e = index.findConcept(Code.of("e"));
+
+        assertTrue(index.subsumes(a, a));
+        assertTrue(index.subsumes(a, c));
+        assertTrue(index.subsumes(b, c));
+        assertFalse(index.subsumes(c, b));
+        assertFalse(index.subsumes(b, d));
+        assertFalse(index.subsumes(a, e));
+
+        assertSame(index.getParent(c), b);
+        assertSame(index.getParent(d), a);
+        assertNull(index.getParent(e));
+    }
+
+    @Test
+    public void testGetConcepts() {
+        CodeSystem codeSystem = buildCodeSystem(true);
+        CodeSystemIndex index = CodeSystemIndex.of(codeSystem);
+
+        assertSame(CodeSystemIndex.of(codeSystem), index);
+        assertEquals(codes(index.getConcepts()), Arrays.asList("a", "b", "c", "d", "e"));
+
+        Concept a = index.findConcept(Code.of("a"));
+        assertEquals(codes(index.getConcepts(a)), Arrays.asList("a", "b", "c", "d"));
+        assertTrue(index.getConcepts(a).contains(index.findConcept(Code.of("c"))));
+        assertFalse(index.getConcepts(a).contains(index.findConcept(Code.of("e"))));
+
+        // An equal concept which is not from the indexed code system instance
+        assertEquals(codes(index.getConcepts(concept("b", concept("c")))), Arrays.asList("b", "c"));
+    }
+
+    private static List<String> codes(java.util.Collection<Concept> concepts) {
+        return concepts.stream().map(concept -> concept.getCode().getValue()).collect(Collectors.toList());
+    }
+}
@@ -1006,6 +1006,24 @@ public class CodeGenerator {
                 elementDefinitions = Collections.emptyList();
             }
 
+            // The codes of the value sets checked during construction, hashed once per class
+            boolean codeSetFields = false;
+            for (JsonObject elementDefinition : elementDefinitions) {
+                String basePath = elementDefinition.getJsonObject("base").getString("path");
+                if (elementDefinition.getString("path").equals(basePath)) {
+                    String elementName = getElementName(elementDefinition, path);
+                    String valueSet = getCheckedValueSet(elementDefinition, getFieldType(structureDefinition, elementDefinition, false));
+                    if (valueSet != null && !getConcepts(valueSet).isEmpty()) {
+                        cb.field(mods("private", "static", "final"), "Set<java.lang.String>", getCodeSetFieldName(elementName), "ValidationSupport.codeSet(" +
+                            getConcepts(valueSet).stream().map(concept -> quote(concept.getString("code"))).collect(Collectors.joining(", ")) + ")");
+                        codeSetFields = true;
+                    }
+                }
+            }
+            if (codeSetFields) {
+                cb.newLine();
+            }
+
             List<String> nestedPaths = new ArrayList<>();
 
             String visibility = nested ? "private" : visibility(structureDefinition);
@@ -1171,37 +1189,13 @@ public class CodeGenerator {
                     String elementName = getElementName(elementDefinition, path);
                     String fieldName = getFieldName(elementName);
                     String fieldType = getFieldType(structureDefinition, elementDefinition, false);
-                    if ("Code".equals(fieldType) || "Coding".equals(fieldType) || "CodeableConcept".equals(fieldType) ||
-                            "Quantity".equals(fieldType) || "String".equals(fieldType) || "Uri".equals(fieldType)) {
-                        JsonObject binding = getBinding(elementDefinition);
-                        if (binding != null && binding.containsKey("valueSet") && binding.containsKey("strength")) {
-                            String valueSet = binding.getString("valueSet").split("\\|")[0];
-                            if ("required".equals(binding.getString("strength"))) {
-                                // required binding, check if it should be validated
-                                String system = getSystem(valueSet);
-                                List<JsonObject> concepts = getConcepts(valueSet);
-                                if ((!concepts.isEmpty() && !"Code".equals(fieldType)) || isSyntaxValidatedValueSet(valueSet)) {
-                                    if (concepts.isEmpty()) {
-                                        cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system)));
-                                    } else {
-                                        cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system),
-                                            concepts.stream().map(concept -> quote(concept.getString("code"))).collect(Collectors.joining(", "))));
-                                    }
-                                }
-                            } else if (getMaxValueSet(binding) != null) {
-                                // not a required binding, check maxValueSet binding
-                                valueSet = getMaxValueSet(binding).split("\\|")[0];
-                                String system = getSystem(valueSet);
-                                List<JsonObject> concepts = getConcepts(valueSet);
-                                if (!concepts.isEmpty() || isSyntaxValidatedValueSet(valueSet)) {
-                                    if (concepts.isEmpty()) {
-                                        cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system)));
-                                    } else {
-                                        cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system),
-                                            concepts.stream().map(concept -> quote(concept.getString("code"))).collect(Collectors.joining(", "))));
-                                    }
-                                }
-                            }
+                    String valueSet = getCheckedValueSet(elementDefinition, fieldType);
+                    if (valueSet != null) {
+                        String system = getSystem(valueSet);
+                        if (getConcepts(valueSet).isEmpty()) {
+                            cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system)));
+                        } else {
+                            cb.invoke("ValidationSupport", "checkValueSetBinding", args(fieldName, quote(elementName), quote(valueSet), quote(system), getCodeSetFieldName(elementName)));
                         }
                     }
                 }
@@ -1309,6 +1303,45 @@ public class CodeGenerator {
         }
     }
 
+    /**
+     * Get the value set of the required or maxValueSet binding that is checked during construction of the element.
+     * @param elementDefinition the element definition
+     * @param fieldType the field type of the element
+     * @return the url of the value set, or null if the binding of the element is not checked
+     */
+    private String getCheckedValueSet(JsonObject elementDefinition, String fieldType) {
+        if ("Code".equals(fieldType) || "Coding".equals(fieldType) || "CodeableConcept".equals(fieldType) ||
+                "Quantity".equals(fieldType) || "String".equals(fieldType) || "Uri".equals(fieldType)) {
+            JsonObject binding = getBinding(elementDefinition);
+            if (binding != null && binding.containsKey("valueSet") && binding.containsKey("strength")) {
+                String valueSet = binding.getString("valueSet").split("\\|")[0];
+                if ("required".equals(binding.getString("strength"))) {
+                    // required binding, check if it should be validated
+                    List<JsonObject> concepts = getConcepts(valueSet);
+                    if ((!concepts.isEmpty() && !"Code".equals(fieldType)) || isSyntaxValidatedValueSet(valueSet)) {
+                        return valueSet;
+                    }
+                } else if (getMaxValueSet(binding) != null) {
+                    // not a required binding, check maxValueSet binding
+                    valueSet = getMaxValueSet(binding).split("\\|")[0];
+                    if (!getConcepts(valueSet).isEmpty() || isSyntaxValidatedValueSet(valueSet)) {
+                        return valueSet;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the name of the static field with the value set codes of the element (e.g. clinicalStatus -> CLINICAL_STATUS_CODES).
+     * @param elementName the element name
+     * @return the field name
+     */
+    private String getCodeSetFieldName(String elementName) {
+        return elementName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase() + "_CODES";
+    }
+
     /**
      * Determines whether or not the value set is validated by syntax.
      * @param valueSet the value set
@@ -1986,6 +2019,13 @@ public class CodeGenerator {
             }
 
             String fieldType = getFieldType(structureDefinition, elementDefinition, false);
+            if (path.equals(basePath)) {
+                String valueSet = getCheckedValueSet(elementDefinition, fieldType);
+                if (valueSet != null && !getConcepts(valueSet).isEmpty()) {
+                    imports.add("java.util.Set");
+                    imports.add("com.ibm.fhir.model.util.ValidationSupport");
+                }
+            }
             JsonObject definition = structureDefinitionMap.get(fieldType);
             if (definition == null) {
                 definition = structureDefinitionMap.get(camelCase(fieldType));
@@ -2682,10 +2722,10 @@ public class CodeGenerator {
         cb._import("javax.json.JsonArray");
         cb._import("javax.json.JsonNumber");
         cb._import("javax.json.JsonObject");
-        cb._import("javax.json.JsonReader");
-        cb._import("javax.json.JsonReaderFactory");
         cb._import("javax.json.JsonString");
         cb._import("javax.json.JsonValue");
+        cb._import("javax.json.stream.JsonParser");
+        cb._import("javax.json.stream.JsonParserFactory");
         cb.newLine();
 
         cb._import("com.ibm.fhir.model.parser.FHIRParser");
@@ -2707,7 +2747,7 @@ public class CodeGenerator {
         cb.annotation("Generated", quote("com.ibm.fhir.tools.CodeGenerator"));
         cb._class(mods("public"), "FHIRJsonParser", "FHIRAbstractParser");
         cb.field(mods("public", "static"), "boolean", "DEBUG", "false");
-        cb.field(mods("private", "static", "final"), "JsonReaderFactory", "JSON_READER_FACTORY", "Json.createReaderFactory(null)");
+        cb.field(mods("private", "static", "final"), "JsonParserFactory", "JSON_PARSER_FACTORY", "Json.createParserFactory(null)");
         cb.newLine();
 
         cb.field(mods("private", "final"), "Stack<java.lang.String>", "stack", _new("Stack<>"));
@@ -2727,8 +2767,8 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(InputStream in, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("InputStream in", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
-            ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingInputStream(in), StandardCharsets.UTF_8)")
-                .assign("JsonObject jsonObject", "jsonReader.readObject()")
+            ._try("JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingInputStream(in), StandardCharsets.UTF_8)")
+                .assign("JsonObject jsonObject", "CompactJsonReader.readObject(jsonParser)")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
             ._catch("FHIRParserException e")
                 ._throw("e")
@@ -2747,8 +2787,8 @@ public class CodeGenerator {
 
         // public <T extends Resource> T parseAndFilter(Reader reader, java.util.List<java.lang.String> elementsToInclude) throws FHIRException
         cb.method(mods("public"), "<T extends Resource> T", "parseAndFilter", params("Reader reader", "Collection<java.lang.String> elementsToInclude"), throwsExceptions("FHIRParserException"))
-            ._try("JsonReader jsonReader = JSON_READER_FACTORY.createReader(nonClosingReader(reader))")
-                .assign("JsonObject jsonObject", "jsonReader.readObject()")
+            ._try("JsonParser jsonParser = JSON_PARSER_FACTORY.createParser(nonClosingReader(reader))")
+                .assign("JsonObject jsonObject", "CompactJsonReader.readObject(jsonParser)")
                 ._return("parseAndFilter(jsonObject, elementsToInclude)")
             ._catch("FHIRParserException e")
                 ._throw("e")
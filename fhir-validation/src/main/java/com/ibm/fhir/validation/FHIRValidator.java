@@ -10,7 +10,6 @@ import static com.ibm.fhir.model.type.String.string;
 import static com.ibm.fhir.path.util.FHIRPathUtil.evaluatesToBoolean;
 import static com.ibm.fhir.path.util.FHIRPathUtil.isFalse;
 import static com.ibm.fhir.path.util.FHIRPathUtil.singleton;
-import static com.ibm.fhir.profile.ProfileSupport.createConstraint;
 import static com.ibm.fhir.validation.util.FHIRValidationUtil.ISSUE_COMPARATOR;
 
 import java.net.URI;
@@ -19,11 +18,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.ibm.fhir.config.FHIRRequestContext;
 import com.ibm.fhir.model.annotation.Constraint;
 import com.ibm.fhir.model.resource.DomainResource;
 import com.ibm.fhir.model.resource.OperationOutcome.Issue;
@@ -33,13 +39,13 @@ import com.ibm.fhir.model.type.CodeableConcept;
 import com.ibm.fhir.model.type.Extension;
 import com.ibm.fhir.model.type.code.IssueSeverity;
 import com.ibm.fhir.model.type.code.IssueType;
-import com.ibm.fhir.model.util.ModelSupport;
 import com.ibm.fhir.path.FHIRPathElementNode;
 import com.ibm.fhir.path.FHIRPathNode;
 import com.ibm.fhir.path.FHIRPathResourceNode;
 import com.ibm.fhir.path.FHIRPathTree;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator;
 import com.ibm.fhir.path.evaluator.FHIRPathEvaluator.EvaluationContext;
+import com.ibm.fhir.path.exception.FHIRPathException;
 import com.ibm.fhir.path.visitor.FHIRPathDefaultNodeVisitor;
 import com.ibm.fhir.profile.ProfileSupport;
 import com.ibm.fhir.registry.FHIRRegistry;
@@ -48,9 +54,14 @@ import com.ibm.fhir.validation.exception.FHIRValidationException;
 public class FHIRValidator {
     private static final Logger log = Logger.getLogger(FHIRValidator.class.getName());
 
-    private final ValidatingNodeVisitor visitor = new ValidatingNodeVisitor();
+    // the pool shared by the validators in parallel mode, created on first use
+    private static volatile ForkJoinPool parallelPool;
 
-    private FHIRValidator() { }
+    private final ValidatingNodeVisitor visitor;
+
+    private FHIRValidator(ForkJoinPool pool) {
+        this.visitor = new ValidatingNodeVisitor(pool);
+    }
 
     /**
      * Validate a {@link Resource} against constraints in the base specification and
@@ -177,8 +188,57 @@ public class FHIRValidator {
         }
     }
 
+    /**
+     * Static factory method for creating FHIRValidator instances that validate resources on the calling thread
+     *
+     * @return
+     *     a new FHIRValidator instance
+     */
     public static FHIRValidator validator() {
-        return new FHIRValidator();
+        return new FHIRValidator(null);
+    }
+
+    /**
+     * Static factory method for creating FHIRValidator instances
+     *
+     * <p>In parallel mode, the resource nodes below the root of the resource being validated (for example,
+     * Bundle entry resources and contained resources) are validated as separate tasks on a fork-join pool dedicated
+     * to validation, with one thread per available processor. The issues are returned in the same order as in
+     * sequential mode.
+     *
+     * <p>The {@link FHIRRequestContext} (tenant and datastore) of the calling thread is propagated to the pool threads
+     * for the duration of each task; other thread-local state of the calling thread is not available to the FHIRPath
+     * functions and registry providers that are used while validating these resource nodes.
+     *
+     * @param parallel
+     *     true to validate the resource nodes below the root in parallel, false to validate on the calling thread
+     * @return
+     *     a new FHIRValidator instance
+     */
+    public static FHIRValidator validator(boolean parallel) {
+        return new FHIRValidator(parallel ? getParallelPool() : null);
+    }
+
+    private static ForkJoinPool getParallelPool() {
+        ForkJoinPool result = parallelPool;
+        if (result == null) {
+            synchronized (FHIRValidator.class) {
+                result = parallelPool;
+                if (result == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    ClassLoader classLoader = FHIRValidator.class.getClassLoader();
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+                        ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        t.setName("fhir-validation-" + threadNumber.incrementAndGet());
+                        t.setDaemon(true);
+                        t.setContextClassLoader(classLoader);
+                        return t;
+                    }, null, false);
+                    parallelPool = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -227,6 +287,46 @@ public class FHIRValidator {
             .build();
     }
 
+    /**
+     * Validates the resource subtree rooted at a resource node with its own visitor
+     */
+    private static class ValidationTask extends RecursiveTask<List<Issue>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ValidatingNodeVisitor visitor;
+        private final transient FHIRPathNode node;
+
+        // the request context of the thread which created the task
+        private final transient FHIRRequestContext context;
+
+        private ValidationTask(ValidatingNodeVisitor visitor, FHIRPathNode node) {
+            this.visitor = visitor;
+            this.node = node;
+            this.context = FHIRRequestContext.get();
+        }
+
+        @Override
+        protected List<Issue> compute() {
+            FHIRRequestContext previous = FHIRRequestContext.get();
+            FHIRRequestContext.set(context);
+            try {
+                return visitor.validate(node);
+            } finally {
+                FHIRRequestContext.set(previous);
+            }
+        }
+    }
+
+    private static class Segment {
+        private final List<Issue> issues;
+        private final ValidationTask task;
+
+        private Segment(List<Issue> issues, ValidationTask task) {
+            this.issues = issues;
+            this.task = task;
+        }
+    }
+
     private static class ValidatingNodeVisitor extends FHIRPathDefaultNodeVisitor {
         private FHIRPathEvaluator evaluator = FHIRPathEvaluator.evaluator();
         private EvaluationContext evaluationContext;
@@ -234,19 +334,63 @@ public class FHIRValidator {
         private List<String> profiles;
         private List<Issue> issues = new ArrayList<>();
 
-        private ValidatingNodeVisitor() { }
+        // the pool used to validate the resource nodes below the root in parallel or null
+        private final ForkJoinPool pool;
+
+        // the forked tasks in visiting order, each with the issues of the nodes visited before it
+        private final List<Segment> segments = new ArrayList<>();
+
+        private ValidatingNodeVisitor(ForkJoinPool pool) {
+            this.pool = pool;
+        }
 
         private List<Issue> validate(EvaluationContext evaluationContext, boolean includeResourceAssertedProfiles, String... profiles) {
-            reset();
             this.evaluationContext = evaluationContext;
             this.includeResourceAssertedProfiles = includeResourceAssertedProfiles;
             this.profiles = Arrays.asList(profiles);
-            this.evaluationContext.getTree().getRoot().accept(this);
-            return issues;
+            FHIRPathNode root = this.evaluationContext.getTree().getRoot();
+            if (pool != null) {
+                return pool.invoke(new ValidationTask(this, root));
+            }
+            return validate(root);
+        }
+
+        /**
+         * Validate the subtree rooted at the passed node; resource nodes below the passed node are validated by
+         * forked tasks in parallel mode and their issues are merged in visiting order
+         */
+        private List<Issue> validate(FHIRPathNode node) {
+            reset();
+            node.accept(this);
+            if (segments.isEmpty()) {
+                return issues;
+            }
+            List<Issue> result = new ArrayList<>();
+            for (Segment segment : segments) {
+                result.addAll(segment.issues);
+                result.addAll(segment.task.join());
+            }
+            result.addAll(issues);
+            return result;
         }
 
         private void reset() {
             issues.clear();
+            segments.clear();
+        }
+
+        /**
+         * Fork a task that validates the subtree rooted at the passed resource node with a copy of the evaluation context
+         */
+        private void fork(FHIRPathResourceNode resourceNode) {
+            ValidatingNodeVisitor visitor = new ValidatingNodeVisitor(pool);
+            visitor.evaluationContext = evaluationContext.copy();
+            visitor.includeResourceAssertedProfiles = includeResourceAssertedProfiles;
+            visitor.profiles = profiles;
+            ValidationTask task = new ValidationTask(visitor, resourceNode);
+            task.fork();
+            segments.add(new Segment(new ArrayList<>(issues), task));
+            issues.clear();
         }
 
         @Override
@@ -259,24 +403,41 @@ public class FHIRValidator {
             validate(node);
         }
 
+        @Override
+        protected void visitChildren(FHIRPathNode node) {
+            if (node.isElementNode() && ValidationPlan.canSkipChildren(node.asElementNode().element())) {
+                return;
+            }
+            if (pool == null) {
+                super.visitChildren(node);
+                return;
+            }
+            for (FHIRPathNode child : node.children()) {
+                if (child.isResourceNode()) {
+                    fork(child.asResourceNode());
+                } else {
+                    child.accept(this);
+                }
+            }
+        }
+
         /**
          * @throws RuntimeException if the registered constraints cannot be evaluated for the passed element node
          */
         private void validate(FHIRPathElementNode elementNode) {
             Class<?> elementType = elementNode.element().getClass();
-            Collection<Constraint> constraints = ModelSupport.getConstraints(elementType);
+            ValidationPlan plan = ValidationPlan.getPlan(elementType);
             if (Extension.class.equals(elementType)) {
                 String url = elementNode.element().as(Extension.class).getUrl();
                 if (isAbsolute(url)) {
                     if (FHIRRegistry.getInstance().hasResource(url, StructureDefinition.class)) {
-                        constraints = new ArrayList<>(constraints);
-                        constraints.add(createConstraint("generated-ext-1", Constraint.LEVEL_RULE, Constraint.LOCATION_BASE, "Extension must conform to definition '" + url + "'", "conformsTo('" + url + "')", false, true));
+                        plan = ValidationPlan.getExtensionPlan(url);
                     } else {
                         issues.add(issue(IssueSeverity.WARNING, IssueType.NOT_SUPPORTED, "Extension definition '" + url + "' is not supported", elementNode));
                     }
                 }
             }
-            validate(elementType, elementNode, constraints);
+            validate(elementNode, plan);
         }
 
         private boolean isAbsolute(String url) {
@@ -293,62 +454,78 @@ public class FHIRValidator {
          */
         private void validate(FHIRPathResourceNode resourceNode) {
             Class<?> resourceType = resourceNode.resource().getClass();
-            validate(resourceType, resourceNode, ModelSupport.getConstraints(resourceType));
-            if (includeResourceAssertedProfiles) {
-                List<String> resourceAssertedProfiles = ProfileSupport.getResourceAssertedProfiles(resourceNode.resource());
-                validateProfileReferences(resourceNode, resourceAssertedProfiles, true, issues);
-                validate(resourceType, resourceNode, ProfileSupport.getConstraints(resourceAssertedProfiles, resourceType));
-            }
-            if (!profiles.isEmpty() && !resourceNode.path().contains(".")) {
-                validate(resourceType, resourceNode, ProfileSupport.getConstraints(profiles, resourceType));
-            }
+            List<String> resourceAssertedProfiles = includeResourceAssertedProfiles ?
+                    ProfileSupport.getResourceAssertedProfiles(resourceNode.resource()) : null;
+            List<String> profiles = (!this.profiles.isEmpty() && !resourceNode.path().contains(".")) ?
+                    this.profiles : Collections.emptyList();
+            validate(resourceNode, ValidationPlan.getPlan(resourceType, resourceAssertedProfiles, profiles), resourceAssertedProfiles);
+        }
+
+        private void validate(FHIRPathNode node, ValidationPlan plan) {
+            validate(node, plan, null);
         }
 
         /**
-         * @throws RuntimeException if one of the passed constraints cannot be evaluated for the passed node
+         * Execute the passed plan for the passed node; constraint locations and the results of identical
+         * constraints are evaluated once and their issues are replayed for subsequent steps
+         *
+         * @throws RuntimeException if one of the constraints of the plan cannot be evaluated for the passed node
          */
-        private void validate(Class<?> type, FHIRPathNode node, Collection<Constraint> constraints) {
-            for (Constraint constraint : constraints) {
-                if (constraint.modelChecked()) {
-                    if (log.isLoggable(Level.FINER)) {
-                        log.finer("    Constraint: " + constraint.id() + " is model-checked");
-                    }
-                    continue;
+        private void validate(FHIRPathNode node, ValidationPlan plan, List<String> resourceAssertedProfiles) {
+            List<ValidationPlan.Step> steps = plan.getSteps();
+            if (steps.isEmpty() && resourceAssertedProfiles == null) {
+                return;
+            }
+            Execution execution = new Execution(node, plan);
+            for (int i = 0; i < steps.size(); i++) {
+                if (i == plan.getProfileReferenceIndex()) {
+                    validateProfileReferences(node.asResourceNode(), resourceAssertedProfiles, true, issues);
                 }
-                evaluationContext.setConstraint(constraint);
-                validate(type, node, constraint);
+                ValidationPlan.Step step = steps.get(i);
+                evaluationContext.setConstraint(step.getConstraint());
+                validate(execution, step);
                 evaluationContext.unsetConstraint();
             }
+            if (resourceAssertedProfiles != null && plan.getProfileReferenceIndex() == steps.size()) {
+                validateProfileReferences(node.asResourceNode(), resourceAssertedProfiles, true, issues);
+            }
         }
 
         /**
-         * @throws RuntimeException if the passed constraint cannot be evaluated for the passed node
+         * @throws RuntimeException if the constraint of the passed step cannot be evaluated for the node of the execution
          */
-        private void validate(Class<?> type, FHIRPathNode node, Constraint constraint) {
-            String path = node.path();
+        private void validate(Execution execution, ValidationPlan.Step step) {
+            Constraint constraint = step.getConstraint();
+            List<Issue> sharedIssues = execution.results[step.getResultSlot()];
+            if (sharedIssues != null) {
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("    Constraint: " + constraint.id() + " was already evaluated");
+                }
+                issues.addAll(sharedIssues);
+                return;
+            }
+            int start = issues.size();
+            String path = execution.node.path();
             try {
                 if (log.isLoggable(Level.FINER)) {
                     log.finer("    Constraint: " + constraint);
                 }
 
-                Collection<FHIRPathNode> initialContext = singleton(node);
-                if (!Constraint.LOCATION_BASE.equals(constraint.location())) {
-                    initialContext = evaluator.evaluate(evaluationContext, constraint.location(), initialContext);
-                    issues.addAll(evaluationContext.getIssues());
-                    evaluationContext.clearIssues();
+                Collection<FHIRPathNode> initialContext = execution.singleton;
+                if (step.getLocationSlot() != -1) {
+                    initialContext = execution.evaluateLocation(step.getLocationSlot(), constraint.location());
                 }
 
-                IssueSeverity severity = Constraint.LEVEL_WARNING.equals(constraint.level()) ? IssueSeverity.WARNING : IssueSeverity.ERROR;
-
                 for (FHIRPathNode contextNode : initialContext) {
-                    evaluationContext.setExternalConstant("rootResource", getRootResourceNode(contextNode));
-                    evaluationContext.setExternalConstant("resource", getResourceNode(contextNode));
+                    FHIRPathResourceNode[] resourceNodes = execution.getResourceNodes(contextNode);
+                    evaluationContext.setExternalConstant("rootResource", resourceNodes[1]);
+                    evaluationContext.setExternalConstant("resource", resourceNodes[0]);
                     Collection<FHIRPathNode> result = evaluator.evaluate(evaluationContext, constraint.expression(), singleton(contextNode));
                     issues.addAll(evaluationContext.getIssues());
                     evaluationContext.clearIssues();
 
                     if (evaluatesToBoolean(result) && isFalse(result)) {
-                        issues.add(issue(severity, IssueType.INVARIANT, constraint.id() + ": " + constraint.description(), contextNode));
+                        issues.add(issue(step.getSeverity(), IssueType.INVARIANT, constraint.id() + ": " + constraint.description(), contextNode));
                     }
 
                     if (log.isLoggable(Level.FINER)) {
@@ -360,6 +537,51 @@ public class FHIRValidator {
                     " with location: " + constraint.location() + " and expression: " + constraint.expression() +
                     " at path: " + path, e);
             }
+            execution.results[step.getResultSlot()] = new ArrayList<>(issues.subList(start, issues.size()));
+        }
+
+        /**
+         * The state of a plan execution for a single node
+         */
+        private class Execution {
+            private final FHIRPathNode node;
+            private final Collection<FHIRPathNode> singleton;
+            private final Collection<FHIRPathNode>[] locations;
+            private final List<Issue>[] locationIssues;
+            private final List<Issue>[] results;
+            private Map<FHIRPathNode, FHIRPathResourceNode[]> resourceNodeMap;
+
+            @SuppressWarnings("unchecked")
+            private Execution(FHIRPathNode node, ValidationPlan plan) {
+                this.node = node;
+                this.singleton = singleton(node);
+                this.locations = new Collection[plan.getLocationCount()];
+                this.locationIssues = new List[plan.getLocationCount()];
+                this.results = new List[plan.getResultCount()];
+            }
+
+            /**
+             * Evaluate a constraint location once; issues generated during evaluation are reported for each constraint
+             */
+            private Collection<FHIRPathNode> evaluateLocation(int slot, String location) throws FHIRPathException {
+                if (locations[slot] == null) {
+                    locations[slot] = evaluator.evaluate(evaluationContext, location, singleton);
+                    locationIssues[slot] = new ArrayList<>(evaluationContext.getIssues());
+                    evaluationContext.clearIssues();
+                }
+                issues.addAll(locationIssues[slot]);
+                return locations[slot];
+            }
+
+            /**
+             * @return the values of the %resource (index 0) and %rootResource (index 1) external constants for the passed context node
+             */
+            private FHIRPathResourceNode[] getResourceNodes(FHIRPathNode contextNode) {
+                if (resourceNodeMap == null) {
+                    resourceNodeMap = new IdentityHashMap<>();
+                }
+                return resourceNodeMap.computeIfAbsent(contextNode, k -> new FHIRPathResourceNode[] { getResourceNode(k), getRootResourceNode(k) });
+            }
         }
 
         /**
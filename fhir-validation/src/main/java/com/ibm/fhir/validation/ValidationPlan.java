@@ -0,0 +1,356 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation;
+
+import static com.ibm.fhir.core.util.ConcurrentLRUCache.createConcurrentLRUCache;
+import static com.ibm.fhir.profile.ProfileSupport.createConstraint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.fhir.model.annotation.Constraint;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.resource.StructureDefinition;
+import com.ibm.fhir.model.type.Element;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.code.IssueSeverity;
+import com.ibm.fhir.model.util.ModelSupport;
+import com.ibm.fhir.model.util.ModelSupport.ElementInfo;
+import com.ibm.fhir.model.visitor.DefaultVisitor;
+import com.ibm.fhir.profile.ProfileSupport;
+
+/**
+ * A precomputed validation plan for a model type and, for resource types, a set of profiles.
+ *
+ * <p>A plan holds the constraints that apply to a node in evaluation order. Model-checked constraints and profile
+ * constraints whose location can never be resolved against the type are dropped when the plan is built. Each
+ * distinct constraint location is assigned a slot so that the location is evaluated once per node, and identical
+ * constraints (for example, the same constraint contributed by an explicit and a resource-asserted profile)
+ * share a result slot so that they are evaluated once per node.
+ *
+ * <p>Plans are immutable and shared across validator instances.
+ */
+final class ValidationPlan {
+    private static final int PROFILE_PLAN_CACHE_MAX_ENTRIES = 1024;
+    private static final int EXTENSION_PLAN_CACHE_MAX_ENTRIES = 1024;
+
+    private static final Map<Class<?>, ValidationPlan> TYPE_PLAN_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, ValidationPlan> PROFILE_PLAN_CACHE = createConcurrentLRUCache(PROFILE_PLAN_CACHE_MAX_ENTRIES);
+    private static final Map<String, ValidationPlan> EXTENSION_PLAN_CACHE = createConcurrentLRUCache(EXTENSION_PLAN_CACHE_MAX_ENTRIES);
+    private static final Set<Class<?>> CONSTRAINED_SUBTREE_TYPES = computeConstrainedSubtreeTypes();
+
+    private final List<Step> steps;
+    private final int profileReferenceIndex;
+    private final int locationCount;
+    private final int resultCount;
+
+    private ValidationPlan(List<Step> steps, int profileReferenceIndex, int locationCount, int resultCount) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.profileReferenceIndex = profileReferenceIndex;
+        this.locationCount = locationCount;
+        this.resultCount = resultCount;
+    }
+
+    /**
+     * @return the steps of this plan in evaluation order
+     */
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the index of the first step contributed by resource-asserted profiles; resource-asserted profile
+     *     references are validated before this step is executed
+     */
+    int getProfileReferenceIndex() {
+        return profileReferenceIndex;
+    }
+
+    /**
+     * @return the number of distinct (non-base) constraint locations in this plan
+     */
+    int getLocationCount() {
+        return locationCount;
+    }
+
+    /**
+     * @return the number of distinct constraints in this plan
+     */
+    int getResultCount() {
+        return resultCount;
+    }
+
+    /**
+     * Get the plan for the constraints of the passed model type
+     *
+     * @param type
+     *     a model class
+     * @return
+     *     the plan for the constraints of the model type
+     */
+    static ValidationPlan getPlan(Class<?> type) {
+        return TYPE_PLAN_CACHE.computeIfAbsent(type, k -> new Builder(k).add(ModelSupport.getConstraints(k)).build());
+    }
+
+    /**
+     * Get the plan for an extension node with an absolute url; the plan includes a generated constraint that
+     * checks the extension against its definition
+     *
+     * @param url
+     *     the absolute url of an extension definition that is known to the FHIRRegistry
+     * @return
+     *     the plan for the extension node
+     */
+    static ValidationPlan getExtensionPlan(String url) {
+        return EXTENSION_PLAN_CACHE.computeIfAbsent(url, k -> new Builder(Extension.class)
+            .add(ModelSupport.getConstraints(Extension.class))
+            .add(Collections.singletonList(createConstraint("generated-ext-1", Constraint.LEVEL_RULE, Constraint.LOCATION_BASE, "Extension must conform to definition '" + k + "'", "conformsTo('" + k + "')", false, true)))
+            .build());
+    }
+
+    /**
+     * Get the plan for a resource node of the passed type
+     *
+     * @param resourceType
+     *     the resource type
+     * @param resourceAssertedProfiles
+     *     the resource-asserted profile references to include or null if resource-asserted profiles are not considered
+     * @param profiles
+     *     the specific profile references to include
+     * @return
+     *     the plan for the base constraints of the resource type followed by the constraints of the profiles
+     */
+    static ValidationPlan getPlan(Class<?> resourceType, List<String> resourceAssertedProfiles, List<String> profiles) {
+        if ((resourceAssertedProfiles == null || resourceAssertedProfiles.isEmpty()) && profiles.isEmpty()) {
+            return getPlan(resourceType);
+        }
+        StringBuilder key = new StringBuilder(resourceType.getName());
+        appendKey(key, resourceType, resourceAssertedProfiles);
+        appendKey(key, resourceType, profiles);
+        return PROFILE_PLAN_CACHE.computeIfAbsent(key.toString(), k -> {
+            Builder builder = new Builder(resourceType).add(ModelSupport.getConstraints(resourceType));
+            if (resourceAssertedProfiles != null) {
+                builder.markProfileReferences();
+                builder.add(ProfileSupport.getConstraints(resourceAssertedProfiles, resourceType));
+            }
+            return builder.add(ProfileSupport.getConstraints(profiles, resourceType)).build();
+        });
+    }
+
+    /**
+     * Profiles are keyed by url and version so that a plan is rebuilt when a new version of a profile is registered
+     */
+    private static void appendKey(StringBuilder key, Class<?> resourceType, List<String> profiles) {
+        key.append(profiles == null ? "#" : "|");
+        if (profiles != null) {
+            for (String url : profiles) {
+                StructureDefinition profile = ProfileSupport.getProfile(url, resourceType);
+                key.append(url);
+                if (profile != null && profile.getVersion() != null) {
+                    key.append("|").append(profile.getVersion().getValue());
+                }
+                key.append(",");
+            }
+        }
+    }
+
+    /**
+     * Determine whether the children of an element node can be skipped during validation; this is the case when
+     * no element type in the subtree of the element has constraints and the element does not contain extensions
+     *
+     * @param element
+     *     the element of an element node
+     * @return
+     *     true if no constraints apply to the descendants of the element node, false otherwise
+     */
+    static boolean canSkipChildren(Element element) {
+        if (CONSTRAINED_SUBTREE_TYPES.contains(element.getClass())) {
+            return false;
+        }
+        if (ModelSupport.isPrimitiveType(element.getClass())) {
+            // the only element children of a primitive type are its extensions
+            return element.getExtension().isEmpty();
+        }
+        ExtensionFinder finder = new ExtensionFinder();
+        element.accept(finder);
+        return !finder.found;
+    }
+
+    /**
+     * The model classes whose subtree (ignoring extensions) contains at least one element type with a constraint
+     * that is not model-checked; extensions are excluded from this closure because they can occur anywhere and are
+     * checked per element instead
+     */
+    private static Set<Class<?>> computeConstrainedSubtreeTypes() {
+        Set<Class<?>> result = new HashSet<>();
+        for (Class<?> modelClass : ModelSupport.getModelClasses()) {
+            if (Resource.class.isAssignableFrom(modelClass) || ModelSupport.isAbstract(modelClass) || !getPlan(modelClass).steps.isEmpty()) {
+                result.add(modelClass);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Class<?> modelClass : ModelSupport.getModelClasses()) {
+                if (!result.contains(modelClass) && hasConstrainedElement(modelClass, result)) {
+                    result.add(modelClass);
+                    changed = true;
+                }
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static boolean hasConstrainedElement(Class<?> modelClass, Set<Class<?>> constrainedTypes) {
+        for (ElementInfo elementInfo : ModelSupport.getElementInfo(modelClass)) {
+            if ("extension".equals(elementInfo.getName()) || "modifierExtension".equals(elementInfo.getName())) {
+                continue;
+            }
+            Collection<Class<?>> types = elementInfo.isChoice() ? elementInfo.getChoiceTypes() : Collections.singleton(elementInfo.getType());
+            for (Class<?> type : types) {
+                if (constrainedTypes.contains(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether a (non-base) constraint location could select nodes of the passed type; locations that
+     * are not simple member paths are assumed to apply
+     */
+    private static boolean isApplicable(Class<?> type, String location) {
+        String[] identifiers = location.split("\\.");
+        if (identifiers.length < 2 || !identifiers[0].equals(ModelSupport.getTypeName(type))) {
+            return true;
+        }
+        Class<?> modelClass = type;
+        for (int i = 1; i < identifiers.length; i++) {
+            String identifier = identifiers[i].replace("`", "");
+            if (identifier.isEmpty() || !identifier.chars().allMatch(Character::isJavaIdentifierPart)) {
+                return true;
+            }
+            ElementInfo elementInfo = ModelSupport.getElementInfo(modelClass, identifier);
+            if (elementInfo == null) {
+                return ModelSupport.getChoiceElementInfo(modelClass, identifier) != null;
+            }
+            if (elementInfo.isChoice() || !ModelSupport.isModelClass(elementInfo.getType()) || ModelSupport.isAbstract(elementInfo.getType())) {
+                return true;
+            }
+            modelClass = elementInfo.getType();
+        }
+        return true;
+    }
+
+    /**
+     * A single constraint of a plan
+     */
+    static final class Step {
+        private final Constraint constraint;
+        private final IssueSeverity severity;
+        private final int locationSlot;
+        private final int resultSlot;
+
+        private Step(Constraint constraint, int locationSlot, int resultSlot) {
+            this.constraint = constraint;
+            this.severity = Constraint.LEVEL_WARNING.equals(constraint.level()) ? IssueSeverity.WARNING : IssueSeverity.ERROR;
+            this.locationSlot = locationSlot;
+            this.resultSlot = resultSlot;
+        }
+
+        Constraint getConstraint() {
+            return constraint;
+        }
+
+        IssueSeverity getSeverity() {
+            return severity;
+        }
+
+        /**
+         * @return the slot of the constraint location or -1 if the constraint applies to the node itself
+         */
+        int getLocationSlot() {
+            return locationSlot;
+        }
+
+        /**
+         * @return the slot shared by all steps with an identical constraint
+         */
+        int getResultSlot() {
+            return resultSlot;
+        }
+    }
+
+    private static final class Builder {
+        private final Class<?> type;
+        private final List<Step> steps = new ArrayList<>();
+        private final Map<String, Integer> locationSlots = new HashMap<>();
+        private final Map<String, Integer> resultSlots = new HashMap<>();
+        private int profileReferenceIndex = -1;
+
+        private Builder(Class<?> type) {
+            this.type = type;
+        }
+
+        private Builder add(Collection<Constraint> constraints) {
+            for (Constraint constraint : constraints) {
+                if (constraint.modelChecked()) {
+                    continue;
+                }
+                int locationSlot = -1;
+                if (!Constraint.LOCATION_BASE.equals(constraint.location())) {
+                    if (!isApplicable(type, constraint.location())) {
+                        continue;
+                    }
+                    locationSlot = locationSlots.computeIfAbsent(constraint.location(), k -> locationSlots.size());
+                }
+                String key = constraint.id() + "|" + constraint.level() + "|" + constraint.location() + "|" + constraint.expression();
+                int resultSlot = resultSlots.computeIfAbsent(key, k -> resultSlots.size());
+                steps.add(new Step(constraint, locationSlot, resultSlot));
+            }
+            return this;
+        }
+
+        private void markProfileReferences() {
+            profileReferenceIndex = steps.size();
+        }
+
+        private ValidationPlan build() {
+            return new ValidationPlan(steps, profileReferenceIndex, locationSlots.size(), resultSlots.size());
+        }
+    }
+
+    /**
+     * Stops at the first extension found in the visited element
+     */
+    private static final class ExtensionFinder extends DefaultVisitor {
+        private boolean found = false;
+
+        private ExtensionFinder() {
+            super(true);
+        }
+
+        @Override
+        public boolean preVisit(Element element) {
+            return !found;
+        }
+
+        @Override
+        public boolean visit(java.lang.String elementName, int elementIndex, Extension extension) {
+            found = true;
+            return false;
+        }
+    }
+}
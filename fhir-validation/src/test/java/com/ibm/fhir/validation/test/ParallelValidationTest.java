@@ -0,0 +1,135 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.config.FHIRRequestContext;
+import com.ibm.fhir.examples.Index;
+import com.ibm.fhir.model.resource.Bundle;
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.resource.Resource;
+import com.ibm.fhir.model.spec.test.R4ExamplesDriver;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.code.BundleType;
+import com.ibm.fhir.registry.FHIRRegistry;
+import com.ibm.fhir.registry.resource.FHIRRegistryResource;
+import com.ibm.fhir.registry.spi.FHIRRegistryResourceProvider;
+import com.ibm.fhir.validation.FHIRValidator;
+
+/**
+ * Verifies that parallel validation produces the same issues, in the same order, as sequential validation
+ */
+public class ParallelValidationTest {
+    private final FHIRValidator sequential = FHIRValidator.validator();
+    private final FHIRValidator parallel = FHIRValidator.validator(true);
+
+    @Test
+    public void testExamples() throws Exception {
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor((jsonFile, resource) -> assertParity(resource));
+        driver.processIndex(Index.MINIMAL_JSON);
+    }
+
+    @Test
+    public void testBundle() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        R4ExamplesDriver driver = new R4ExamplesDriver();
+        driver.setProcessor((jsonFile, resource) -> resources.add(resource));
+        driver.processIndex(Index.MINIMAL_JSON);
+
+        Bundle.Builder builder = Bundle.builder().type(BundleType.COLLECTION);
+        for (Resource resource : resources) {
+            builder.entry(Bundle.Entry.builder()
+                .resource(resource)
+                .build());
+        }
+        Bundle bundle = builder.build();
+
+        List<Issue> issues = assertParity(bundle);
+        assertFalse(issues.isEmpty());
+    }
+
+    @Test
+    public void testRequestContext() throws Exception {
+        String url = "http://ibm.com/fhir/StructureDefinition/parallel-validation-test";
+        List<String> tenants = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        FHIRRegistry.getInstance().register(new FHIRRegistryResourceProvider() {
+            @Override
+            public FHIRRegistryResource getRegistryResource(Class<? extends Resource> resourceType, String resourceUrl, String version) {
+                if (url.equals(resourceUrl)) {
+                    tenants.add(FHIRRequestContext.get().getTenantId());
+                    threads.add(Thread.currentThread().getName());
+                }
+                return null;
+            }
+
+            @Override
+            public Collection<FHIRRegistryResource> getRegistryResources(Class<? extends Resource> resourceType) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Collection<FHIRRegistryResource> getRegistryResources() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Collection<FHIRRegistryResource> getProfileResources(String type) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Collection<FHIRRegistryResource> getSearchParameterResources(String type) {
+                return Collections.emptyList();
+            }
+        });
+
+        Patient patient = Patient.builder()
+                .extension(Extension.builder().url(url).value(com.ibm.fhir.model.type.String.of("test")).build())
+                .build();
+        Bundle bundle = Bundle.builder()
+                .type(BundleType.COLLECTION)
+                .entry(Bundle.Entry.builder().resource(patient).build(), Bundle.Entry.builder().resource(patient).build())
+                .build();
+
+        FHIRRequestContext previous = FHIRRequestContext.get();
+        FHIRRequestContext.set(new FHIRRequestContext("parallel-tenant"));
+        try {
+            parallel.validate(bundle);
+        } finally {
+            FHIRRequestContext.set(previous);
+        }
+
+        // the extension of each entry resource is looked up on a validation pool thread in the tenant of the caller
+        assertFalse(tenants.isEmpty());
+        for (String tenant : tenants) {
+            assertEquals(tenant, "parallel-tenant");
+        }
+        for (String thread : threads) {
+            assertTrue(thread.startsWith("fhir-validation-"), thread);
+        }
+    }
+
+    private List<Issue> assertParity(Resource resource) throws Exception {
+        List<Issue> expected = sequential.validate(resource);
+        List<Issue> actual = parallel.validate(resource);
+        assertEquals(actual, expected);
+        return actual;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright IBM Corp. 2020
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package com.ibm.fhir.validation.test;
+
+import static com.ibm.fhir.model.type.String.string;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.Test;
+
+import com.ibm.fhir.model.resource.OperationOutcome.Issue;
+import com.ibm.fhir.model.resource.Patient;
+import com.ibm.fhir.model.type.Code;
+import com.ibm.fhir.model.type.CodeableConcept;
+import com.ibm.fhir.model.type.Coding;
+import com.ibm.fhir.model.type.Extension;
+import com.ibm.fhir.model.type.Uri;
+import com.ibm.fhir.model.type.code.AdministrativeGender;
+import com.ibm.fhir.model.type.code.IssueSeverity;
+import com.ibm.fhir.validation.FHIRValidator;
+
+/**
+ * Verifies that extensions nested in elements without constraints are still validated
+ */
+public class ValidationPlanTest {
+    private static final String EXTENSION_URL = "http://example.com/fhir/StructureDefinition/unknown-extension";
+
+    @Test
+    public void testNestedExtensions() throws Exception {
+        Extension extension = Extension.builder()
+                .url(EXTENSION_URL)
+                .value(string("test"))
+                .build();
+
+        Patient patient = Patient.builder()
+                .gender(AdministrativeGender.builder()
+                    .value(AdministrativeGender.ValueSet.FEMALE)
+                    .extension(extension)
+                    .build())
+                .maritalStatus(CodeableConcept.builder()
+                    .coding(Coding.builder()
+                        .system(Uri.of("http://terminology.hl7.org/CodeSystem/v3-MaritalStatus"))
+                        .code(Code.builder()
+                            .value("M")
+                            .extension(extension)
+                            .build())
+                        .build())
+                    .build())
+                .build();
+
+        List<Issue> issues = FHIRValidator.validator().validate(patient);
+        issues.forEach(System.out::println);
+
+        List<String> expressions = issues.stream()
+                .filter(issue -> IssueSeverity.WARNING.equals(issue.getSeverity()))
+                .filter(issue -> issue.getDetails().getText().getValue().contains(EXTENSION_URL))
+                .map(issue -> issue.getExpression().get(0).getValue())
+                .collect(Collectors.toList());
+
+        assertEquals(expressions.size(), 2);
+        assertEquals(expressions.get(0), "Patient.gender.extension[0]");
+        assertEquals(expressions.get(1), "Patient.maritalStatus.coding[0].code.extension[0]");
+    }
+}
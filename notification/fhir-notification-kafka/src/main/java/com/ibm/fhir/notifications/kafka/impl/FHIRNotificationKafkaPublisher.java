@@ -99,6 +99,8 @@ public class FHIRNotificationKafkaPublisher implements FHIRNotificationSubscribe
             if (log.isLoggable(Level.FINE)) {
                 log.fine("Shutting down Kafka publisher for topic: '" + topicName + "'.");
             }
+            // Deliver the events queued for this publisher before disconnecting.
+            service.unsubscribe(this);
             if (producer != null) {
                 producer.close();
             }
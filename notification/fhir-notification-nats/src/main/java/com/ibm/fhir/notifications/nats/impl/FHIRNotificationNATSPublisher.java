@@ -139,6 +139,8 @@ public class FHIRNotificationNATSPublisher implements FHIRNotificationSubscriber
             if (log.isLoggable(Level.FINE)) {   
                 log.fine("Shutting down NATS publisher for channel: '" + channelName + "'.");
             }
+            // Deliver the events queued for this publisher before disconnecting.
+            service.unsubscribe(this);
             if (sc != null) {
                sc.close();
             }